@@ -57,9 +57,9 @@ public class BaseJustifiedInference<C, J> extends BaseInference<C>
 		if (this == o) {
 			return true;
 		}
-		if (o instanceof BaseJustifiedInference<?, ?>) {
+		if (o instanceof JustifiedInference<?, ?>) {
 			return super.equals(o) && justification_
-					.equals(((BaseJustifiedInference<?, ?>) o).justification_);
+					.equals(((JustifiedInference<?, ?>) o).getJustification());
 		}
 		// else
 		return false;
@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,8 +34,17 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+
 /**
- * A base implementation for proofs.
+ * A base implementation for proofs. This {@link DynamicProof} supports
+ * notifications about individual inferences for
+ * {@link DynamicProof.InferenceChangeListener}s, except for {@link #clear()}
+ * after which {@link DynamicProof.ChangeListener#inferencesChanged()} is
+ * called. Changes made between {@link #startBatch()} and {@link #endBatch()}
+ * are reported at the end using
+ * {@link DynamicProof.InferenceChangeListener#conclusionInvalidated(Object)}
+ * once for every changed conclusion.
  * 
  * @author Yevgeny Kazakov
  * @author Peter Skocovsky
@@ -58,6 +68,17 @@ public class BaseProof<I extends Inference<?>>
 
 	private final List<ChangeListener> listeners_ = new ArrayList<ChangeListener>();
 
+	/**
+	 * the number of calls of {@link #startBatch()} without the matching calls
+	 * of {@link #endBatch()}
+	 */
+	private int batchDepth_ = 0;
+
+	/**
+	 * conclusions whose inferences have changed since {@link #startBatch()}
+	 */
+	private final Set<Object> changedInBatch_ = new LinkedHashSet<Object>();
+
 	@Override
 	public Collection<? extends I> getInferences(Object conclusion) {
 		queried_.add(conclusion);
@@ -88,9 +109,50 @@ public class BaseProof<I extends Inference<?>>
 			inferences_.put(conclusion, existing);
 		}
 		existing.add(inference);
+		if (batchDepth_ > 0) {
+			changedInBatch_.add(conclusion);
+			return;
+		}
+		// else
+		for (int i = 0; i < listeners_.size(); i++) {
+			ChangeListener listener = listeners_.get(i);
+			if (listener instanceof InferenceChangeListener) {
+				((InferenceChangeListener) listener).inferenceAdded(inference);
+			}
+		}
+		if (queried_.contains(conclusion)) {
+			fireChanged();
+		}
+	}
+
+	@Override
+	public boolean remove(final I inference) {
+		final Object conclusion = inference.getConclusion();
+		Collection<I> existing = inferences_.get(conclusion);
+		if (existing == null || !existing.remove(inference)) {
+			return false;
+		}
+		// else
+		LOGGER_.trace("{}: inference removed", inference);
+		if (existing.isEmpty()) {
+			inferences_.remove(conclusion);
+		}
+		if (batchDepth_ > 0) {
+			changedInBatch_.add(conclusion);
+			return true;
+		}
+		// else
+		for (int i = 0; i < listeners_.size(); i++) {
+			ChangeListener listener = listeners_.get(i);
+			if (listener instanceof InferenceChangeListener) {
+				((InferenceChangeListener) listener)
+						.inferenceRemoved(inference);
+			}
+		}
 		if (queried_.contains(conclusion)) {
 			fireChanged();
 		}
+		return true;
 	}
 
 	@Override
@@ -101,15 +163,70 @@ public class BaseProof<I extends Inference<?>>
 		// else
 		LOGGER_.trace("inferences cleared");
 		inferences_.clear();
-		if (!queried_.isEmpty()) {
+		// all conclusions are changed anyway
+		changedInBatch_.clear();
+		boolean queried = !queried_.isEmpty();
+		queried_.clear();
+		for (ChangeListener listener : listeners_) {
+			if (queried || listener instanceof InferenceChangeListener) {
+				listener.inferencesChanged();
+			}
+		}
+	}
+
+	/**
+	 * Starts a bulk update of this {@link Proof}: the notifications about the
+	 * inferences added or removed until the matching call of
+	 * {@link #endBatch()} are postponed and combined. Batches can be nested;
+	 * the notifications are delivered at the end of the outermost batch.
+	 */
+	public void startBatch() {
+		batchDepth_++;
+	}
+
+	/**
+	 * Finishes the bulk update started by {@link #startBatch()}; if this was
+	 * the outermost batch, for every conclusion whose inferences have changed,
+	 * {@link DynamicProof.InferenceChangeListener#conclusionInvalidated(Object)}
+	 * is called, and other {@link DynamicProof.ChangeListener}s are notified
+	 * once if inferences of some queried conclusion have changed.
+	 */
+	public void endBatch() {
+		Preconditions.checkState(batchDepth_ > 0, "no batch started");
+		if (--batchDepth_ > 0) {
+			return;
+		}
+		// else
+		boolean queried = false;
+		for (Object conclusion : changedInBatch_) {
+			if (queried_.contains(conclusion)) {
+				queried = true;
+			}
+			for (int i = 0; i < listeners_.size(); i++) {
+				ChangeListener listener = listeners_.get(i);
+				if (listener instanceof InferenceChangeListener) {
+					((InferenceChangeListener) listener)
+							.conclusionInvalidated(conclusion);
+				}
+			}
+		}
+		changedInBatch_.clear();
+		if (queried) {
 			fireChanged();
 		}
 	}
 
+	/**
+	 * Notifies the {@link DynamicProof.ChangeListener}s that are not
+	 * {@link DynamicProof.InferenceChangeListener}s that inferences have
+	 * changed
+	 */
 	protected void fireChanged() {
 		queried_.clear();
 		for (ChangeListener listener : listeners_) {
-			listener.inferencesChanged();
+			if (!(listener instanceof InferenceChangeListener)) {
+				listener.inferencesChanged();
+			}
 		}
 	}
 
@@ -22,14 +22,22 @@
 package org.liveontologies.puli;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+
+import org.liveontologies.puli.statistics.ResetStats;
+import org.liveontologies.puli.statistics.Stat;
+
+import com.google.common.cache.CacheBuilderSpec;
 
 /**
  * A {@link DynamicProof} which caches the inferences returned by the input
  * {@link DynamicProof} by {@link DynamicProof#getInferences(Object)}. When this
  * method is called for the second time with the same input, the cached version
- * is used, unless the input proof has changed since the fist call.
+ * is used, unless the input proof has changed since the fist call. If the
+ * input proof reports changes of individual inferences (see
+ * {@link DynamicProof.InferenceChangeListener}), only the cached inferences of
+ * the affected conclusions are discarded. The cached inferences can also be
+ * evicted according to a {@link CacheBuilderSpec} string, as described for
+ * {@link CachingProof}.
  * 
  * @author Yevgeny Kazakov
  *
@@ -38,28 +46,71 @@ import java.util.Map;
  */
 public class CachingDynamicProof<I extends Inference<?>>
 		extends DelegatingDynamicProof<I, DynamicProof<? extends I>>
-		implements DynamicProof.ChangeListener {
+		implements DynamicProof.InferenceChangeListener {
 
-	private final Map<Object, Collection<? extends I>> inferenceCache_ = new HashMap<Object, Collection<? extends I>>();
+	private final InferenceCache<I> inferenceCache_;
 
-	public CachingDynamicProof(DynamicProof<? extends I> delegate) {
+	/**
+	 * @param delegate
+	 *            the {@link DynamicProof} whose inferences are cached
+	 * @param cacheSpec
+	 *            the {@link CacheBuilderSpec} specifying when the cached
+	 *            inferences are evicted
+	 */
+	public CachingDynamicProof(DynamicProof<? extends I> delegate,
+			String cacheSpec) {
 		super(delegate);
+		this.inferenceCache_ = new InferenceCache<I>(cacheSpec);
 		addListener(this);
 	}
 
+	public CachingDynamicProof(DynamicProof<? extends I> delegate) {
+		this(delegate, "");
+	}
+
 	@Override
 	public Collection<? extends I> getInferences(Object conclusion) {
-		Collection<? extends I> result = inferenceCache_.get(conclusion);
-		if (result == null) {
-			result = super.getInferences(conclusion);
-			inferenceCache_.put(conclusion, result);
-		}
-		return result;
+		return inferenceCache_.getInferences(getDelegate(), conclusion);
+	}
+
+	@Override
+	public void inferenceAdded(Inference<?> inference) {
+		inferenceCache_.invalidate(inference.getConclusion());
+	}
+
+	@Override
+	public void inferenceRemoved(Inference<?> inference) {
+		inferenceCache_.invalidate(inference.getConclusion());
+	}
+
+	@Override
+	public void conclusionInvalidated(Object conclusion) {
+		inferenceCache_.invalidate(conclusion);
 	}
 
 	@Override
 	public void inferencesChanged() {
-		inferenceCache_.clear();
+		inferenceCache_.invalidateAll();
+	}
+
+	@Stat
+	public long cacheHits() {
+		return inferenceCache_.getStats().hitCount();
+	}
+
+	@Stat
+	public long cacheMisses() {
+		return inferenceCache_.getStats().missCount();
+	}
+
+	@Stat
+	public long cacheEvictions() {
+		return inferenceCache_.getStats().evictionCount();
+	}
+
+	@ResetStats
+	public void resetStats() {
+		inferenceCache_.resetStats();
 	}
 
 	@Override
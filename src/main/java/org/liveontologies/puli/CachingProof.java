@@ -22,13 +22,21 @@
 package org.liveontologies.puli;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+
+import org.liveontologies.puli.statistics.ResetStats;
+import org.liveontologies.puli.statistics.Stat;
+
+import com.google.common.cache.CacheBuilderSpec;
 
 /**
  * A {@link Proof} which caches the inferences returned by the input
  * {@link Proof} by {@link Proof#getInferences(Object)}. When this method is
- * called for the second time with the same input, the cached version is used.
+ * called for the second time with the same input, the cached version is used,
+ * unless it was evicted from the cache. The eviction strategy is determined by
+ * a {@link CacheBuilderSpec} string, e.g.,
+ * {@code "maximumSize=10000,expireAfterAccess=10m"}; if
+ * {@code maximumWeight} is specified, the weight of a cached entry is the
+ * number of inferences in it. By default, the entries are never evicted.
  * 
  * @author Yevgeny Kazakov
  *
@@ -38,20 +46,47 @@ import java.util.Map;
 public class CachingProof<I extends Inference<?>>
 		extends DelegatingProof<I, Proof<? extends I>> {
 
-	private final Map<Object, Collection<? extends I>> inferenceCache_ = new HashMap<Object, Collection<? extends I>>();
+	private final InferenceCache<I> inferenceCache_;
 
-	public CachingProof(Proof<? extends I> delegate) {
+	/**
+	 * @param delegate
+	 *            the {@link Proof} whose inferences are cached
+	 * @param cacheSpec
+	 *            the {@link CacheBuilderSpec} specifying when the cached
+	 *            inferences are evicted
+	 */
+	public CachingProof(Proof<? extends I> delegate, String cacheSpec) {
 		super(delegate);
+		this.inferenceCache_ = new InferenceCache<I>(cacheSpec);
+	}
+
+	public CachingProof(Proof<? extends I> delegate) {
+		this(delegate, "");
 	}
 
 	@Override
 	public Collection<? extends I> getInferences(Object conclusion) {
-		Collection<? extends I> result = inferenceCache_.get(conclusion);
-		if (result == null) {
-			result = super.getInferences(conclusion);
-			inferenceCache_.put(conclusion, result);
-		}
-		return result;
+		return inferenceCache_.getInferences(getDelegate(), conclusion);
+	}
+
+	@Stat
+	public long cacheHits() {
+		return inferenceCache_.getStats().hitCount();
+	}
+
+	@Stat
+	public long cacheMisses() {
+		return inferenceCache_.getStats().missCount();
+	}
+
+	@Stat
+	public long cacheEvictions() {
+		return inferenceCache_.getStats().evictionCount();
+	}
+
+	@ResetStats
+	public void resetStats() {
+		inferenceCache_.resetStats();
 	}
 
 }
@@ -0,0 +1,380 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.liveontologies.puli.collections.Interner;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link Proof} that stores {@link AxiomPinpointingInference}s in a compact
+ * form: the conclusions, premises, axioms, and inference names are replaced
+ * by {@code int} ids, and the ids of premises and justifications of all
+ * inferences are stored consecutively in shared arrays, accessed by offsets
+ * (compressed sparse row layout). The inferences returned by
+ * {@link #getInferences(Object)} are lightweight views of this data, which are
+ * created on demand. This proof can be filled using {@link #produce}, e.g.,
+ * with {@link Proofs#unfoldRecursively(Proof, Object, Producer)}. The
+ * inferences cannot be removed.
+ * 
+ * @param <C>
+ *            the type of conclusions and premises of the inferences
+ * @param <A>
+ *            the type of axioms in the justifications of the inferences
+ */
+public class CompactProof<C, A>
+		implements Proof<AxiomPinpointingInference<C, A>>,
+		Producer<AxiomPinpointingInference<? extends C, ? extends A>> {
+
+	private static final int INIT_CAPACITY_ = 16;
+
+	private final Interner<C> conclusionIds_ = new Interner<C>();
+
+	private final Interner<A> axiomIds_ = new Interner<A>();
+
+	private final Interner<String> nameIds_ = new Interner<String>();
+
+	/**
+	 * the number of inferences stored in this proof
+	 */
+	private int inferenceCount_ = 0;
+
+	/**
+	 * the id of the name of each inference
+	 */
+	private int[] inferenceName_ = new int[INIT_CAPACITY_];
+
+	/**
+	 * the id of the conclusion of each inference
+	 */
+	private int[] inferenceConclusion_ = new int[INIT_CAPACITY_];
+
+	/**
+	 * the premise ids of inference {@code i} are stored in {@link #premises_}
+	 * from position {@code premiseStart_[i]} to position
+	 * {@code premiseStart_[i + 1] - 1}
+	 */
+	private int[] premiseStart_ = new int[INIT_CAPACITY_ + 1];
+
+	private int[] premises_ = new int[INIT_CAPACITY_];
+
+	/**
+	 * the axiom ids of inference {@code i} are stored in sorted order in
+	 * {@link #axioms_} from position {@code axiomStart_[i]} to position
+	 * {@code axiomStart_[i + 1] - 1}
+	 */
+	private int[] axiomStart_ = new int[INIT_CAPACITY_ + 1];
+
+	private int[] axioms_ = new int[INIT_CAPACITY_];
+
+	/**
+	 * the next inference with the same conclusion or {@code -1}
+	 */
+	private int[] nextInference_ = new int[INIT_CAPACITY_];
+
+	/**
+	 * the first and the last inference for each conclusion id or {@code -1}
+	 */
+	private int[] firstInference_ = new int[0], lastInference_ = new int[0];
+
+	/**
+	 * the number of inferences for each conclusion id
+	 */
+	private int[] inferenceCounts_ = new int[0];
+
+	@Override
+	public void produce(
+			AxiomPinpointingInference<? extends C, ? extends A> inference) {
+		int inf = inferenceCount_;
+		if (inf == inferenceName_.length) {
+			int capacity = inf << 1;
+			inferenceName_ = Arrays.copyOf(inferenceName_, capacity);
+			inferenceConclusion_ = Arrays.copyOf(inferenceConclusion_,
+					capacity);
+			nextInference_ = Arrays.copyOf(nextInference_, capacity);
+			premiseStart_ = Arrays.copyOf(premiseStart_, capacity + 1);
+			axiomStart_ = Arrays.copyOf(axiomStart_, capacity + 1);
+		}
+		inferenceName_[inf] = nameIds_.getId(inference.getName());
+		int conclusion = getId(inference.getConclusion());
+		inferenceConclusion_[inf] = conclusion;
+		// premises
+		int pos = premiseStart_[inf];
+		List<? extends C> premises = inference.getPremises();
+		premises_ = ensureCapacity(premises_, pos + premises.size());
+		for (C premise : premises) {
+			premises_[pos++] = getId(premise);
+		}
+		premiseStart_[inf + 1] = pos;
+		// justification
+		int start = axiomStart_[inf];
+		pos = start;
+		Set<? extends A> justification = inference.getJustification();
+		axioms_ = ensureCapacity(axioms_, pos + justification.size());
+		for (A axiom : justification) {
+			axioms_[pos++] = axiomIds_.getId(axiom);
+		}
+		Arrays.sort(axioms_, start, pos);
+		axiomStart_[inf + 1] = pos;
+		// appending to the inferences of the conclusion
+		nextInference_[inf] = -1;
+		int last = lastInference_[conclusion];
+		if (last < 0) {
+			firstInference_[conclusion] = inf;
+		} else {
+			nextInference_[last] = inf;
+		}
+		lastInference_[conclusion] = inf;
+		inferenceCounts_[conclusion]++;
+		inferenceCount_++;
+	}
+
+	@Override
+	public Collection<? extends AxiomPinpointingInference<C, A>> getInferences(
+			Object conclusion) {
+		final int id = conclusionIds_.find(conclusion);
+		if (id < 0) {
+			return Collections.emptyList();
+		}
+		// else
+		return new AbstractCollection<AxiomPinpointingInference<C, A>>() {
+
+			@Override
+			public Iterator<AxiomPinpointingInference<C, A>> iterator() {
+				return new InferenceIterator(firstInference_[id]);
+			}
+
+			@Override
+			public int size() {
+				return inferenceCounts_[id];
+			}
+
+		};
+	}
+
+	/**
+	 * @return the number of inferences stored in this proof
+	 */
+	public int getInferenceCount() {
+		return inferenceCount_;
+	}
+
+	/**
+	 * @return the number of different conclusions and premises of the
+	 *         inferences stored in this proof
+	 */
+	public int getConclusionCount() {
+		return conclusionIds_.size();
+	}
+
+	private int getId(C conclusion) {
+		int id = conclusionIds_.getId(conclusion);
+		if (id == firstInference_.length) {
+			int capacity = Math.max(INIT_CAPACITY_, id << 1);
+			firstInference_ = Arrays.copyOf(firstInference_, capacity);
+			lastInference_ = Arrays.copyOf(lastInference_, capacity);
+			inferenceCounts_ = Arrays.copyOf(inferenceCounts_, capacity);
+			Arrays.fill(firstInference_, id, capacity, -1);
+			Arrays.fill(lastInference_, id, capacity, -1);
+		}
+		return id;
+	}
+
+	private static int[] ensureCapacity(int[] array, int size) {
+		if (size <= array.length) {
+			return array;
+		}
+		// else
+		int capacity = array.length << 1;
+		while (capacity < size) {
+			capacity <<= 1;
+		}
+		return Arrays.copyOf(array, capacity);
+	}
+
+	private class InferenceIterator
+			implements Iterator<AxiomPinpointingInference<C, A>> {
+
+		private int next_;
+
+		InferenceIterator(int first) {
+			this.next_ = first;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next_ >= 0;
+		}
+
+		@Override
+		public AxiomPinpointingInference<C, A> next() {
+			if (next_ < 0) {
+				throw new NoSuchElementException();
+			}
+			// else
+			CompactInference result = new CompactInference(next_);
+			next_ = nextInference_[next_];
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+	/**
+	 * A view of an inference stored in {@link CompactProof}
+	 */
+	private class CompactInference extends AbstractInference<C>
+			implements AxiomPinpointingInference<C, A> {
+
+		private final int index_;
+
+		CompactInference(int index) {
+			this.index_ = index;
+		}
+
+		@Override
+		public String getName() {
+			return nameIds_.getElement(inferenceName_[index_]);
+		}
+
+		@Override
+		public C getConclusion() {
+			return conclusionIds_.getElement(inferenceConclusion_[index_]);
+		}
+
+		@Override
+		public List<? extends C> getPremises() {
+			return new AbstractList<C>() {
+
+				@Override
+				public C get(int index) {
+					Preconditions.checkElementIndex(index, size());
+					return conclusionIds_.getElement(
+							premises_[premiseStart_[index_] + index]);
+				}
+
+				@Override
+				public int size() {
+					return premiseStart_[index_ + 1] - premiseStart_[index_];
+				}
+
+			};
+		}
+
+		@Override
+		public Set<? extends A> getJustification() {
+			return new AbstractSet<A>() {
+
+				@Override
+				public boolean contains(Object o) {
+					int id = axiomIds_.find(o);
+					return id >= 0 && Arrays.binarySearch(axioms_,
+							axiomStart_[index_], axiomStart_[index_ + 1],
+							id) >= 0;
+				}
+
+				@Override
+				public Iterator<A> iterator() {
+					return new Iterator<A>() {
+
+						private int pos_ = axiomStart_[index_];
+
+						@Override
+						public boolean hasNext() {
+							return pos_ < axiomStart_[index_ + 1];
+						}
+
+						@Override
+						public A next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							// else
+							return axiomIds_.getElement(axioms_[pos_++]);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+
+					};
+				}
+
+				@Override
+				public int size() {
+					return axiomStart_[index_ + 1] - axiomStart_[index_];
+				}
+
+			};
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof CompactProof<?, ?>.CompactInference) {
+				CompactProof<?, ?>.CompactInference other = (CompactProof<?, ?>.CompactInference) o;
+				if (getProof() == other.getProof()
+						&& index_ == other.index_) {
+					return true;
+				}
+			}
+			// else compatible with BaseJustifiedInference
+			if (o instanceof JustifiedInference<?, ?>) {
+				return super.equals(o) && getJustification()
+						.equals(((JustifiedInference<?, ?>) o).getJustification());
+			}
+			// else
+			return false;
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return super.computeHashCode() + getJustification().hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return super.toString() + " justification: " + getJustification();
+		}
+
+		private CompactProof<C, A> getProof() {
+			return CompactProof.this;
+		}
+
+	}
+
+}
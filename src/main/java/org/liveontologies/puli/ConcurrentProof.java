@@ -0,0 +1,328 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link ModifiableProof} that can be used and modified by several threads
+ * concurrently. The inferences of every conclusion are stored in immutable
+ * snapshots, which are replaced atomically when inferences are added or
+ * removed, so {@link #getInferences(Object)} never blocks and returns a
+ * collection that does not change afterwards. Modifications of different
+ * conclusions do not block each other (in most cases).
+ * <p>
+ * {@link DynamicProof.ChangeListener}s (including
+ * {@link DynamicProof.InferenceChangeListener}s) are notified using
+ * {@link DynamicProof.ChangeListener#inferencesChanged()} when a snapshot
+ * returned by {@link #getInferences(Object)} is replaced, i.e., whenever the
+ * inferences of some conclusion change after they have been returned; the
+ * changes of snapshots that were not returned do not trigger notifications.
+ * The notification happens after the change, so the results returned before
+ * the change can be discarded by the listeners. The listeners are notified by
+ * the threads modifying this proof and, therefore, should be thread-safe.
+ * 
+ * @param <I>
+ *            the type of inferences provided by this proof
+ */
+public class ConcurrentProof<I extends Inference<?>>
+		implements ModifiableProof<I>, DynamicProof<I> {
+
+	private static final Logger LOGGER_ = LoggerFactory
+			.getLogger(ConcurrentProof.class);
+
+	private final ConcurrentMap<Object, Snapshot<I>> inferences_ = new ConcurrentHashMap<Object, Snapshot<I>>();
+
+	private final List<ChangeListener> listeners_ = new CopyOnWriteArrayList<ChangeListener>();
+
+	@Override
+	public Collection<? extends I> getInferences(Object conclusion) {
+		for (;;) {
+			Snapshot<I> result = inferences_.get(conclusion);
+			if (result == null) {
+				// the empty snapshot is needed to register the query
+				result = new Snapshot<I>();
+				Snapshot<I> previous = inferences_.putIfAbsent(conclusion,
+						result);
+				if (previous != null) {
+					result = previous;
+				}
+			}
+			result.setQueried();
+			// if the snapshot is still current, the thread replacing it will
+			// see that it was queried; otherwise the change could be missed
+			if (inferences_.get(conclusion) == result) {
+				return result;
+			}
+		}
+	}
+
+	@Override
+	public void addListener(ChangeListener listener) {
+		listeners_.add(listener);
+	}
+
+	@Override
+	public void removeListener(ChangeListener listener) {
+		listeners_.remove(listener);
+	}
+
+	@Override
+	public void produce(I inference) {
+		LOGGER_.trace("{}: inference added", inference);
+		Addition<I> addition = new Addition<I>(inference);
+		inferences_.compute(inference.getConclusion(), addition);
+		replaced(addition.getReplaced());
+	}
+
+	@Override
+	public boolean remove(I inference) {
+		Removal<I> removal = new Removal<I>(inference);
+		inferences_.computeIfPresent(inference.getConclusion(), removal);
+		Snapshot<I> replaced = removal.getReplaced();
+		if (replaced == null) {
+			return false;
+		}
+		// else
+		LOGGER_.trace("{}: inference removed", inference);
+		replaced(replaced);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		if (inferences_.isEmpty()) {
+			return;
+		}
+		// else
+		LOGGER_.trace("inferences cleared");
+		boolean changed = false;
+		for (Object conclusion : inferences_.keySet()) {
+			Snapshot<I> removed = inferences_.remove(conclusion);
+			if (removed != null && removed.isQueried()) {
+				changed = true;
+			}
+		}
+		if (changed) {
+			fireChanged();
+		}
+	}
+
+	/**
+	 * Called after the given snapshot has been replaced
+	 * 
+	 * @param snapshot
+	 */
+	private void replaced(Snapshot<?> snapshot) {
+		// every snapshot is replaced only once, so only one of the
+		// concurrently changing threads can notify about it
+		if (snapshot != null && snapshot.isQueried()) {
+			fireChanged();
+		}
+	}
+
+	/**
+	 * Notifies the {@link DynamicProof.ChangeListener}s that inferences have
+	 * changed
+	 */
+	protected void fireChanged() {
+		for (ChangeListener listener : listeners_) {
+			listener.inferencesChanged();
+		}
+	}
+
+	@Override
+	public void dispose() {
+		// no-op
+	}
+
+	/**
+	 * Computes the new snapshot of a conclusion atomically and remembers the
+	 * snapshot that was replaced, if any
+	 * 
+	 * @param <I>
+	 *            the type of inferences
+	 */
+	private static abstract class SnapshotUpdate<I>
+			implements BiFunction<Object, Snapshot<I>, Snapshot<I>> {
+
+		final I inference;
+
+		private Snapshot<I> replaced_ = null;
+
+		SnapshotUpdate(I inference) {
+			this.inference = inference;
+		}
+
+		/**
+		 * @return the snapshot replaced by the update or {@code null} if the
+		 *         inferences have not changed
+		 */
+		Snapshot<I> getReplaced() {
+			return replaced_;
+		}
+
+		Snapshot<I> replace(Snapshot<I> existing, Snapshot<I> result) {
+			replaced_ = existing;
+			return result;
+		}
+
+	}
+
+	private static class Addition<I> extends SnapshotUpdate<I> {
+
+		Addition(I inference) {
+			super(inference);
+		}
+
+		@Override
+		public Snapshot<I> apply(Object conclusion, Snapshot<I> existing) {
+			if (existing == null) {
+				return new Snapshot<I>(inference);
+			}
+			// else
+			return replace(existing, existing.append(inference));
+		}
+
+	}
+
+	private static class Removal<I> extends SnapshotUpdate<I> {
+
+		Removal(I inference) {
+			super(inference);
+		}
+
+		@Override
+		public Snapshot<I> apply(Object conclusion, Snapshot<I> existing) {
+			int pos = existing.indexOf(inference);
+			if (pos < 0) {
+				return existing;
+			}
+			// else
+			return replace(existing, existing.without(pos));
+		}
+
+	}
+
+	/**
+	 * An immutable list of inferences; the new inferences are appended by
+	 * writing into the unused part of the array, which is not visible for
+	 * the existing snapshots, so the arrays are copied only when they are
+	 * full or an inference is removed. Since only the latest snapshot of
+	 * every conclusion is modified, no two snapshots can write into the same
+	 * position of the same array. A snapshot also records whether it was
+	 * returned by {@link ConcurrentProof#getInferences(Object)}.
+	 * 
+	 * @param <I>
+	 *            the type of inferences
+	 */
+	private static class Snapshot<I> extends AbstractList<I> {
+
+		private static final int INIT_CAPACITY_ = 2;
+
+		private final Object[] elements_;
+
+		private final int size_;
+
+		/**
+		 * whether this snapshot was returned by
+		 * {@link ConcurrentProof#getInferences(Object)}
+		 */
+		private volatile boolean queried_ = false;
+
+		Snapshot(Object[] elements, int size) {
+			this.elements_ = elements;
+			this.size_ = size;
+		}
+
+		Snapshot() {
+			this(new Object[INIT_CAPACITY_], 0);
+		}
+
+		Snapshot(I first) {
+			this(new Object[INIT_CAPACITY_], 1);
+			elements_[0] = first;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public I get(int index) {
+			Preconditions.checkElementIndex(index, size_);
+			return (I) elements_[index];
+		}
+
+		@Override
+		public int size() {
+			return size_;
+		}
+
+		void setQueried() {
+			if (!queried_) {
+				queried_ = true;
+			}
+		}
+
+		boolean isQueried() {
+			return queried_;
+		}
+
+		Snapshot<I> append(I element) {
+			Object[] elements = elements_;
+			if (size_ == elements.length) {
+				elements = Arrays.copyOf(elements, size_ << 1);
+			}
+			elements[size_] = element;
+			return new Snapshot<I>(elements, size_ + 1);
+		}
+
+		/**
+		 * @param pos
+		 * @return the snapshot without the element at the given position or
+		 *         {@code null} if it is empty
+		 */
+		Snapshot<I> without(int pos) {
+			if (size_ == 1) {
+				return null;
+			}
+			// else
+			Object[] elements = new Object[elements_.length];
+			System.arraycopy(elements_, 0, elements, 0, pos);
+			System.arraycopy(elements_, pos + 1, elements, pos,
+					size_ - pos - 1);
+			return new Snapshot<I>(elements, size_ - 1);
+		}
+
+	}
+
+}
@@ -0,0 +1,51 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli;
+
+/**
+ * An object using which the results of derivability tests for several
+ * conclusions can be reported as soon as they are known.
+ * 
+ * @param <C>
+ *            the type of conclusions
+ * 
+ * @see IndexedInferenceDerivabilityChecker#checkDerivability(Iterable,
+ *      DerivabilityListener)
+ * @see Proofs#checkDerivability(Proof, Iterable, DerivabilityListener)
+ */
+public interface DerivabilityListener<C> {
+
+	/**
+	 * Called when the given conclusion is found to be derivable
+	 * 
+	 * @param conclusion
+	 */
+	void derivable(C conclusion);
+
+	/**
+	 * Called when the given conclusion is found to be not derivable
+	 * 
+	 * @param conclusion
+	 */
+	void notDerivable(C conclusion);
+
+}
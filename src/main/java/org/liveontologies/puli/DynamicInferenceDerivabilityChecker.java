@@ -0,0 +1,85 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli;
+
+/**
+ * An {@link IndexedInferenceDerivabilityChecker} for a {@link DynamicProof},
+ * which takes into account the changes in the proof. If the proof reports the
+ * individual inferences that were added or removed (see
+ * {@link DynamicProof.InferenceChangeListener}), the previously computed
+ * derivations are updated incrementally: only the conclusions derived using
+ * the removed inferences are checked again, and the conclusions that were not
+ * derivable are checked again only when new inferences for them (or for the
+ * conclusions used to derive them) have been added. If the proof reports that
+ * the inferences of some conclusion have changed, these inferences are
+ * retrieved again from the proof. Otherwise, the results of
+ * all derivability tests are discarded after the change.
+ * 
+ * @param <C>
+ *            the type of conclusions in inferences
+ * @param <I>
+ *            the type of inferences in proofs
+ */
+public class DynamicInferenceDerivabilityChecker<C, I extends Inference<? extends C>>
+		extends IndexedInferenceDerivabilityChecker<C, I>
+		implements DynamicProof.InferenceChangeListener {
+
+	private final DynamicProof<? extends I> proof_;
+
+	public DynamicInferenceDerivabilityChecker(
+			DynamicProof<? extends I> proof) {
+		super(proof);
+		this.proof_ = proof;
+		proof.addListener(this);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void inferenceAdded(Inference<?> inference) {
+		addInference((I) inference);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void inferenceRemoved(Inference<?> inference) {
+		removeInference((I) inference);
+	}
+
+	@Override
+	public void conclusionInvalidated(Object conclusion) {
+		invalidateConclusion(conclusion);
+	}
+
+	@Override
+	public void inferencesChanged() {
+		reset();
+	}
+
+	/**
+	 * Stops monitoring the changes in the proof; this checker should not be
+	 * used after calling this method
+	 */
+	public void dispose() {
+		proof_.removeListener(this);
+	}
+
+}
@@ -59,4 +59,49 @@ public interface DynamicProof<I extends Inference<?>> extends Proof<I> {
 
 	}
 
+	/**
+	 * A {@link ChangeListener} that can be notified about individual
+	 * inferences added to or removed from a {@link DynamicProof}. If the
+	 * {@link DynamicProof} to which this listener is added supports such
+	 * notifications, it calls {@link #inferenceAdded(Inference)} and
+	 * {@link #inferenceRemoved(Inference)} for every change of inferences of
+	 * all conclusions (not only of those for which
+	 * {@link Proof#getInferences(Object)} was called). If several inferences
+	 * of a conclusion have changed at once, e.g., during a bulk update,
+	 * {@link #conclusionInvalidated(Object)} can be called instead.
+	 * Otherwise, or if too many inferences have changed at once,
+	 * {@link #inferencesChanged()} is called, after which the listener should
+	 * assume that any inferences may have changed.
+	 * 
+	 */
+	public interface InferenceChangeListener extends ChangeListener {
+
+		/**
+		 * called after the given inference was added to the
+		 * {@link DynamicProof}
+		 * 
+		 * @param inference
+		 */
+		void inferenceAdded(Inference<?> inference);
+
+		/**
+		 * called after the given inference was removed from the
+		 * {@link DynamicProof}
+		 * 
+		 * @param inference
+		 */
+		void inferenceRemoved(Inference<?> inference);
+
+		/**
+		 * called after the inferences for the given conclusion have changed
+		 * in an unspecified way, i.e., calling
+		 * {@link Proof#getInferences(Object)} with this conclusion may
+		 * produce a different result
+		 * 
+		 * @param conclusion
+		 */
+		void conclusionInvalidated(Object conclusion);
+
+	}
+
 }
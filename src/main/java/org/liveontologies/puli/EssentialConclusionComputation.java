@@ -0,0 +1,417 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.liveontologies.puli.collections.IntDeque;
+import org.liveontologies.puli.collections.Interner;
+
+/**
+ * Computes the conclusions that are used in every derivation of a goal
+ * conclusion, i.e., the conclusions that dominate the goal in the hypergraph
+ * of inferences. For every derivable conclusion {@code c}, the set of its
+ * dominators {@code D(c)} satisfies the equation
+ *
+ * <pre>
+ * D(c) = {c} &cup; &cap;<sub>inf</sub> &cup;<sub>p &isin; premises(inf)</sub> D(p)
+ * </pre>
+ *
+ * where the intersection is over all inferences with conclusion {@code c}
+ * whose premises are derivable. The sets {@code D(c)} are the greatest
+ * solution of these equations, which is computed by iteratively refining the
+ * sets obtained from one derivation of each conclusion. Since all dominators
+ * must occur in every derivation of the goal, only the conclusions of one such
+ * derivation are kept in the sets. The sets are represented by sorted arrays
+ * of conclusion ids.
+ *
+ * @param <C>
+ *            the type of conclusions in inferences
+ * @param <I>
+ *            the type of inferences in proofs
+ *
+ * @see Proofs#getEssentialConclusions(Proof, Object)
+ */
+class EssentialConclusionComputation<C, I extends Inference<? extends C>>
+		implements Producer<I> {
+
+	private static final int[] EMPTY_ = new int[0];
+
+	private final Interner<C> conclusionIds_ = new Interner<C>();
+
+	// the arrays indexed by inference ids
+
+	private int[] inferenceConclusion_ = new int[16];
+
+	/**
+	 * the premises of the inference are stored in {@link #premiseIds_}
+	 * starting from this position and until the position for the next
+	 * inference
+	 */
+	private int[] premiseStart_ = new int[17];
+
+	/**
+	 * the number of premise positions of the inference whose conclusions are
+	 * not yet derived
+	 */
+	private int[] remaining_;
+
+	private int[] premiseIds_ = new int[16];
+
+	private int inferenceCount_ = 0;
+
+	// the arrays indexed by conclusion ids
+
+	/**
+	 * the inferences with the conclusion are stored in
+	 * {@link #conclusionInferences_} starting from this position and until the
+	 * position for the next conclusion
+	 */
+	private int[] conclusionInferenceStart_;
+
+	private int[] conclusionInferences_;
+
+	/**
+	 * the inferences having the conclusion as a premise (once for each
+	 * occurrence) are stored in {@link #premiseOccurrences_} starting from
+	 * this position and until the position for the next conclusion
+	 */
+	private int[] premiseOccurrenceStart_;
+
+	private int[] premiseOccurrences_;
+
+	/**
+	 * the inference using which the conclusion was first derived, or
+	 * {@code -1}
+	 */
+	private int[] firstInference_;
+
+	/**
+	 * the position of the derivable conclusion in the order in which the
+	 * conclusions were derived
+	 */
+	private int[] rank_;
+
+	/**
+	 * the dominators of the derivable conclusions
+	 */
+	private int[][] dominators_;
+
+	// the arrays indexed by ranks
+
+	/**
+	 * derivable conclusions in the order in which they were derived
+	 */
+	private int[] derived_;
+
+	private int derivedCount_ = 0;
+
+	/**
+	 * the conclusions that can occur in the dominator sets
+	 */
+	private final BitSet candidates_ = new BitSet();
+
+	private EssentialConclusionComputation() {
+		// use the static method
+	}
+
+	/**
+	 * @param proof
+	 * @param goal
+	 * @return the set of conclusions without which the goal would not be
+	 *         derivable using the given inferences
+	 * @see Proofs#getEssentialConclusions(Proof, Object)
+	 */
+	static <C, I extends Inference<? extends C>> Set<C> compute(
+			Proof<? extends I> proof, C goal) {
+		EssentialConclusionComputation<C, I> computation = new EssentialConclusionComputation<C, I>();
+		Set<C> unfolded = Proofs.unfoldRecursively(proof, goal, computation);
+		int goalId = computation.conclusionIds_.getId(goal);
+		computation.index();
+		computation.derive();
+		if (computation.firstInference_[goalId] < 0) {
+			// not derivable, every conclusion is essential
+			return unfolded;
+		}
+		// else
+		computation.computeDominators(goalId);
+		Set<C> result = new HashSet<C>();
+		for (int id : computation.dominators_[goalId]) {
+			result.add(computation.conclusionIds_.getElement(id));
+		}
+		return result;
+	}
+
+	@Override
+	public void produce(I inf) {
+		int id = inferenceCount_++;
+		if (id == inferenceConclusion_.length) {
+			inferenceConclusion_ = Arrays.copyOf(inferenceConclusion_,
+					id << 1);
+			premiseStart_ = Arrays.copyOf(premiseStart_, (id << 1) + 1);
+		}
+		List<? extends C> premises = inf.getPremises();
+		int start = premiseStart_[id];
+		int end = start + premises.size();
+		if (end > premiseIds_.length) {
+			premiseIds_ = Arrays.copyOf(premiseIds_,
+					Math.max(end, premiseIds_.length << 1));
+		}
+		inferenceConclusion_[id] = conclusionIds_.getId(inf.getConclusion());
+		for (int pos = 0; pos < premises.size(); pos++) {
+			premiseIds_[start + pos] = conclusionIds_
+					.getId(premises.get(pos));
+		}
+		premiseStart_[id + 1] = end;
+	}
+
+	/**
+	 * Builds the indexes of inferences by conclusions and by premises
+	 */
+	private void index() {
+		int conclusionCount = conclusionIds_.size();
+		conclusionInferenceStart_ = new int[conclusionCount + 1];
+		premiseOccurrenceStart_ = new int[conclusionCount + 1];
+		for (int inf = 0; inf < inferenceCount_; inf++) {
+			conclusionInferenceStart_[inferenceConclusion_[inf] + 1]++;
+		}
+		int premiseSlots = premiseStart_[inferenceCount_];
+		for (int slot = 0; slot < premiseSlots; slot++) {
+			premiseOccurrenceStart_[premiseIds_[slot] + 1]++;
+		}
+		for (int c = 0; c < conclusionCount; c++) {
+			conclusionInferenceStart_[c + 1] += conclusionInferenceStart_[c];
+			premiseOccurrenceStart_[c + 1] += premiseOccurrenceStart_[c];
+		}
+		conclusionInferences_ = new int[inferenceCount_];
+		premiseOccurrences_ = new int[premiseSlots];
+		int[] nextInference = Arrays.copyOf(conclusionInferenceStart_,
+				conclusionCount);
+		int[] nextOccurrence = Arrays.copyOf(premiseOccurrenceStart_,
+				conclusionCount);
+		for (int inf = 0; inf < inferenceCount_; inf++) {
+			conclusionInferences_[nextInference[inferenceConclusion_[inf]]++] = inf;
+			for (int slot = premiseStart_[inf]; slot < premiseStart_[inf
+					+ 1]; slot++) {
+				premiseOccurrences_[nextOccurrence[premiseIds_[slot]]++] = inf;
+			}
+		}
+	}
+
+	/**
+	 * Computes derivable conclusions together with the order in which they are
+	 * derived and the first inferences using which they are derived
+	 */
+	private void derive() {
+		int conclusionCount = conclusionIds_.size();
+		remaining_ = new int[inferenceCount_];
+		firstInference_ = new int[conclusionCount];
+		Arrays.fill(firstInference_, -1);
+		rank_ = new int[conclusionCount];
+		derived_ = new int[conclusionCount];
+		IntDeque toFire = new IntDeque();
+		for (int inf = 0; inf < inferenceCount_; inf++) {
+			remaining_[inf] = premiseStart_[inf + 1] - premiseStart_[inf];
+			if (remaining_[inf] == 0) {
+				toFire.addLast(inf);
+			}
+		}
+		for (;;) {
+			int inf = toFire.pollFirst();
+			if (inf < 0) {
+				break;
+			}
+			// else
+			int conclusion = inferenceConclusion_[inf];
+			if (firstInference_[conclusion] >= 0) {
+				// already derived
+				continue;
+			}
+			// else
+			firstInference_[conclusion] = inf;
+			rank_[conclusion] = derivedCount_;
+			derived_[derivedCount_++] = conclusion;
+			for (int i = premiseOccurrenceStart_[conclusion]; i < premiseOccurrenceStart_[conclusion
+					+ 1]; i++) {
+				int next = premiseOccurrences_[i];
+				if (--remaining_[next] == 0) {
+					toFire.addLast(next);
+				}
+			}
+		}
+	}
+
+	private void computeDominators(int goal) {
+		// the dominators must be used in the derivation of the goal
+		IntDeque todo = new IntDeque();
+		candidates_.set(goal);
+		todo.addLast(goal);
+		for (;;) {
+			int next = todo.pollFirst();
+			if (next < 0) {
+				break;
+			}
+			// else
+			int inf = firstInference_[next];
+			for (int slot = premiseStart_[inf]; slot < premiseStart_[inf
+					+ 1]; slot++) {
+				int premise = premiseIds_[slot];
+				if (!candidates_.get(premise)) {
+					candidates_.set(premise);
+					todo.addLast(premise);
+				}
+			}
+		}
+		// initialize the dominators using the first derivations; these sets
+		// can only be reduced
+		dominators_ = new int[conclusionIds_.size()][];
+		for (int rank = 0; rank < derivedCount_; rank++) {
+			int conclusion = derived_[rank];
+			dominators_[conclusion] = getUnion(firstInference_[conclusion],
+					conclusion);
+		}
+		// refine the sets until the fixpoint, processing the conclusions in
+		// the order in which they were derived
+		BitSet toUpdate = new BitSet(derivedCount_);
+		toUpdate.set(0, derivedCount_);
+		int rank = 0;
+		for (;;) {
+			rank = toUpdate.nextSetBit(rank);
+			if (rank < 0) {
+				if (toUpdate.isEmpty()) {
+					break;
+				}
+				// else
+				rank = toUpdate.nextSetBit(0);
+			}
+			toUpdate.clear(rank);
+			int conclusion = derived_[rank];
+			int[] updated = getDominators(conclusion);
+			if (updated.length == dominators_[conclusion].length) {
+				// the sets can only decrease, so nothing changed
+				continue;
+			}
+			// else
+			dominators_[conclusion] = updated;
+			for (int i = premiseOccurrenceStart_[conclusion]; i < premiseOccurrenceStart_[conclusion
+					+ 1]; i++) {
+				int inf = premiseOccurrences_[i];
+				if (remaining_[inf] == 0) {
+					toUpdate.set(rank_[inferenceConclusion_[inf]]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param conclusion
+	 * @return the intersection over all inferences with derivable premises of
+	 *         the unions of dominators of the premises, plus the conclusion
+	 *         itself
+	 */
+	private int[] getDominators(int conclusion) {
+		int[] result = null;
+		for (int i = conclusionInferenceStart_[conclusion]; i < conclusionInferenceStart_[conclusion
+				+ 1]; i++) {
+			int inf = conclusionInferences_[i];
+			if (remaining_[inf] > 0) {
+				// not all premises are derivable
+				continue;
+			}
+			// else
+			if (result == null) {
+				result = getUnion(inf, conclusion);
+				continue;
+			}
+			// else retain those that dominate some premise of inf
+			int size = 0;
+			for (int j = 0; j < result.length; j++) {
+				int element = result[j];
+				if (element == conclusion
+						|| dominatesPremise(element, inf)) {
+					result[size++] = element;
+				}
+			}
+			if (size < result.length) {
+				result = Arrays.copyOf(result, size);
+			}
+		}
+		return result;
+	}
+
+	private boolean dominatesPremise(int element, int inf) {
+		for (int slot = premiseStart_[inf]; slot < premiseStart_[inf
+				+ 1]; slot++) {
+			if (Arrays.binarySearch(dominators_[premiseIds_[slot]],
+					element) >= 0) {
+				return true;
+			}
+		}
+		// else
+		return false;
+	}
+
+	/**
+	 * @param inf
+	 * @param conclusion
+	 *            the conclusion of the inference
+	 * @return the sorted union of the dominators of the premises of the given
+	 *         inference, plus the conclusion if it is a candidate dominator
+	 */
+	private int[] getUnion(int inf, int conclusion) {
+		int start = premiseStart_[inf];
+		int end = premiseStart_[inf + 1];
+		int size = candidates_.get(conclusion) ? 1 : 0;
+		for (int slot = start; slot < end; slot++) {
+			size += dominators_[premiseIds_[slot]].length;
+		}
+		if (size == 0) {
+			return EMPTY_;
+		}
+		// else
+		int[] result = new int[size];
+		int pos = 0;
+		if (candidates_.get(conclusion)) {
+			result[pos++] = conclusion;
+		}
+		for (int slot = start; slot < end; slot++) {
+			int[] premiseDominators = dominators_[premiseIds_[slot]];
+			System.arraycopy(premiseDominators, 0, result, pos,
+					premiseDominators.length);
+			pos += premiseDominators.length;
+		}
+		Arrays.sort(result);
+		// remove duplicates
+		size = 0;
+		for (int i = 0; i < result.length; i++) {
+			if (size == 0 || result[size - 1] != result[i]) {
+				result[size++] = result[i];
+			}
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+}
@@ -0,0 +1,998 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.liveontologies.puli.collections.IntDeque;
+import org.liveontologies.puli.collections.Interner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link DerivabilityCheckerWithBlocking} that implements the same algorithm
+ * as {@link InferenceDerivabilityChecker}, but in which conclusions and
+ * inferences are assigned consecutive {@code int} ids when they are first
+ * encountered. All data structures used for propagation of derivable
+ * conclusions are then indexed by these ids: {@link BitSet}s are used for sets
+ * of conclusions and {@code int} arrays for the maps and the lists of
+ * inferences. Conclusions are hashed only once when they are assigned ids and
+ * no boxing is used, which results in smaller memory footprint and faster
+ * propagation on large proofs.
+ *
+ * @param <C>
+ *            the type of conclusions in inferences
+ * @param <I>
+ *            the type of inferences in proofs
+ */
+public class IndexedInferenceDerivabilityChecker<C, I extends Inference<? extends C>>
+		implements DerivabilityCheckerWithBlocking<C, I>, Proof<I> {
+
+	// logger for this class
+	private static final Logger LOGGER_ = LoggerFactory
+			.getLogger(IndexedInferenceDerivabilityChecker.class);
+
+	private static final int INIT_CAPACITY_ = 128;
+
+	/**
+	 * the inferences that can be used for deriving conclusions
+	 */
+	private final Proof<? extends I> proof_;
+
+	/**
+	 * assigns ids to conclusions
+	 */
+	private final Interner<C> conclusionIds_ = new Interner<C>(
+			INIT_CAPACITY_);
+
+	/**
+	 * the inferences of {@link #proof_} in the order of their ids
+	 */
+	private final List<I> inferences_ = new ArrayList<I>(INIT_CAPACITY_);
+
+	/**
+	 * ids of conclusions that cannot be used in the derivations
+	 */
+	private final BitSet blocked_ = new BitSet();
+
+	private final IntDeque toBlock_ = new IntDeque(32),
+			toUnblock_ = new IntDeque(32);
+
+	/**
+	 * ids of {@link #goals_} that were found derivable
+	 */
+	private final BitSet derivable_ = new BitSet();
+
+	/**
+	 * ids of conclusions for which a derivability test was initiated or
+	 * finished
+	 */
+	private final BitSet goals_ = new BitSet();
+
+	/**
+	 * ids of conclusions for which the inferences have been retrieved from
+	 * {@link #proof_}
+	 */
+	private final BitSet loaded_ = new BitSet();
+
+	/**
+	 * ids of inferences removed using {@link #removeInference(Inference)};
+	 * they are ignored when encountered in the lists of inferences
+	 */
+	private final BitSet removed_ = new BitSet();
+
+	/**
+	 * the number of inferences in {@link #removed_}; when it becomes large
+	 * enough, the ids of the remaining inferences are compacted
+	 */
+	private int removedCount_ = 0;
+
+	/**
+	 * ids of {@link #goals_} that needs to be checked for derivability; they
+	 * should not be in {@link #blocked_}
+	 */
+	private final IntDeque toCheck_ = new IntDeque(INIT_CAPACITY_);
+
+	private final IntDeque toSetUnknown_ = new IntDeque(INIT_CAPACITY_);
+
+	/**
+	 * ids of {@link #derivable_} goals which may have some watched inferences
+	 */
+	private final IntDeque toPropagate_ = new IntDeque(INIT_CAPACITY_);
+
+	/**
+	 * ids of the goals of
+	 * {@link #checkDerivability(Iterable, DerivabilityListener)} that are not
+	 * yet reported to {@link #listener_}
+	 */
+	private final BitSet toReport_ = new BitSet();
+
+	/**
+	 * the listener for the goals in {@link #toReport_}
+	 */
+	private DerivabilityListener<? super C> listener_ = null;
+
+	// the arrays indexed by conclusion ids
+
+	/**
+	 * the id of the first inference that watches the conclusion with the given
+	 * id, or {@code -1}; other inferences are linked using
+	 * {@link #nextInference_}; intuitively, these inferences are "waiting" for
+	 * this conclusion to be derived
+	 */
+	private int[] watchHead_;
+
+	/**
+	 * the first and the last inference with the given conclusion id that is
+	 * neither watched nor used as a fired inference; other inferences are
+	 * linked using {@link #nextInference_}
+	 */
+	private int[] remainingHead_, remainingTail_;
+
+	/**
+	 * the id of the inference whose all premises are {@link #derivable_} and
+	 * which is used to derive the conclusion with the given id, or {@code -1};
+	 * intuitively, these inferences are used in the derivations
+	 */
+	private int[] firedInference_;
+
+	/**
+	 * the first premise slot (see {@link #premiseIds_}) of a fired inference
+	 * that has the conclusion with the given id as the premise, or {@code -1};
+	 * other slots are linked using {@link #nextFiredSlot_} and
+	 * {@link #previousFiredSlot_}
+	 */
+	private int[] firedSlotHead_;
+
+	/**
+	 * the id of the last retrieved inference with the conclusion with the
+	 * given id, or {@code -1}; other inferences with this conclusion are linked
+	 * using {@link #nextSibling_}
+	 */
+	private int[] inferenceHead_;
+
+	// the arrays indexed by inference ids
+
+	/**
+	 * the ids of conclusions of inferences
+	 */
+	private int[] inferenceConclusion_;
+
+	/**
+	 * the position in {@link #premiseIds_} where the premises of the
+	 * inference begin; the premises end where the premises of the next
+	 * inference begin
+	 */
+	private int[] premiseStart_;
+
+	/**
+	 * links inferences in the lists of watched and remaining inferences; every
+	 * inference can be in at most one such list
+	 */
+	private int[] nextInference_;
+
+	/**
+	 * the position of the watched premise of the inference
+	 */
+	private int[] watchPosition_;
+
+	/**
+	 * links inferences with the same conclusion
+	 */
+	private int[] nextSibling_;
+
+	// the arrays indexed by premise slots
+
+	/**
+	 * the ids of premises of all inferences one after another
+	 */
+	private int[] premiseIds_;
+
+	/**
+	 * the ids of inferences for the premises in {@link #premiseIds_}
+	 */
+	private int[] slotInference_;
+
+	/**
+	 * link the premise slots of fired inferences having the same premise
+	 */
+	private int[] nextFiredSlot_, previousFiredSlot_;
+
+	/**
+	 * the number of used positions in {@link #premiseIds_}
+	 */
+	private int premiseSlotCount_ = 0;
+
+	public IndexedInferenceDerivabilityChecker(Proof<? extends I> proof) {
+		Preconditions.checkNotNull(proof);
+		this.proof_ = proof;
+		this.watchHead_ = newIds(INIT_CAPACITY_);
+		this.remainingHead_ = newIds(INIT_CAPACITY_);
+		this.remainingTail_ = newIds(INIT_CAPACITY_);
+		this.firedInference_ = newIds(INIT_CAPACITY_);
+		this.firedSlotHead_ = newIds(INIT_CAPACITY_);
+		this.inferenceHead_ = newIds(INIT_CAPACITY_);
+		this.inferenceConclusion_ = new int[INIT_CAPACITY_];
+		this.premiseStart_ = new int[INIT_CAPACITY_ + 1];
+		this.nextInference_ = new int[INIT_CAPACITY_];
+		this.watchPosition_ = new int[INIT_CAPACITY_];
+		this.nextSibling_ = new int[INIT_CAPACITY_];
+		this.premiseIds_ = new int[INIT_CAPACITY_];
+		this.slotInference_ = new int[INIT_CAPACITY_];
+		this.nextFiredSlot_ = new int[INIT_CAPACITY_];
+		this.previousFiredSlot_ = new int[INIT_CAPACITY_];
+	}
+
+	@Override
+	public boolean isDerivable(C conclusion) {
+		LOGGER_.trace("{}: checking derivability", conclusion);
+		initBlocking();
+		int id = getId(conclusion);
+		toCheck(id);
+		process();
+		boolean derivable = derivable_.get(id) && !blocked_.get(id);
+		LOGGER_.trace("{}: derivable: {}", conclusion, derivable);
+		return derivable;
+	}
+
+	/**
+	 * Checks derivability of all given goals at once. The derivations found for
+	 * some goals are reused for other goals, so this is more efficient than
+	 * calling {@link #isDerivable(Object)} for each goal using a fresh checker.
+	 * A goal is reported to the listener as derivable as soon as it is derived
+	 * (possibly, while checking derivability of another goal) and as not
+	 * derivable as soon as it is known that it cannot be derived. Each goal is
+	 * reported exactly once. The blocked conclusions should not be changed
+	 * while the goals are being checked.
+	 * 
+	 * @param goals
+	 *            the conclusions to be checked for derivability
+	 * @param listener
+	 *            the object to which the results are reported
+	 */
+	public void checkDerivability(Iterable<? extends C> goals,
+			DerivabilityListener<? super C> listener) {
+		Preconditions.checkNotNull(listener);
+		initBlocking();
+		listener_ = listener;
+		try {
+			// the goals are iterated only once
+			IntDeque toReport = new IntDeque(INIT_CAPACITY_);
+			for (C goal : goals) {
+				int id = getId(goal);
+				if (!toReport_.get(id)) {
+					toReport_.set(id);
+					toReport.addLast(id);
+				}
+			}
+			for (;;) {
+				int id = toReport.pollFirst();
+				if (id < 0) {
+					break;
+				}
+				// else
+				if (!toReport_.get(id)) {
+					continue;
+				}
+				// else
+				toCheck(id);
+				process();
+				if (!toReport_.get(id)) {
+					// reported when derived
+					continue;
+				}
+				// else
+				toReport_.clear(id);
+				C goal = conclusionIds_.getElement(id);
+				if (derivable_.get(id) && !blocked_.get(id)) {
+					listener.derivable(goal);
+				} else {
+					listener.notDerivable(goal);
+				}
+			}
+		} finally {
+			toReport_.clear();
+			listener_ = null;
+		}
+	}
+
+	@Override
+	public Proof<I> getDerivation(C conclusion) {
+		if (!isDerivable(conclusion)) {
+			return null;
+		}
+		// else construct proof of fired inferences
+		return this;
+	}
+
+	@Override
+	public Set<C> getBlockedConclusions() {
+		return new BlockedConclusions();
+	}
+
+	@Override
+	public boolean block(C conclusion) {
+		int id = getId(conclusion);
+		if (blocked_.get(id)) {
+			return false;
+		}
+		// else
+		blocked_.set(id);
+		LOGGER_.trace("{}: blocked", conclusion);
+		toBlock_.addLast(id);
+		return true;
+	}
+
+	@Override
+	public boolean unblock(C conclusion) {
+		int id = conclusionIds_.find(conclusion);
+		if (id < 0 || !blocked_.get(id)) {
+			return false;
+		}
+		// else
+		blocked_.clear(id);
+		LOGGER_.trace("{}: unblocked", conclusion);
+		toUnblock_.addLast(id);
+		return true;
+	}
+
+	/**
+	 * @return all conclusions that could not be derived in tests for
+	 *         derivability
+	 * @see InferenceDerivabilityChecker#getNonDerivableConclusions()
+	 */
+	public Set<? extends C> getNonDerivableConclusions() {
+		Set<C> result = new HashSet<C>();
+		for (int id = 0; id < conclusionIds_.size(); id++) {
+			if (watchHead_[id] >= 0) {
+				result.add(conclusionIds_.getElement(id));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Collection<? extends I> getInferences(Object conclusion) {
+		int id = conclusionIds_.find(conclusion);
+		if (id < 0 || firedInference_[id] < 0) {
+			return Collections.<I> emptySet();
+		}
+		// else
+		return Collections.singleton(inferences_.get(firedInference_[id]));
+	}
+
+	private int getId(C conclusion) {
+		int id = conclusionIds_.getId(conclusion);
+		if (id == watchHead_.length) {
+			int capacity = id << 1;
+			watchHead_ = growIds(watchHead_, capacity);
+			remainingHead_ = growIds(remainingHead_, capacity);
+			remainingTail_ = growIds(remainingTail_, capacity);
+			firedInference_ = growIds(firedInference_, capacity);
+			firedSlotHead_ = growIds(firedSlotHead_, capacity);
+			inferenceHead_ = growIds(inferenceHead_, capacity);
+		}
+		return id;
+	}
+
+	private void initBlocking() {
+		if (removedCount_ > inferences_.size() - removedCount_
+				+ conclusionIds_.size()) {
+			// the removed inferences use more space than the rest
+			compact();
+		}
+		for (;;) {
+			int next = toBlock_.pollFirst();
+			if (next < 0) {
+				break;
+			}
+			if (!blocked_.get(next)) {
+				// was unblocked later
+				continue;
+			}
+			setUnknown(next);
+		}
+		for (;;) {
+			int next = toUnblock_.pollFirst();
+			if (next < 0) {
+				break;
+			}
+			if (blocked_.get(next)) {
+				// was blocked later
+				continue;
+			}
+			if (derivable_.get(next)) {
+				toPropagate_.addLast(next);
+			} else if (goals_.get(next)) {
+				toCheck_.addFirst(next);
+			}
+		}
+	}
+
+	private void toCheck(int conclusion) {
+		if (goals_.get(conclusion)) {
+			return;
+		}
+		// else
+		goals_.set(conclusion);
+		LOGGER_.trace("{}: new goal", conclusionIds_.getElement(conclusion));
+		if (blocked_.get(conclusion)) {
+			LOGGER_.trace("{}: goal blocked",
+					conclusionIds_.getElement(conclusion));
+			return;
+		}
+		toCheck_.addFirst(conclusion);
+	}
+
+	private boolean derive(int conclusion) {
+		if (derivable_.get(conclusion)) {
+			return false;
+		}
+		// else propagate
+		derivable_.set(conclusion);
+		LOGGER_.trace("{}: derived", conclusionIds_.getElement(conclusion));
+		if (!blocked_.get(conclusion)) {
+			toPropagate_.addLast(conclusion);
+			if (toReport_.get(conclusion)) {
+				toReport_.clear(conclusion);
+				listener_.derivable(conclusionIds_.getElement(conclusion));
+			}
+		}
+		return true;
+	}
+
+	private void process() {
+		for (;;) {
+			// propagating derivable inferences with the highest priority
+			int derivable = toPropagate_.pollFirst();
+
+			if (derivable >= 0) {
+				int inf = watchHead_[derivable];
+				watchHead_[derivable] = -1;
+				while (inf >= 0) {
+					int next = nextInference_[inf];
+					if (!removed_.get(inf)) {
+						check(watchPosition_[inf], inf);
+					}
+					inf = next;
+				}
+				continue;
+			}
+
+			// expanding inferences if there is nothing to propagate
+			int unknown = toCheck_.peekFirst();
+			if (unknown >= 0) {
+				if (derivable_.get(unknown)) {
+					toCheck_.pollFirst();
+					continue;
+				}
+				int inf = pollRemaining(unknown);
+				if (inf < 0) {
+					toCheck_.pollFirst();
+					continue;
+				}
+				LOGGER_.trace("{}: expanding", inferences_.get(inf));
+				check(0, inf);
+				continue;
+			}
+
+			// all done
+			return;
+		}
+
+	}
+
+	private int pollRemaining(int conclusion) {
+		if (!loaded_.get(conclusion)) {
+			load(conclusion);
+		}
+		for (;;) {
+			int result = remainingHead_[conclusion];
+			if (result < 0) {
+				return result;
+			}
+			// else
+			remainingHead_[conclusion] = nextInference_[result];
+			if (remainingHead_[conclusion] < 0) {
+				remainingTail_[conclusion] = -1;
+			}
+			if (!removed_.get(result)) {
+				return result;
+			}
+		}
+	}
+
+	private void addRemaining(int conclusion, int inf) {
+		nextInference_[inf] = -1;
+		int tail = remainingTail_[conclusion];
+		if (tail < 0) {
+			remainingHead_[conclusion] = inf;
+		} else {
+			nextInference_[tail] = inf;
+		}
+		remainingTail_[conclusion] = inf;
+	}
+
+	private void load(int conclusion) {
+		loaded_.set(conclusion);
+		for (I inf : proof_
+				.getInferences(conclusionIds_.getElement(conclusion))) {
+			addRemaining(conclusion, register(conclusion, inf));
+		}
+	}
+
+	/**
+	 * Assigns the next id to the given inference
+	 *
+	 * @param conclusion
+	 *            the id of the conclusion of the inference
+	 * @param inf
+	 * @return the id assigned to the inference
+	 */
+	private int register(int conclusion, I inf) {
+		int id = inferences_.size();
+		inferences_.add(inf);
+		if (id == inferenceConclusion_.length) {
+			int capacity = id << 1;
+			inferenceConclusion_ = Arrays.copyOf(inferenceConclusion_,
+					capacity);
+			premiseStart_ = Arrays.copyOf(premiseStart_, capacity + 1);
+			nextInference_ = Arrays.copyOf(nextInference_, capacity);
+			watchPosition_ = Arrays.copyOf(watchPosition_, capacity);
+			nextSibling_ = Arrays.copyOf(nextSibling_, capacity);
+		}
+		inferenceConclusion_[id] = conclusion;
+		nextSibling_[id] = inferenceHead_[conclusion];
+		inferenceHead_[conclusion] = id;
+		List<? extends C> premises = inf.getPremises();
+		int premiseCount = premises.size();
+		int start = premiseSlotCount_;
+		int end = start + premiseCount;
+		if (end > premiseIds_.length) {
+			int capacity = Math.max(end, premiseIds_.length << 1);
+			premiseIds_ = Arrays.copyOf(premiseIds_, capacity);
+			slotInference_ = Arrays.copyOf(slotInference_, capacity);
+			nextFiredSlot_ = Arrays.copyOf(nextFiredSlot_, capacity);
+			previousFiredSlot_ = Arrays.copyOf(previousFiredSlot_,
+					capacity);
+		}
+		for (int pos = 0; pos < premiseCount; pos++) {
+			premiseIds_[start + pos] = getId(premises.get(pos));
+			slotInference_[start + pos] = id;
+		}
+		premiseSlotCount_ = end;
+		premiseStart_[id] = start;
+		premiseStart_[id + 1] = end;
+		return id;
+	}
+
+	private void check(int pos, int inf) {
+		int start = premiseStart_[inf];
+		int premiseCount = premiseStart_[inf + 1] - start;
+		int premisesChecked = 0;
+		for (;;) {
+			if (premisesChecked == premiseCount) {
+				// all premises are derived
+				fire(inf);
+				return;
+			}
+			int premise = premiseIds_[start + pos];
+			if (!derivable_.get(premise) || blocked_.get(premise)) {
+				// blocked conclusions can be derived but cannot be used
+				addWatch(premise, pos, inf);
+				return;
+			}
+			pos++;
+			if (pos == premiseCount) {
+				pos = 0;
+			}
+			premisesChecked++;
+		}
+	}
+
+	private void fire(int inf) {
+		LOGGER_.trace("{}: fire", inferences_.get(inf));
+		int conclusion = inferenceConclusion_[inf];
+		addRemaining(conclusion, inf);
+		if (!derive(conclusion)) {
+			return;
+		}
+		firedInference_[conclusion] = inf;
+		for (int slot = premiseStart_[inf]; slot < premiseStart_[inf
+				+ 1]; slot++) {
+			// insert the slot into the list of its premise
+			int premise = premiseIds_[slot];
+			int head = firedSlotHead_[premise];
+			previousFiredSlot_[slot] = -1;
+			nextFiredSlot_[slot] = head;
+			if (head >= 0) {
+				previousFiredSlot_[head] = slot;
+			}
+			firedSlotHead_[premise] = slot;
+		}
+	}
+
+	private void addWatch(int premise, int pos, int inf) {
+		LOGGER_.trace("{}: watching position {}", inferences_.get(inf), pos);
+		watchPosition_[inf] = pos;
+		nextInference_[inf] = watchHead_[premise];
+		watchHead_[premise] = inf;
+		toCheck(premise);
+	}
+
+	private void setUnknown(int conclusion) {
+		toSetUnknown_.addLast(conclusion);
+		for (;;) {
+			conclusion = toSetUnknown_.pollFirst();
+			if (conclusion < 0) {
+				break;
+			}
+			if (!derivable_.get(conclusion)) {
+				continue;
+			}
+			// else was derivable
+			derivable_.clear(conclusion);
+			LOGGER_.trace("{}: unknown goal",
+					conclusionIds_.getElement(conclusion));
+			if (!blocked_.get(conclusion)) {
+				toCheck_.addLast(conclusion);
+			}
+			int fired = firedInference_[conclusion];
+			firedInference_[conclusion] = -1;
+			for (int slot = premiseStart_[fired]; slot < premiseStart_[fired
+					+ 1]; slot++) {
+				// remove the slot from the list of its premise
+				int previous = previousFiredSlot_[slot];
+				int next = nextFiredSlot_[slot];
+				if (previous < 0) {
+					firedSlotHead_[premiseIds_[slot]] = next;
+				} else {
+					nextFiredSlot_[previous] = next;
+				}
+				if (next >= 0) {
+					previousFiredSlot_[next] = previous;
+				}
+			}
+			int slot = firedSlotHead_[conclusion];
+			while (slot >= 0) {
+				toSetUnknown_
+						.addLast(inferenceConclusion_[slotInference_[slot]]);
+				slot = nextFiredSlot_[slot];
+			}
+		}
+	}
+
+	/**
+	 * Takes into account that the given inference was added to the proof from
+	 * which the inferences were taken
+	 * 
+	 * @param inference
+	 */
+	protected void addInference(I inference) {
+		int conclusion = conclusionIds_.find(inference.getConclusion());
+		if (conclusion < 0 || !loaded_.get(conclusion)) {
+			// will be retrieved from the proof when needed
+			return;
+		}
+		// else
+		LOGGER_.trace("{}: inference added", inference);
+		addRemaining(conclusion, register(conclusion, inference));
+		if (goals_.get(conclusion) && !derivable_.get(conclusion)
+				&& !blocked_.get(conclusion)) {
+			toCheck_.addFirst(conclusion);
+		}
+	}
+
+	/**
+	 * Takes into account that the given inference was removed from the proof
+	 * from which the inferences were taken; if there are several equal
+	 * inferences, it is assumed that only one of them was removed
+	 * 
+	 * @param inference
+	 */
+	protected void removeInference(I inference) {
+		int conclusion = conclusionIds_.find(inference.getConclusion());
+		if (conclusion < 0 || !loaded_.get(conclusion)) {
+			// was not used
+			return;
+		}
+		// else
+		for (int inf = inferenceHead_[conclusion]; inf >= 0; inf = nextSibling_[inf]) {
+			if (removed_.get(inf) || !inference.equals(inferences_.get(inf))) {
+				continue;
+			}
+			// else
+			LOGGER_.trace("{}: inference removed", inference);
+			remove(inf);
+			if (firedInference_[conclusion] == inf) {
+				// the derivations using this inference should be recomputed
+				setUnknown(conclusion);
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Takes into account that the inferences of the given conclusion in the
+	 * proof from which the inferences were taken may have changed
+	 * 
+	 * @param conclusion
+	 */
+	protected void invalidateConclusion(Object conclusion) {
+		int id = conclusionIds_.find(conclusion);
+		if (id < 0 || !loaded_.get(id)) {
+			// will be retrieved from the proof when needed
+			return;
+		}
+		// else
+		LOGGER_.trace("{}: inferences invalidated", conclusion);
+		for (int inf = inferenceHead_[id]; inf >= 0; inf = nextSibling_[inf]) {
+			if (!removed_.get(inf)) {
+				remove(inf);
+			}
+		}
+		inferenceHead_[id] = -1;
+		remainingHead_[id] = -1;
+		remainingTail_[id] = -1;
+		loaded_.clear(id);
+		if (firedInference_[id] >= 0) {
+			// the derivations using the old inferences should be recomputed
+			setUnknown(id);
+		} else if (goals_.get(id) && !blocked_.get(id)) {
+			toCheck_.addFirst(id);
+		}
+	}
+
+	private void remove(int inf) {
+		removed_.set(inf);
+		removedCount_++;
+	}
+
+	/**
+	 * Reclaims the space used by the {@link #removed_} inferences: the
+	 * remaining inferences and their premise slots receive new consecutive
+	 * ids, which are then used in all lists
+	 */
+	private void compact() {
+		LOGGER_.trace("compacting {} removed inferences", removedCount_);
+		int inferenceCount = inferences_.size();
+		int[] newIds = new int[inferenceCount];
+		int[] newInferenceConclusion = new int[inferenceConclusion_.length];
+		int[] newPremiseStart = new int[premiseStart_.length];
+		int[] newWatchPosition = new int[watchPosition_.length];
+		int[] newPremiseIds = new int[premiseIds_.length];
+		int[] newSlotInference = new int[slotInference_.length];
+		int newCount = 0, newSlotCount = 0;
+		for (int inf = 0; inf < inferenceCount; inf++) {
+			if (removed_.get(inf)) {
+				newIds[inf] = -1;
+				continue;
+			}
+			// else
+			newIds[inf] = newCount;
+			inferences_.set(newCount, inferences_.get(inf));
+			newInferenceConclusion[newCount] = inferenceConclusion_[inf];
+			newWatchPosition[newCount] = watchPosition_[inf];
+			newPremiseStart[newCount] = newSlotCount;
+			for (int slot = premiseStart_[inf]; slot < premiseStart_[inf
+					+ 1]; slot++) {
+				newPremiseIds[newSlotCount] = premiseIds_[slot];
+				newSlotInference[newSlotCount] = newCount;
+				newSlotCount++;
+			}
+			newCount++;
+		}
+		newPremiseStart[newCount] = newSlotCount;
+		inferences_.subList(newCount, inferenceCount).clear();
+		int[] newNextInference = new int[nextInference_.length];
+		int[] newNextSibling = new int[nextSibling_.length];
+		int[] newNextFiredSlot = new int[nextFiredSlot_.length];
+		int[] newPreviousFiredSlot = new int[previousFiredSlot_.length];
+		for (int conclusion = 0; conclusion < conclusionIds_
+				.size(); conclusion++) {
+			watchHead_[conclusion] = relink(watchHead_[conclusion],
+					nextInference_, newIds, newNextInference);
+			int head = relink(remainingHead_[conclusion], nextInference_,
+					newIds, newNextInference);
+			int tail = head;
+			if (head >= 0) {
+				while (newNextInference[tail] >= 0) {
+					tail = newNextInference[tail];
+				}
+			}
+			remainingHead_[conclusion] = head;
+			remainingTail_[conclusion] = tail;
+			inferenceHead_[conclusion] = relink(inferenceHead_[conclusion],
+					nextSibling_, newIds, newNextSibling);
+			int fired = firedInference_[conclusion];
+			if (fired >= 0) {
+				firedInference_[conclusion] = newIds[fired];
+			}
+			// the fired inferences are never removed
+			int previous = -1;
+			for (int slot = firedSlotHead_[conclusion]; slot >= 0; slot = nextFiredSlot_[slot]) {
+				int inf = slotInference_[slot];
+				int newSlot = newPremiseStart[newIds[inf]] + slot
+						- premiseStart_[inf];
+				newPreviousFiredSlot[newSlot] = previous;
+				if (previous < 0) {
+					firedSlotHead_[conclusion] = newSlot;
+				} else {
+					newNextFiredSlot[previous] = newSlot;
+				}
+				newNextFiredSlot[newSlot] = -1;
+				previous = newSlot;
+			}
+		}
+		inferenceConclusion_ = newInferenceConclusion;
+		premiseStart_ = newPremiseStart;
+		watchPosition_ = newWatchPosition;
+		nextInference_ = newNextInference;
+		nextSibling_ = newNextSibling;
+		premiseIds_ = newPremiseIds;
+		slotInference_ = newSlotInference;
+		nextFiredSlot_ = newNextFiredSlot;
+		previousFiredSlot_ = newPreviousFiredSlot;
+		premiseSlotCount_ = newSlotCount;
+		removed_.clear();
+		removedCount_ = 0;
+	}
+
+	/**
+	 * Copies the list of inferences starting from the given one and linked
+	 * using the given array to the list linked using the new array, skipping
+	 * the removed inferences and using the new inference ids
+	 * 
+	 * @return the new id of the first inference in the resulting list or
+	 *         {@code -1} if this list is empty
+	 */
+	private static int relink(int head, int[] next, int[] newIds,
+			int[] newNext) {
+		int newHead = -1, last = -1;
+		for (int inf = head; inf >= 0; inf = next[inf]) {
+			int id = newIds[inf];
+			if (id < 0) {
+				continue;
+			}
+			// else
+			if (last < 0) {
+				newHead = id;
+			} else {
+				newNext[last] = id;
+			}
+			last = id;
+		}
+		if (last >= 0) {
+			newNext[last] = -1;
+		}
+		return newHead;
+	}
+
+	/**
+	 * Forgets all inferences retrieved from the proof and the results of all
+	 * derivability tests; the blocked conclusions are preserved
+	 */
+	protected void reset() {
+		LOGGER_.trace("reset");
+		int conclusionCount = conclusionIds_.size();
+		Arrays.fill(watchHead_, 0, conclusionCount, -1);
+		Arrays.fill(remainingHead_, 0, conclusionCount, -1);
+		Arrays.fill(remainingTail_, 0, conclusionCount, -1);
+		Arrays.fill(firedInference_, 0, conclusionCount, -1);
+		Arrays.fill(firedSlotHead_, 0, conclusionCount, -1);
+		Arrays.fill(inferenceHead_, 0, conclusionCount, -1);
+		inferences_.clear();
+		premiseSlotCount_ = 0;
+		derivable_.clear();
+		goals_.clear();
+		loaded_.clear();
+		removed_.clear();
+		removedCount_ = 0;
+		toBlock_.clear();
+		toUnblock_.clear();
+		toCheck_.clear();
+		toSetUnknown_.clear();
+		toPropagate_.clear();
+	}
+
+	private static int[] newIds(int capacity) {
+		int[] result = new int[capacity];
+		Arrays.fill(result, -1);
+		return result;
+	}
+
+	private static int[] growIds(int[] ids, int capacity) {
+		int[] result = Arrays.copyOf(ids, capacity);
+		Arrays.fill(result, ids.length, capacity, -1);
+		return result;
+	}
+
+	/**
+	 * A view of {@link #blocked_} as a set of conclusions
+	 */
+	private class BlockedConclusions extends AbstractSet<C> {
+
+		@Override
+		public boolean contains(Object o) {
+			int id = conclusionIds_.find(o);
+			return id >= 0 && blocked_.get(id);
+		}
+
+		@Override
+		public Iterator<C> iterator() {
+			return new Iterator<C>() {
+
+				int next_ = blocked_.nextSetBit(0);
+
+				int current_ = -1;
+
+				@Override
+				public boolean hasNext() {
+					return next_ >= 0;
+				}
+
+				@Override
+				public C next() {
+					if (next_ < 0) {
+						throw new NoSuchElementException();
+					}
+					// else
+					current_ = next_;
+					next_ = blocked_.nextSetBit(current_ + 1);
+					return conclusionIds_.getElement(current_);
+				}
+
+				@Override
+				public void remove() {
+					Preconditions.checkState(current_ >= 0);
+					unblock(conclusionIds_.getElement(current_));
+					current_ = -1;
+				}
+
+			};
+		}
+
+		@Override
+		public int size() {
+			return blocked_.cardinality();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return blocked_.isEmpty();
+		}
+
+	}
+
+}
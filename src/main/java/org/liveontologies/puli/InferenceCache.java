@@ -0,0 +1,131 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli;
+
+import java.util.Collection;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+/**
+ * A cache for the results of {@link Proof#getInferences(Object)} configured
+ * using a {@link CacheBuilderSpec}, e.g.,
+ * {@code "maximumSize=10000,expireAfterAccess=10m"} or
+ * {@code "maximumWeight=1000000,softValues"}. If the maximum weight is
+ * specified, the weight of a cached entry is the number of inferences in it.
+ * An empty specification means that the entries are never evicted.
+ * 
+ * @param <I>
+ *            the type of cached inferences
+ */
+class InferenceCache<I extends Inference<?>> {
+
+	private static final String MAXIMUM_WEIGHT_KEY_ = "maximumWeight";
+
+	private static final Splitter KEY_VALUE_SPLITTER_ = Splitter.on(',')
+			.trimResults(), KEY_SPLITTER_ = Splitter.on('=').trimResults();
+
+	private final Cache<Object, Collection<? extends I>> cache_;
+
+	/**
+	 * the statistics at the time of the last {@link #resetStats()}
+	 */
+	private CacheStats statsBaseline_;
+
+	InferenceCache(String spec) {
+		Preconditions.checkNotNull(spec);
+		CacheBuilder<Object, Object> builder = CacheBuilder.from(spec)
+				.recordStats();
+		if (hasKey(spec, MAXIMUM_WEIGHT_KEY_)) {
+			this.cache_ = builder.weigher(
+					new Weigher<Object, Collection<? extends I>>() {
+
+						@Override
+						public int weigh(Object conclusion,
+								Collection<? extends I> inferences) {
+							return inferences.size();
+						}
+
+					}).build();
+		} else {
+			this.cache_ = builder.build();
+		}
+		this.statsBaseline_ = cache_.stats();
+	}
+
+	/**
+	 * @param spec
+	 *            a {@link CacheBuilderSpec}
+	 * @param key
+	 * @return {@code true} if the given key is specified in the given spec;
+	 *         the keys are separated from values by {@code '='} and the
+	 *         key-value pairs are separated by {@code ','}, as in
+	 *         {@link CacheBuilderSpec}
+	 */
+	private static boolean hasKey(String spec, String key) {
+		for (String keyValue : KEY_VALUE_SPLITTER_.split(spec)) {
+			if (key.equals(KEY_SPLITTER_.split(keyValue).iterator().next())) {
+				return true;
+			}
+		}
+		// else
+		return false;
+	}
+
+	/**
+	 * @param proof
+	 * @param conclusion
+	 * @return the cached inferences of the given conclusion, which are
+	 *         retrieved from the given proof if not cached
+	 */
+	Collection<? extends I> getInferences(Proof<? extends I> proof,
+			Object conclusion) {
+		Collection<? extends I> result = cache_.getIfPresent(conclusion);
+		if (result == null) {
+			result = proof.getInferences(conclusion);
+			cache_.put(conclusion, result);
+		}
+		return result;
+	}
+
+	void invalidate(Object conclusion) {
+		cache_.invalidate(conclusion);
+	}
+
+	void invalidateAll() {
+		cache_.invalidateAll();
+	}
+
+	CacheStats getStats() {
+		return cache_.stats().minus(statsBaseline_);
+	}
+
+	void resetStats() {
+		statsBaseline_ = cache_.stats();
+	}
+
+}
@@ -321,7 +321,8 @@ public class InferenceDerivabilityChecker<C, I extends Inference<? extends C>>
 				return;
 			}
 			C premise = premises.get(pos);
-			if (!derivable_.contains(premise)) {
+			if (!derivable_.contains(premise) || blocked_.contains(premise)) {
+				// blocked conclusions can be derived but cannot be used
 				addWatch(premise, pos, inf);
 				return;
 			}
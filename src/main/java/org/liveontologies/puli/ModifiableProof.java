@@ -40,6 +40,22 @@ public interface ModifiableProof<I extends Inference<?>>
 	@Override
 	void produce(I inference);
 
+	/**
+	 * Remove the given inference from this {@link Proof}; if this
+	 * {@link Proof} contains several inferences equal to the given one, only
+	 * one of them is removed
+	 * 
+	 * @param inference
+	 * @return {@code true} if this {@link Proof} has changed as a result of
+	 *         this operation and {@code false} otherwise
+	 * @throws UnsupportedOperationException
+	 *             if this {@link Proof} does not support removal of
+	 *             inferences; this is the default behavior
+	 */
+	default boolean remove(I inference) {
+		throw new UnsupportedOperationException();
+	}
+
 	/**
 	 * Remove all inferences from this {@link Proof}
 	 */
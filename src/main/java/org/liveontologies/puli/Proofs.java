@@ -72,6 +72,55 @@ public class Proofs {
 		// return ProofNodes.isDerivable(ProofNodes.create(proof, conclusion));
 	}
 
+	/**
+	 * Checks derivability of several conclusions in the given {@link Proof}
+	 * reusing the derivations found for one conclusion when checking the
+	 * others. The results are reported using the given
+	 * {@link DerivabilityListener} as soon as they are known.
+	 * 
+	 * @param proof
+	 * @param goals
+	 *            the conclusions to be checked for derivability
+	 * @param listener
+	 *            the object to which each of the goals is reported exactly
+	 *            once, either as derivable or as not derivable
+	 * @see #isDerivable(Proof, Object)
+	 */
+	public static <C> void checkDerivability(
+			Proof<? extends Inference<? extends C>> proof,
+			Iterable<? extends C> goals,
+			DerivabilityListener<? super C> listener) {
+		new IndexedInferenceDerivabilityChecker<C, Inference<? extends C>>(
+				proof).checkDerivability(goals, listener);
+	}
+
+	/**
+	 * @param proof
+	 * @param goals
+	 * @return the set of the given conclusions that are derivable in the given
+	 *         {@link Proof}
+	 * @see #checkDerivability(Proof, Iterable, DerivabilityListener)
+	 */
+	public static <C> Set<C> getDerivable(
+			Proof<? extends Inference<? extends C>> proof,
+			Iterable<? extends C> goals) {
+		final Set<C> result = new HashSet<C>();
+		checkDerivability(proof, goals, new DerivabilityListener<C>() {
+
+			@Override
+			public void derivable(C conclusion) {
+				result.add(conclusion);
+			}
+
+			@Override
+			public void notDerivable(C conclusion) {
+				// not needed
+			}
+
+		});
+		return result;
+	}
+
 	/**
 	 * @param proofs
 	 * @return the union of the given the {@link Proof}s, i.e., a {@link Proof}
@@ -160,6 +209,22 @@ public class Proofs {
 		return new CachingProof<I>(proof);
 	}
 
+	/**
+	 * @param proof
+	 * @param cacheSpec
+	 *            a {@link com.google.common.cache.CacheBuilderSpec} specifying
+	 *            when the cached inferences are evicted, e.g.,
+	 *            {@code "maximumSize=10000"}
+	 * @return {@link Proof} that caches the
+	 *         {@link Proof#getInferences(Object)} requests of the input
+	 *         {@link Proof} until they are evicted
+	 * @see CachingProof
+	 */
+	public static <I extends Inference<?>> Proof<I> cache(
+			Proof<? extends I> proof, String cacheSpec) {
+		return new CachingProof<I>(proof, cacheSpec);
+	}
+
 	/**
 	 * @param proof
 	 * @return {@link DynamicProof} that caches all
@@ -171,6 +236,23 @@ public class Proofs {
 		return new CachingDynamicProof<I>(proof);
 	}
 
+	/**
+	 * @param proof
+	 * @param cacheSpec
+	 *            a {@link com.google.common.cache.CacheBuilderSpec} specifying
+	 *            when the cached inferences are evicted, e.g.,
+	 *            {@code "maximumSize=10000"}
+	 * @return {@link DynamicProof} that caches the
+	 *         {@link DynamicProof#getInferences(Object)} requests of the input
+	 *         {@link DynamicProof} until the input proof changes or they are
+	 *         evicted
+	 * @see CachingDynamicProof
+	 */
+	public static <I extends Inference<?>> DynamicProof<I> cache(
+			DynamicProof<? extends I> proof, String cacheSpec) {
+		return new CachingDynamicProof<I>(proof, cacheSpec);
+	}
+
 	/**
 	 * Recursively enumerates all inferences of the given {@link Proof} starting
 	 * from the inferences for the given goal conclusion and then proceeding to
@@ -260,22 +342,13 @@ public class Proofs {
 	 * @param goal
 	 * @return the set of conclusions without which the goal would not be
 	 *         derivable using the given inferences; i.e., every derivation
-	 *         using the inferences must use every essential conclusion
+	 *         using the inferences must use every essential conclusion; if
+	 *         the goal is not derivable, this is the set of all conclusions
+	 *         that can be used for deriving the goal
 	 */
 	public static <C, I extends Inference<? extends C>> Set<C> getEssentialConclusions(
 			Proof<I> proof, C goal) {
-		Set<C> result = new HashSet<C>();
-		DerivabilityCheckerWithBlocking<C, I> checker = new InferenceDerivabilityChecker<C, I>(
-				proof);
-		for (C candidate : unfoldRecursively(proof, goal,
-				Producer.Dummy.<I> get())) {
-			checker.block(candidate);
-			if (!checker.isDerivable(goal)) {
-				result.add(candidate);
-			}
-			checker.unblock(candidate);
-		}
-		return result;
+		return EssentialConclusionComputation.<C, I> compute(proof, goal);
 	}
 
 	/**
@@ -21,16 +21,33 @@
  */
 package org.liveontologies.puli.collections;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
+import org.liveontologies.puli.statistics.ResetStats;
+import org.liveontologies.puli.statistics.Stat;
+
+import com.google.common.base.Preconditions;
+
 /**
  * A {@link Collection2} that stores collections in a trie. The key for a
  * collection is a Bloom filter represented as a 64 bit (long) integer: every
- * element sets one bit to 1. Another Bloom filter (likewise represented as long
- * integer) is used to prevent subset tests. The iterators returned by
+ * element sets one bit to 1. Another Bloom filter, represented by an array of
+ * long integers, is used to prevent subset tests. The number of bits and the
+ * number of hash functions for this filter, as well as the number of
+ * collections in the leaf nodes after which they are split, can be
+ * configured. In the self-tuning mode, these parameters are chosen from the
+ * average size of the collections added so far and the trie is rebuilt when
+ * they change.
+ * 
+ * Nodes that become empty after removals are deleted, and internal nodes
+ * that contain few collections are collapsed into leaf nodes, except when the
+ * removal is done by an iterator, which keeps the structure of the nodes that
+ * it traverses. The trie can be rebuilt explicitly using {@link #compact()}.
  * 
  * @author Yevgeny Kazakov
  *
@@ -46,10 +63,97 @@ public class BloomTrieCollection2<C extends Collection<?>>
 
 	private final static long LONG_MASK_ = -1L; // all bits set to 1
 
-	private Node<C> root_ = new LeafNode<C>();
+	public final static int DEFAULT_FILTER_BITS = 64;
+
+	public final static int MAX_FILTER_BITS = 512;
+
+	public final static int DEFAULT_HASH_COUNT = 1;
+
+	public final static int DEFAULT_SPLIT_CAPACITY = 64;
+
+	/**
+	 * the maximal number of hash functions chosen in the self-tuning mode
+	 */
+	private final static int MAX_TUNED_HASH_COUNT_ = 4;
+
+	/**
+	 * the number of collections after which the parameters are first chosen
+	 * in the self-tuning mode; they are chosen again every time the number of
+	 * collections doubles
+	 */
+	private final static int FIRST_TUNE_SIZE_ = 64;
+
+	private Parameters parameters_;
+
+	private final boolean selfTuning_;
+
+	private Node<C> root_;
 
 	private int size_ = 0;
 
+	/**
+	 * the total size of collections added, used for self-tuning
+	 */
+	private long totalCollectionSize_ = 0;
+
+	/**
+	 * the number of additions, used for self-tuning
+	 */
+	private int countAdditions_ = 0;
+
+	/**
+	 * the number of additions after which the parameters are chosen again in
+	 * the self-tuning mode
+	 */
+	private int nextTuneSize_ = FIRST_TUNE_SIZE_;
+
+	/**
+	 * the statistics of the filter tests in the nodes of this collection
+	 */
+	private final FilterStats stats_ = new FilterStats();
+
+	private long countRetunings_ = 0;
+
+	/**
+	 * Creates a {@link BloomTrieCollection2} with the given parameters
+	 * 
+	 * @param filterBits
+	 *            the number of bits in the Bloom filter used to prevent
+	 *            subset tests; must be a power of two from
+	 *            {@value #DEFAULT_FILTER_BITS} to {@value #MAX_FILTER_BITS}
+	 * @param hashCount
+	 *            the number of bits set by each element in this filter
+	 * @param splitCapacity
+	 *            the maximal number of collections in a leaf node after which
+	 *            it is split, if possible
+	 */
+	public BloomTrieCollection2(int filterBits, int hashCount,
+			int splitCapacity) {
+		this(new Parameters(filterBits, hashCount, splitCapacity), false);
+	}
+
+	/**
+	 * Creates a {@link BloomTrieCollection2} with the default parameters
+	 * 
+	 * @param selfTuning
+	 *            if {@code true}, the parameters are chosen depending on the
+	 *            sizes of the added collections
+	 */
+	public BloomTrieCollection2(boolean selfTuning) {
+		this(new Parameters(DEFAULT_FILTER_BITS, DEFAULT_HASH_COUNT,
+				DEFAULT_SPLIT_CAPACITY), selfTuning);
+	}
+
+	public BloomTrieCollection2() {
+		this(false);
+	}
+
+	private BloomTrieCollection2(Parameters parameters, boolean selfTuning) {
+		this.parameters_ = parameters;
+		this.selfTuning_ = selfTuning;
+		this.root_ = new LeafNode<C>(parameters, stats_);
+	}
+
 	/**
 	 * @param bits
 	 * @return 11..1 bits times
@@ -59,43 +163,186 @@ public class BloomTrieCollection2<C extends Collection<?>>
 	}
 
 	// used as a key in the trie
-	private static long getFilter(Collection<?> s) {
+	long getFilter(Collection<?> s) {
 		long result = 0;
 		for (Object e : s) {
-			// use low 12 bits of hash
-			int hash = e.hashCode();
-			int pos = hash & FILTER_MASK_;
-			hash >>>= FILTER_SHIFT_;
-			pos ^= hash & FILTER_MASK_;
-			result |= 1L << pos;
+			result |= getFilterBit(e.hashCode());
 		}
 		return result;
 	}
 
 	// used to further prune subset test
-	private static long getFilter2(Collection<?> s) {
-		long result = 0;
+	long[] getFilter2(Collection<?> s) {
+		long[] result = parameters_.newFilter2();
 		for (Object e : s) {
-			// use low 13-24 bits of hash
-			int hash = e.hashCode() >>> 12;
-			int pos = hash & FILTER_MASK_;
-			hash >>>= FILTER_SHIFT_;
-			pos ^= hash & FILTER_MASK_;
-			result |= 1L << pos;
+			parameters_.addToFilter2(result, e.hashCode());
 		}
 		return result;
 	}
 
+	/**
+	 * @return the parameters used for computing filters
+	 */
+	Parameters getParameters() {
+		return parameters_;
+	}
+
+	/**
+	 * @param hash
+	 * @return the bit set for an element with the given hash code in the
+	 *         filter used as a key in the trie
+	 */
+	static long getFilterBit(int hash) {
+		// use low 12 bits of hash
+		int pos = hash & FILTER_MASK_;
+		hash >>>= FILTER_SHIFT_;
+		pos ^= hash & FILTER_MASK_;
+		return 1L << pos;
+	}
+
+	/**
+	 * @return the number of bits in the Bloom filter used to prevent subset
+	 *         tests
+	 */
+	public int getFilterBits() {
+		return parameters_.filterWords << FILTER_SHIFT_;
+	}
+
+	/**
+	 * @return the number of bits set by each element in the Bloom filter used
+	 *         to prevent subset tests
+	 */
+	public int getHashCount() {
+		return parameters_.hashCount;
+	}
+
+	/**
+	 * @return the maximal number of collections in a leaf node after which it
+	 *         is split, if possible
+	 */
+	public int getSplitCapacity() {
+		return parameters_.splitCapacity;
+	}
+
 	@Override
 	public boolean add(C s) {
-		Node<C> newRoot = root_.add(s, LONG_MASK_, getFilter(s), getFilter2(s));
+		Node<C> newRoot = root_.add(s, LONG_MASK_, getFilter(s),
+				getFilter2(s));
 		if (newRoot != null) {
 			root_ = newRoot;
 		}
 		size_++;
+		added(s);
 		return true;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * If the collection is added, the supersets are removed during the same
+	 * traversal of the trie that inserts the collection.
+	 */
+	@Override
+	public boolean addIfMinimalAndRemoveSupersets(C s) {
+		long fragment = getFilter(s);
+		long[] filter2 = getFilter2(s);
+		if (!root_.isMinimal(s, LONG_MASK_, fragment, filter2)) {
+			return false;
+		}
+		// else
+		root_ = root_.addAndRemoveSupersetsOf(s, LONG_MASK_, fragment,
+				filter2);
+		size_ = root_.size();
+		added(s);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * If the collection is added, the subsets are removed during the same
+	 * traversal of the trie that inserts the collection.
+	 */
+	@Override
+	public boolean addIfMaximalAndRemoveSubsets(C s) {
+		long fragment = getFilter(s);
+		long[] filter2 = getFilter2(s);
+		if (!root_.isMaximal(s, LONG_MASK_, fragment, filter2)) {
+			return false;
+		}
+		// else
+		root_ = root_.addAndRemoveSubsetsOf(s, LONG_MASK_, fragment, filter2);
+		size_ = root_.size();
+		added(s);
+		return true;
+	}
+
+	/**
+	 * Updates the statistics for self-tuning after the given collection was
+	 * added
+	 */
+	private void added(C s) {
+		if (selfTuning_) {
+			totalCollectionSize_ += s.size();
+			if (++countAdditions_ >= nextTuneSize_) {
+				nextTuneSize_ <<= 1;
+				tune();
+			}
+		}
+	}
+
+	/**
+	 * Chooses the parameters for the average size of the added collections;
+	 * if they change, the trie is rebuilt
+	 */
+	void tune() {
+		double averageSize = (double) totalCollectionSize_ / countAdditions_;
+		// the number of bits for which about half of them are set
+		// with two hash functions
+		int filterBits = DEFAULT_FILTER_BITS;
+		while (filterBits < MAX_FILTER_BITS
+				&& filterBits < 2.88 * averageSize) {
+			filterBits <<= 1;
+		}
+		int hashCount = (int) Math
+				.round(0.69 * filterBits / Math.max(averageSize, 1));
+		hashCount = Math.max(DEFAULT_HASH_COUNT,
+				Math.min(MAX_TUNED_HASH_COUNT_, hashCount));
+		Parameters parameters = new Parameters(filterBits, hashCount,
+				parameters_.splitCapacity);
+		if (parameters.equals(parameters_)) {
+			return;
+		}
+		// else
+		rebuild(parameters);
+		countRetunings_++;
+	}
+
+	/**
+	 * Rebuilds the trie from scratch. This removes the empty and sparse nodes
+	 * that remain after removals by iterators and shrinks the nodes that are
+	 * larger than needed.
+	 */
+	public void compact() {
+		rebuild(parameters_);
+	}
+
+	private void rebuild(Parameters parameters) {
+		List<C> collections = new ArrayList<C>(size_);
+		for (C s : this) {
+			collections.add(s);
+		}
+		parameters_ = parameters;
+		root_ = new LeafNode<C>(parameters, stats_);
+		for (C s : collections) {
+			Node<C> newRoot = root_.add(s, LONG_MASK_, getFilter(s),
+					getFilter2(s));
+			if (newRoot != null) {
+				root_ = newRoot;
+			}
+		}
+	}
+
 	@Override
 	public boolean contains(Object o) {
 		if (o instanceof Collection<?>) {
@@ -106,9 +353,61 @@ public class BloomTrieCollection2<C extends Collection<?>>
 		}
 	}
 
+	@Override
+	public boolean remove(Object o) {
+		if (o instanceof Collection<?>) {
+			Collection<?> s = (Collection<?>) o;
+			return updateRoot(root_.remove(s, LONG_MASK_, getFilter(s),
+					getFilter2(s))) > 0;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Removes all collections that contain all elements of the given
+	 * collection
+	 * 
+	 * @param s
+	 * @return the number of removed collections
+	 */
+	public int removeAllSupersetsOf(Collection<?> s) {
+		return updateRoot(root_.removeSupersetsOf(s, LONG_MASK_, getFilter(s),
+				getFilter2(s)));
+	}
+
+	/**
+	 * Removes all collections that contain only elements of the given
+	 * collection
+	 * 
+	 * @param s
+	 * @return the number of removed collections
+	 */
+	public int removeAllSubsetsOf(Collection<?> s) {
+		return updateRoot(root_.removeSubsetsOf(s, LONG_MASK_, getFilter(s),
+				getFilter2(s)));
+	}
+
+	/**
+	 * Replaces the root by the result of a removal from it
+	 * 
+	 * @param updated
+	 *            the new root, or {@code null} if empty
+	 * @return the number of removed collections
+	 */
+	private int updateRoot(Node<C> updated) {
+		if (updated == null) {
+			updated = new LeafNode<C>(parameters_, stats_);
+		}
+		root_ = updated;
+		int removed = size_ - updated.size();
+		size_ = updated.size();
+		return removed;
+	}
+
 	@Override
 	public void clear() {
-		root_ = new LeafNode<C>();
+		root_ = new LeafNode<C>(parameters_, stats_);
 		size_ = 0;
 	}
 
@@ -132,12 +431,14 @@ public class BloomTrieCollection2<C extends Collection<?>>
 					return s.containsAll(o);
 				}
 			};
-			final long filter = getFilter(s), filter2 = getFilter2(s);
 
 			@Override
 			public Iterator<C> iterator() {
+				// the filters depend on the current parameters, which may
+				// change after this iterable was created
 				return new DelegatingIterator<C>(root_.subCollectionsOf(
-						subsetCondition, LONG_MASK_, filter, filter2)) {
+						subsetCondition, LONG_MASK_, getFilter(s),
+						getFilter2(s))) {
 
 					@Override
 					public void remove() {
@@ -160,12 +461,14 @@ public class BloomTrieCollection2<C extends Collection<?>>
 					return o.containsAll(s);
 				}
 			};
-			final long filter = getFilter(s), filter2 = getFilter2(s);
 
 			@Override
 			public Iterator<C> iterator() {
+				// the filters depend on the current parameters, which may
+				// change after this iterable was created
 				return new DelegatingIterator<C>(root_.superCollectionsOf(
-						supersetCondition, LONG_MASK_, filter, filter2)) {
+						supersetCondition, LONG_MASK_, getFilter(s),
+						getFilter2(s))) {
 
 					@Override
 					public void remove() {
@@ -197,6 +500,164 @@ public class BloomTrieCollection2<C extends Collection<?>>
 		return size_;
 	}
 
+	/**
+	 * @return the number of stored collections that were tested by the Bloom
+	 *         filters as possible subsets or supersets
+	 */
+	@Stat
+	public long countFilterTests() {
+		return stats_.filterTests;
+	}
+
+	/**
+	 * @return the number of stored collections that were pruned by the Bloom
+	 *         filters, i.e., for which the subset tests were not needed
+	 */
+	@Stat
+	public long countFilterPrunedTests() {
+		return stats_.filterPrunedTests;
+	}
+
+	/**
+	 * @return the number of subset tests not pruned by the Bloom filters that
+	 *         have failed
+	 */
+	@Stat
+	public long countFailedContainsAllTests() {
+		return stats_.failedContainsAllTests;
+	}
+
+	/**
+	 * @return the ratio of stored collections pruned by the Bloom filters
+	 */
+	@Stat
+	public double filterPruningRate() {
+		return stats_.filterTests == 0 ? 0
+				: (double) stats_.filterPrunedTests / stats_.filterTests;
+	}
+
+	/**
+	 * @return how many times the parameters were changed in the self-tuning
+	 *         mode
+	 */
+	@Stat
+	public long countRetunings() {
+		return countRetunings_;
+	}
+
+	@ResetStats
+	public void resetStats() {
+		stats_.reset();
+		countRetunings_ = 0;
+	}
+
+	/**
+	 * The counters of the filter tests; they are not synchronized, so they are
+	 * approximate if the collection is read concurrently. To keep the shared
+	 * writes rare, the nodes update them once per visit rather than once per
+	 * test.
+	 */
+	static final class FilterStats {
+
+		long filterTests = 0;
+
+		long filterPrunedTests = 0;
+
+		long failedContainsAllTests = 0;
+
+		void update(int tests, int prunedTests, int failedContainsAllTests) {
+			this.filterTests += tests;
+			this.filterPrunedTests += prunedTests;
+			this.failedContainsAllTests += failedContainsAllTests;
+		}
+
+		void reset() {
+			filterTests = 0;
+			filterPrunedTests = 0;
+			failedContainsAllTests = 0;
+		}
+
+	}
+
+	/**
+	 * The parameters that determine the second Bloom filter and the shape of
+	 * the trie
+	 */
+	static final class Parameters {
+
+		/**
+		 * the number of long integers representing the second filter
+		 */
+		final int filterWords;
+
+		final int hashCount;
+
+		final int splitCapacity;
+
+		/**
+		 * 11..1 with the number of bits in the second filter
+		 */
+		private final int filterBitMask_;
+
+		Parameters(int filterBits, int hashCount, int splitCapacity) {
+			Preconditions.checkArgument(
+					filterBits >= DEFAULT_FILTER_BITS
+							&& filterBits <= MAX_FILTER_BITS
+							&& Integer.bitCount(filterBits) == 1,
+					"Filter bits must be a power of two from %s to %s: %s",
+					DEFAULT_FILTER_BITS, MAX_FILTER_BITS, filterBits);
+			Preconditions.checkArgument(hashCount > 0,
+					"Hash count must be positive: %s", hashCount);
+			Preconditions.checkArgument(splitCapacity > 0,
+					"Split capacity must be positive: %s", splitCapacity);
+			this.filterWords = filterBits >>> FILTER_SHIFT_;
+			this.hashCount = hashCount;
+			this.splitCapacity = splitCapacity;
+			this.filterBitMask_ = filterBits - 1;
+		}
+
+		long[] newFilter2() {
+			return new long[filterWords];
+		}
+
+		/**
+		 * Sets the bits of the element with the given hash code in the given
+		 * second filter
+		 * 
+		 * @param filter2
+		 * @param hash
+		 */
+		void addToFilter2(long[] filter2, int hash) {
+			// mix the bits, the key filter uses the low bits of the hash
+			hash *= 0x9E3779B9;
+			hash ^= hash >>> 16;
+			int step = (hash >>> 8) | 1;
+			for (int i = 0; i < hashCount; i++) {
+				int pos = hash & filterBitMask_;
+				filter2[pos >>> FILTER_SHIFT_] |= 1L << pos;
+				hash += step;
+			}
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof Parameters) {
+				Parameters other = (Parameters) o;
+				return filterWords == other.filterWords
+						&& hashCount == other.hashCount
+						&& splitCapacity == other.splitCapacity;
+			}
+			// else
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return (filterWords * 31 + hashCount) * 31 + splitCapacity;
+		}
+
+	}
+
 	interface Node<C extends Collection<?>> {
 
 		/**
@@ -211,24 +672,92 @@ public class BloomTrieCollection2<C extends Collection<?>>
 		 * @return {@code null} if the capacity of this node was sufficient or
 		 *         the newly created node otherwise
 		 */
-		Node<C> add(C s, long mask, long fragment, long filter2);
+		Node<C> add(C s, long mask, long fragment, long[] filter2);
+
+		/**
+		 * @return the number of collections in this node and its descendants
+		 */
+		int size();
+
+		/**
+		 * Removes one collection equal to the given one, if there is such
+		 * 
+		 * @param s
+		 * @param mask
+		 * @param fragment
+		 * @param filter2
+		 * @return the node that should replace this node after the removal,
+		 *         which can be this node, or {@code null} if it is empty
+		 */
+		Node<C> remove(Collection<?> s, long mask, long fragment,
+				long[] filter2);
+
+		/**
+		 * Removes all supersets of the given collection
+		 * 
+		 * @return the node that should replace this node after the removal,
+		 *         which can be this node, or {@code null} if it is empty
+		 */
+		Node<C> removeSupersetsOf(Collection<?> s, long mask, long fragment,
+				long[] filter2);
+
+		/**
+		 * Removes all subsets of the given collection
+		 * 
+		 * @return the node that should replace this node after the removal,
+		 *         which can be this node, or {@code null} if it is empty
+		 */
+		Node<C> removeSubsetsOf(Collection<?> s, long mask, long fragment,
+				long[] filter2);
+
+		/**
+		 * Adds the given collection and removes all its supersets
+		 * 
+		 * @return the node that should replace this node, which can be this
+		 *         node
+		 */
+		Node<C> addAndRemoveSupersetsOf(C s, long mask, long fragment,
+				long[] filter2);
+
+		/**
+		 * Adds the given collection and removes all its subsets
+		 * 
+		 * @return the node that should replace this node, which can be this
+		 *         node
+		 */
+		Node<C> addAndRemoveSubsetsOf(C s, long mask, long fragment,
+				long[] filter2);
+
+		/**
+		 * Appends the collections of this node and its descendants to the
+		 * given leaf node, which must have sufficient capacity
+		 * 
+		 * @param leaf
+		 * @param prefix
+		 *            the bits to be added to the fragments stored in this
+		 *            node to obtain the fragments for the leaf
+		 * @param shift
+		 *            how many bits the stored fragments should be shifted
+		 *            before adding the prefix
+		 */
+		void appendTo(LeafNode<C> leaf, long prefix, int shift);
 
 		boolean contains(Collection<?> s, long mask, long fragment,
-				long filter2);
+				long[] filter2);
 
 		boolean isMinimal(Collection<?> s, long mask, long fragment,
-				long filter2);
+				long[] filter2);
 
 		boolean isMaximal(Collection<?> s, long mask, long fragment,
-				long filter2);
+				long[] filter2);
 
 		Iterator<C> iterator(long mask);
 
 		Iterator<C> subCollectionsOf(Condition<? super C> subsetCondition,
-				long mask, long fragment, long filter2);
+				long mask, long fragment, long[] filter2);
 
 		Iterator<C> superCollectionsOf(Condition<? super C> supersetCondition,
-				long mask, long fragment, long filter2);
+				long mask, long fragment, long[] filter2);
 
 	}
 
@@ -241,23 +770,43 @@ public class BloomTrieCollection2<C extends Collection<?>>
 		private final static Iterator<?> EMPTY_ITERATOR_ = Collections.EMPTY_LIST
 				.iterator();
 
+		private final Parameters parameters_;
+
+		private final FilterStats stats_;
+
+		private final long mask_;
+
 		private final Node<C>[] children_;
 
+		/**
+		 * the number of collections in the children
+		 */
+		private int size_ = 0;
+
 		@SuppressWarnings("unchecked")
-		InternalNode(long mask) {
+		InternalNode(Parameters parameters, FilterStats stats, long mask) {
 			if (mask == 0L) {
 				throw new IllegalArgumentException();
 			}
+			this.parameters_ = parameters;
+			this.stats_ = stats;
+			this.mask_ = mask;
 			children_ = new Node[(int) (BUCKET_MASK_ & mask) + 1];
 		}
 
 		@Override
-		public Node<C> add(C s, long mask, long fragment, long filter2) {
+		public int size() {
+			return size_;
+		}
+
+		@Override
+		public Node<C> add(C s, long mask, long fragment, long[] filter2) {
+			size_++;
 			int pos = (int) (fragment & BUCKET_MASK_ & mask);
 			mask >>>= BUCKET_SHIFT_;
 			fragment >>>= BUCKET_SHIFT_;
 			if (children_[pos] == null) {
-				children_[pos] = new LeafNode<C>(mask);
+				children_[pos] = new LeafNode<C>(parameters_, stats_, mask);
 			}
 			Node<C> updated = children_[pos].add(s, mask, fragment, filter2);
 			if (updated != null) {
@@ -268,7 +817,7 @@ public class BloomTrieCollection2<C extends Collection<?>>
 
 		@Override
 		public boolean contains(Collection<?> s, long mask, long fragment,
-				long filter2) {
+				long[] filter2) {
 			int pos = (int) (fragment & BUCKET_MASK_ & mask);
 			mask >>>= BUCKET_SHIFT_;
 			fragment >>>= BUCKET_SHIFT_;
@@ -276,12 +825,184 @@ public class BloomTrieCollection2<C extends Collection<?>>
 				return false;
 			}
 			// else
-			return children_[pos].contains(s, fragment, mask, filter2);
+			return children_[pos].contains(s, mask, fragment, filter2);
+		}
+
+		@Override
+		public Node<C> remove(Collection<?> s, long mask, long fragment,
+				long[] filter2) {
+			int pos = (int) (fragment & BUCKET_MASK_ & mask);
+			Node<C> child = children_[pos];
+			if (child == null) {
+				return this;
+			}
+			// else
+			int childSize = child.size();
+			replace(pos, childSize, child.remove(s, mask >>> BUCKET_SHIFT_,
+					fragment >>> BUCKET_SHIFT_, filter2));
+			return collapse();
+		}
+
+		@Override
+		public Node<C> removeSupersetsOf(Collection<?> s, long mask,
+				long fragment, long[] filter2) {
+			int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
+			int pos = (int) (mask & BUCKET_MASK_);
+			mask >>>= BUCKET_SHIFT_;
+			fragment >>>= BUCKET_SHIFT_;
+			for (;;) {
+				Node<C> child = children_[pos];
+				if (child != null) {
+					int childSize = child.size();
+					replace(pos, childSize, child.removeSupersetsOf(s, mask,
+							fragment, filter2));
+				}
+				if (pos == fragmentMask) {
+					return collapse();
+				}
+				pos &= ~fragmentMask;
+				pos--;
+				pos |= fragmentMask;
+			}
+		}
+
+		@Override
+		public Node<C> removeSubsetsOf(Collection<?> s, long mask,
+				long fragment, long[] filter2) {
+			int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
+			mask >>>= BUCKET_SHIFT_;
+			fragment >>>= BUCKET_SHIFT_;
+			int pos = 0;
+			for (;;) {
+				Node<C> child = children_[pos];
+				if (child != null) {
+					int childSize = child.size();
+					replace(pos, childSize, child.removeSubsetsOf(s, mask,
+							fragment, filter2));
+				}
+				if (pos == fragmentMask) {
+					return collapse();
+				}
+				pos |= ~fragmentMask;
+				pos++;
+				pos &= fragmentMask;
+			}
+		}
+
+		@Override
+		public Node<C> addAndRemoveSupersetsOf(C s, long mask, long fragment,
+				long[] filter2) {
+			int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
+			int pos = (int) (mask & BUCKET_MASK_);
+			mask >>>= BUCKET_SHIFT_;
+			fragment >>>= BUCKET_SHIFT_;
+			for (;;) {
+				Node<C> child = children_[pos];
+				if (pos == fragmentMask) {
+					// the position of the collection, visited last
+					if (child == null) {
+						child = new LeafNode<C>(parameters_, stats_, mask);
+						children_[pos] = child;
+					}
+					int childSize = child.size();
+					replace(pos, childSize, child.addAndRemoveSupersetsOf(s,
+							mask, fragment, filter2));
+					return collapse();
+				}
+				// else
+				if (child != null) {
+					int childSize = child.size();
+					replace(pos, childSize, child.removeSupersetsOf(s, mask,
+							fragment, filter2));
+				}
+				pos &= ~fragmentMask;
+				pos--;
+				pos |= fragmentMask;
+			}
+		}
+
+		@Override
+		public Node<C> addAndRemoveSubsetsOf(C s, long mask, long fragment,
+				long[] filter2) {
+			int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
+			mask >>>= BUCKET_SHIFT_;
+			fragment >>>= BUCKET_SHIFT_;
+			int pos = 0;
+			for (;;) {
+				Node<C> child = children_[pos];
+				if (pos == fragmentMask) {
+					// the position of the collection, visited last
+					if (child == null) {
+						child = new LeafNode<C>(parameters_, stats_, mask);
+						children_[pos] = child;
+					}
+					int childSize = child.size();
+					replace(pos, childSize, child.addAndRemoveSubsetsOf(s,
+							mask, fragment, filter2));
+					return collapse();
+				}
+				// else
+				if (child != null) {
+					int childSize = child.size();
+					replace(pos, childSize, child.removeSubsetsOf(s, mask,
+							fragment, filter2));
+				}
+				pos |= ~fragmentMask;
+				pos++;
+				pos &= fragmentMask;
+			}
+		}
+
+		/**
+		 * Replaces the child at the given position by its updated version
+		 * after removals
+		 * 
+		 * @param pos
+		 * @param childSize
+		 *            the size of the child before the removals
+		 * @param updated
+		 */
+		void replace(int pos, int childSize, Node<C> updated) {
+			size_ -= childSize;
+			if (updated != null) {
+				size_ += updated.size();
+			}
+			children_[pos] = updated;
+		}
+
+		/**
+		 * @return the node that should replace this node after removals:
+		 *         {@code null} if it is empty, a leaf node with all its
+		 *         collections if there are few of them, or this node
+		 *         otherwise
+		 */
+		Node<C> collapse() {
+			if (size_ == 0) {
+				return null;
+			}
+			if (size_ > parameters_.splitCapacity >>> 1) {
+				return this;
+			}
+			// else
+			LeafNode<C> result = new LeafNode<C>(parameters_, stats_, mask_, size_);
+			appendTo(result, 0L, 0);
+			return result;
+		}
+
+		@Override
+		public void appendTo(LeafNode<C> leaf, long prefix, int shift) {
+			for (int pos = 0; pos < children_.length; pos++) {
+				Node<C> child = children_[pos];
+				if (child != null) {
+					child.appendTo(leaf, prefix | ((long) pos << shift),
+							shift + BUCKET_SHIFT_);
+				}
+			}
 		}
 
 		@Override
 		public boolean isMinimal(Collection<?> s, long mask, long fragment,
-				long filter2) {
+				long[] filter2) {
 			int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
 			mask >>>= BUCKET_SHIFT_;
 			fragment >>>= BUCKET_SHIFT_;
@@ -304,7 +1025,7 @@ public class BloomTrieCollection2<C extends Collection<?>>
 
 		@Override
 		public boolean isMaximal(Collection<?> s, long mask, long fragment,
-				long filter2) {
+				long[] filter2) {
 			int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
 			int pos = (int) (mask & BUCKET_MASK_);
 			mask >>>= BUCKET_SHIFT_;
@@ -333,23 +1054,32 @@ public class BloomTrieCollection2<C extends Collection<?>>
 		@Override
 		public Iterator<C> subCollectionsOf(
 				Condition<? super C> subsetCondition, long mask, long fragment,
-				long filter2) {
+				long[] filter2) {
 			return new SubIterator(subsetCondition, mask, fragment, filter2);
 		}
 
 		@Override
 		public Iterator<C> superCollectionsOf(
 				Condition<? super C> supersetCondition, long mask,
-				long fragment, long filter2) {
+				long fragment, long[] filter2) {
 			return new SuperIterator(supersetCondition, mask, fragment,
 					filter2);
 		}
 
-		// TODO: removal of elements by iterator should clear empty nodes
+		/**
+		 * Iterates over the collections in the children. Removal of
+		 * collections by this iterator deletes the children that become
+		 * empty, but does not collapse this node, since this would invalidate
+		 * other iterators over this node.
+		 */
 		class BaseIterator implements Iterator<C> {
 
 			final long nextMask;
 			int pos = 0;
+			/**
+			 * the position of the child over which {@link #iter} iterates
+			 */
+			int childPos = -1;
 			@SuppressWarnings("unchecked")
 			Iterator<C> iter = (Iterator<C>) EMPTY_ITERATOR_;
 
@@ -380,6 +1110,11 @@ public class BloomTrieCollection2<C extends Collection<?>>
 			public void remove() {
 				if (iterInSync) {
 					iter.remove();
+					size_--;
+					Node<C> child = children_[childPos];
+					if (child != null && child.size() == 0) {
+						children_[childPos] = null;
+					}
 				} else {
 					throw new NoSuchElementException();
 				}
@@ -396,6 +1131,7 @@ public class BloomTrieCollection2<C extends Collection<?>>
 							return false;
 						}
 						Node<C> child = children_[pos];
+						childPos = pos;
 						advancePos();
 						if (child == null) {
 							continue;
@@ -424,14 +1160,16 @@ public class BloomTrieCollection2<C extends Collection<?>>
 
 			final Condition<? super C> subsetCondition;
 
-			final long nextFragment, filter2;
+			final long nextFragment;
+
+			final long[] filter2;
 
 			final int fragmentMask;
 
 			boolean noMorePos = false;
 
 			SubIterator(Condition<? super C> subsetCondition, long mask,
-					long fragment, long filter2) {
+					long fragment, long[] filter2) {
 				super(mask);
 				this.subsetCondition = subsetCondition;
 				this.nextFragment = fragment >>> BUCKET_SHIFT_;
@@ -467,14 +1205,16 @@ public class BloomTrieCollection2<C extends Collection<?>>
 
 			final Condition<? super C> supersetCondition;
 
-			final long nextFragment, filter2;
+			final long nextFragment;
+
+			final long[] filter2;
 
 			final int fragmentMask;
 
 			boolean noMorePos = false;
 
 			SuperIterator(Condition<? super C> supersetCondition, long mask,
-					long fragment, long filter2) {
+					long fragment, long[] filter2) {
 				super(mask);
 				this.supersetCondition = supersetCondition;
 				this.nextFragment = fragment >>> BUCKET_SHIFT_;
@@ -514,41 +1254,50 @@ public class BloomTrieCollection2<C extends Collection<?>>
 
 		private final static int INIT_CAPACITY_ = 8;
 
-		/**
-		 * the maximal number of element in a node after which it is split to an
-		 * internal node, if possible
-		 */
-		private final static int SPLIT_CAPACITY_ = 64;
+		private final Parameters parameters_;
+
+		private final FilterStats stats_;
 
 		private final Object[] collections_;
 
-		private final long[] fragments_, // can be null
-				filters2_;
+		private final long[] fragments_; // can be null
+
+		/**
+		 * the second filters of collections, each taking
+		 * {@link Parameters#filterWords} consecutive positions
+		 */
+		private final long[] filters2_;
 
 		private int size_ = 0;
 
-		LeafNode() {
-			this(LONG_MASK_);
+		LeafNode(Parameters parameters, FilterStats stats) {
+			this(parameters, stats, LONG_MASK_);
 		}
 
-		LeafNode(long mask) {
-			this(mask, INIT_CAPACITY_);
+		LeafNode(Parameters parameters, FilterStats stats, long mask) {
+			this(parameters, stats, mask, INIT_CAPACITY_);
 		}
 
-		LeafNode(long mask, int capacity) {
+		LeafNode(Parameters parameters, FilterStats stats, long mask,
+				int capacity) {
+			this.parameters_ = parameters;
+			this.stats_ = stats;
 			collections_ = new Object[capacity];
 			fragments_ = mask == 0L ? null : new long[capacity];
-			filters2_ = new long[capacity];
+			filters2_ = new long[capacity * parameters.filterWords];
 		}
 
 		LeafNode(LeafNode<C> from) {
 			// resize
+			this.parameters_ = from.parameters_;
+			this.stats_ = from.stats_;
 			int capacity = from.collections_.length << 1;
 			size_ = from.size_;
 			collections_ = new Object[capacity];
 			System.arraycopy(from.collections_, 0, collections_, 0, size_);
-			filters2_ = new long[capacity];
-			System.arraycopy(from.filters2_, 0, filters2_, 0, size_);
+			int words = parameters_.filterWords;
+			filters2_ = new long[capacity * words];
+			System.arraycopy(from.filters2_, 0, filters2_, 0, size_ * words);
 			if (from.fragments_ != null) {
 				fragments_ = new long[capacity];
 				System.arraycopy(from.fragments_, 0, fragments_, 0, size_);
@@ -570,26 +1319,34 @@ public class BloomTrieCollection2<C extends Collection<?>>
 			return fragments_[index];
 		}
 
+		long[] getFilter2(int index) {
+			int words = parameters_.filterWords;
+			long[] result = new long[words];
+			System.arraycopy(filters2_, index * words, result, 0, words);
+			return result;
+		}
+
 		@Override
-		public Node<C> add(C s, long mask, long fragment, long filter2) {
+		public Node<C> add(C s, long mask, long fragment, long[] filter2) {
 			if (size_ < collections_.length) {
 				collections_[size_] = s;
 				if (fragments_ != null) {
 					fragments_[size_] = fragment;
 				}
-				filters2_[size_] = filter2;
+				int words = parameters_.filterWords;
+				System.arraycopy(filter2, 0, filters2_, size_ * words, words);
 				size_++;
 				return null;
 			}
 			// else
 			Node<C> replacement;
-			if (mask == 0L || size_ < SPLIT_CAPACITY_) {
+			if (mask == 0L || size_ < parameters_.splitCapacity) {
 				replacement = new LeafNode<C>(this);
 			} else {
-				replacement = new InternalNode<C>(mask);
-				for (int i = 0; i < collections_.length; i++) {
+				replacement = new InternalNode<C>(parameters_, stats_, mask);
+				for (int i = 0; i < size_; i++) {
 					replacement.add(getCollection(i), mask, getFragment(i),
-							filters2_[i]);
+							getFilter2(i));
 				}
 			}
 			replacement.add(s, mask, fragment, filter2);
@@ -603,17 +1360,157 @@ public class BloomTrieCollection2<C extends Collection<?>>
 			}
 			size_--;
 			collections_[pos] = collections_[size_];
+			collections_[size_] = null;
 			if (fragments_ != null) {
 				fragments_[pos] = fragments_[size_];
 			}
-			filters2_[pos] = filters2_[size_];
+			int words = parameters_.filterWords;
+			System.arraycopy(filters2_, size_ * words, filters2_, pos * words,
+					words);
+		}
+
+		@Override
+		public int size() {
+			return size_;
+		}
+
+		@Override
+		public Node<C> remove(Collection<?> s, long mask, long fragment,
+				long[] filter2) {
+			for (int i = 0; i < size_; i++) {
+				if (equalFilters2(i, filter2) && s.equals(collections_[i])) {
+					remove(i);
+					break;
+				}
+			}
+			return size_ == 0 ? null : this;
+		}
+
+		@Override
+		public Node<C> removeSupersetsOf(Collection<?> s, long mask,
+				long fragment, long[] filter2) {
+			int tests = size_;
+			int prunedTests = 0;
+			int failedTests = 0;
+			// the last collection is moved to the removed position
+			for (int i = size_ - 1; i >= 0; i--) {
+				if (!mayBeSuperset(i, fragment, filter2)) {
+					prunedTests++;
+				} else if (getCollection(i).containsAll(s)) {
+					remove(i);
+				} else {
+					failedTests++;
+				}
+			}
+			stats_.update(tests, prunedTests, failedTests);
+			return size_ == 0 ? null : this;
+		}
+
+		@Override
+		public Node<C> removeSubsetsOf(Collection<?> s, long mask,
+				long fragment, long[] filter2) {
+			int tests = size_;
+			int prunedTests = 0;
+			int failedTests = 0;
+			// the last collection is moved to the removed position
+			for (int i = size_ - 1; i >= 0; i--) {
+				if (!mayBeSubset(i, fragment, filter2)) {
+					prunedTests++;
+				} else if (s.containsAll(getCollection(i))) {
+					remove(i);
+				} else {
+					failedTests++;
+				}
+			}
+			stats_.update(tests, prunedTests, failedTests);
+			return size_ == 0 ? null : this;
+		}
+
+		@Override
+		public Node<C> addAndRemoveSupersetsOf(C s, long mask, long fragment,
+				long[] filter2) {
+			removeSupersetsOf(s, mask, fragment, filter2);
+			Node<C> replacement = add(s, mask, fragment, filter2);
+			return replacement == null ? this : replacement;
+		}
+
+		@Override
+		public Node<C> addAndRemoveSubsetsOf(C s, long mask, long fragment,
+				long[] filter2) {
+			removeSubsetsOf(s, mask, fragment, filter2);
+			Node<C> replacement = add(s, mask, fragment, filter2);
+			return replacement == null ? this : replacement;
+		}
+
+		@Override
+		public void appendTo(LeafNode<C> leaf, long prefix, int shift) {
+			int words = parameters_.filterWords;
+			for (int i = 0; i < size_; i++) {
+				int pos = leaf.size_++;
+				leaf.collections_[pos] = collections_[i];
+				if (leaf.fragments_ != null) {
+					leaf.fragments_[pos] = prefix | (getFragment(i) << shift);
+				}
+				System.arraycopy(filters2_, i * words, leaf.filters2_,
+						pos * words, words);
+			}
+		}
+
+		/**
+		 * @return {@code true} if the second filter of the collection at the
+		 *         given position is equal to the given one
+		 */
+		boolean equalFilters2(int index, long[] filter2) {
+			int offset = index * filter2.length;
+			for (int i = 0; i < filter2.length; i++) {
+				if (filters2_[offset + i] != filter2[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return {@code true} if the filters do not exclude that the
+		 *         collection at the given position is a subset of a collection
+		 *         with the given filters
+		 */
+		boolean mayBeSubset(int index, long fragment, long[] filter2) {
+			if ((fragment | getFragment(index)) != fragment) {
+				return false;
+			}
+			int offset = index * filter2.length;
+			for (int i = 0; i < filter2.length; i++) {
+				if ((filter2[i] | filters2_[offset + i]) != filter2[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return {@code true} if the filters do not exclude that the
+		 *         collection at the given position is a superset of a
+		 *         collection with the given filters
+		 */
+		boolean mayBeSuperset(int index, long fragment, long[] filter2) {
+			if ((fragment & getFragment(index)) != fragment) {
+				return false;
+			}
+			int offset = index * filter2.length;
+			for (int i = 0; i < filter2.length; i++) {
+				if ((filter2[i] & filters2_[offset + i]) != filter2[i]) {
+					return false;
+				}
+			}
+			return true;
 		}
 
 		@Override
 		public boolean contains(Collection<?> s, long mask, long fragment,
-				long filter2) {
+				long[] filter2) {
 			for (int i = 0; i < size_; i++) {
-				if (filter2 == filters2_[i] && s.equals(collections_[i])) {
+				if (equalFilters2(i, filter2) && s.equals(collections_[i])) {
 					return true;
 				}
 			}
@@ -623,77 +1520,153 @@ public class BloomTrieCollection2<C extends Collection<?>>
 
 		@Override
 		public boolean isMinimal(Collection<?> s, long mask, long fragment,
-				long filter2) {
+				long[] filter2) {
+			int prunedTests = 0;
+			int failedTests = 0;
 			for (int i = 0; i < size_; i++) {
-				if ((fragment | getFragment(i)) == fragment
-						&& (filter2 | filters2_[i]) == filter2
-						&& s.containsAll(getCollection(i))) {
+				if (!mayBeSubset(i, fragment, filter2)) {
+					prunedTests++;
+				} else if (s.containsAll(getCollection(i))) {
+					stats_.update(i + 1, prunedTests, failedTests);
 					return false;
+				} else {
+					failedTests++;
 				}
 			}
 			// else no subset is found
+			stats_.update(size_, prunedTests, failedTests);
 			return true;
 		}
 
 		@Override
 		public boolean isMaximal(Collection<?> s, long mask, long fragment,
-				long filter2) {
+				long[] filter2) {
+			int prunedTests = 0;
+			int failedTests = 0;
 			for (int i = 0; i < size_; i++) {
-				if ((fragment & getFragment(i)) == fragment
-						&& (filter2 & filters2_[i]) == filter2
-						&& getCollection(i).containsAll(s)) {
+				if (!mayBeSuperset(i, fragment, filter2)) {
+					prunedTests++;
+				} else if (getCollection(i).containsAll(s)) {
+					stats_.update(i + 1, prunedTests, failedTests);
 					return false;
+				} else {
+					failedTests++;
 				}
 			}
-			// else no subset is found
+			// else no superset is found
+			stats_.update(size_, prunedTests, failedTests);
 			return true;
 		}
 
 		@Override
 		public Iterator<C> iterator(long mask) {
-			return new Iterator<C>() {
-				int pos = 0;
+			return new LeafIterator();
+		}
 
-				@Override
-				public boolean hasNext() {
-					return pos < size_;
-				}
+		@Override
+		public Iterator<C> subCollectionsOf(
+				final Condition<? super C> subsetCondition, long mask,
+				final long fragment, final long[] filter2) {
+			return new LeafIterator() {
 
 				@Override
-				public C next() {
-					if (!hasNext()) {
-						throw new NoSuchElementException();
+				boolean accept(int pos) {
+					if (!mayBeSubset(pos, fragment, filter2)) {
+						stats_.update(1, 1, 0);
+						return false;
 					}
 					// else
-					C result = getCollection(pos);
-					pos++;
-					return result;
+					stats_.update(1, 0, 0);
+					return subsetCondition.holds(getCollection(pos));
 				}
 
+			};
+		}
+
+		@Override
+		public Iterator<C> superCollectionsOf(
+				final Condition<? super C> supersetCondition, long mask,
+				final long fragment, final long[] filter2) {
+			return new LeafIterator() {
+
 				@Override
-				public void remove() {
-					if (pos == 0) {
-						throw new IllegalStateException();
+				boolean accept(int pos) {
+					if (!mayBeSuperset(pos, fragment, filter2)) {
+						stats_.update(1, 1, 0);
+						return false;
 					}
-					pos--;
-					LeafNode.this.remove(pos);
+					// else
+					stats_.update(1, 0, 0);
+					return supersetCondition.holds(getCollection(pos));
 				}
 
 			};
 		}
 
-		@Override
-		public Iterator<C> subCollectionsOf(
-				Condition<? super C> subsetCondition, long mask, long fragment,
-				long filter2) {
-			return new FilteredIterator<C>(iterator(mask), subsetCondition);
-		}
+		/**
+		 * Iterates over the collections at the accepted positions
+		 */
+		class LeafIterator implements Iterator<C> {
+
+			/**
+			 * the position from which to search for the next element
+			 */
+			int pos = 0;
+
+			/**
+			 * the position of the next element or {@code -1} if not yet
+			 * searched for
+			 */
+			int next = -1;
+
+			/**
+			 * the position of the last returned element or {@code -1} if it
+			 * was removed or no element was returned
+			 */
+			int last = -1;
+
+			boolean accept(int pos) {
+				return true;
+			}
+
+			@Override
+			public boolean hasNext() {
+				if (next >= 0) {
+					return true;
+				}
+				for (; pos < size_; pos++) {
+					if (accept(pos)) {
+						next = pos;
+						return true;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public C next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				// else
+				last = next;
+				pos = next + 1;
+				next = -1;
+				return getCollection(last);
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				LeafNode.this.remove(last);
+				// the last collection is moved to the removed position
+				pos = last;
+				next = -1;
+				last = -1;
+			}
 
-		@Override
-		public Iterator<C> superCollectionsOf(
-				Condition<? super C> supersetCondition, long mask,
-				long fragment, long filter2) {
-			return new FilteredIterator<C>(iterator(mask), supersetCondition);
 		}
 
 	}
@@ -23,6 +23,7 @@ package org.liveontologies.puli.collections;
  */
 
 import java.util.Collection;
+import java.util.Iterator;
 
 /**
  * A collection of collections that that supports finding subsets and supersets
@@ -54,4 +55,50 @@ public interface Collection2<C extends Collection<?>> extends Collection<C> {
 	 */
 	Iterable<C> superCollectionsOf(Collection<?> s);
 
+	/**
+	 * Adds the given collection if this {@link Collection2} does not contain
+	 * any of its subsets, and in this case removes all its supersets. If this
+	 * {@link Collection2} contains only minimal collections, that is, no
+	 * collection is a proper subset of another one, it keeps this property.
+	 * 
+	 * @param s
+	 * @return {@code true} if the collection was added and {@code false} if
+	 *         this {@link Collection2} contains a subset of the collection
+	 *         and was not modified
+	 */
+	default boolean addIfMinimalAndRemoveSupersets(C s) {
+		if (!isMinimal(s)) {
+			return false;
+		}
+		// else
+		for (Iterator<C> i = superCollectionsOf(s).iterator(); i.hasNext();) {
+			i.next();
+			i.remove();
+		}
+		return add(s);
+	}
+
+	/**
+	 * Adds the given collection if this {@link Collection2} does not contain
+	 * any of its supersets, and in this case removes all its subsets. If this
+	 * {@link Collection2} contains only maximal collections, that is, no
+	 * collection is a proper superset of another one, it keeps this property.
+	 * 
+	 * @param s
+	 * @return {@code true} if the collection was added and {@code false} if
+	 *         this {@link Collection2} contains a superset of the collection
+	 *         and was not modified
+	 */
+	default boolean addIfMaximalAndRemoveSubsets(C s) {
+		if (!isMaximal(s)) {
+			return false;
+		}
+		// else
+		for (Iterator<C> i = subCollectionsOf(s).iterator(); i.hasNext();) {
+			i.next();
+			i.remove();
+		}
+		return add(s);
+	}
+
 }
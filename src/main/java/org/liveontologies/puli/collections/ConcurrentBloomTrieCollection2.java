@@ -0,0 +1,940 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.liveontologies.puli.collections.BloomTrieCollection2.Parameters;
+
+/**
+ * A thread-safe {@link Collection2} that stores collections in a trie indexed
+ * by the same Bloom filters as {@link BloomTrieCollection2}. The nodes of the
+ * trie are never modified: every modification creates copies of the nodes on
+ * the path to the changed leaf and then publishes the new root. Queries and
+ * iterators therefore work on a snapshot of the trie and do not require any
+ * locking; modifications are performed under a lock.
+ * 
+ * The methods {@link #addIfMinimal(Collection)} and
+ * {@link #addIfMaximal(Collection)} check and add the collection atomically.
+ * If several collections are added using these methods concurrently, the
+ * result is the same as if they were added one after another in some order;
+ * in particular, of several equal collections exactly one is added.
+ * 
+ * Iterators reflect the state of the collection at the time of their creation.
+ * Removal by an iterator removes the last returned collection from the current
+ * state of this collection.
+ * 
+ * @param <C>
+ *            the type of collections maintained by this {@link Collection2}
+ */
+public class ConcurrentBloomTrieCollection2<C extends Collection<?>>
+		extends AbstractCollection2<C> {
+
+	private final static long LONG_MASK_ = -1L; // all bits set to 1
+
+	private final static short BUCKET_SHIFT_ = 6;
+
+	private final static int BUCKET_MASK_ = (1 << BUCKET_SHIFT_) - 1;
+
+	private final Parameters parameters_;
+
+	private final Object lock_ = new Object();
+
+	/**
+	 * the current state; replaced only under {@link #lock_}
+	 */
+	private volatile Root<C> root_;
+
+	/**
+	 * @see BloomTrieCollection2#BloomTrieCollection2(int, int, int)
+	 */
+	public ConcurrentBloomTrieCollection2(int filterBits, int hashCount,
+			int splitCapacity) {
+		this.parameters_ = new Parameters(filterBits, hashCount,
+				splitCapacity);
+		this.root_ = new Root<C>(null, 0);
+	}
+
+	public ConcurrentBloomTrieCollection2() {
+		this(BloomTrieCollection2.DEFAULT_FILTER_BITS,
+				BloomTrieCollection2.DEFAULT_HASH_COUNT,
+				BloomTrieCollection2.DEFAULT_SPLIT_CAPACITY);
+	}
+
+	// used as a key in the trie
+	private static long getFilter(Collection<?> s) {
+		long result = 0;
+		if (s instanceof IdCollection) {
+			IdCollection ids = (IdCollection) s;
+			for (int i = ids.getIdCount() - 1; i >= 0; i--) {
+				result |= BloomTrieCollection2.getFilterBit(ids.getId(i));
+			}
+		} else {
+			for (Object e : s) {
+				result |= BloomTrieCollection2.getFilterBit(e.hashCode());
+			}
+		}
+		return result;
+	}
+
+	// used to further prune subset test
+	private long[] getFilter2(Collection<?> s) {
+		long[] result = parameters_.newFilter2();
+		if (s instanceof IdCollection) {
+			IdCollection ids = (IdCollection) s;
+			for (int i = ids.getIdCount() - 1; i >= 0; i--) {
+				parameters_.addToFilter2(result, ids.getId(i));
+			}
+		} else {
+			for (Object e : s) {
+				parameters_.addToFilter2(result, e.hashCode());
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public boolean add(C s) {
+		long fragment = getFilter(s);
+		long[] filter2 = getFilter2(s);
+		synchronized (lock_) {
+			add(root_, s, fragment, filter2);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the given collection if this {@link Collection2} does not contain
+	 * any of its subsets; the check and the addition are performed atomically
+	 * 
+	 * @param s
+	 * @return {@code true} if the collection was added
+	 */
+	public boolean addIfMinimal(C s) {
+		long fragment = getFilter(s);
+		long[] filter2 = getFilter2(s);
+		// check without locking first
+		if (!isMinimal(root_.node, s, LONG_MASK_, fragment, filter2)) {
+			return false;
+		}
+		// else
+		synchronized (lock_) {
+			Root<C> root = root_;
+			if (!isMinimal(root.node, s, LONG_MASK_, fragment, filter2)) {
+				return false;
+			}
+			add(root, s, fragment, filter2);
+			return true;
+		}
+	}
+
+	/**
+	 * Adds the given collection if this {@link Collection2} does not contain
+	 * any of its supersets; the check and the addition are performed
+	 * atomically
+	 * 
+	 * @param s
+	 * @return {@code true} if the collection was added
+	 */
+	public boolean addIfMaximal(C s) {
+		long fragment = getFilter(s);
+		long[] filter2 = getFilter2(s);
+		// check without locking first
+		if (!isMaximal(root_.node, s, LONG_MASK_, fragment, filter2)) {
+			return false;
+		}
+		// else
+		synchronized (lock_) {
+			Root<C> root = root_;
+			if (!isMaximal(root.node, s, LONG_MASK_, fragment, filter2)) {
+				return false;
+			}
+			add(root, s, fragment, filter2);
+			return true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The check, the removal and the addition are performed atomically.
+	 */
+	@Override
+	public boolean addIfMinimalAndRemoveSupersets(C s) {
+		return addAndRemove(s, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The check, the removal and the addition are performed atomically.
+	 */
+	@Override
+	public boolean addIfMaximalAndRemoveSubsets(C s) {
+		return addAndRemove(s, false);
+	}
+
+	/**
+	 * Adds the given collection if there are no subsets of it
+	 * ({@code minimal == true}) or no supersets of it
+	 * ({@code minimal == false}), and removes its supersets, respectively,
+	 * subsets
+	 */
+	private boolean addAndRemove(C s, boolean minimal) {
+		long fragment = getFilter(s);
+		long[] filter2 = getFilter2(s);
+		// check without locking first
+		if (minimal ? !isMinimal(root_.node, s, LONG_MASK_, fragment, filter2)
+				: !isMaximal(root_.node, s, LONG_MASK_, fragment, filter2)) {
+			return false;
+		}
+		// else
+		synchronized (lock_) {
+			Root<C> root = root_;
+			if (minimal
+					? !isMinimal(root.node, s, LONG_MASK_, fragment, filter2)
+					: !isMaximal(root.node, s, LONG_MASK_, fragment,
+							filter2)) {
+				return false;
+			}
+			// else
+			int[] removed = { 0 };
+			Node<C> node = removeAll(root.node, s, LONG_MASK_, fragment,
+					filter2, !minimal, removed);
+			root_ = new Root<C>(add(node, s, LONG_MASK_, fragment, filter2),
+					root.size - removed[0] + 1);
+			return true;
+		}
+	}
+
+	/**
+	 * Publishes the new root with the given collection added; should be
+	 * called under {@link #lock_}
+	 */
+	private void add(Root<C> root, C s, long fragment, long[] filter2) {
+		root_ = new Root<C>(add(root.node, s, LONG_MASK_, fragment, filter2),
+				root.size + 1);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!(o instanceof Collection<?>)) {
+			return false;
+		}
+		// else
+		Collection<?> s = (Collection<?>) o;
+		long fragment = getFilter(s);
+		long[] filter2 = getFilter2(s);
+		synchronized (lock_) {
+			Root<C> root = root_;
+			Node<C> node = remove(root.node, s, LONG_MASK_, fragment, filter2);
+			if (node == root.node) {
+				// not found
+				return false;
+			}
+			// else
+			root_ = new Root<C>(node, root.size - 1);
+			return true;
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (o instanceof Collection<?>) {
+			Collection<?> s = (Collection<?>) o;
+			return contains(root_.node, s, LONG_MASK_, getFilter(s),
+					getFilter2(s));
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public void clear() {
+		synchronized (lock_) {
+			root_ = new Root<C>(null, 0);
+		}
+	}
+
+	@Override
+	public boolean isMinimal(Collection<?> s) {
+		return isMinimal(root_.node, s, LONG_MASK_, getFilter(s),
+				getFilter2(s));
+	}
+
+	@Override
+	public boolean isMaximal(Collection<?> s) {
+		return isMaximal(root_.node, s, LONG_MASK_, getFilter(s),
+				getFilter2(s));
+	}
+
+	@Override
+	public Iterable<C> subCollectionsOf(final Collection<?> s) {
+		return new Iterable<C>() {
+
+			final long fragment = getFilter(s);
+			final long[] filter2 = getFilter2(s);
+
+			@Override
+			public Iterator<C> iterator() {
+				List<C> result = new ArrayList<C>();
+				collectSubCollections(root_.node, s, LONG_MASK_, fragment,
+						filter2, result);
+				return new SnapshotIterator(result);
+			}
+
+		};
+	}
+
+	@Override
+	public Iterable<C> superCollectionsOf(final Collection<?> s) {
+		return new Iterable<C>() {
+
+			final long fragment = getFilter(s);
+			final long[] filter2 = getFilter2(s);
+
+			@Override
+			public Iterator<C> iterator() {
+				List<C> result = new ArrayList<C>();
+				collectSuperCollections(root_.node, s, LONG_MASK_, fragment,
+						filter2, result);
+				return new SnapshotIterator(result);
+			}
+
+		};
+	}
+
+	@Override
+	public Iterator<C> iterator() {
+		Root<C> root = root_;
+		List<C> result = new ArrayList<C>(root.size);
+		collectAll(root.node, result);
+		return new SnapshotIterator(result);
+	}
+
+	@Override
+	public int size() {
+		return root_.size;
+	}
+
+	private Node<C> add(Node<C> node, C s, long mask, long fragment,
+			long[] filter2) {
+		if (node == null) {
+			return new LeafNode<C>(mask).add(s, fragment, filter2,
+					parameters_.filterWords);
+		}
+		if (node instanceof LeafNode<?>) {
+			LeafNode<C> leaf = (LeafNode<C>) node;
+			if (mask == 0L || leaf.size() < parameters_.splitCapacity) {
+				return leaf.add(s, fragment, filter2, parameters_.filterWords);
+			}
+			// else split
+			Node<C> result = new InternalNode<C>(mask);
+			for (int i = 0; i < leaf.size(); i++) {
+				result = add(result, leaf.getCollection(i), mask,
+						leaf.getFragment(i),
+						leaf.getFilter2(i, parameters_.filterWords));
+			}
+			return add(result, s, mask, fragment, filter2);
+		}
+		// else
+		InternalNode<C> internal = (InternalNode<C>) node;
+		int pos = (int) (fragment & BUCKET_MASK_ & mask);
+		return internal.replace(pos, add(internal.children[pos], s,
+				mask >>> BUCKET_SHIFT_, fragment >>> BUCKET_SHIFT_, filter2));
+	}
+
+	/**
+	 * @return the node in which a collection equal to the given one is
+	 *         removed, {@code null} if the resulting node is empty, or the
+	 *         same node if no such collection is found
+	 */
+	private static <C extends Collection<?>> Node<C> remove(Node<C> node,
+			Collection<?> s, long mask, long fragment, long[] filter2) {
+		if (node == null) {
+			return null;
+		}
+		if (node instanceof LeafNode<?>) {
+			LeafNode<C> leaf = (LeafNode<C>) node;
+			int index = leaf.indexOf(s, filter2);
+			if (index < 0) {
+				return node;
+			}
+			// else
+			return leaf.remove(index, filter2.length);
+		}
+		// else
+		InternalNode<C> internal = (InternalNode<C>) node;
+		int pos = (int) (fragment & BUCKET_MASK_ & mask);
+		Node<C> child = internal.children[pos];
+		Node<C> updated = remove(child, s, mask >>> BUCKET_SHIFT_,
+				fragment >>> BUCKET_SHIFT_, filter2);
+		if (updated == child) {
+			return node;
+		}
+		// else
+		return internal.replace(pos, updated);
+	}
+
+	/**
+	 * Removes the subsets ({@code subsets == true}) or supersets
+	 * ({@code subsets == false}) of the given collection
+	 * 
+	 * @param removed
+	 *            the first element is increased by the number of removed
+	 *            collections
+	 * @return the copy of the node after the removal, the same node if
+	 *         nothing is removed, or {@code null} if the result is empty
+	 */
+	private static <C extends Collection<?>> Node<C> removeAll(Node<C> node,
+			Collection<?> s, long mask, long fragment, long[] filter2,
+			boolean subsets, int[] removed) {
+		if (node == null) {
+			return null;
+		}
+		if (node instanceof LeafNode<?>) {
+			LeafNode<C> leaf = (LeafNode<C>) node;
+			int size = leaf.size();
+			boolean[] matched = null;
+			int matchedCount = 0;
+			for (int i = 0; i < size; i++) {
+				C other = leaf.getCollection(i);
+				if (subsets
+						? leaf.mayBeSubset(i, fragment, filter2)
+								&& s.containsAll(other)
+						: leaf.mayBeSuperset(i, fragment, filter2)
+								&& other.containsAll(s)) {
+					if (matched == null) {
+						matched = new boolean[size];
+					}
+					matched[i] = true;
+					matchedCount++;
+				}
+			}
+			if (matched == null) {
+				return leaf;
+			}
+			// else
+			removed[0] += matchedCount;
+			return leaf.removeAll(matched, matchedCount, filter2.length);
+		}
+		// else
+		InternalNode<C> result = (InternalNode<C>) node;
+		Node<C>[] children = result.children;
+		int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
+		int pos = subsets ? 0 : (int) (mask & BUCKET_MASK_);
+		mask >>>= BUCKET_SHIFT_;
+		fragment >>>= BUCKET_SHIFT_;
+		for (;;) {
+			Node<C> child = children[pos];
+			Node<C> updated = removeAll(child, s, mask, fragment, filter2,
+					subsets, removed);
+			if (updated != child) {
+				result = result.replace(pos, updated);
+			}
+			if (pos == fragmentMask) {
+				break;
+			}
+			// else
+			if (subsets) {
+				pos |= ~fragmentMask;
+				pos++;
+				pos &= fragmentMask;
+			} else {
+				pos &= ~fragmentMask;
+				pos--;
+				pos |= fragmentMask;
+			}
+		}
+		for (Node<C> child : result.children) {
+			if (child != null) {
+				return result;
+			}
+		}
+		// else all children are empty
+		return null;
+	}
+
+	private static <C extends Collection<?>> boolean contains(Node<C> node,
+			Collection<?> s, long mask, long fragment, long[] filter2) {
+		for (;;) {
+			if (node == null) {
+				return false;
+			}
+			if (node instanceof LeafNode<?>) {
+				return ((LeafNode<C>) node).indexOf(s, filter2) >= 0;
+			}
+			// else
+			int pos = (int) (fragment & BUCKET_MASK_ & mask);
+			node = ((InternalNode<C>) node).children[pos];
+			mask >>>= BUCKET_SHIFT_;
+			fragment >>>= BUCKET_SHIFT_;
+		}
+	}
+
+	private static <C extends Collection<?>> boolean isMinimal(Node<C> node,
+			Collection<?> s, long mask, long fragment, long[] filter2) {
+		if (node == null) {
+			return true;
+		}
+		if (node instanceof LeafNode<?>) {
+			LeafNode<C> leaf = (LeafNode<C>) node;
+			for (int i = 0; i < leaf.size(); i++) {
+				if (leaf.mayBeSubset(i, fragment, filter2)
+						&& s.containsAll(leaf.getCollection(i))) {
+					return false;
+				}
+			}
+			// else no subset is found
+			return true;
+		}
+		// else
+		Node<C>[] children = ((InternalNode<C>) node).children;
+		int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
+		mask >>>= BUCKET_SHIFT_;
+		fragment >>>= BUCKET_SHIFT_;
+		int pos = 0;
+		for (;;) {
+			if (!isMinimal(children[pos], s, mask, fragment, filter2)) {
+				return false;
+			}
+			if (pos == fragmentMask) {
+				// no subset is found
+				return true;
+			}
+			pos |= ~fragmentMask;
+			pos++;
+			pos &= fragmentMask;
+		}
+	}
+
+	private static <C extends Collection<?>> boolean isMaximal(Node<C> node,
+			Collection<?> s, long mask, long fragment, long[] filter2) {
+		if (node == null) {
+			return true;
+		}
+		if (node instanceof LeafNode<?>) {
+			LeafNode<C> leaf = (LeafNode<C>) node;
+			for (int i = 0; i < leaf.size(); i++) {
+				if (leaf.mayBeSuperset(i, fragment, filter2)
+						&& leaf.getCollection(i).containsAll(s)) {
+					return false;
+				}
+			}
+			// else no superset is found
+			return true;
+		}
+		// else
+		Node<C>[] children = ((InternalNode<C>) node).children;
+		int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
+		int pos = (int) (mask & BUCKET_MASK_);
+		mask >>>= BUCKET_SHIFT_;
+		fragment >>>= BUCKET_SHIFT_;
+		for (;;) {
+			if (!isMaximal(children[pos], s, mask, fragment, filter2)) {
+				return false;
+			}
+			if (pos == fragmentMask) {
+				// no superset is found
+				return true;
+			}
+			pos &= ~fragmentMask;
+			pos--;
+			pos |= fragmentMask;
+		}
+	}
+
+	private static <C extends Collection<?>> void collectSubCollections(
+			Node<C> node, Collection<?> s, long mask, long fragment,
+			long[] filter2, List<C> result) {
+		if (node == null) {
+			return;
+		}
+		if (node instanceof LeafNode<?>) {
+			LeafNode<C> leaf = (LeafNode<C>) node;
+			for (int i = 0; i < leaf.size(); i++) {
+				C other = leaf.getCollection(i);
+				if (leaf.mayBeSubset(i, fragment, filter2)
+						&& s.containsAll(other)) {
+					result.add(other);
+				}
+			}
+			return;
+		}
+		// else
+		Node<C>[] children = ((InternalNode<C>) node).children;
+		int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
+		mask >>>= BUCKET_SHIFT_;
+		fragment >>>= BUCKET_SHIFT_;
+		int pos = 0;
+		for (;;) {
+			collectSubCollections(children[pos], s, mask, fragment, filter2,
+					result);
+			if (pos == fragmentMask) {
+				return;
+			}
+			pos |= ~fragmentMask;
+			pos++;
+			pos &= fragmentMask;
+		}
+	}
+
+	private static <C extends Collection<?>> void collectSuperCollections(
+			Node<C> node, Collection<?> s, long mask, long fragment,
+			long[] filter2, List<C> result) {
+		if (node == null) {
+			return;
+		}
+		if (node instanceof LeafNode<?>) {
+			LeafNode<C> leaf = (LeafNode<C>) node;
+			for (int i = 0; i < leaf.size(); i++) {
+				C other = leaf.getCollection(i);
+				if (leaf.mayBeSuperset(i, fragment, filter2)
+						&& other.containsAll(s)) {
+					result.add(other);
+				}
+			}
+			return;
+		}
+		// else
+		Node<C>[] children = ((InternalNode<C>) node).children;
+		int fragmentMask = (int) (fragment & mask & BUCKET_MASK_);
+		int pos = (int) (mask & BUCKET_MASK_);
+		mask >>>= BUCKET_SHIFT_;
+		fragment >>>= BUCKET_SHIFT_;
+		for (;;) {
+			collectSuperCollections(children[pos], s, mask, fragment,
+					filter2, result);
+			if (pos == fragmentMask) {
+				return;
+			}
+			pos &= ~fragmentMask;
+			pos--;
+			pos |= fragmentMask;
+		}
+	}
+
+	private static <C extends Collection<?>> void collectAll(Node<C> node,
+			List<C> result) {
+		if (node == null) {
+			return;
+		}
+		if (node instanceof LeafNode<?>) {
+			LeafNode<C> leaf = (LeafNode<C>) node;
+			for (int i = 0; i < leaf.size(); i++) {
+				result.add(leaf.getCollection(i));
+			}
+			return;
+		}
+		// else
+		for (Node<C> child : ((InternalNode<C>) node).children) {
+			collectAll(child, result);
+		}
+	}
+
+	/**
+	 * Iterates over the collections found in a snapshot; removes them from
+	 * the current state of this {@link Collection2}
+	 */
+	private class SnapshotIterator implements Iterator<C> {
+
+		private final List<C> collections_;
+
+		private int pos_ = 0;
+
+		/**
+		 * {@code true} if the last returned collection can be removed
+		 */
+		private boolean canRemove_ = false;
+
+		SnapshotIterator(List<C> collections) {
+			this.collections_ = collections;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return pos_ < collections_.size();
+		}
+
+		@Override
+		public C next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			// else
+			canRemove_ = true;
+			return collections_.get(pos_++);
+		}
+
+		@Override
+		public void remove() {
+			if (!canRemove_) {
+				throw new IllegalStateException();
+			}
+			// else
+			canRemove_ = false;
+			ConcurrentBloomTrieCollection2.this
+					.remove(collections_.get(pos_ - 1));
+		}
+
+	}
+
+	/**
+	 * The root node together with the number of collections in the trie, so
+	 * that both are published at once
+	 */
+	private static final class Root<C extends Collection<?>> {
+
+		final Node<C> node; // can be null
+
+		final int size;
+
+		Root(Node<C> node, int size) {
+			this.node = node;
+			this.size = size;
+		}
+
+	}
+
+	/**
+	 * A node of the trie; nodes are not modified after they are published
+	 */
+	interface Node<C extends Collection<?>> {
+		// marker interface
+	}
+
+	static final class InternalNode<C extends Collection<?>>
+			implements Node<C> {
+
+		final Node<C>[] children;
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		InternalNode(long mask) {
+			if (mask == 0L) {
+				throw new IllegalArgumentException();
+			}
+			this.children = new Node[(int) (BUCKET_MASK_ & mask) + 1];
+		}
+
+		private InternalNode(Node<C>[] children) {
+			this.children = children;
+		}
+
+		/**
+		 * @return a copy of this node in which the child at the given
+		 *         position is replaced by the given node
+		 */
+		InternalNode<C> replace(int pos, Node<C> child) {
+			Node<C>[] copy = children.clone();
+			copy[pos] = child;
+			return new InternalNode<C>(copy);
+		}
+
+	}
+
+	static final class LeafNode<C extends Collection<?>> implements Node<C> {
+
+		private final static Object[] EMPTY_COLLECTIONS_ = new Object[0];
+
+		private final static long[] EMPTY_FILTERS_ = new long[0];
+
+		private final Object[] collections_;
+
+		private final long[] fragments_; // can be null
+
+		private final long[] filters2_;
+
+		LeafNode(long mask) {
+			this(EMPTY_COLLECTIONS_, mask == 0L ? null : EMPTY_FILTERS_,
+					EMPTY_FILTERS_);
+		}
+
+		private LeafNode(Object[] collections, long[] fragments,
+				long[] filters2) {
+			this.collections_ = collections;
+			this.fragments_ = fragments;
+			this.filters2_ = filters2;
+		}
+
+		int size() {
+			return collections_.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		C getCollection(int index) {
+			return (C) collections_[index];
+		}
+
+		long getFragment(int index) {
+			if (fragments_ == null) {
+				return 0L;
+			}
+			// else
+			return fragments_[index];
+		}
+
+		long[] getFilter2(int index, int words) {
+			long[] result = new long[words];
+			System.arraycopy(filters2_, index * words, result, 0, words);
+			return result;
+		}
+
+		/**
+		 * @return a copy of this node with the given collection added
+		 */
+		LeafNode<C> add(C s, long fragment, long[] filter2, int words) {
+			int size = collections_.length;
+			Object[] collections = new Object[size + 1];
+			System.arraycopy(collections_, 0, collections, 0, size);
+			collections[size] = s;
+			long[] fragments = null;
+			if (fragments_ != null) {
+				fragments = new long[size + 1];
+				System.arraycopy(fragments_, 0, fragments, 0, size);
+				fragments[size] = fragment;
+			}
+			long[] filters2 = new long[(size + 1) * words];
+			System.arraycopy(filters2_, 0, filters2, 0, size * words);
+			System.arraycopy(filter2, 0, filters2, size * words, words);
+			return new LeafNode<C>(collections, fragments, filters2);
+		}
+
+		/**
+		 * @return a copy of this node with the collection at the given
+		 *         position removed, or {@code null} if the copy is empty
+		 */
+		LeafNode<C> remove(int index, int words) {
+			int size = collections_.length - 1;
+			if (size == 0) {
+				return null;
+			}
+			// else
+			Object[] collections = new Object[size];
+			System.arraycopy(collections_, 0, collections, 0, index);
+			System.arraycopy(collections_, index + 1, collections, index,
+					size - index);
+			long[] fragments = null;
+			if (fragments_ != null) {
+				fragments = new long[size];
+				System.arraycopy(fragments_, 0, fragments, 0, index);
+				System.arraycopy(fragments_, index + 1, fragments, index,
+						size - index);
+			}
+			long[] filters2 = new long[size * words];
+			System.arraycopy(filters2_, 0, filters2, 0, index * words);
+			System.arraycopy(filters2_, (index + 1) * words, filters2,
+					index * words, (size - index) * words);
+			return new LeafNode<C>(collections, fragments, filters2);
+		}
+
+		/**
+		 * @param matched
+		 *            marks the positions of collections to remove
+		 * @param matchedCount
+		 *            the number of marked positions
+		 * @return a copy of this node with all marked collections removed,
+		 *         or {@code null} if the copy is empty
+		 */
+		LeafNode<C> removeAll(boolean[] matched, int matchedCount,
+				int words) {
+			int size = collections_.length - matchedCount;
+			if (size == 0) {
+				return null;
+			}
+			// else
+			Object[] collections = new Object[size];
+			long[] fragments = fragments_ == null ? null : new long[size];
+			long[] filters2 = new long[size * words];
+			int pos = 0;
+			for (int i = 0; i < collections_.length; i++) {
+				if (matched[i]) {
+					continue;
+				}
+				// else
+				collections[pos] = collections_[i];
+				if (fragments != null) {
+					fragments[pos] = fragments_[i];
+				}
+				System.arraycopy(filters2_, i * words, filters2, pos * words,
+						words);
+				pos++;
+			}
+			return new LeafNode<C>(collections, fragments, filters2);
+		}
+
+		/**
+		 * @return the position of a collection equal to the given one, or
+		 *         {@code -1} if there is no such collection
+		 */
+		int indexOf(Collection<?> s, long[] filter2) {
+			for (int i = 0; i < collections_.length; i++) {
+				if (equalFilters2(i, filter2) && s.equals(collections_[i])) {
+					return i;
+				}
+			}
+			// else not found
+			return -1;
+		}
+
+		boolean equalFilters2(int index, long[] filter2) {
+			int offset = index * filter2.length;
+			for (int i = 0; i < filter2.length; i++) {
+				if (filters2_[offset + i] != filter2[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean mayBeSubset(int index, long fragment, long[] filter2) {
+			if ((fragment | getFragment(index)) != fragment) {
+				return false;
+			}
+			int offset = index * filter2.length;
+			for (int i = 0; i < filter2.length; i++) {
+				if ((filter2[i] | filters2_[offset + i]) != filter2[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean mayBeSuperset(int index, long fragment, long[] filter2) {
+			if ((fragment & getFragment(index)) != fragment) {
+				return false;
+			}
+			int offset = index * filter2.length;
+			for (int i = 0; i < filter2.length; i++) {
+				if ((filter2[i] & filters2_[offset + i]) != filter2[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
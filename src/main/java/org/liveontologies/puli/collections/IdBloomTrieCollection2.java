@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.collections;
+
+import java.util.Collection;
+
+/**
+ * A {@link BloomTrieCollection2} that computes the Bloom filters of
+ * {@link IdCollection}s directly from their ids, without iterating over their
+ * elements. The filters are the same as for {@link BloomTrieCollection2}, so
+ * other collections can be used in the queries as well. The subset tests
+ * between the collections are performed using {@link Collection#containsAll},
+ * so collections of the same type should implement this method efficiently,
+ * e.g., by merging the sorted arrays of ids.
+ * 
+ * @param <C>
+ *            the type of collections maintained by this {@link Collection2}
+ */
+public class IdBloomTrieCollection2<C extends Collection<?>>
+		extends BloomTrieCollection2<C> {
+
+	/**
+	 * @see BloomTrieCollection2#BloomTrieCollection2(int, int, int)
+	 */
+	public IdBloomTrieCollection2(int filterBits, int hashCount,
+			int splitCapacity) {
+		super(filterBits, hashCount, splitCapacity);
+	}
+
+	/**
+	 * @see BloomTrieCollection2#BloomTrieCollection2(boolean)
+	 */
+	public IdBloomTrieCollection2(boolean selfTuning) {
+		super(selfTuning);
+	}
+
+	public IdBloomTrieCollection2() {
+		super();
+	}
+
+	@Override
+	long getFilter(Collection<?> s) {
+		if (s instanceof IdCollection) {
+			IdCollection ids = (IdCollection) s;
+			long result = 0;
+			for (int i = ids.getIdCount() - 1; i >= 0; i--) {
+				result |= getFilterBit(ids.getId(i));
+			}
+			return result;
+		}
+		// else
+		return super.getFilter(s);
+	}
+
+	@Override
+	long[] getFilter2(Collection<?> s) {
+		if (s instanceof IdCollection) {
+			IdCollection ids = (IdCollection) s;
+			Parameters parameters = getParameters();
+			long[] result = parameters.newFilter2();
+			for (int i = ids.getIdCount() - 1; i >= 0; i--) {
+				parameters.addToFilter2(result, ids.getId(i));
+			}
+			return result;
+		}
+		// else
+		return super.getFilter2(s);
+	}
+
+}
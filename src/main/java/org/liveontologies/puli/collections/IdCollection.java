@@ -0,0 +1,49 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.collections;
+
+/**
+ * A collection whose elements are represented by integer ids that can be
+ * accessed without iteration over (and creation of) the elements. The id of
+ * each element must be equal to its {@link Object#hashCode()}, so that
+ * collections can be indexed by ids consistently with other collections of the
+ * same elements.
+ * 
+ * @see IdBloomTrieCollection2
+ */
+public interface IdCollection {
+
+	/**
+	 * @return the number of ids in this collection, which is the number of
+	 *         its elements
+	 */
+	int getIdCount();
+
+	/**
+	 * @param index
+	 *            a number between {@code 0} and {@link #getIdCount()}
+	 *            {@code - 1}
+	 * @return the id (hash code) of the element at the given position
+	 */
+	int getId(int index);
+
+}
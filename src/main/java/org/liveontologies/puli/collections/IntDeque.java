@@ -0,0 +1,118 @@
+package org.liveontologies.puli.collections;
+
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * A double ended queue of non-negative {@code int} values backed by a
+ * circular array. Methods retrieving elements return {@code -1} if the queue
+ * is empty.
+ */
+public class IntDeque {
+
+	private static final int INIT_CAPACITY_ = 16;
+
+	private int[] elements_;
+
+	/**
+	 * the position of the first element
+	 */
+	private int head_ = 0;
+
+	private int size_ = 0;
+
+	public IntDeque(int expectedSize) {
+		int capacity = INIT_CAPACITY_;
+		while (capacity < expectedSize) {
+			capacity <<= 1;
+		}
+		this.elements_ = new int[capacity];
+	}
+
+	public IntDeque() {
+		this(INIT_CAPACITY_);
+	}
+
+	public void addFirst(int e) {
+		if (size_ == elements_.length) {
+			grow();
+		}
+		head_ = (head_ - 1) & (elements_.length - 1);
+		elements_[head_] = e;
+		size_++;
+	}
+
+	public void addLast(int e) {
+		if (size_ == elements_.length) {
+			grow();
+		}
+		elements_[(head_ + size_) & (elements_.length - 1)] = e;
+		size_++;
+	}
+
+	/**
+	 * @return the first element of this queue or {@code -1} if the queue is
+	 *         empty
+	 */
+	public int peekFirst() {
+		return size_ == 0 ? -1 : elements_[head_];
+	}
+
+	/**
+	 * Removes the first element of this queue
+	 *
+	 * @return the removed element or {@code -1} if the queue is empty
+	 */
+	public int pollFirst() {
+		if (size_ == 0) {
+			return -1;
+		}
+		// else
+		int result = elements_[head_];
+		head_ = (head_ + 1) & (elements_.length - 1);
+		size_--;
+		return result;
+	}
+
+	public int size() {
+		return size_;
+	}
+
+	public boolean isEmpty() {
+		return size_ == 0;
+	}
+
+	public void clear() {
+		head_ = 0;
+		size_ = 0;
+	}
+
+	private void grow() {
+		int[] elements = Arrays.copyOf(elements_, elements_.length << 1);
+		// move the wrapped around part
+		System.arraycopy(elements_, 0, elements, elements_.length, head_);
+		elements_ = elements;
+	}
+
+}
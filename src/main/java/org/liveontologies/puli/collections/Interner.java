@@ -0,0 +1,171 @@
+package org.liveontologies.puli.collections;
+
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Assigns consecutive non-negative {@code int} ids to (equal) objects, starting
+ * from {@code 0}. The ids are stored in an open addressing hash table of
+ * {@code int}s, so no boxing takes place for finding an id of an object.
+ *
+ * @param <E>
+ *            the type of elements for which the ids are assigned
+ */
+public class Interner<E> {
+
+	private static final int INIT_CAPACITY_ = 16;
+
+	/**
+	 * the elements in the order of their ids
+	 */
+	private Object[] elements_;
+
+	/**
+	 * the hash table; contains {@code id + 1} of elements or {@code 0} for
+	 * empty slots
+	 */
+	private int[] table_;
+
+	/**
+	 * the number of elements with the assigned ids
+	 */
+	private int size_ = 0;
+
+	public Interner(int expectedSize) {
+		Preconditions.checkArgument(expectedSize >= 0);
+		int capacity = INIT_CAPACITY_;
+		while (capacity < expectedSize) {
+			capacity <<= 1;
+		}
+		this.elements_ = new Object[capacity];
+		this.table_ = new int[capacity << 1];
+	}
+
+	public Interner() {
+		this(INIT_CAPACITY_);
+	}
+
+	private static int hash(Object o) {
+		int h = o.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @param element
+	 * @return the id of the given element; if the element did not have an id
+	 *         yet, the next unused id is assigned
+	 */
+	public int getId(E element) {
+		int mask = table_.length - 1;
+		int pos = hash(element) & mask;
+		for (;;) {
+			int slot = table_[pos];
+			if (slot == 0) {
+				break;
+			}
+			// else
+			if (element.equals(elements_[slot - 1])) {
+				return slot - 1;
+			}
+			// else
+			pos = (pos + 1) & mask;
+		}
+		// else new element
+		if (size_ == elements_.length) {
+			elements_ = Arrays.copyOf(elements_, size_ << 1);
+		}
+		int id = size_++;
+		elements_[id] = element;
+		table_[pos] = id + 1;
+		if (size_ << 1 > table_.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	/**
+	 * @param o
+	 * @return the id assigned to the given object or {@code -1} if no id was
+	 *         assigned
+	 */
+	public int find(Object o) {
+		int mask = table_.length - 1;
+		int pos = hash(o) & mask;
+		for (;;) {
+			int slot = table_[pos];
+			if (slot == 0) {
+				return -1;
+			}
+			// else
+			if (o.equals(elements_[slot - 1])) {
+				return slot - 1;
+			}
+			// else
+			pos = (pos + 1) & mask;
+		}
+	}
+
+	/**
+	 * @param id
+	 * @return the element with the given id
+	 */
+	@SuppressWarnings("unchecked")
+	public E getElement(int id) {
+		Preconditions.checkElementIndex(id, size_);
+		return (E) elements_[id];
+	}
+
+	/**
+	 * @return the number of elements with the assigned ids; all ids are
+	 *         smaller than this number
+	 */
+	public int size() {
+		return size_;
+	}
+
+	/**
+	 * Removes all ids; the next assigned id is {@code 0}
+	 */
+	public void clear() {
+		Arrays.fill(elements_, 0, size_, null);
+		Arrays.fill(table_, 0);
+		size_ = 0;
+	}
+
+	private void rehash() {
+		int[] table = new int[table_.length << 1];
+		int mask = table.length - 1;
+		for (int id = 0; id < size_; id++) {
+			int pos = hash(elements_[id]) & mask;
+			while (table[pos] != 0) {
+				pos = (pos + 1) & mask;
+			}
+			table[pos] = id + 1;
+		}
+		table_ = table;
+	}
+
+}
@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only file mapped into memory in segments, so that files larger than
+ * 2 GB can be accessed. The values that cross the boundary of segments are
+ * read byte by byte.
+ */
+class MappedFile implements Closeable {
+
+	private final RandomAccessFile file_;
+
+	private final long size_;
+
+	/**
+	 * the size of each segment except the last one is {@code 2^segmentShift_}
+	 */
+	private final int segmentShift_;
+
+	private final long segmentMask_;
+
+	private final MappedByteBuffer[] segments_;
+
+	MappedFile(File file, int segmentShift) throws IOException {
+		this.file_ = new RandomAccessFile(file, "r");
+		this.size_ = file_.length();
+		this.segmentShift_ = segmentShift;
+		long segmentSize = 1L << segmentShift;
+		this.segmentMask_ = segmentSize - 1;
+		int segmentCount = (int) ((size_ + segmentSize - 1) >>> segmentShift);
+		this.segments_ = new MappedByteBuffer[segmentCount];
+		FileChannel channel = file_.getChannel();
+		for (int i = 0; i < segmentCount; i++) {
+			long start = (long) i << segmentShift;
+			segments_[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+					Math.min(segmentSize, size_ - start));
+		}
+	}
+
+	long size() {
+		return size_;
+	}
+
+	byte getByte(long position) {
+		return segments_[(int) (position >>> segmentShift_)]
+				.get((int) (position & segmentMask_));
+	}
+
+	int getInt(long position) {
+		int offset = (int) (position & segmentMask_);
+		if (offset + 4 <= segmentMask_ + 1) {
+			return segments_[(int) (position >>> segmentShift_)]
+					.getInt(offset);
+		}
+		// else crosses segments
+		int result = 0;
+		for (int i = 0; i < 4; i++) {
+			result = (result << 8) | (getByte(position + i) & 0xFF);
+		}
+		return result;
+	}
+
+	long getLong(long position) {
+		int offset = (int) (position & segmentMask_);
+		if (offset + 8 <= segmentMask_ + 1) {
+			return segments_[(int) (position >>> segmentShift_)]
+					.getLong(offset);
+		}
+		// else crosses segments
+		return ((long) getInt(position) << 32)
+				| (getInt(position + 4) & 0xFFFFFFFFL);
+	}
+
+	void get(long position, byte[] bytes) {
+		int offset = (int) (position & segmentMask_);
+		if (offset + bytes.length <= segmentMask_ + 1) {
+			ByteBuffer segment = segments_[(int) (position >>> segmentShift_)]
+					.duplicate();
+			segment.position(offset);
+			segment.get(bytes);
+			return;
+		}
+		// else crosses segments
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = getByte(position + i);
+		}
+	}
+
+	/**
+	 * @param position
+	 * @param bytes
+	 * @return {@code true} if the bytes starting from the given position are
+	 *         equal to the given bytes
+	 */
+	boolean matches(long position, byte[] bytes) {
+		for (int i = 0; i < bytes.length; i++) {
+			if (getByte(position + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		// the mapped buffers are released when garbage collected
+		file_.close();
+	}
+
+}
@@ -0,0 +1,431 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.liveontologies.puli.AbstractInference;
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.JustifiedInference;
+import org.liveontologies.puli.Proof;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A read-only {@link Proof} backed by a file written by {@link ProofIndexer}.
+ * The file is mapped into memory, so that only the parts of the file that are
+ * accessed are loaded by the operating system, and the file can be larger than
+ * the available heap. The conclusions are found by comparing their encodings
+ * using the index stored in the file; the returned inferences are decoded
+ * when their methods are called.
+ * 
+ * @param <C>
+ *            the type of conclusions and premises of the inferences
+ * @param <A>
+ *            the type of axioms in the justifications of the inferences
+ * 
+ * @see ProofFormat
+ */
+public class MappedProof<C, A>
+		implements Proof<AxiomPinpointingInference<C, A>>, Closeable {
+
+	/**
+	 * the default size of mapped segments is 1 GB
+	 */
+	private static final int DEFAULT_SEGMENT_SHIFT_ = 30;
+
+	private final MappedFile file_;
+
+	/**
+	 * objects of other types cannot be conclusions in this proof
+	 */
+	private final Class<C> conclusionType_;
+
+	private final ObjectCodec<C> conclusionCodec_;
+
+	private final ObjectCodec<A> axiomCodec_;
+
+	private final int nameCount_, conclusionCount_, axiomCount_,
+			inferenceCount_, hashTableSize_;
+
+	private final long nameOffsetsPosition_, conclusionOffsetsPosition_,
+			axiomOffsetsPosition_, inferenceStartsPosition_,
+			inferenceOffsetsPosition_, hashTablePosition_;
+
+	/**
+	 * @param file
+	 *            the file written by {@link ProofIndexer}
+	 * @param conclusionType
+	 *            the class of conclusions; the inferences of objects of
+	 *            other classes are not looked up
+	 * @param conclusionCodec
+	 * @param axiomCodec
+	 * @throws IOException
+	 */
+	public MappedProof(File file, Class<C> conclusionType,
+			ObjectCodec<C> conclusionCodec, ObjectCodec<A> axiomCodec)
+			throws IOException {
+		this(file, conclusionType, conclusionCodec, axiomCodec,
+				DEFAULT_SEGMENT_SHIFT_);
+	}
+
+	MappedProof(File file, Class<C> conclusionType,
+			ObjectCodec<C> conclusionCodec, ObjectCodec<A> axiomCodec,
+			int segmentShift) throws IOException {
+		Preconditions.checkNotNull(conclusionType);
+		this.file_ = new MappedFile(file, segmentShift);
+		this.conclusionType_ = conclusionType;
+		this.conclusionCodec_ = conclusionCodec;
+		this.axiomCodec_ = axiomCodec;
+		if (file_.size() < ProofFormat.INDEX_HEADER_SIZE
+				|| file_.getInt(0) != ProofFormat.INDEX_MAGIC) {
+			file_.close();
+			throw new IOException("Not an indexed proof file");
+		}
+		// else
+		int version = file_.getInt(4);
+		if (version != ProofFormat.INDEX_VERSION) {
+			file_.close();
+			throw new IOException("Unsupported version: " + version);
+		}
+		// else
+		this.nameCount_ = file_.getInt(8);
+		this.conclusionCount_ = file_.getInt(12);
+		this.axiomCount_ = file_.getInt(16);
+		this.inferenceCount_ = file_.getInt(20);
+		this.hashTableSize_ = file_.getInt(24);
+		this.nameOffsetsPosition_ = file_.getLong(28);
+		this.conclusionOffsetsPosition_ = file_.getLong(36);
+		this.axiomOffsetsPosition_ = file_.getLong(44);
+		this.inferenceStartsPosition_ = file_.getLong(52);
+		this.inferenceOffsetsPosition_ = file_.getLong(60);
+		this.hashTablePosition_ = file_.getLong(68);
+	}
+
+	/**
+	 * @return the number of inferences stored in this proof
+	 */
+	public int getInferenceCount() {
+		return inferenceCount_;
+	}
+
+	/**
+	 * @return the number of different conclusions and premises of the
+	 *         inferences stored in this proof
+	 */
+	public int getConclusionCount() {
+		return conclusionCount_;
+	}
+
+	@Override
+	public Collection<? extends AxiomPinpointingInference<C, A>> getInferences(
+			Object conclusion) {
+		final int id = find(conclusion);
+		if (id < 0) {
+			return Collections.emptyList();
+		}
+		// else
+		final int start = file_.getInt(inferenceStartsPosition_ + 4L * id);
+		final int end = file_.getInt(inferenceStartsPosition_ + 4L * id + 4);
+		return new AbstractCollection<AxiomPinpointingInference<C, A>>() {
+
+			@Override
+			public Iterator<AxiomPinpointingInference<C, A>> iterator() {
+				return new Iterator<AxiomPinpointingInference<C, A>>() {
+
+					int next_ = start;
+
+					@Override
+					public boolean hasNext() {
+						return next_ < end;
+					}
+
+					@Override
+					public AxiomPinpointingInference<C, A> next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						// else
+						return new MappedInference(file_.getLong(
+								inferenceOffsetsPosition_ + 8L * next_++));
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+
+				};
+			}
+
+			@Override
+			public int size() {
+				return end - start;
+			}
+
+		};
+	}
+
+	/**
+	 * @param conclusion
+	 * @return the id of the given conclusion in the file or {@code -1} if the
+	 *         conclusion does not occur in the file
+	 */
+	private int find(Object conclusion) {
+		if (!conclusionType_.isInstance(conclusion)) {
+			return -1;
+		}
+		// else
+		byte[] encoded = encode(conclusionType_.cast(conclusion));
+		int mask = hashTableSize_ - 1;
+		int pos = ProofFormat.hash(encoded, 0, encoded.length) & mask;
+		for (;;) {
+			int slot = file_.getInt(hashTablePosition_ + 4L * pos);
+			if (slot == 0) {
+				return -1;
+			}
+			// else
+			long offset = file_
+					.getLong(conclusionOffsetsPosition_ + 8L * (slot - 1));
+			if (file_.getInt(offset) == encoded.length
+					&& file_.matches(offset + 4, encoded)) {
+				return slot - 1;
+			}
+			// else
+			pos = (pos + 1) & mask;
+		}
+	}
+
+	private byte[] encode(C conclusion) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			conclusionCodec_.write(conclusion, new DataOutputStream(bytes));
+		} catch (IOException e) {
+			throw new RuntimeException("Exception while encoding " + conclusion,
+					e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private <T> T decode(ObjectCodec<T> codec, long offsetsPosition, int id) {
+		long offset = file_.getLong(offsetsPosition + 8L * id);
+		byte[] encoded = new byte[file_.getInt(offset)];
+		file_.get(offset + 4, encoded);
+		try {
+			return codec.read(
+					new DataInputStream(new ByteArrayInputStream(encoded)));
+		} catch (IOException e) {
+			throw new RuntimeException("Exception while decoding the proof",
+					e);
+		}
+	}
+
+	private String decodeName(int id) {
+		Preconditions.checkElementIndex(id, nameCount_);
+		return decode(ObjectCodecs.string(), nameOffsetsPosition_, id);
+	}
+
+	private C decodeConclusion(int id) {
+		Preconditions.checkElementIndex(id, conclusionCount_);
+		return decode(conclusionCodec_, conclusionOffsetsPosition_, id);
+	}
+
+	private A decodeAxiom(int id) {
+		Preconditions.checkElementIndex(id, axiomCount_);
+		return decode(axiomCodec_, axiomOffsetsPosition_, id);
+	}
+
+	@Override
+	public void close() throws IOException {
+		file_.close();
+	}
+
+	/**
+	 * An inference stored in the file at the given position; the parts of the
+	 * inference are decoded on first request
+	 */
+	private class MappedInference extends AbstractInference<C>
+			implements AxiomPinpointingInference<C, A> {
+
+		private final long position_;
+
+		private String name_ = null;
+
+		private C conclusion_ = null;
+
+		private List<C> premises_ = null;
+
+		private Set<A> justification_ = null;
+
+		MappedInference(long position) {
+			this.position_ = position;
+		}
+
+		@Override
+		public String getName() {
+			if (name_ == null) {
+				name_ = decodeName(file_.getInt(position_));
+			}
+			return name_;
+		}
+
+		@Override
+		public C getConclusion() {
+			if (conclusion_ == null) {
+				conclusion_ = decodeConclusion(file_.getInt(position_ + 4));
+			}
+			return conclusion_;
+		}
+
+		@Override
+		public List<? extends C> getPremises() {
+			if (premises_ == null) {
+				premises_ = new Premises(position_ + 8);
+			}
+			return premises_;
+		}
+
+		@Override
+		public Set<? extends A> getJustification() {
+			if (justification_ == null) {
+				long premisesPosition = position_ + 8;
+				justification_ = new Justification(premisesPosition + 4
+						+ 4L * file_.getInt(premisesPosition));
+			}
+			return justification_;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof JustifiedInference<?, ?>) {
+				return super.equals(o) && getJustification()
+						.equals(((JustifiedInference<?, ?>) o).getJustification());
+			}
+			// else
+			return false;
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return super.computeHashCode() + getJustification().hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return super.toString() + " justification: " + getJustification();
+		}
+
+	}
+
+	/**
+	 * The premises of an inference stored at the given position
+	 */
+	private class Premises extends AbstractList<C> {
+
+		private final long position_;
+
+		private final int size_;
+
+		Premises(long position) {
+			this.position_ = position;
+			this.size_ = file_.getInt(position);
+		}
+
+		@Override
+		public C get(int index) {
+			Preconditions.checkElementIndex(index, size_);
+			return decodeConclusion(file_.getInt(position_ + 4 + 4L * index));
+		}
+
+		@Override
+		public int size() {
+			return size_;
+		}
+
+	}
+
+	/**
+	 * The justification of an inference stored at the given position
+	 */
+	private class Justification extends AbstractSet<A> {
+
+		private final long position_;
+
+		private final int size_;
+
+		Justification(long position) {
+			this.position_ = position;
+			this.size_ = file_.getInt(position);
+		}
+
+		@Override
+		public Iterator<A> iterator() {
+			return new Iterator<A>() {
+
+				int next_ = 0;
+
+				@Override
+				public boolean hasNext() {
+					return next_ < size_;
+				}
+
+				@Override
+				public A next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					// else
+					return decodeAxiom(
+							file_.getInt(position_ + 4 + 4L * next_++));
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+
+			};
+		}
+
+		@Override
+		public int size() {
+			return size_;
+		}
+
+	}
+
+}
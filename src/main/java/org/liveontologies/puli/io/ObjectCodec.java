@@ -0,0 +1,57 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts objects of some type to bytes and back; used for writing and
+ * reading conclusions and axioms of proofs
+ * 
+ * @param <T>
+ *            the type of objects converted by this codec
+ * 
+ * @see ProofWriter
+ * @see ProofReader
+ */
+public interface ObjectCodec<T> {
+
+	/**
+	 * Writes the given object to the given output so that it can be read by
+	 * {@link #read(DataInput)}
+	 * 
+	 * @param object
+	 * @param out
+	 * @throws IOException
+	 */
+	void write(T object, DataOutput out) throws IOException;
+
+	/**
+	 * @param in
+	 * @return the object written by {@link #write(Object, DataOutput)}
+	 * @throws IOException
+	 */
+	T read(DataInput in) throws IOException;
+
+}
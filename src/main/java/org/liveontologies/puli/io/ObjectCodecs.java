@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Common {@link ObjectCodec}s
+ */
+public class ObjectCodecs {
+
+	private static final ObjectCodec<String> STRING_CODEC_ = new ObjectCodec<String>() {
+
+		@Override
+		public void write(String object, DataOutput out) throws IOException {
+			byte[] bytes = object.getBytes(StandardCharsets.UTF_8);
+			ProofFormat.writeVarInt(out, bytes.length);
+			out.write(bytes);
+		}
+
+		@Override
+		public String read(DataInput in) throws IOException {
+			byte[] bytes = new byte[ProofFormat.readCount(in)];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+	};
+
+	private static final ObjectCodec<Integer> INTEGER_CODEC_ = new ObjectCodec<Integer>() {
+
+		@Override
+		public void write(Integer object, DataOutput out) throws IOException {
+			// zig-zag encoding so that small negative numbers are short
+			int value = object;
+			ProofFormat.writeVarInt(out, (value << 1) ^ (value >> 31));
+		}
+
+		@Override
+		public Integer read(DataInput in) throws IOException {
+			int value = ProofFormat.readVarInt(in);
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+	};
+
+	private ObjectCodecs() {
+		// Forbid instantiation of a utility class.
+	}
+
+	/**
+	 * @return the {@link ObjectCodec} writing {@link String}s in UTF-8
+	 *         encoding
+	 */
+	public static ObjectCodec<String> string() {
+		return STRING_CODEC_;
+	}
+
+	/**
+	 * @return the {@link ObjectCodec} writing {@link Integer}s using variable
+	 *         length encoding
+	 */
+	public static ObjectCodec<Integer> integer() {
+		return INTEGER_CODEC_;
+	}
+
+}
@@ -0,0 +1,167 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The constants and common methods of the binary proof format written by
+ * {@link ProofWriter} and read by {@link ProofReader}. The format is as
+ * follows (all numbers are written using variable length encoding, unless
+ * specified otherwise):
+ * 
+ * <pre>
+ * file       ::= MAGIC (4 bytes) VERSION (1 byte) inference* END checksum
+ * inference  ::= INFERENCE name conclusion premiseCount premise* axiomCount axiom*
+ * checksum   ::= CRC32 of all previous bytes (4 bytes)
+ * </pre>
+ * 
+ * Names, conclusions, premises, and axioms are written as references: an
+ * object written for the first time is referenced by {@code 0} followed by the
+ * encoding of this object; the object receives the next id in the order of
+ * such first occurrences (separately for names, conclusions and premises, and
+ * axioms). Subsequent occurrences are referenced by this id plus {@code 1}.
+ * <p>
+ * The indexed format written by {@link ProofIndexer} and read by
+ * {@link MappedProof} is designed for random access; all numbers are written
+ * using fixed length (big-endian) encoding:
+ * 
+ * <pre>
+ * file       ::= header data tables
+ * header     ::= INDEX_MAGIC INDEX_VERSION nameCount conclusionCount axiomCount
+ *                inferenceCount hashTableSize (int each)
+ *                nameOffsetsPosition conclusionOffsetsPosition
+ *                axiomOffsetsPosition inferenceStartsPosition
+ *                inferenceOffsetsPosition hashTablePosition (long each)
+ * data       ::= (object | inference)*
+ * object     ::= length (int) bytes (encoded by the codec)
+ * inference  ::= nameId conclusionId premiseCount premiseId* axiomCount axiomId*
+ * tables     ::= nameOffsets conclusionOffsets axiomOffsets (long each)
+ *                inferenceStarts (int for each conclusion id and one more)
+ *                inferenceOffsets (long for each inference)
+ *                hashTable (int for each slot)
+ * </pre>
+ * 
+ * The inferences of the conclusion with id {@code c} are written at positions
+ * {@code inferenceOffsets[inferenceStarts[c]]} to
+ * {@code inferenceOffsets[inferenceStarts[c + 1] - 1]}. The hash table uses
+ * open addressing: the slot of a conclusion is determined by the
+ * {@link #hash(byte[], int, int)} of its encoding, and the slot contains the
+ * id of the conclusion plus {@code 1}; empty slots contain {@code 0}.
+ */
+class ProofFormat {
+
+	/**
+	 * "PULI" in ASCII
+	 */
+	static final int MAGIC = 0x50554C49;
+
+	static final byte VERSION = 1;
+
+	static final byte END = 0;
+
+	static final byte INFERENCE = 1;
+
+	/**
+	 * the reference to an object that is written for the first time
+	 */
+	static final int NEW_REFERENCE = 0;
+
+	/**
+	 * "PULX" in ASCII
+	 */
+	static final int INDEX_MAGIC = 0x50554C58;
+
+	static final int INDEX_VERSION = 1;
+
+	static final int INDEX_HEADER_SIZE = 7 * 4 + 6 * 8;
+
+	private ProofFormat() {
+		// Forbid instantiation of a utility class.
+	}
+
+	/**
+	 * Writes the given value using 7 bits per byte, the highest bit of which
+	 * indicates that more bytes follow; negative values take 5 bytes
+	 * 
+	 * @param out
+	 * @param value
+	 * @throws IOException
+	 */
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * @param in
+	 * @return the value written by {@link #writeVarInt(DataOutput, int)}
+	 * @throws IOException
+	 */
+	static int readVarInt(DataInput in) throws IOException {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readByte();
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Malformed variable length integer");
+	}
+
+	/**
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return the hash value of the given range of bytes
+	 */
+	static int hash(byte[] bytes, int offset, int length) {
+		int result = 1;
+		for (int i = offset; i < offset + length; i++) {
+			result = 31 * result + bytes[i];
+		}
+		return result ^ (result >>> 16);
+	}
+
+	/**
+	 * @param in
+	 * @return the non-negative value written by
+	 *         {@link #writeVarInt(DataOutput, int)}
+	 * @throws IOException
+	 *             if the value is negative
+	 */
+	static int readCount(DataInput in) throws IOException {
+		int result = readVarInt(in);
+		if (result < 0) {
+			throw new IOException("Invalid count: " + result);
+		}
+		// else
+		return result;
+	}
+
+}
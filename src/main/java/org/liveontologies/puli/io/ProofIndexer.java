@@ -0,0 +1,450 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Producer;
+
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * Writes {@link AxiomPinpointingInference}s to a file that can be accessed
+ * using {@link MappedProof}. The inferences are written as soon as they are
+ * produced, e.g., by {@link ProofReader#readAll(Producer)} or
+ * {@link org.liveontologies.puli.Proofs#unfoldRecursively}. The conclusions,
+ * axioms, and names themselves are not kept in memory: they are identified by
+ * their encodings, which are compared with the encodings already written to
+ * the file using a hash table of their positions. Thus, the memory used is
+ * proportional to the number of different objects and inferences (a few
+ * numbers for each), but not to their size. The index is written on
+ * {@link #close()}.
+ * <p>
+ * {@link MappedProof} also finds conclusions by their encodings, so the
+ * {@link ObjectCodec}s must produce the same bytes for equal objects.
+ * 
+ * @param <C>
+ *            the type of conclusions and premises of the inferences
+ * @param <A>
+ *            the type of axioms in the justifications of the inferences
+ * 
+ * @see ProofFormat
+ */
+public class ProofIndexer<C, A> implements
+		Producer<AxiomPinpointingInference<? extends C, ? extends A>>, Closeable {
+
+	private static final int INIT_CAPACITY_ = 16;
+
+	private final RandomAccessFile file_;
+
+	/**
+	 * used for reading the written objects
+	 */
+	private final FileChannel channel_;
+
+	private final CountingOutputStream counter_;
+
+	private final DataOutputStream out_;
+
+	/**
+	 * the number of bytes written to {@link #file_}; the remaining bytes
+	 * counted by {@link #counter_} may be still buffered
+	 */
+	private long flushed_ = 0;
+
+	private final ObjectCodec<? super C> conclusionCodec_;
+
+	private final ObjectCodec<? super A> axiomCodec_;
+
+	private final WrittenObjects names_ = new WrittenObjects(),
+			conclusions_ = new WrittenObjects(), axioms_ = new WrittenObjects();
+
+	/**
+	 * the conclusion id and the position of the written inferences in the
+	 * order they were written
+	 */
+	private int[] inferenceConclusions_ = new int[INIT_CAPACITY_];
+
+	private long[] inferenceOffsets_ = new long[INIT_CAPACITY_];
+
+	private int inferenceCount_ = 0;
+
+	private final ByteArrayOutputStream buffer_ = new ByteArrayOutputStream();
+
+	private final DataOutputStream bufferOut_ = new DataOutputStream(buffer_);
+
+	/**
+	 * used for comparing encodings with the written bytes
+	 */
+	private ByteBuffer readBuffer_ = ByteBuffer.allocate(INIT_CAPACITY_);
+
+	public ProofIndexer(File file, ObjectCodec<? super C> conclusionCodec,
+			ObjectCodec<? super A> axiomCodec) throws IOException {
+		this.file_ = new RandomAccessFile(file, "rw");
+		file_.setLength(0);
+		this.channel_ = file_.getChannel();
+		this.counter_ = new CountingOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file_.getFD())));
+		this.out_ = new DataOutputStream(counter_);
+		this.conclusionCodec_ = conclusionCodec;
+		this.axiomCodec_ = axiomCodec;
+		// the header is written at the end
+		out_.write(new byte[ProofFormat.INDEX_HEADER_SIZE]);
+	}
+
+	@Override
+	public void produce(
+			AxiomPinpointingInference<? extends C, ? extends A> inference) {
+		try {
+			write(inference);
+		} catch (IOException e) {
+			throw new RuntimeException("Exception while indexing the proof",
+					e);
+		}
+	}
+
+	/**
+	 * Writes the given inference
+	 * 
+	 * @param inference
+	 * @throws IOException
+	 */
+	public void write(
+			AxiomPinpointingInference<? extends C, ? extends A> inference)
+			throws IOException {
+		// the objects should be written before the inference record
+		int name = getNameId(inference.getName());
+		int conclusion = getConclusionId(inference.getConclusion());
+		List<? extends C> premises = inference.getPremises();
+		int[] premiseIds = new int[premises.size()];
+		int i = 0;
+		for (C premise : premises) {
+			premiseIds[i++] = getConclusionId(premise);
+		}
+		Set<? extends A> justification = inference.getJustification();
+		int[] axiomIds = new int[justification.size()];
+		i = 0;
+		for (A axiom : justification) {
+			axiomIds[i++] = getAxiomId(axiom);
+		}
+		// the record
+		int inf = inferenceCount_++;
+		if (inf == inferenceOffsets_.length) {
+			inferenceOffsets_ = Arrays.copyOf(inferenceOffsets_, inf << 1);
+			inferenceConclusions_ = Arrays.copyOf(inferenceConclusions_,
+					inf << 1);
+		}
+		inferenceOffsets_[inf] = counter_.getCount();
+		inferenceConclusions_[inf] = conclusion;
+		out_.writeInt(name);
+		out_.writeInt(conclusion);
+		out_.writeInt(premiseIds.length);
+		for (int premise : premiseIds) {
+			out_.writeInt(premise);
+		}
+		out_.writeInt(axiomIds.length);
+		for (int axiom : axiomIds) {
+			out_.writeInt(axiom);
+		}
+	}
+
+	private int getNameId(String name) throws IOException {
+		ObjectCodecs.string().write(name, encode());
+		return getId(names_);
+	}
+
+	private int getConclusionId(C conclusion) throws IOException {
+		conclusionCodec_.write(conclusion, encode());
+		return getId(conclusions_);
+	}
+
+	private int getAxiomId(A axiom) throws IOException {
+		axiomCodec_.write(axiom, encode());
+		return getId(axioms_);
+	}
+
+	/**
+	 * @param objects
+	 * @return the id of the object encoded after {@link #encode()} among the
+	 *         given objects; if the encoding was not written yet, it is
+	 *         written and the next id is assigned
+	 * @throws IOException
+	 */
+	private int getId(WrittenObjects objects) throws IOException {
+		bufferOut_.flush();
+		byte[] encoded = buffer_.toByteArray();
+		int hash = ProofFormat.hash(encoded, 0, encoded.length);
+		int id = objects.find(encoded, hash);
+		if (id >= 0) {
+			return id;
+		}
+		// else
+		id = objects.add(counter_.getCount(), hash);
+		out_.writeInt(encoded.length);
+		out_.write(encoded);
+		return id;
+	}
+
+	/**
+	 * @param offset
+	 *            the position of a written object
+	 * @param encoded
+	 * @return {@code true} if the given encoding was written at the given
+	 *         position
+	 * @throws IOException
+	 */
+	private boolean matches(long offset, byte[] encoded) throws IOException {
+		if (offset + 4 + encoded.length > flushed_) {
+			out_.flush();
+			flushed_ = counter_.getCount();
+		}
+		if (readBuffer_.capacity() < encoded.length) {
+			readBuffer_ = ByteBuffer.allocate(
+					Math.max(encoded.length, readBuffer_.capacity() << 1));
+		}
+		readBuffer_.clear().limit(4);
+		read(offset);
+		if (readBuffer_.getInt(0) != encoded.length) {
+			return false;
+		}
+		// else
+		readBuffer_.clear().limit(encoded.length);
+		read(offset + 4);
+		for (int i = 0; i < encoded.length; i++) {
+			if (readBuffer_.get(i) != encoded[i]) {
+				return false;
+			}
+		}
+		// else
+		return true;
+	}
+
+	/**
+	 * Fills the remaining part of {@link #readBuffer_} with the bytes of
+	 * {@link #file_} starting from the given position
+	 * 
+	 * @param position
+	 * @throws IOException
+	 */
+	private void read(long position) throws IOException {
+		while (readBuffer_.hasRemaining()) {
+			int read = channel_.read(readBuffer_, position);
+			if (read < 0) {
+				throw new EOFException();
+			}
+			// else
+			position += read;
+		}
+	}
+
+	/**
+	 * @return the output to which the object should be encoded before
+	 *         {@link #getId(WrittenObjects)}
+	 */
+	private DataOutputStream encode() {
+		buffer_.reset();
+		return bufferOut_;
+	}
+
+	/**
+	 * Writes the index and closes the file
+	 */
+	@Override
+	public void close() throws IOException {
+		int conclusionCount = conclusions_.size_;
+		long nameOffsetsPosition = counter_.getCount();
+		names_.writeOffsets();
+		long conclusionOffsetsPosition = counter_.getCount();
+		conclusions_.writeOffsets();
+		long axiomOffsetsPosition = counter_.getCount();
+		axioms_.writeOffsets();
+		// sorting inferences by conclusions using counting sort
+		int[] inferenceStarts = new int[conclusionCount + 1];
+		for (int inf = 0; inf < inferenceCount_; inf++) {
+			inferenceStarts[inferenceConclusions_[inf] + 1]++;
+		}
+		for (int i = 0; i < conclusionCount; i++) {
+			inferenceStarts[i + 1] += inferenceStarts[i];
+		}
+		long inferenceStartsPosition = counter_.getCount();
+		for (int start : inferenceStarts) {
+			out_.writeInt(start);
+		}
+		long[] sortedOffsets = new long[inferenceCount_];
+		for (int inf = 0; inf < inferenceCount_; inf++) {
+			sortedOffsets[inferenceStarts[inferenceConclusions_[inf]]++] = inferenceOffsets_[inf];
+		}
+		long inferenceOffsetsPosition = counter_.getCount();
+		for (long offset : sortedOffsets) {
+			out_.writeLong(offset);
+		}
+		// the hash table is at most half full
+		int hashTableSize = 1;
+		while (hashTableSize < conclusionCount << 1) {
+			hashTableSize <<= 1;
+		}
+		int[] hashTable = new int[hashTableSize];
+		int mask = hashTableSize - 1;
+		for (int id = 0; id < conclusionCount; id++) {
+			int pos = conclusions_.hashes_[id] & mask;
+			while (hashTable[pos] != 0) {
+				pos = (pos + 1) & mask;
+			}
+			hashTable[pos] = id + 1;
+		}
+		long hashTablePosition = counter_.getCount();
+		for (int slot : hashTable) {
+			out_.writeInt(slot);
+		}
+		out_.flush();
+		// the header
+		ByteBuffer header = ByteBuffer
+				.allocate(ProofFormat.INDEX_HEADER_SIZE);
+		header.putInt(ProofFormat.INDEX_MAGIC)
+				.putInt(ProofFormat.INDEX_VERSION).putInt(names_.size_)
+				.putInt(conclusionCount).putInt(axioms_.size_)
+				.putInt(inferenceCount_).putInt(hashTableSize)
+				.putLong(nameOffsetsPosition)
+				.putLong(conclusionOffsetsPosition)
+				.putLong(axiomOffsetsPosition)
+				.putLong(inferenceStartsPosition)
+				.putLong(inferenceOffsetsPosition)
+				.putLong(hashTablePosition);
+		header.flip();
+		long position = 0;
+		while (header.hasRemaining()) {
+			position += channel_.write(header, position);
+		}
+		out_.close();
+		file_.close();
+	}
+
+	/**
+	 * The names, conclusions, or axioms written to the file; they are found
+	 * using an open addressing hash table by the hash values of their
+	 * encodings
+	 */
+	private class WrittenObjects {
+
+		/**
+		 * the positions of the written objects by their ids
+		 */
+		long[] offsets_ = new long[INIT_CAPACITY_];
+
+		/**
+		 * the hash values of encodings of the written objects by their ids
+		 */
+		int[] hashes_ = new int[INIT_CAPACITY_];
+
+		/**
+		 * contains {@code id + 1} of objects or {@code 0} for empty slots
+		 */
+		int[] table_ = new int[INIT_CAPACITY_ << 1];
+
+		int size_ = 0;
+
+		/**
+		 * @param encoded
+		 * @param hash
+		 *            the hash value of the encoding
+		 * @return the id of the object with the given encoding or {@code -1}
+		 *         if it was not written
+		 * @throws IOException
+		 */
+		int find(byte[] encoded, int hash) throws IOException {
+			int mask = table_.length - 1;
+			int pos = hash & mask;
+			for (;;) {
+				int slot = table_[pos];
+				if (slot == 0) {
+					return -1;
+				}
+				// else
+				int id = slot - 1;
+				if (hashes_[id] == hash && matches(offsets_[id], encoded)) {
+					return id;
+				}
+				// else
+				pos = (pos + 1) & mask;
+			}
+		}
+
+		/**
+		 * Assigns the next id to the object that is written at the given
+		 * position
+		 * 
+		 * @param offset
+		 * @param hash
+		 *            the hash value of the encoding of the object
+		 * @return the assigned id
+		 */
+		int add(long offset, int hash) {
+			int id = size_++;
+			if (id == offsets_.length) {
+				offsets_ = Arrays.copyOf(offsets_, id << 1);
+				hashes_ = Arrays.copyOf(hashes_, id << 1);
+			}
+			offsets_[id] = offset;
+			hashes_[id] = hash;
+			if (size_ << 1 > table_.length) {
+				table_ = new int[table_.length << 1];
+				for (int i = 0; i < size_; i++) {
+					insert(i);
+				}
+			} else {
+				insert(id);
+			}
+			return id;
+		}
+
+		private void insert(int id) {
+			int mask = table_.length - 1;
+			int pos = hashes_[id] & mask;
+			while (table_[pos] != 0) {
+				pos = (pos + 1) & mask;
+			}
+			table_[pos] = id + 1;
+		}
+
+		void writeOffsets() throws IOException {
+			for (int i = 0; i < size_; i++) {
+				out_.writeLong(offsets_[i]);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,210 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Inferences;
+import org.liveontologies.puli.Producer;
+
+/**
+ * Reads {@link AxiomPinpointingInference}s written by {@link ProofWriter}. The
+ * inferences are read one by one, so, e.g., a large proof can be read into a
+ * {@link org.liveontologies.puli.CompactProof} without loading the whole
+ * input into memory. The checksum of the input is verified after the last
+ * inference is read; if it does not match, an {@link IOException} is thrown.
+ * 
+ * @param <C>
+ *            the type of conclusions and premises of the inferences
+ * @param <A>
+ *            the type of axioms in the justifications of the inferences
+ * 
+ * @see ProofFormat
+ */
+public class ProofReader<C, A> implements Closeable {
+
+	private final CRC32 checksum_ = new CRC32();
+
+	private final DataInputStream data_;
+
+	private final ObjectCodec<? extends C> conclusionCodec_;
+
+	private final ObjectCodec<? extends A> axiomCodec_;
+
+	private final List<String> names_ = new ArrayList<String>();
+
+	private final List<C> conclusions_ = new ArrayList<C>();
+
+	private final List<A> axioms_ = new ArrayList<A>();
+
+	/**
+	 * {@code true} if all inferences have been read
+	 */
+	private boolean finished_ = false;
+
+	public ProofReader(InputStream in, ObjectCodec<? extends C> conclusionCodec,
+			ObjectCodec<? extends A> axiomCodec) throws IOException {
+		this.data_ = new DataInputStream(new CheckedInputStream(
+				new BufferedInputStream(in), checksum_));
+		this.conclusionCodec_ = conclusionCodec;
+		this.axiomCodec_ = axiomCodec;
+		if (data_.readInt() != ProofFormat.MAGIC) {
+			throw new IOException("Not a proof file");
+		}
+		// else
+		byte version = data_.readByte();
+		if (version != ProofFormat.VERSION) {
+			throw new IOException("Unsupported version: " + version);
+		}
+	}
+
+	/**
+	 * @return the next inference or {@code null} if all inferences have been
+	 *         read
+	 * @throws IOException
+	 *             if the input cannot be read or is corrupted
+	 */
+	public AxiomPinpointingInference<C, A> next() throws IOException {
+		if (finished_) {
+			return null;
+		}
+		// else
+		byte record = data_.readByte();
+		switch (record) {
+		case ProofFormat.INFERENCE:
+			break;
+		case ProofFormat.END:
+			finished_ = true;
+			int expected = (int) checksum_.getValue();
+			if (data_.readInt() != expected) {
+				throw new IOException("Checksum mismatch");
+			}
+			// else
+			return null;
+		default:
+			throw new IOException("Unexpected record: " + record);
+		}
+		String name = readName();
+		C conclusion = readConclusion();
+		int premiseCount = ProofFormat.readCount(data_);
+		List<C> premises;
+		if (premiseCount == 0) {
+			premises = Collections.emptyList();
+		} else {
+			premises = new ArrayList<C>(premiseCount);
+			for (int i = 0; i < premiseCount; i++) {
+				premises.add(readConclusion());
+			}
+		}
+		int axiomCount = ProofFormat.readCount(data_);
+		Set<A> justification;
+		if (axiomCount == 0) {
+			justification = Collections.emptySet();
+		} else {
+			justification = new HashSet<A>(axiomCount << 1);
+			for (int i = 0; i < axiomCount; i++) {
+				justification.add(readAxiom());
+			}
+		}
+		return Inferences.create(name, conclusion, premises, justification);
+	}
+
+	/**
+	 * Reads all remaining inferences and passes them to the given
+	 * {@link Producer}
+	 * 
+	 * @param producer
+	 * @throws IOException
+	 *             if the input cannot be read or is corrupted
+	 */
+	public void readAll(
+			Producer<? super AxiomPinpointingInference<C, A>> producer)
+			throws IOException {
+		for (;;) {
+			AxiomPinpointingInference<C, A> next = next();
+			if (next == null) {
+				return;
+			}
+			// else
+			producer.produce(next);
+		}
+	}
+
+	private String readName() throws IOException {
+		int ref = ProofFormat.readVarInt(data_);
+		if (ref == ProofFormat.NEW_REFERENCE) {
+			String result = ObjectCodecs.string().read(data_);
+			names_.add(result);
+			return result;
+		}
+		// else
+		return get(names_, ref);
+	}
+
+	private C readConclusion() throws IOException {
+		int ref = ProofFormat.readVarInt(data_);
+		if (ref == ProofFormat.NEW_REFERENCE) {
+			C result = conclusionCodec_.read(data_);
+			conclusions_.add(result);
+			return result;
+		}
+		// else
+		return get(conclusions_, ref);
+	}
+
+	private A readAxiom() throws IOException {
+		int ref = ProofFormat.readVarInt(data_);
+		if (ref == ProofFormat.NEW_REFERENCE) {
+			A result = axiomCodec_.read(data_);
+			axioms_.add(result);
+			return result;
+		}
+		// else
+		return get(axioms_, ref);
+	}
+
+	private static <E> E get(List<E> objects, int ref) throws IOException {
+		if (ref < 0 || ref > objects.size()) {
+			throw new IOException("Invalid reference: " + ref);
+		}
+		// else
+		return objects.get(ref - 1);
+	}
+
+	@Override
+	public void close() throws IOException {
+		data_.close();
+	}
+
+}
@@ -0,0 +1,169 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Producer;
+import org.liveontologies.puli.Proofs;
+import org.liveontologies.puli.collections.Interner;
+
+/**
+ * Writes {@link AxiomPinpointingInference}s to an {@link OutputStream} in a
+ * compact binary format, which can be read by {@link ProofReader}. The
+ * inferences are written as soon as they are produced, so this writer can be
+ * used, e.g., with {@link Proofs#unfoldRecursively} to save a proof without
+ * keeping it in memory. Every conclusion and axiom is written only once using
+ * the provided {@link ObjectCodec}s; the other occurrences are written as
+ * numeric ids. The output is complete only after {@link #close()}.
+ * 
+ * @param <C>
+ *            the type of conclusions and premises of the inferences
+ * @param <A>
+ *            the type of axioms in the justifications of the inferences
+ * 
+ * @see ProofFormat
+ */
+public class ProofWriter<C, A> implements
+		Producer<AxiomPinpointingInference<? extends C, ? extends A>>, Closeable {
+
+	private final OutputStream out_;
+
+	private final CRC32 checksum_ = new CRC32();
+
+	private final DataOutputStream data_;
+
+	private final ObjectCodec<? super C> conclusionCodec_;
+
+	private final ObjectCodec<? super A> axiomCodec_;
+
+	private final Interner<String> nameIds_ = new Interner<String>();
+
+	private final Interner<C> conclusionIds_ = new Interner<C>();
+
+	private final Interner<A> axiomIds_ = new Interner<A>();
+
+	public ProofWriter(OutputStream out, ObjectCodec<? super C> conclusionCodec,
+			ObjectCodec<? super A> axiomCodec) throws IOException {
+		this.out_ = new BufferedOutputStream(out);
+		this.data_ = new DataOutputStream(
+				new CheckedOutputStream(out_, checksum_));
+		this.conclusionCodec_ = conclusionCodec;
+		this.axiomCodec_ = axiomCodec;
+		data_.writeInt(ProofFormat.MAGIC);
+		data_.writeByte(ProofFormat.VERSION);
+	}
+
+	@Override
+	public void produce(
+			AxiomPinpointingInference<? extends C, ? extends A> inference) {
+		try {
+			write(inference);
+		} catch (IOException e) {
+			throw new RuntimeException("Exception while writing the proof",
+					e);
+		}
+	}
+
+	/**
+	 * Writes the given inference
+	 * 
+	 * @param inference
+	 * @throws IOException
+	 */
+	public void write(
+			AxiomPinpointingInference<? extends C, ? extends A> inference)
+			throws IOException {
+		data_.writeByte(ProofFormat.INFERENCE);
+		writeName(inference.getName());
+		writeConclusion(inference.getConclusion());
+		List<? extends C> premises = inference.getPremises();
+		ProofFormat.writeVarInt(data_, premises.size());
+		for (C premise : premises) {
+			writeConclusion(premise);
+		}
+		Set<? extends A> justification = inference.getJustification();
+		ProofFormat.writeVarInt(data_, justification.size());
+		for (A axiom : justification) {
+			writeAxiom(axiom);
+		}
+	}
+
+	private void writeName(String name) throws IOException {
+		int id = nameIds_.find(name);
+		if (id >= 0) {
+			ProofFormat.writeVarInt(data_, id + 1);
+			return;
+		}
+		// else
+		nameIds_.getId(name);
+		ProofFormat.writeVarInt(data_, ProofFormat.NEW_REFERENCE);
+		ObjectCodecs.string().write(name, data_);
+	}
+
+	private void writeConclusion(C conclusion) throws IOException {
+		int id = conclusionIds_.find(conclusion);
+		if (id >= 0) {
+			ProofFormat.writeVarInt(data_, id + 1);
+			return;
+		}
+		// else
+		conclusionIds_.getId(conclusion);
+		ProofFormat.writeVarInt(data_, ProofFormat.NEW_REFERENCE);
+		conclusionCodec_.write(conclusion, data_);
+	}
+
+	private void writeAxiom(A axiom) throws IOException {
+		int id = axiomIds_.find(axiom);
+		if (id >= 0) {
+			ProofFormat.writeVarInt(data_, id + 1);
+			return;
+		}
+		// else
+		axiomIds_.getId(axiom);
+		ProofFormat.writeVarInt(data_, ProofFormat.NEW_REFERENCE);
+		axiomCodec_.write(axiom, data_);
+	}
+
+	/**
+	 * Writes the end of the proof and the checksum, and closes the underlying
+	 * {@link OutputStream}
+	 */
+	@Override
+	public void close() throws IOException {
+		data_.writeByte(ProofFormat.END);
+		data_.flush();
+		// the checksum itself is not checked
+		new DataOutputStream(out_).writeInt((int) checksum_.getValue());
+		out_.close();
+	}
+
+}
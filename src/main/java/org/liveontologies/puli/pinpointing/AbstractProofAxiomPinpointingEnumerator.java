@@ -40,6 +40,14 @@ import com.google.common.base.Preconditions;
  * goal and a {@link Prover} is a minimal justification over all derivations of
  * this goal in the proof. A repair is a minimal hitting set of all
  * justifications.
+ * <p>
+ * If the computation is interrupted using the
+ * {@link AxiomPinpointingInterruptMonitor}, the state of the computation for
+ * the query is kept, so that the next call of
+ * {@link #enumerate(Object, AxiomPinpointingListener)} with the same query
+ * continues the computation from the point where it was interrupted; only the
+ * results that were not yet reported are reported to the listener. The
+ * computation is resumed only for the query that was interrupted last.
  * 
  * @author Yevgeny Kazakov
  *
@@ -58,6 +66,12 @@ public abstract class AbstractProofAxiomPinpointingEnumerator<Q, A, I extends Ax
 
 	private final StatusListener statusListener_;
 
+	/**
+	 * the {@link QueryEnumerator} whose computation was interrupted or
+	 * {@code null} if there is no such
+	 */
+	private QueryEnumerator suspended_ = null;
+
 	public AbstractProofAxiomPinpointingEnumerator(
 			final Prover<? super Q, ? extends I> prover,
 			final AxiomPinpointingInterruptMonitor monitor,
@@ -80,16 +94,69 @@ public abstract class AbstractProofAxiomPinpointingEnumerator<Q, A, I extends Ax
 	@Override
 	public void enumerate(Q query, AxiomPinpointingListener<A> listener) {
 		Preconditions.checkNotNull(query);
+		QueryEnumerator enumerator = null;
 		try {
 			statusListener_.started();
-			getQueryEnumerator(query).enumerate(listener);
+			if (suspended_ != null && query.equals(suspended_.getQuery())) {
+				enumerator = suspended_;
+			} else {
+				discardSuspended();
+				enumerator = getQueryEnumerator(query);
+			}
+			suspended_ = null;
+			enumerator.enumerate(listener);
 		} catch (AxiomPinpointingInterruptedException e) {
-			// TODO: handle
+			suspended_ = enumerator;
 		} finally {
 			statusListener_.finished();
 		}
 	}
 
+	/**
+	 * @param query
+	 * @return {@code true} if the computation for the given query was
+	 *         interrupted and will be resumed by the next call of
+	 *         {@link #enumerate(Object, AxiomPinpointingListener)} with this
+	 *         query
+	 */
+	public boolean isSuspended(Q query) {
+		return suspended_ != null && suspended_.getQuery().equals(query);
+	}
+
+	/**
+	 * Discards the state of the interrupted computation, if there is any; the
+	 * next call of {@link #enumerate(Object, AxiomPinpointingListener)} starts
+	 * the computation from scratch
+	 */
+	public void discardSuspended() {
+		if (suspended_ != null) {
+			suspended_.discard();
+			suspended_ = null;
+		}
+	}
+
+	/**
+	 * @return the {@link QueryEnumerator} whose computation was interrupted
+	 *         or {@code null} if there is no such
+	 */
+	protected QueryEnumerator getSuspended() {
+		return suspended_;
+	}
+
+	/**
+	 * Sets the {@link QueryEnumerator} that should be resumed by the next call
+	 * of {@link #enumerate(Object, AxiomPinpointingListener)} with its query,
+	 * discarding the previously interrupted one
+	 * 
+	 * @param enumerator
+	 */
+	protected void setSuspended(QueryEnumerator enumerator) {
+		if (suspended_ != enumerator) {
+			discardSuspended();
+		}
+		suspended_ = enumerator;
+	}
+
 	protected QueryEnumerator getQueryEnumerator(Q query) {
 		return new QueryEnumerator(query);
 	}
@@ -117,10 +184,25 @@ public abstract class AbstractProofAxiomPinpointingEnumerator<Q, A, I extends Ax
 			return proof_;
 		}
 
+		/**
+		 * Computes the results for the query and reports them to the given
+		 * listener. If the computation was interrupted by throwing
+		 * {@link AxiomPinpointingInterruptedException}, this method can be
+		 * called again to continue the computation.
+		 * 
+		 * @param listener
+		 */
 		public void enumerate(AxiomPinpointingListener<A> listener) {
 			// extend in subclasses
 		}
 
+		/**
+		 * Called when the interrupted computation will not be resumed
+		 */
+		protected void discard() {
+			// extend in subclasses
+		}
+
 	}
 
 	public interface StatusListener {
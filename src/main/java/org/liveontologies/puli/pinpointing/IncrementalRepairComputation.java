@@ -0,0 +1,222 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link JustificationListener} that maintains the minimal hitting sets of
+ * the justifications reported so far, which are exactly the repairs for these
+ * justifications. Each new justification is processed incrementally: the
+ * current repairs that do not hit this justification are extended by its
+ * axioms, keeping only the minimal extensions (Berge's algorithm).
+ * 
+ * A repair for the justifications found so far may be extended by a
+ * justification reported later, so the repairs are confirmed and reported to
+ * the given {@link RepairListener} only when the computation of
+ * justifications is complete. Before that, {@link #getCurrentRepairs()}
+ * returns the repairs for the justifications found so far.
+ * 
+ * @param <A>
+ *            the type of axioms appearing in justifications and repairs
+ */
+public class IncrementalRepairComputation<A>
+		implements JustificationListener<A> {
+
+	private static final int[] EMPTY_IDS_ = new int[0];
+
+	private final RepairListener<A> repairListener_;
+
+	private final IdMap<A> axiomIds_ = HashIdMap.create();
+
+	/**
+	 * the minimal hitting sets of the justifications found so far, as sorted
+	 * axiom ids
+	 */
+	private List<int[]> repairs_ = new ArrayList<int[]>();
+
+	/**
+	 * the axioms of the justification currently being reported, or
+	 * {@code null} if no justification is being reported
+	 */
+	private Set<A> currentJustification_ = null;
+
+	/**
+	 * the number of justifications processed so far
+	 */
+	private int justificationCount_ = 0;
+
+	/**
+	 * @param repairListener
+	 *            the listener to which the repairs are reported when the
+	 *            computation of justifications is complete
+	 */
+	public IncrementalRepairComputation(RepairListener<A> repairListener) {
+		this.repairListener_ = Preconditions.checkNotNull(repairListener);
+		// the empty set hits the empty family of sets
+		repairs_.add(EMPTY_IDS_);
+	}
+
+	@Override
+	public void computesJustifications() {
+		repairListener_.computesRepairs();
+	}
+
+	@Override
+	public void newJustificationFound() {
+		Preconditions.checkState(currentJustification_ == null);
+		currentJustification_ = new HashSet<A>();
+	}
+
+	@Override
+	public void usefulAxiom(A axiom) {
+		if (currentJustification_ != null) {
+			currentJustification_.add(axiom);
+		}
+	}
+
+	@Override
+	public void newJustificationComplete() {
+		Preconditions.checkState(currentJustification_ != null);
+		update(SortedIdSet.getIds(currentJustification_, axiomIds_));
+		currentJustification_ = null;
+		justificationCount_++;
+	}
+
+	@Override
+	public void computationComplete() {
+		for (int[] repair : repairs_) {
+			repairListener_.newRepairFound();
+			for (int id : repair) {
+				repairListener_.usefulAxiom(axiomIds_.getElement(id));
+			}
+			repairListener_.newRepairComplete();
+		}
+		repairListener_.computationComplete();
+	}
+
+	/**
+	 * @return the repairs for the justifications reported so far; after the
+	 *         computation of justifications is complete, these are all
+	 *         repairs
+	 */
+	public Collection<Set<A>> getCurrentRepairs() {
+		List<Set<A>> result = new ArrayList<Set<A>>(repairs_.size());
+		for (int[] repair : repairs_) {
+			Set<A> axioms = new HashSet<A>(repair.length);
+			for (int id : repair) {
+				axioms.add(axiomIds_.getElement(id));
+			}
+			result.add(axioms);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of justifications processed so far
+	 */
+	public int getJustificationCount() {
+		return justificationCount_;
+	}
+
+	/**
+	 * Replaces the current repairs by the minimal hitting sets of the current
+	 * justifications and the given one
+	 * 
+	 * @param justification
+	 *            the sorted ids of axioms of the new justification
+	 */
+	void update(int[] justification) {
+		BitSet hit = new BitSet();
+		for (int id : justification) {
+			hit.set(id);
+		}
+		List<int[]> kept = new ArrayList<int[]>(repairs_.size());
+		List<int[]> missed = new ArrayList<int[]>();
+		for (int[] repair : repairs_) {
+			if (intersects(repair, hit)) {
+				kept.add(repair);
+			} else {
+				missed.add(repair);
+			}
+		}
+		if (missed.isEmpty()) {
+			return;
+		}
+		// else
+		/*
+		 * An extension of a missed repair by an axiom of the justification is
+		 * not minimal only if it contains a kept repair with this axiom; the
+		 * extensions cannot contain each other or the kept repairs.
+		 */
+		List<List<int[]>> keptByAxiom = new ArrayList<List<int[]>>(
+				justification.length);
+		for (int i = 0; i < justification.length; i++) {
+			keptByAxiom.add(new ArrayList<int[]>());
+		}
+		for (int[] repair : kept) {
+			for (int id : repair) {
+				if (hit.get(id)) {
+					int pos = Arrays.binarySearch(justification, id);
+					keptByAxiom.get(pos).add(repair);
+				}
+			}
+		}
+		List<int[]> result = kept;
+		for (int[] repair : missed) {
+			for (int i = 0; i < justification.length; i++) {
+				int[] extended = SortedIdSet.add(repair, justification[i]);
+				if (isMinimal(extended, keptByAxiom.get(i))) {
+					result.add(extended);
+				}
+			}
+		}
+		repairs_ = result;
+	}
+
+	private static boolean intersects(int[] ids, BitSet set) {
+		for (int id : ids) {
+			if (set.get(id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isMinimal(int[] candidate, List<int[]> others) {
+		for (int[] other : others) {
+			if (SortedIdSet.containsAll(candidate, other)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -31,6 +31,7 @@ import org.liveontologies.puli.Proof;
 import org.liveontologies.puli.Prover;
 
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Collections2;
 
 /**
@@ -42,6 +43,10 @@ import com.google.common.collect.Collections2;
  * minimal hitting sets of the sets s1 = {a, b} and s2 = {b, c} are {a, c} and
  * {b}.
  * 
+ * Unless created with a repair computation factory, the minimal hitting sets
+ * are computed by a dedicated search over integer ids of the elements, which
+ * reports them in no particular order.
+ * 
  * @author Peter Skocovsky
  * @author Yevgeny Kazakov
  *
@@ -52,20 +57,52 @@ public class MinimalHittingSetEnumerator<E> implements
 
 	private static final Object CONCLUSION_ = new Object();
 
+	/**
+	 * the factory used to compute minimal hitting sets as repairs, or
+	 * {@code null} if the dedicated search is used
+	 */
 	private final ProverAxiomPinpointingEnumerationFactory<Object, E> repairComputationFactory_;
 
 	private final AxiomPinpointingInterruptMonitor monitor_;
 
+	/**
+	 * Creates an enumerator that computes minimal hitting sets as repairs of a
+	 * conclusion derived by an inference for each of the sets; the repairs are
+	 * reported in the order defined by the created repair computation
+	 * 
+	 * @param repairComputationFactory
+	 * @param monitor
+	 */
 	public MinimalHittingSetEnumerator(
 			final ProverAxiomPinpointingEnumerationFactory<Object, E> repairComputationFactory,
 			final AxiomPinpointingInterruptMonitor monitor) {
-		this.repairComputationFactory_ = repairComputationFactory;
+		this.repairComputationFactory_ = Preconditions
+				.checkNotNull(repairComputationFactory);
+		this.monitor_ = monitor;
+	}
+
+	/**
+	 * Creates an enumerator that computes minimal hitting sets using a
+	 * dedicated search
+	 * 
+	 * @param monitor
+	 * 
+	 * @see MinimalHittingSetSearch
+	 */
+	public MinimalHittingSetEnumerator(
+			final AxiomPinpointingInterruptMonitor monitor) {
+		this.repairComputationFactory_ = null;
 		this.monitor_ = monitor;
 	}
 
 	@Override
 	public void enumerate(final Collection<? extends Set<? extends E>> query,
 			final AxiomPinpointingListener<E> listener) {
+		if (repairComputationFactory_ == null) {
+			search(query, listener);
+			return;
+		}
+		// else
 		repairComputationFactory_
 				.create(new Prover<Object, SetWrapperInference>() {
 
@@ -78,6 +115,41 @@ public class MinimalHittingSetEnumerator<E> implements
 				}, monitor_).enumerate(CONCLUSION_, listener);
 	}
 
+	private void search(final Collection<? extends Set<? extends E>> query,
+			final AxiomPinpointingListener<E> listener) {
+		final HashIdMap<E> elementIds = new HashIdMap<E>();
+		int[][] sets = new int[query.size()][];
+		int setId = 0;
+		for (Set<? extends E> set : query) {
+			int[] elements = new int[set.size()];
+			int i = 0;
+			for (E element : set) {
+				elements[i++] = elementIds.getId(element);
+			}
+			sets[setId++] = elements;
+		}
+		listener.computesRepairs();
+		try {
+			new MinimalHittingSetSearch(elementIds.size(), sets, monitor_)
+					.search(new MinimalHittingSetSearch.Listener() {
+
+						@Override
+						public void hittingSetFound(int[] elements, int size) {
+							listener.newRepairFound();
+							for (int i = 0; i < size; i++) {
+								listener.usefulAxiom(
+										elementIds.getElement(elements[i]));
+							}
+							listener.newRepairComplete();
+						}
+
+					});
+		} catch (AxiomPinpointingInterruptedException e) {
+			return;
+		}
+		listener.computationComplete();
+	}
+
 	private class SetWrapperProof implements Proof<SetWrapperInference> {
 
 		private final Collection<? extends Set<? extends E>> originalSets_;
@@ -145,7 +217,6 @@ public class MinimalHittingSetEnumerator<E> implements
 		AxiomPinpointingCollector<E> collector = new AxiomPinpointingCollector<E>();
 
 		new MinimalHittingSetEnumerator<E>(
-				TopDownRepairComputation.<Object, E> getFactory(),
 				AxiomPinpointingInterruptMonitor.DUMMY).enumerate(sets,
 						collector);
 
@@ -0,0 +1,368 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import java.util.Arrays;
+
+/**
+ * Enumerates the minimal hitting sets of a family of sets of integers using
+ * the MMCS algorithm. The search extends the current hitting set candidate by
+ * elements of an uncovered set with the fewest candidate elements, and keeps
+ * only those extensions in which every chosen element is critical, i.e., is
+ * the only chosen element of some set. Every minimal hitting set is thus
+ * reported exactly once, and no minimality checks against previously reported
+ * sets are needed.
+ * 
+ * @see <a href="https://doi.org/10.1016/j.dam.2013.10.010">K. Murakami and T.
+ *      Uno, Efficient algorithms for dualizing large-scale hypergraphs,
+ *      Discrete Applied Mathematics 170 (2014)</a>
+ */
+class MinimalHittingSetSearch {
+
+	/**
+	 * Receives the minimal hitting sets found by the search
+	 */
+	interface Listener {
+
+		/**
+		 * Reports a minimal hitting set; the array is reused by the search
+		 * and should not be stored
+		 * 
+		 * @param elements
+		 *            the elements of the minimal hitting set are the first
+		 *            {@code size} elements of this array
+		 * @param size
+		 */
+		void hittingSetFound(int[] elements, int size);
+
+	}
+
+	private static final int WORD_SIZE_ = 64;
+
+	/**
+	 * the elements of the input sets, indexed by the set ids
+	 */
+	private final int[][] sets_;
+
+	/**
+	 * the ids of sets containing the element, indexed by the element ids
+	 */
+	private final int[][] occurrences_;
+
+	private final AxiomPinpointingInterruptMonitor monitor_;
+
+	/**
+	 * the number of elements of {@link #current_} in each set
+	 */
+	private final int[] hitCounts_;
+
+	/**
+	 * the unique element of {@link #current_} in a set, if
+	 * {@link #hitCounts_} for this set is {@code 1}
+	 */
+	private final int[] critOwners_;
+
+	/**
+	 * the number of sets for which the element is the unique element of
+	 * {@link #current_}
+	 */
+	private final int[] critCounts_;
+
+	/**
+	 * the ids of sets without elements of {@link #current_}; the first
+	 * {@link #uncovSize_} are valid
+	 */
+	private final int[] uncov_;
+
+	/**
+	 * the positions of sets in {@link #uncov_}
+	 */
+	private final int[] uncovPositions_;
+
+	private int uncovSize_;
+
+	/**
+	 * the bitset of elements that can extend {@link #current_}
+	 */
+	private final long[] cand_;
+
+	/**
+	 * the current candidate hitting set
+	 */
+	private final int[] current_;
+
+	private int currentSize_ = 0;
+
+	/**
+	 * the stack of sets that are no longer critical for their
+	 * {@link #critOwners_}
+	 */
+	private final int[] log_;
+
+	private int logSize_ = 0;
+
+	/**
+	 * the stack of elements to branch on
+	 */
+	private int[] choices_;
+
+	private int choicesSize_ = 0;
+
+	/**
+	 * the frames of the depth-first search, indexed by the size of
+	 * {@link #current_} at which they were created: the range of
+	 * {@link #choices_} for the frame, the position of the next choice to
+	 * try, and the size of {@link #log_} before the last tried choice was
+	 * added
+	 */
+	private final int[] frameStarts_, frameEnds_, frameNexts_, frameLogs_;
+
+	/**
+	 * @param elementCount
+	 *            the number of elements; all elements are ids from {@code 0}
+	 *            to {@code elementCount - 1}
+	 * @param sets
+	 *            the family of sets for which to find minimal hitting sets;
+	 *            every set should contain each element at most once
+	 * @param monitor
+	 *            is checked for interruption during the search
+	 */
+	MinimalHittingSetSearch(int elementCount, int[][] sets,
+			AxiomPinpointingInterruptMonitor monitor) {
+		this.sets_ = sets;
+		this.monitor_ = monitor;
+		int setCount = sets.length;
+		int[] occurrenceCounts = new int[elementCount];
+		for (int[] set : sets) {
+			for (int element : set) {
+				occurrenceCounts[element]++;
+			}
+		}
+		this.occurrences_ = new int[elementCount][];
+		for (int element = 0; element < elementCount; element++) {
+			occurrences_[element] = new int[occurrenceCounts[element]];
+			occurrenceCounts[element] = 0;
+		}
+		for (int setId = 0; setId < setCount; setId++) {
+			for (int element : sets[setId]) {
+				occurrences_[element][occurrenceCounts[element]++] = setId;
+			}
+		}
+		this.hitCounts_ = new int[setCount];
+		this.critOwners_ = new int[setCount];
+		this.critCounts_ = new int[elementCount];
+		this.uncov_ = new int[setCount];
+		this.uncovPositions_ = new int[setCount];
+		for (int setId = 0; setId < setCount; setId++) {
+			uncov_[setId] = setId;
+			uncovPositions_[setId] = setId;
+		}
+		this.uncovSize_ = setCount;
+		this.cand_ = new long[(elementCount + WORD_SIZE_ - 1) / WORD_SIZE_];
+		for (int element = 0; element < elementCount; element++) {
+			cand_[element / WORD_SIZE_] |= 1L << element;
+		}
+		this.current_ = new int[Math.min(elementCount, setCount)];
+		this.log_ = new int[setCount];
+		this.choices_ = new int[Math.max(16, elementCount)];
+		int maxDepth = current_.length + 1;
+		this.frameStarts_ = new int[maxDepth];
+		this.frameEnds_ = new int[maxDepth];
+		this.frameNexts_ = new int[maxDepth];
+		this.frameLogs_ = new int[maxDepth];
+	}
+
+	/**
+	 * Reports all minimal hitting sets to the given listener; can be called
+	 * only once
+	 * 
+	 * @param listener
+	 * @throws AxiomPinpointingInterruptedException
+	 *             if the monitor was interrupted during the search
+	 */
+	void search(Listener listener) throws AxiomPinpointingInterruptedException {
+		// the search is iterative since the hitting sets can be large
+		int depth = 0;
+		if (!branch(listener, depth)) {
+			return;
+		}
+		// else
+		for (;;) {
+			int next = frameNexts_[depth];
+			if (next > frameStarts_[depth]) {
+				// undo the previous choice
+				int element = choices_[next - 1];
+				remove(element, frameLogs_[depth]);
+				cand_[element / WORD_SIZE_] |= 1L << element;
+			}
+			if (next == frameEnds_[depth]) {
+				choicesSize_ = frameStarts_[depth];
+				if (depth == 0) {
+					return;
+				}
+				// else
+				depth--;
+				continue;
+			}
+			// else
+			frameNexts_[depth] = next + 1;
+			int logStart = logSize_;
+			frameLogs_[depth] = logStart;
+			add(choices_[next]);
+			if (isCritical(logStart) && branch(listener, depth + 1)) {
+				depth++;
+			}
+		}
+	}
+
+	/**
+	 * Reports {@link #current_} if it hits all sets; otherwise creates the
+	 * frame at the given depth with the candidates for extending
+	 * {@link #current_} by the elements of an uncovered set with the fewest
+	 * candidates
+	 * 
+	 * @param listener
+	 * @param depth
+	 * @return {@code true} if the frame was created
+	 * @throws AxiomPinpointingInterruptedException
+	 */
+	private boolean branch(Listener listener, int depth)
+			throws AxiomPinpointingInterruptedException {
+		if (monitor_.isInterrupted()) {
+			throw new AxiomPinpointingInterruptedException();
+		}
+		if (uncovSize_ == 0) {
+			listener.hittingSetFound(current_, currentSize_);
+			return false;
+		}
+		// choose an uncovered set with the fewest candidates
+		int chosen = -1;
+		int chosenCount = Integer.MAX_VALUE;
+		for (int i = 0; i < uncovSize_; i++) {
+			int setId = uncov_[i];
+			int count = countCandidates(sets_[setId], chosenCount);
+			if (count < chosenCount) {
+				if (count == 0) {
+					// this set cannot be hit anymore
+					return false;
+				}
+				chosen = setId;
+				chosenCount = count;
+			}
+		}
+		int start = choicesSize_;
+		for (int element : sets_[chosen]) {
+			if (isCandidate(element)) {
+				pushChoice(element);
+				cand_[element / WORD_SIZE_] &= ~(1L << element);
+			}
+		}
+		frameStarts_[depth] = start;
+		frameNexts_[depth] = start;
+		frameEnds_[depth] = choicesSize_;
+		return true;
+	}
+
+	private boolean isCandidate(int element) {
+		return (cand_[element / WORD_SIZE_] & (1L << element)) != 0;
+	}
+
+	/**
+	 * @return the number of candidates in the given set, or any value
+	 *         {@code >= limit} if this number is at least {@code limit}
+	 */
+	private int countCandidates(int[] set, int limit) {
+		int result = 0;
+		for (int element : set) {
+			if (isCandidate(element) && ++result >= limit) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	private void pushChoice(int element) {
+		if (choicesSize_ == choices_.length) {
+			choices_ = Arrays.copyOf(choices_, choices_.length * 2);
+		}
+		choices_[choicesSize_++] = element;
+	}
+
+	private void add(int element) {
+		current_[currentSize_++] = element;
+		for (int setId : occurrences_[element]) {
+			switch (hitCounts_[setId]++) {
+			case 0:
+				removeUncov(setId);
+				critOwners_[setId] = element;
+				critCounts_[element]++;
+				break;
+			case 1:
+				critCounts_[critOwners_[setId]]--;
+				log_[logSize_++] = setId;
+				break;
+			default:
+				// nothing changes
+			}
+		}
+	}
+
+	/**
+	 * @return {@code true} if every element of {@link #current_} that lost a
+	 *         set since the given position of {@link #log_} is still critical
+	 *         for some set
+	 */
+	private boolean isCritical(int logStart) {
+		for (int i = logStart; i < logSize_; i++) {
+			if (critCounts_[critOwners_[log_[i]]] == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void remove(int element, int logStart) {
+		for (int setId : occurrences_[element]) {
+			if (--hitCounts_[setId] == 0) {
+				critCounts_[element]--;
+				addUncov(setId);
+			}
+		}
+		while (logSize_ > logStart) {
+			critCounts_[critOwners_[log_[--logSize_]]]++;
+		}
+		currentSize_--;
+	}
+
+	private void removeUncov(int setId) {
+		int pos = uncovPositions_[setId];
+		int last = uncov_[--uncovSize_];
+		uncov_[pos] = last;
+		uncovPositions_[last] = pos;
+	}
+
+	private void addUncov(int setId) {
+		uncov_[uncovSize_] = setId;
+		uncovPositions_[setId] = uncovSize_++;
+	}
+
+}
@@ -21,32 +21,45 @@
  */
 package org.liveontologies.puli.pinpointing;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.AbstractSet;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.liveontologies.puli.AxiomPinpointingInference;
 import org.liveontologies.puli.Delegator;
 import org.liveontologies.puli.Prover;
 import org.liveontologies.puli.collections.BloomTrieCollection2;
 import org.liveontologies.puli.collections.Collection2;
+import org.liveontologies.puli.collections.IdBloomTrieCollection2;
+import org.liveontologies.puli.collections.IdCollection;
+import org.liveontologies.puli.io.ObjectCodec;
 import org.liveontologies.puli.statistics.NestedStats;
 
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Sets;
 import com.google.common.primitives.Ints;
 
 /**
@@ -54,6 +67,20 @@ import com.google.common.primitives.Ints;
  * resolved with an inference Y if the conclusion of X is one of the premises of
  * Y; the resulting inference Z will have the conclusion of Y, all premises of X
  * and Y except for the resolved one and all justificaitons of X and Y.
+ * <p>
+ * The inferences resolved for one query are kept when
+ * {@link #enumerate(Object, AxiomPinpointingListener)} is called for the next
+ * query, so that when justifications for many queries over the same proof
+ * should be computed, it is best to use the same enumerator for all of them:
+ * only the inferences relevant for the new query are processed again. The
+ * time spent on every query is reported to
+ * {@link StatusListener#queryFinished(Object, long)}.
+ * <p>
+ * The state of the enumerator, including the state of the interrupted
+ * computation, can be saved using
+ * {@link #writeCheckpoint(DataOutput, ObjectCodec, ObjectCodec)} and restored
+ * in a new enumerator using
+ * {@link #readCheckpoint(DataInput, ObjectCodec, ObjectCodec)}.
  * 
  * @author Peter Skocovsky
  * @author Yevgeny Kazakov
@@ -68,9 +95,32 @@ import com.google.common.primitives.Ints;
 public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingInference<?, ? extends A>>
 		extends AbstractProofAxiomPinpointingEnumerator<Q, A, I> {
 
+	/**
+	 * The predefined {@link ResolutionSelection}s
+	 */
 	public enum SelectionType {
-		TOP_DOWN, BOTTOM_UP, THRESHOLD
-		// TODO: switch to class hierarchy to support threshold with parameter
+		TOP_DOWN, BOTTOM_UP, THRESHOLD, ADAPTIVE;
+
+		/**
+		 * @return the {@link ResolutionSelection} corresponding to this
+		 *         {@link SelectionType}
+		 */
+		public ResolutionSelection getSelection() {
+			switch (this) {
+			case TOP_DOWN:
+				return ResolutionSelection.topDown();
+			case BOTTOM_UP:
+				return ResolutionSelection.bottomUp();
+			case THRESHOLD:
+				return ResolutionSelection
+						.threshold(ResolutionSelection.Threshold.DEFAULT_THRESHOLD_);
+			case ADAPTIVE:
+				return ResolutionSelection.adaptive();
+			default:
+				throw new RuntimeException("Unsupported selection type: " + this);
+			}
+		}
+
 	}
 
 	/**
@@ -118,13 +168,178 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 			final SelectionType selection,
 			final PriorityComparator<? super Set<A>, ?> priorityComparator,
 			final StatusListener statusListener) {
+		return getFactory(selection, priorityComparator, statusListener,
+				null);
+	}
+
+	/**
+	 * Returns a factory for creating
+	 * {@link AbstractProofAxiomPinpointingEnumerator} computations for
+	 * enumerating justifications using resolution in parallel. The inferences
+	 * are processed in batches of inferences with the same priority: the
+	 * inferences of a batch are checked for minimality and indexed
+	 * sequentially, after which their resolvents are computed in parallel
+	 * using the given {@link ForkJoinPool}, partitioned by the atoms on which
+	 * the resolution is applied. In the parallel phase, the premises and
+	 * justifications of the resolvents are merged, their priorities are
+	 * computed, and the resolvents whose justifications are not minimal with
+	 * respect to the justifications found before the batch are filtered out
+	 * (they would be blocked when processed), so that only the remaining
+	 * resolvents are added to the queue sequentially. Unlike in the sequential
+	 * mode, the queued resolvents are therefore stored with their merged
+	 * premises and justifications. As in the sequential mode, the
+	 * justifications are reported in the order of their priorities and
+	 * exactly once. The {@link PriorityComparator} must be thread-safe.
+	 * 
+	 * @param <Q>
+	 *                               the type of conclusions used in inferences
+	 * @param <A>
+	 *                               the type of axioms in justifications
+	 * 
+	 * @param selection
+	 *                               The selection type that determines the
+	 *                               strategy of resolution rule applications
+	 * @param priorityComparator
+	 *                               The comparator that defines the order in
+	 *                               which justifications are reported to the
+	 *                               listener.
+	 * @param statusListener
+	 *                               a listener to notify about the different
+	 *                               stages of the computation
+	 * @param pool
+	 *                               the {@link ForkJoinPool} used for
+	 *                               computing resolvents or {@code null} if
+	 *                               they should be computed sequentially
+	 * @return a {@link AbstractProofAxiomPinpointingEnumerator} that can
+	 *         perform computations of justifications from proofs according to
+	 *         the specified parameters
+	 * 
+	 * @see #getFactory(SelectionType, PriorityComparator, StatusListener)
+	 */
+	public static <Q, A> ProverAxiomPinpointingEnumerationFactory<Q, A> getFactory(
+			final SelectionType selection,
+			final PriorityComparator<? super Set<A>, ?> priorityComparator,
+			final StatusListener statusListener, final ForkJoinPool pool) {
+		return getFactory(selection, priorityComparator, Integer.MAX_VALUE,
+				null, statusListener, pool);
+	}
+
+	/**
+	 * Returns a factory for creating
+	 * {@link AbstractProofAxiomPinpointingEnumerator} computations that report
+	 * only the first justifications in the order of the given
+	 * {@link PriorityComparator}. The computation stops as soon as the given
+	 * number of justifications is reported, or when all justifications whose
+	 * priority is not greater than the given bound are reported; the
+	 * inferences that can produce only justifications with greater priorities
+	 * are not resolved for the query.
+	 * 
+	 * @param <Q>
+	 *                               the type of conclusions used in inferences
+	 * @param <A>
+	 *                               the type of axioms in justifications
+	 * @param <P>
+	 *                               the type of priorities of justifications
+	 * 
+	 * @param selection
+	 *                               The selection type that determines the
+	 *                               strategy of resolution rule applications
+	 * @param priorityComparator
+	 *                               The comparator that defines the order in
+	 *                               which justifications are reported to the
+	 *                               listener.
+	 * @param limit
+	 *                               the maximal number of justifications
+	 *                               reported for a query
+	 * @param priorityBound
+	 *                               the maximal priority of the reported
+	 *                               justifications or {@code null} if the
+	 *                               priorities are not bounded
+	 * @param statusListener
+	 *                               a listener to notify about the different
+	 *                               stages of the computation
+	 * @param pool
+	 *                               the {@link ForkJoinPool} used for
+	 *                               computing resolvents or {@code null} if
+	 *                               they should be computed sequentially
+	 * @return a {@link AbstractProofAxiomPinpointingEnumerator} that can
+	 *         perform computations of justifications from proofs according to
+	 *         the specified parameters
+	 * 
+	 * @see #getFactory(SelectionType, PriorityComparator, StatusListener,
+	 *      ForkJoinPool)
+	 */
+	public static <Q, A, P> ProverAxiomPinpointingEnumerationFactory<Q, A> getFactory(
+			final SelectionType selection,
+			final PriorityComparator<? super Set<A>, P> priorityComparator,
+			final int limit, final P priorityBound,
+			final StatusListener statusListener, final ForkJoinPool pool) {
+		return getFactory(selection.getSelection(), priorityComparator, limit,
+				priorityBound, statusListener, pool);
+	}
+
+	/**
+	 * Returns a factory for creating
+	 * {@link AbstractProofAxiomPinpointingEnumerator} computations that
+	 * resolve inferences on the atoms chosen by the given
+	 * {@link ResolutionSelection}.
+	 * 
+	 * @param <Q>
+	 *                               the type of conclusions used in inferences
+	 * @param <A>
+	 *                               the type of axioms in justifications
+	 * @param <P>
+	 *                               the type of priorities of justifications
+	 * 
+	 * @param selection
+	 *                               determines the strategy of resolution rule
+	 *                               applications
+	 * @param priorityComparator
+	 *                               The comparator that defines the order in
+	 *                               which justifications are reported to the
+	 *                               listener.
+	 * @param limit
+	 *                               the maximal number of justifications
+	 *                               reported for a query
+	 * @param priorityBound
+	 *                               the maximal priority of the reported
+	 *                               justifications or {@code null} if the
+	 *                               priorities are not bounded
+	 * @param statusListener
+	 *                               a listener to notify about the different
+	 *                               stages of the computation
+	 * @param pool
+	 *                               the {@link ForkJoinPool} used for
+	 *                               computing resolvents or {@code null} if
+	 *                               they should be computed sequentially
+	 * @return a {@link AbstractProofAxiomPinpointingEnumerator} that can
+	 *         perform computations of justifications from proofs according to
+	 *         the specified parameters
+	 * 
+	 * @see #getFactory(SelectionType, PriorityComparator, int, Object,
+	 *      StatusListener, ForkJoinPool)
+	 */
+	public static <Q, A, P> ProverAxiomPinpointingEnumerationFactory<Q, A> getFactory(
+			final ResolutionSelection selection,
+			final PriorityComparator<? super Set<A>, P> priorityComparator,
+			final int limit, final P priorityBound,
+			final StatusListener statusListener, final ForkJoinPool pool) {
+		Preconditions.checkNotNull(selection);
+		Preconditions.checkArgument(limit >= 0);
 		return new ProverAxiomPinpointingEnumerationFactory<Q, A>() {
 
 			@Override
 			public String toString() {
 				return ResolutionJustificationEnumerator.class.getSimpleName()
 						+ "(" + selection.toString() + ", "
-						+ priorityComparator.toString() + ")";
+						+ priorityComparator.toString()
+						+ (limit == Integer.MAX_VALUE ? ""
+								: ", limit: " + limit)
+						+ (priorityBound == null ? ""
+								: ", bound: " + priorityBound)
+						+ (pool == null ? ""
+								: ", parallelism: " + pool.getParallelism())
+						+ ")";
 			}
 
 			@Override
@@ -133,12 +348,42 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 					AxiomPinpointingInterruptMonitor monitor) {
 
 				return new ResolutionJustificationEnumerator<>(prover, monitor,
-						selection, priorityComparator, statusListener);
+						selection, priorityComparator, limit, priorityBound,
+						statusListener, pool);
 			}
 
 		};
 	}
 
+	/**
+	 * Returns a factory for creating
+	 * {@link AbstractProofAxiomPinpointingEnumerator} computations that report
+	 * at most the given number of justifications with the smallest
+	 * cardinality.
+	 * 
+	 * @param <Q>
+	 *                      the type of conclusions used in inferences
+	 * @param <A>
+	 *                      the type of axioms in justifications
+	 * @param selection
+	 *                      The selection type that determines the strategy of
+	 *                      resolution rule applications
+	 * @param limit
+	 *                      the maximal number of justifications reported for
+	 *                      a query
+	 * @return a {@link AbstractProofAxiomPinpointingEnumerator} that can
+	 *         perform computations of justifications from proofs according to
+	 *         the specified parameters
+	 * 
+	 * @see #getFactory(SelectionType, PriorityComparator, int, Object,
+	 *      StatusListener, ForkJoinPool)
+	 */
+	public static <Q, A> ProverAxiomPinpointingEnumerationFactory<Q, A> getFactory(
+			final SelectionType selection, final int limit) {
+		return getFactory(selection, PriorityComparators.<A> cardinality(),
+				limit, null, new DummyStatusListener(), null);
+	}
+
 	public static <Q, A> ProverAxiomPinpointingEnumerationFactory<Q, A> getFactory(
 			final SelectionType selection,
 			final PriorityComparator<? super Set<A>, ?> priorityComparator) {
@@ -214,21 +459,32 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 
 	public static <Q, A> ProverAxiomPinpointingEnumerationFactory<Q, A> getFactory(
 			final StatusListener statusListener) {
-		return getFactory(new DummyStatusListener());
+		return getFactory(SelectionType.THRESHOLD, statusListener);
 	}
 
-	private final SelectionType selectionType_;
+	private final ResolutionSelection selection_;
 
 	private final PriorityComparator<? super Set<A>, ?> priorityComparator_;
 
+	/**
+	 * the maximal number of justifications reported for a query
+	 */
+	private final int limit_;
+
+	/**
+	 * the maximal priority of reported justifications according to
+	 * {@link #priorityComparator_} or {@code null} if not bounded
+	 */
+	private final Object priorityBound_;
+
 	/**
 	 * Conclusions for which computation of justifications has been initialized
 	 */
 	private final Set<Object> initialized_ = new HashSet<>();
 
-	private final IdMap<Object> conclusionIds_ = HashIdMap.create();
+	private final HashIdMap<Object> conclusionIds_ = new HashIdMap<Object>();
 
-	private final IdMap<A> axiomIds_ = HashIdMap.create();
+	private final HashIdMap<A> axiomIds_ = new HashIdMap<A>();
 
 	/**
 	 * a structure used to check inferences for minimality; an inference is
@@ -252,16 +508,39 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 
 	private final StatusListener statusListener_;
 
+	/**
+	 * the minimal number of resolvents computed in a batch for which they are
+	 * computed in parallel
+	 */
+	private static final int PARALLEL_THRESHOLD_ = 64;
+
+	/**
+	 * used to compute resolvents in parallel; {@code null} if resolvents are
+	 * computed sequentially
+	 */
+	private final ForkJoinPool pool_;
+
+	/**
+	 * the first bytes of checkpoints: "PULC" in ASCII
+	 */
+	private static final int CHECKPOINT_MAGIC_ = 0x50554C43;
+
+	private static final byte CHECKPOINT_VERSION_ = 1;
+
 	private ResolutionJustificationEnumerator(
 			final Prover<? super Q, ? extends I> prover,
 			final AxiomPinpointingInterruptMonitor monitor,
-			final SelectionType selectionType,
+			final ResolutionSelection selection,
 			final PriorityComparator<? super Set<A>, ?> priorityComparator,
-			StatusListener statusListener) {
+			int limit, Object priorityBound, StatusListener statusListener,
+			ForkJoinPool pool) {
 		super(prover, monitor, statusListener);
-		this.selectionType_ = selectionType;
+		this.selection_ = selection;
 		this.priorityComparator_ = priorityComparator;
+		this.limit_ = limit;
+		this.priorityBound_ = priorityBound;
 		this.statusListener_ = statusListener;
+		this.pool_ = pool;
 	}
 
 	private Collection2<DerivedInference> getMinimalInferences(
@@ -269,7 +548,8 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 		Collection2<DerivedInference> result = minimalInferencesByConclusionIds_
 				.get(conclusionId);
 		if (result == null) {
-			result = new BloomTrieCollection2<DerivedInference>();
+			result = new IdBloomTrieCollection2<DerivedInference>(
+					true);
 			minimalInferencesByConclusionIds_.put(conclusionId, result);
 		}
 		return result;
@@ -281,6 +561,275 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 		return new JustificationProcessor<>(query, priorityComparator_);
 	}
 
+	/**
+	 * Writes the state of this enumerator to the given output: the minimal
+	 * inferences that were resolved so far and, if the computation for some
+	 * query was interrupted, the justifications found for this query and the
+	 * inferences that are not yet processed. The state can be restored using
+	 * {@link #readCheckpoint(DataInput, ObjectCodec, ObjectCodec)} of a new
+	 * enumerator created by the same factory for the same {@link Prover}.
+	 * 
+	 * @param out
+	 * @param conclusionCodec
+	 *                            used to write the conclusions of inferences;
+	 *                            must accept all conclusions used in the
+	 *                            proofs
+	 * @param axiomCodec
+	 *                            used to write the axioms of inferences
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public void writeCheckpoint(DataOutput out, ObjectCodec<?> conclusionCodec,
+			ObjectCodec<? super A> axiomCodec) throws IOException {
+		out.writeInt(CHECKPOINT_MAGIC_);
+		out.writeByte(CHECKPOINT_VERSION_);
+		int conclusionCount = conclusionIds_.size();
+		out.writeInt(conclusionCount);
+		for (int id = 0; id < conclusionCount; id++) {
+			((ObjectCodec<Object>) conclusionCodec)
+					.write(conclusionIds_.getElement(id), out);
+		}
+		int axiomCount = axiomIds_.size();
+		out.writeInt(axiomCount);
+		for (int id = 0; id < axiomCount; id++) {
+			axiomCodec.write(axiomIds_.getElement(id), out);
+		}
+		out.writeInt(initialized_.size());
+		for (Object conclusion : initialized_) {
+			out.writeInt(conclusionIds_.getId(conclusion));
+		}
+		// every inference is written once and then referred by its position
+		Map<DerivedInference, Integer> positions = new IdentityHashMap<DerivedInference, Integer>();
+		List<DerivedInference> inferences = new ArrayList<DerivedInference>();
+		for (Collection2<DerivedInference> minimal : minimalInferencesByConclusionIds_
+				.values()) {
+			addPositions(minimal, positions, inferences);
+		}
+		addPositions(inferencesBySelectedConclusionIds_.values(), positions,
+				inferences);
+		addPositions(inferencesBySelectedPremiseIds_.values(), positions,
+				inferences);
+		addPositions(blockedInferences_, positions, inferences);
+		out.writeInt(inferences.size());
+		for (DerivedInference inf : inferences) {
+			writeInference(out, inf);
+		}
+		out.writeInt(minimalInferencesByConclusionIds_.size());
+		for (Map.Entry<Integer, Collection2<DerivedInference>> entry : minimalInferencesByConclusionIds_
+				.entrySet()) {
+			out.writeInt(entry.getKey());
+			writePositions(out, entry.getValue(), positions);
+		}
+		writeIndex(out, inferencesBySelectedConclusionIds_, positions);
+		writeIndex(out, inferencesBySelectedPremiseIds_, positions);
+		writePositions(out, blockedInferences_, positions);
+		JustificationProcessor<?> suspended = (JustificationProcessor<?>) getSuspended();
+		out.writeBoolean(suspended != null);
+		if (suspended != null) {
+			suspended.write(out);
+		}
+	}
+
+	/**
+	 * Restores the state of the enumerator written by
+	 * {@link #writeCheckpoint(DataOutput, ObjectCodec, ObjectCodec)}. If the
+	 * computation for some query was interrupted, it is resumed by the next
+	 * call of {@link #enumerate(Object, AxiomPinpointingListener)} with this
+	 * query; the justifications found before the checkpoint are not reported
+	 * again. This method can be called only if the enumerator was not used
+	 * before.
+	 * 
+	 * @param in
+	 * @param conclusionCodec
+	 *                            used to read the conclusions of inferences
+	 * @param axiomCodec
+	 *                            used to read the axioms of inferences
+	 * @throws IOException
+	 *                             if the input is not a valid checkpoint
+	 */
+	public void readCheckpoint(DataInput in, ObjectCodec<?> conclusionCodec,
+			ObjectCodec<? extends A> axiomCodec) throws IOException {
+		Preconditions.checkState(
+				conclusionIds_.size() == 0 && axiomIds_.size() == 0,
+				"The checkpoint can be read only by a new enumerator");
+		if (in.readInt() != CHECKPOINT_MAGIC_) {
+			throw new IOException("Not a checkpoint");
+		}
+		// else
+		byte version = in.readByte();
+		if (version != CHECKPOINT_VERSION_) {
+			throw new IOException("Unsupported version: " + version);
+		}
+		// else
+		int conclusionCount = readCount(in);
+		for (int id = 0; id < conclusionCount; id++) {
+			if (conclusionIds_.getId(conclusionCodec.read(in)) != id) {
+				throw new IOException("Duplicate conclusion: " + id);
+			}
+		}
+		int axiomCount = readCount(in);
+		for (int id = 0; id < axiomCount; id++) {
+			if (axiomIds_.getId(axiomCodec.read(in)) != id) {
+				throw new IOException("Duplicate axiom: " + id);
+			}
+		}
+		for (int i = readCount(in); i > 0; i--) {
+			initialized_.add(
+					conclusionIds_.getElement(readId(in, conclusionCount)));
+		}
+		int inferenceCount = readCount(in);
+		List<DerivedInference> inferences = new ArrayList<DerivedInference>(
+				inferenceCount);
+		for (int i = 0; i < inferenceCount; i++) {
+			inferences.add(readInference(in, conclusionCount, axiomCount));
+		}
+		for (int i = readCount(in); i > 0; i--) {
+			Collection2<DerivedInference> minimal = getMinimalInferences(
+					readId(in, conclusionCount));
+			for (int j = readCount(in); j > 0; j--) {
+				minimal.add(inferences.get(readId(in, inferenceCount)));
+			}
+		}
+		readIndex(in, inferencesBySelectedConclusionIds_, inferences,
+				conclusionCount);
+		readIndex(in, inferencesBySelectedPremiseIds_, inferences,
+				conclusionCount);
+		for (int i = readCount(in); i > 0; i--) {
+			blockedInferences_.add(inferences.get(readId(in, inferenceCount)));
+		}
+		if (in.readBoolean()) {
+			setSuspended(readProcessor(in, priorityComparator_,
+					conclusionCount, axiomCount));
+		}
+	}
+
+	private static void addPositions(Collection<DerivedInference> toAdd,
+			Map<DerivedInference, Integer> positions,
+			List<DerivedInference> inferences) {
+		for (DerivedInference inf : toAdd) {
+			if (!positions.containsKey(inf)) {
+				positions.put(inf, inferences.size());
+				inferences.add(inf);
+			}
+		}
+	}
+
+	private static void writePositions(DataOutput out,
+			Collection<DerivedInference> inferences,
+			Map<DerivedInference, Integer> positions) throws IOException {
+		out.writeInt(inferences.size());
+		for (DerivedInference inf : inferences) {
+			out.writeInt(positions.get(inf));
+		}
+	}
+
+	private static void writeIndex(DataOutput out,
+			ListMultimap<Integer, DerivedInference> index,
+			Map<DerivedInference, Integer> positions) throws IOException {
+		out.writeInt(index.keySet().size());
+		for (Integer key : index.keySet()) {
+			out.writeInt(key);
+			writePositions(out, index.get(key), positions);
+		}
+	}
+
+	private static void readIndex(DataInput in,
+			ListMultimap<Integer, DerivedInference> index,
+			List<DerivedInference> inferences, int conclusionCount)
+			throws IOException {
+		for (int i = readCount(in); i > 0; i--) {
+			List<DerivedInference> values = index
+					.get(readId(in, conclusionCount));
+			for (int j = readCount(in); j > 0; j--) {
+				values.add(inferences.get(readId(in, inferences.size())));
+			}
+		}
+	}
+
+	private static void writeInference(DataOutput out, DerivedInference inf)
+			throws IOException {
+		out.writeInt(inf.conclusionId_);
+		writeIds(out, inf.premiseIds_);
+		writeIds(out, inf.justificationIds_);
+		out.writeBoolean(inf.isMinimal_);
+	}
+
+	private static DerivedInference readInference(DataInput in,
+			int conclusionCount, int axiomCount) throws IOException {
+		DerivedInference result = new DerivedInference(
+				readId(in, conclusionCount), readIds(in, conclusionCount),
+				readIds(in, axiomCount));
+		result.isMinimal_ = in.readBoolean();
+		return result;
+	}
+
+	private static void writeIds(DataOutput out, int[] ids)
+			throws IOException {
+		out.writeInt(ids.length);
+		for (int id : ids) {
+			out.writeInt(id);
+		}
+	}
+
+	/**
+	 * @param in
+	 * @param bound
+	 * @return the sorted array of ids smaller than the given bound written by
+	 *         {@link #writeIds(DataOutput, int[])}
+	 * @throws IOException
+	 */
+	private static int[] readIds(DataInput in, int bound) throws IOException {
+		int[] result = new int[readCount(in)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = readId(in, bound);
+			if (i > 0 && result[i] < result[i - 1]) {
+				throw new IOException("Ids are not sorted");
+			}
+		}
+		return result;
+	}
+
+	private static int readId(DataInput in, int bound) throws IOException {
+		int result = in.readInt();
+		if (result < 0 || result >= bound) {
+			throw new IOException("Invalid id: " + result);
+		}
+		// else
+		return result;
+	}
+
+	private static int readCount(DataInput in) throws IOException {
+		int result = in.readInt();
+		if (result < 0) {
+			throw new IOException("Invalid count: " + result);
+		}
+		// else
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <P> JustificationProcessor<P> readProcessor(DataInput in,
+			PriorityComparator<? super Set<A>, P> priorityComparator,
+			int conclusionCount, int axiomCount) throws IOException {
+		JustificationProcessor<P> result = new JustificationProcessor<P>(
+				(Q) conclusionIds_.getElement(readId(in, conclusionCount)),
+				priorityComparator);
+		result.started_ = true;
+		result.reportedCount_ = readCount(in);
+		for (int i = readCount(in); i > 0; i--) {
+			result.relevant_.set(readId(in, conclusionCount));
+		}
+		for (int i = readCount(in); i > 0; i--) {
+			result.minimalJustifications_
+					.add(new SortedIntSet(readIds(in, axiomCount)));
+		}
+		for (int i = readCount(in); i > 0; i--) {
+			result.produce(result.newDerivedInference(
+					readInference(in, conclusionCount, axiomCount)));
+		}
+		return result;
+	}
+
 	@NestedStats
 	public static Class<?> getNestedStats() {
 		return BloomTrieCollection2.class;
@@ -301,7 +850,8 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 	 * @author Peter Skocovsky
 	 * @author Yevgeny Kazakov
 	 */
-	static class DerivedInference extends AbstractSet<DerivedInferenceMember> {
+	static class DerivedInference extends AbstractSet<DerivedInferenceMember>
+			implements IdCollection {
 
 		private final int conclusionId_;
 		private final int[] premiseIds_;
@@ -322,6 +872,10 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 			return new SortedIntSet(premiseIds_);
 		}
 
+		public int getPremiseCount() {
+			return premiseIds_.length;
+		}
+
 		public Set<Integer> getJustification() {
 			return new SortedIntSet(justificationIds_);
 		}
@@ -403,7 +957,52 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 
 		@Override
 		public int size() {
-			return getPremises().size() + getJustification().size() + 1;
+			return premiseIds_.length + justificationIds_.length + 1;
+		}
+
+		@Override
+		public int getIdCount() {
+			return size();
+		}
+
+		@Override
+		public int getId(int index) {
+			// the ids are the hash codes of the members
+			if (index == 0) {
+				return conclusionId_;
+			}
+			// else
+			index--;
+			if (index < premiseIds_.length) {
+				return premiseIds_[index];
+			}
+			// else
+			return justificationIds_[index - premiseIds_.length];
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof ResolutionJustificationEnumerator.DerivedInference) {
+				DerivedInference other = (DerivedInference) o;
+				return conclusionId_ == other.conclusionId_
+						&& Arrays.equals(premiseIds_, other.premiseIds_)
+						&& Arrays.equals(justificationIds_,
+								other.justificationIds_);
+			}
+			// else
+			return super.equals(o);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = conclusionId_;
+			for (int i = 0; i < premiseIds_.length; i++) {
+				result += premiseIds_[i];
+			}
+			for (int i = 0; i < justificationIds_.length; i++) {
+				result += justificationIds_[i];
+			}
+			return result;
 		}
 
 		@Override
@@ -472,26 +1071,32 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 
 	}
 
-	private class JustificationProcessor<P> extends QueryEnumerator {
+	private class JustificationProcessor<P> extends QueryEnumerator
+			implements ResolutionSelection.Context {
 
 		final int queryId_;
 
 		/**
-		 * a function used for selecting conclusions in inferences on which to
-		 * resolve
+		 * the numbers of inferences deriving conclusions increased by one,
+		 * indexed by the conclusion ids; {@code 0} if not yet computed
 		 */
-		final SelectionFunction selectionFunction_;
+		int[] inferenceCounts_ = new int[16];
 
 		/**
-		 * to check minimality of justifications
+		 * the number of inferences that were indexed to be resolved
 		 */
-		final Collection2<Set<Integer>> minimalJustifications_ = new BloomTrieCollection2<Set<Integer>>();
+		int resolvedCount_ = 0;
 
 		/**
-		 * a temporary queue used to initialize computation of justifications
-		 * for conclusions that are not yet {@link #initialized_}
+		 * the number of resolvents produced from the indexed inferences
+		 */
+		int resolventCount_ = 0;
+
+		/**
+		 * to check minimality of justifications
 		 */
-		final Queue<Object> toInitialize_ = new ArrayDeque<>();
+		final Collection2<Set<Integer>> minimalJustifications_ = new IdBloomTrieCollection2<Set<Integer>>(
+				true);
 
 		final PriorityComparator<? super Set<A>, P> priorityComparator_;
 
@@ -502,12 +1107,59 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 
 		final InferenceProcessor<P> resolver_;
 
+		/**
+		 * the ids of conclusions that can be used to derive the query
+		 */
+		final BitSet relevant_ = new BitSet();
+
+		/**
+		 * {@code true} if the computation has been initialized
+		 */
+		boolean started_ = false;
+
+		/**
+		 * the maximal priority of reported justifications or {@code null} if
+		 * not bounded
+		 */
+		final P priorityBound_;
+
+		/**
+		 * the number of justifications reported for the query
+		 */
+		int reportedCount_ = 0;
+
+		/**
+		 * the inferences that can produce only justifications with priorities
+		 * greater than {@link #priorityBound_}; they are not needed for the
+		 * query but may be needed for other queries
+		 */
+		final List<UnprocessedInference<P>> pruned_ = new ArrayList<UnprocessedInference<P>>();
+
+		/**
+		 * orders {@link ResolutionJob}s so that the jobs using the same
+		 * partners are next to each other
+		 */
+		final Comparator<ResolutionJob> jobsByAtomId_ = new Comparator<ResolutionJob>() {
+
+			@Override
+			public int compare(ResolutionJob first, ResolutionJob second) {
+				if (first.onConclusion_ != second.onConclusion_) {
+					return first.onConclusion_ ? -1 : 1;
+				}
+				// else
+				return Integer.compare(first.atomId_, second.atomId_);
+			}
+
+		};
+
+		@SuppressWarnings("unchecked")
 		JustificationProcessor(Q query,
 				PriorityComparator<? super Set<A>, P> priorityComparator) {
 			super(query);
 			this.queryId_ = conclusionIds_.getId(query);
 			this.priorityComparator_ = priorityComparator;
-			this.selectionFunction_ = getSelectionFunction(selectionType_);
+			// the type is guaranteed by the factory
+			this.priorityBound_ = (P) ResolutionJustificationEnumerator.this.priorityBound_;
 			this.resolver_ = new InferenceProcessor<P>(priorityComparator);
 			this.unprocessedInferences_ = new PriorityQueue<UnprocessedInference<P>>(
 					256,
@@ -516,17 +1168,20 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 
 		@Override
 		public void enumerate(AxiomPinpointingListener<A> listener) {
-			listener.computesJustifications();
-			initialize();
-			unblockJobs();
-			changeSelection();
-			process(listener);
-			listener.computationComplete();
-		}
-
-		void toInitialize(Object conclusion) {
-			if (initialized_.add(conclusion)) {
-				toInitialize_.add(conclusion);
+			long startTime = System.nanoTime();
+			try {
+				listener.computesJustifications();
+				if (!started_) {
+					started_ = true;
+					initialize();
+					unblockJobs();
+					changeSelection();
+				}
+				process(listener);
+				listener.computationComplete();
+			} finally {
+				statusListener_.queryFinished(getQuery(),
+						System.nanoTime() - startTime);
 			}
 		}
 
@@ -534,31 +1189,128 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 			blockedInferences_.add(inf);
 		}
 
+		@Override
+		protected void discard() {
+			release();
+		}
+
+		/**
+		 * Blocks the unprocessed and pruned inferences since they may be
+		 * needed for the next queries
+		 */
+		void release() {
+			for (;;) {
+				UnprocessedInference<P> next = unprocessedInferences_.poll();
+				if (next == null) {
+					break;
+				}
+				// else
+				block(next.accept(resolver_));
+			}
+			for (UnprocessedInference<P> next : pruned_) {
+				block(next.accept(resolver_));
+			}
+			pruned_.clear();
+		}
+
+		/**
+		 * @return {@code true} if no more justifications should be reported
+		 *         for the query
+		 */
+		boolean isLimitReached() {
+			return reportedCount_ >= limit_;
+		}
+
+		/**
+		 * @param priority
+		 * @return {@code true} if the given priority is greater than
+		 *         {@link #priorityBound_}
+		 */
+		boolean exceedsBound(P priority) {
+			return priorityBound_ != null && priorityComparator_
+					.compare(priority, priorityBound_) > 0;
+		}
+
+		/**
+		 * Writes the state of this computation to the given output so that
+		 * it can be read by
+		 * {@link ResolutionJustificationEnumerator#readProcessor(DataInput, PriorityComparator, int, int)}
+		 * 
+		 * @param out
+		 * @throws IOException
+		 */
+		void write(DataOutput out) throws IOException {
+			out.writeInt(queryId_);
+			out.writeInt(reportedCount_);
+			out.writeInt(relevant_.cardinality());
+			for (int id = relevant_.nextSetBit(0); id >= 0; id = relevant_
+					.nextSetBit(id + 1)) {
+				out.writeInt(id);
+			}
+			out.writeInt(minimalJustifications_.size());
+			for (Set<Integer> justification : minimalJustifications_) {
+				writeIds(out, getIds(justification));
+			}
+			out.writeInt(unprocessedInferences_.size() + pruned_.size());
+			for (UnprocessedInference<P> next : Iterables
+					.concat(unprocessedInferences_, pruned_)) {
+				writeInference(out, next.accept(resolver_));
+			}
+		}
+
+		/**
+		 * Produces the inferences for the conclusions that were not
+		 * {@link #initialized_} for the previous queries and computes the
+		 * {@link #relevant_} conclusions
+		 */
 		void initialize() {
-			toInitialize(getQuery());
+			Queue<Object> toVisit = new ArrayDeque<Object>();
+			relevant_.set(queryId_);
+			toVisit.add(getQuery());
 			for (;;) {
-				Object next = toInitialize_.poll();
+				Object next = toVisit.poll();
 				if (next == null) {
 					return;
 				}
-				for (final I inf : getProof().getInferences(next)) {
-					produce(newDerivedInference(inf));
+				boolean produce = initialized_.add(next);
+				Collection<? extends I> inferences = getProof()
+						.getInferences(next);
+				setInferenceCount(conclusionIds_.getId(next),
+						inferences.size());
+				for (final I inf : inferences) {
+					if (produce) {
+						produce(newDerivedInference(inf));
+					}
 					for (Object premise : inf.getPremises()) {
-						toInitialize(premise);
+						int premiseId = conclusionIds_.getId(premise);
+						if (!relevant_.get(premiseId)) {
+							relevant_.set(premiseId);
+							toVisit.add(premise);
+						}
 					}
 				}
 			}
 		}
 
+		/**
+		 * Produces the inferences blocked by the previous queries that can be
+		 * used to derive the query; the remaining inferences stay blocked
+		 */
 		void unblockJobs() {
+			Queue<DerivedInference> stillBlocked = new ArrayDeque<DerivedInference>();
 			for (;;) {
 				DerivedInference inf = blockedInferences_.poll();
 				if (inf == null) {
-					return;
+					break;
 				}
 				// else
-				produce(newDerivedInference(inf));
+				if (relevant_.get(inf.conclusionId_)) {
+					produce(newDerivedInference(inf));
+				} else {
+					stillBlocked.add(inf);
+				}
 			}
+			blockedInferences_ = stillBlocked;
 		}
 
 		void changeSelection() {
@@ -570,66 +1322,210 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 		}
 
 		void process(AxiomPinpointingListener<A> listener) {
-			for (;;) {
+			if (pool_ != null) {
+				processInBatches(listener);
+				return;
+			}
+			// else
+			while (!isLimitReached()) {
 				checkInterrupt();
 				UnprocessedInference<P> next = unprocessedInferences_.poll();
 				if (next == null) {
 					break;
 				}
-				DerivedInference inf = next.accept(resolver_);
-				if (!minimalJustifications_.isMinimal(inf.getJustification())) {
-					block(inf);
+				ResolutionJob job = index(next.accept(resolver_), listener);
+				if (job == null) {
 					continue;
 				}
 				// else
-				if (inf.premiseIds_.length == 0
-						&& queryId_ == inf.conclusionId_) {
-					minimalJustifications_.add(inf.getJustification());
-					listener.newJustificationFound();
-					for (int i = 0; i < inf.justificationIds_.length; i++) {
-						listener.usefulAxiom(
-								axiomIds_.getElement(inf.justificationIds_[i]));
-					}
-					listener.newJustificationComplete();
-					block(inf);
-					continue;
+				for (int i = 0; i < job.partnerCount_; i++) {
+					produce(job.getResolvent(i));
+				}
+			}
+			release();
+		}
+
+		/**
+		 * Processes the inferences with the same priority together: first the
+		 * inferences are indexed sequentially in the order of the queue, then
+		 * the resolvents for all of them are computed in parallel, and finally
+		 * they are added to the queue in the same order as in the sequential
+		 * mode; since each inference is resolved only with the inferences
+		 * indexed before it, the same resolvents are produced as in the
+		 * sequential mode. The resolvents whose justifications are not
+		 * minimal are blocked right away: {@link #minimalJustifications_} is
+		 * not modified in the parallel phase, and a justification that is not
+		 * minimal cannot become minimal later.
+		 * 
+		 * @param listener
+		 */
+		void processInBatches(AxiomPinpointingListener<A> listener) {
+			List<ResolutionJob> batch = new ArrayList<ResolutionJob>();
+			while (!isLimitReached()) {
+				checkInterrupt();
+				UnprocessedInference<P> next = unprocessedInferences_.poll();
+				if (next == null) {
+					break;
 				}
 				// else
-				if (!inf.isMinimal_) {
-					Collection2<DerivedInference> minimalInferences = getMinimalInferences(
-							inf.conclusionId_);
-					if (!minimalInferences.isMinimal(inf)) {
-						continue;
+				P priority = next.getPriority();
+				int work = 0;
+				for (;;) {
+					ResolutionJob job = index(next.accept(resolver_), listener);
+					if (job != null && job.partnerCount_ > 0) {
+						batch.add(job);
+						work += job.partnerCount_;
+					}
+					if (isLimitReached()) {
+						// the indexed inferences still need to be resolved
+						break;
 					}
 					// else
-					inf.isMinimal_ = true;
-					minimalInferences.add(inf);
-					statusListener_.newMinimalInference();
-				}
-				Integer selected = selectionFunction_.getResolvingAtomId(inf);
-				if (selected == null) {
-					// resolve on the conclusions
-					selected = inf.conclusionId_;
-					if (queryId_ == selected) {
-						throw new RuntimeException(
-								"Goal conclusion cannot be selected if the inference has premises: "
-										+ inf);
+					next = unprocessedInferences_.peek();
+					if (next == null || priorityComparator_
+							.compare(next.getPriority(), priority) != 0) {
+						break;
 					}
-					inferencesBySelectedConclusionIds_.put(selected, inf);
-					for (DerivedInference other : inferencesBySelectedPremiseIds_
-							.get(selected)) {
-						produce(newResolvent(inf, other));
+					// else
+					unprocessedInferences_.poll();
+				}
+				if (work < PARALLEL_THRESHOLD_) {
+					for (ResolutionJob job : batch) {
+						job.resolve();
 					}
 				} else {
-					// resolve on the selected premise
-					inferencesBySelectedPremiseIds_.put(selected, inf);
-					for (DerivedInference other : inferencesBySelectedConclusionIds_
-							.get(selected)) {
-						produce(newResolvent(other, inf));
+					// jobs resolving on the same atom use the same partners
+					List<ResolutionJob> partition = new ArrayList<ResolutionJob>(
+							batch);
+					Collections.sort(partition, jobsByAtomId_);
+					pool_.invoke(new ResolutionTask(partition, 0,
+							partition.size(), work));
+				}
+				for (ResolutionJob job : batch) {
+					for (UnprocessedInference<P> resolvent : job.resolvents_) {
+						produce(resolvent);
+					}
+					for (InitialInference<P> resolvent : job.nonMinimal_) {
+						if (exceedsBound(resolvent.getPriority())) {
+							pruned_.add(resolvent);
+						} else {
+							statusListener_.inferenceDerived();
+							block(resolvent);
+						}
 					}
 				}
+				batch.clear();
 			}
+			release();
+		}
 
+		/**
+		 * Checks the given inference for minimality, reports the
+		 * justification if the inference derives the query, and indexes the
+		 * inference by the atom selected for resolution
+		 * 
+		 * @param inf
+		 * @param listener
+		 * @return the {@link ResolutionJob} for resolving the inference with
+		 *         the previously indexed inferences or {@code null} if the
+		 *         inference should not be resolved
+		 */
+		ResolutionJob index(DerivedInference inf,
+				AxiomPinpointingListener<A> listener) {
+			if (inf.premiseIds_.length == 0 && queryId_ == inf.conclusionId_) {
+				if (!minimalJustifications_.addIfMinimalAndRemoveSupersets(
+						inf.getJustification())) {
+					block(inf);
+					return null;
+				}
+				// else
+				reportedCount_++;
+				listener.newJustificationFound();
+				for (int i = 0; i < inf.justificationIds_.length; i++) {
+					listener.usefulAxiom(
+							axiomIds_.getElement(inf.justificationIds_[i]));
+				}
+				listener.newJustificationComplete();
+				block(inf);
+				return null;
+			}
+			// else
+			if (!minimalJustifications_.isMinimal(inf.getJustification())) {
+				block(inf);
+				return null;
+			}
+			// else
+			if (!inf.isMinimal_) {
+				if (!getMinimalInferences(inf.conclusionId_)
+						.addIfMinimalAndRemoveSupersets(inf)) {
+					return null;
+				}
+				// else
+				inf.isMinimal_ = true;
+				statusListener_.newMinimalInference();
+			}
+			int selected = selection_.select(inf.conclusionId_,
+					inf.premiseIds_, this);
+			ResolutionJob result;
+			if (selected == ResolutionSelection.CONCLUSION) {
+				// resolve on the conclusions
+				selected = inf.conclusionId_;
+				if (queryId_ == selected) {
+					throw new RuntimeException(
+							"Goal conclusion cannot be selected if the inference has premises: "
+									+ inf);
+				}
+				inferencesBySelectedConclusionIds_.put(selected, inf);
+				result = new ResolutionJob(inf, selected, true,
+						inferencesBySelectedPremiseIds_.get(selected));
+			} else {
+				// resolve on the selected premise
+				inferencesBySelectedPremiseIds_.put(selected, inf);
+				result = new ResolutionJob(inf, selected, false,
+						inferencesBySelectedConclusionIds_.get(selected));
+			}
+			resolvedCount_++;
+			resolventCount_ += result.partnerCount_;
+			return result;
+		}
+
+		@Override
+		public int getQueryId() {
+			return queryId_;
+		}
+
+		@Override
+		public int getInferenceCount(int conclusionId) {
+			if (conclusionId < inferenceCounts_.length) {
+				int result = inferenceCounts_[conclusionId];
+				if (result > 0) {
+					return result - 1;
+				}
+			}
+			// else not yet computed
+			int result = getProof()
+					.getInferences(conclusionIds_.getElement(conclusionId))
+					.size();
+			setInferenceCount(conclusionId, result);
+			return result;
+		}
+
+		void setInferenceCount(int conclusionId, int count) {
+			if (conclusionId >= inferenceCounts_.length) {
+				inferenceCounts_ = Arrays.copyOf(inferenceCounts_, Math
+						.max(conclusionId + 1, 2 * inferenceCounts_.length));
+			}
+			inferenceCounts_[conclusionId] = count + 1;
+		}
+
+		@Override
+		public int getResolvedCount() {
+			return resolvedCount_;
+		}
+
+		@Override
+		public int getResolventCount() {
+			return resolventCount_;
 		}
 
 		void produce(final UnprocessedInference<P> resolvent) {
@@ -637,6 +1533,12 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 				// skip tautologies
 				return;
 			}
+			// else
+			if (exceedsBound(resolvent.getPriority())) {
+				// all justifications obtained from it exceed the bound
+				pruned_.add(resolvent);
+				return;
+			}
 			statusListener_.inferenceDerived();
 			unprocessedInferences_.add(resolvent);
 		}
@@ -669,102 +1571,151 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 									secondInference.justificationIds_))));
 		}
 
-		int[] getConclusionIds(Collection<?> conclusions) {
-			return SortedIdSet.getIds(conclusions, conclusionIds_);
-		}
+		/**
+		 * Resolution of an inference with the inferences indexed before it
+		 */
+		class ResolutionJob {
+
+			final DerivedInference inference_;
+
+			final int atomId_;
+
+			/**
+			 * {@code true} if the resolution is applied on the conclusion of
+			 * {@link #inference_}, {@code false} if on its premise
+			 */
+			final boolean onConclusion_;
+
+			/**
+			 * the inferences with which {@link #inference_} can be resolved;
+			 * only the first {@link #partnerCount_} of them should be used
+			 */
+			final List<DerivedInference> partners_;
+
+			final int partnerCount_;
+
+			/**
+			 * the result of {@link #resolve()}: the resolvents that are not
+			 * tautologies and whose justifications are minimal
+			 */
+			List<UnprocessedInference<P>> resolvents_ = Collections
+					.emptyList();
+
+			/**
+			 * the resolvents computed by {@link #resolve()} whose
+			 * justifications are not minimal
+			 */
+			List<InitialInference<P>> nonMinimal_ = Collections.emptyList();
+
+			ResolutionJob(DerivedInference inference, int atomId,
+					boolean onConclusion, List<DerivedInference> partners) {
+				this.inference_ = inference;
+				this.atomId_ = atomId;
+				this.onConclusion_ = onConclusion;
+				this.partners_ = partners;
+				this.partnerCount_ = partners.size();
+			}
 
-		int[] getAxiomIds(Collection<? extends A> axioms) {
-			return SortedIdSet.getIds(axioms, axiomIds_);
-		}
+			UnprocessedInference<P> getResolvent(int partnerIndex) {
+				DerivedInference partner = partners_.get(partnerIndex);
+				return onConclusion_ ? newResolvent(inference_, partner)
+						: newResolvent(partner, inference_);
+			}
 
-		SelectionFunction getSelectionFunction(SelectionType type) {
-			switch (type) {
-			case BOTTOM_UP:
-				return new SelectionFunction() {
-
-					@Override
-					public Integer getResolvingAtomId(
-							DerivedInference inference) {
-						// select the premise that is derived by the fewest
-						// inferences;
-						// if there are no premises, select the conclusion
-						Integer result = null;
-						int minInferenceCount = Integer.MAX_VALUE;
-						for (int premiseId : inference.premiseIds_) {
-							int inferenceCount = getProof().getInferences(
-									conclusionIds_.getElement(premiseId))
-									.size();
-							if (inferenceCount < minInferenceCount) {
-								result = premiseId;
-								minInferenceCount = inferenceCount;
-							}
-						}
-						return result;
+			/**
+			 * Computes the resolvents with all partners, including their
+			 * premises, justifications, and priorities; can be called
+			 * concurrently for different jobs as long as the indexes are not
+			 * modified
+			 */
+			void resolve() {
+				resolvents_ = new ArrayList<UnprocessedInference<P>>(
+						partnerCount_);
+				nonMinimal_ = new ArrayList<InitialInference<P>>();
+				for (int i = 0; i < partnerCount_; i++) {
+					DerivedInference partner = partners_.get(i);
+					DerivedInference first = onConclusion_ ? inference_
+							: partner;
+					DerivedInference second = onConclusion_ ? partner
+							: inference_;
+					if (Arrays.binarySearch(first.premiseIds_,
+							second.conclusionId_) >= 0) {
+						// skip tautologies
+						continue;
 					}
-				};
-			case THRESHOLD:
-				return new SelectionFunction() {
-
-					static final int THRESHOLD_ = 2;
-
-					@Override
-					public Integer getResolvingAtomId(
-							DerivedInference inference) {
-						// select the premise derived by the fewest inferences
-						// unless the number of such inferences is larger than
-						// the give threshold and the conclusion is not the
-						// query; in this case select the conclusion
-						int minInferenceCount = Integer.MAX_VALUE;
-						Integer result = null;
-						for (int premiseId : inference.premiseIds_) {
-							int inferenceCount = getProof().getInferences(
-									conclusionIds_.getElement(premiseId))
-									.size();
-							if (inferenceCount < minInferenceCount) {
-								result = premiseId;
-								minInferenceCount = inferenceCount;
-							}
-						}
-						if (minInferenceCount > THRESHOLD_
-								&& queryId_ != inference.conclusionId_) {
-							// resolve on the conclusion
-							result = null;
-						}
-						return result;
+					// else
+					int[] justificationIds = SortedIdSet.union(
+							first.justificationIds_, second.justificationIds_);
+					int[] premiseIds = SortedIdSet.unionWithout(
+							first.premiseIds_, second.premiseIds_,
+							first.conclusionId_,
+							SortedIdSet.unionSize(first.premiseIds_,
+									second.premiseIds_, first.conclusionId_));
+					InitialInference<P> resolvent = new InitialInference<P>(
+							second.conclusionId_, premiseIds, justificationIds,
+							priorityComparator_.getPriority(
+									getJustification(justificationIds)));
+					if (minimalJustifications_
+							.isMinimal(resolvent.getJustification())) {
+						resolvents_.add(resolvent);
+					} else {
+						nonMinimal_.add(resolvent);
 					}
+				}
+			}
 
-				};
+		}
 
-			case TOP_DOWN:
-				return new SelectionFunction() {
-
-					@Override
-					public Integer getResolvingAtomId(
-							DerivedInference inference) {
-						// select the conclusion, unless it is the query
-						// conclusion and there are premises, in which case
-						// select the premise derived by the fewest inferences
-						Integer result = null;
-						if (queryId_ == inference.conclusionId_) {
-							int minInferenceCount = Integer.MAX_VALUE;
-							for (int premiseId : inference.premiseIds_) {
-								int inferenceCount = getProof().getInferences(
-										conclusionIds_.getElement(premiseId))
-										.size();
-								if (inferenceCount < minInferenceCount) {
-									result = premiseId;
-									minInferenceCount = inferenceCount;
-								}
-							}
-						}
-						return result;
-					}
-				};
+		/**
+		 * Resolves the given range of {@link ResolutionJob}s, splitting it if
+		 * there is too much work
+		 */
+		class ResolutionTask extends RecursiveAction {
 
-			default:
-				throw new RuntimeException(
-						"Unsupported selection type: " + type);
+			private static final long serialVersionUID = 1L;
+
+			private final List<ResolutionJob> jobs_;
+
+			private final int from_, to_, work_;
+
+			ResolutionTask(List<ResolutionJob> jobs, int from, int to,
+					int work) {
+				this.jobs_ = jobs;
+				this.from_ = from;
+				this.to_ = to;
+				this.work_ = work;
+			}
+
+			@Override
+			protected void compute() {
+				if (work_ < PARALLEL_THRESHOLD_ || to_ - from_ == 1) {
+					for (int i = from_; i < to_; i++) {
+						jobs_.get(i).resolve();
+					}
+					return;
+				}
+				// else split into two halves of similar work
+				int mid = from_;
+				int work = 0;
+				while (mid < to_ - 1 && work < work_ / 2) {
+					work += jobs_.get(mid++).partnerCount_;
+				}
+				if (mid == from_) {
+					mid++;
+					work = jobs_.get(from_).partnerCount_;
+				}
+				invokeAll(new ResolutionTask(jobs_, from_, mid, work),
+						new ResolutionTask(jobs_, mid, to_, work_ - work));
 			}
+
+		}
+
+		int[] getConclusionIds(Collection<?> conclusions) {
+			return SortedIdSet.getIds(conclusions, conclusionIds_);
+		}
+
+		int[] getAxiomIds(Collection<? extends A> axioms) {
+			return SortedIdSet.getIds(axioms, axiomIds_);
 		}
 
 	}
@@ -832,11 +1783,6 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 			this.isMinimal_ = isMinimal;
 		}
 
-		@Override
-		public int getPremiseCount() {
-			return getPremises().size();
-		}
-
 		@Override
 		public P getPriority() {
 			return priority_;
@@ -876,8 +1822,10 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 			this.firstInference_ = firstInference;
 			this.secondInference_ = secondInference;
 			this.priority_ = priority;
-			this.premiseCount_ = Sets.union(firstInference_.getPremises(),
-					secondInference_.getPremises()).size() - 1;
+			// the conclusion of the first inference is resolved
+			this.premiseCount_ = SortedIdSet.unionSize(
+					firstInference.premiseIds_, secondInference.premiseIds_,
+					firstInference.conclusionId_);
 		}
 
 		@Override
@@ -954,38 +1902,20 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 
 		@Override
 		public DerivedInference visit(Resolvent<P> inference) {
-			int[] newPremiseIds;
 			DerivedInference first = inference.firstInference_;
 			DerivedInference second = inference.secondInference_;
-			if (second.getPremises().size() == 1) {
-				newPremiseIds = first.premiseIds_;
-			} else {
-				newPremiseIds = getIds(Sets.union(first.getPremises(),
-						Sets.difference(second.getPremises(),
-								Collections.singleton(first.conclusionId_))));
-			}
+			int[] newPremiseIds = SortedIdSet.unionWithout(first.premiseIds_,
+					second.premiseIds_, first.conclusionId_,
+					inference.premiseCount_);
 			int[] newJustificationIds = SortedIdSet
 					.union(first.justificationIds_, second.justificationIds_);
+			// the priority was computed for the same justification
 			return new InitialInference<P>(second.conclusionId_, newPremiseIds,
-					newJustificationIds, priorityComparator_.getPriority(
-							getJustification(newJustificationIds)));
+					newJustificationIds, inference.priority_);
 		}
 
 	}
 
-	public interface SelectionFunction {
-
-		/**
-		 * @param inference
-		 * @return the id of the premise of the inference on which the
-		 *         resolution rule should be applied or {@code null} if the
-		 *         resolution rule should be applied on the conclusion of the
-		 *         inference
-		 */
-		Integer getResolvingAtomId(DerivedInference inference);
-
-	}
-
 	public interface StatusListener
 			extends AbstractProofAxiomPinpointingEnumerator.StatusListener {
 
@@ -993,6 +1923,19 @@ public class ResolutionJustificationEnumerator<Q, A, I extends AxiomPinpointingI
 
 		void newMinimalInference();
 
+		/**
+		 * Called when the enumeration of justifications for a query has
+		 * finished or was interrupted
+		 * 
+		 * @param query
+		 *            the query for which the justifications were enumerated
+		 * @param elapsedNanos
+		 *            the time in nanoseconds spent on the query
+		 */
+		default void queryFinished(Object query, long elapsedNanos) {
+			// no-op
+		}
+
 	}
 
 	public static class DummyStatusListener
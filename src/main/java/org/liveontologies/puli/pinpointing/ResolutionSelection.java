@@ -0,0 +1,278 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Determines on which atom an inference is resolved by
+ * {@link ResolutionJustificationEnumerator}: the conclusion or one of the
+ * premises of the inference. Inferences are represented using ids of their
+ * conclusions and premises. The conclusion of an inference cannot be selected
+ * if it is the query and the inference has premises.
+ */
+public abstract class ResolutionSelection {
+
+	/**
+	 * the value returned by {@link #select(int, int[], Context)} if the
+	 * conclusion of the inference is selected
+	 */
+	public static final int CONCLUSION = -1;
+
+	/**
+	 * The information about the computation for which the atoms are selected
+	 */
+	public interface Context {
+
+		/**
+		 * @return the id of the query for which the justifications are
+		 *         computed
+		 */
+		int getQueryId();
+
+		/**
+		 * @param conclusionId
+		 * @return the number of inferences in the proof that derive the
+		 *         conclusion with the given id
+		 */
+		int getInferenceCount(int conclusionId);
+
+		/**
+		 * @return the number of inferences for the query that were resolved
+		 *         so far
+		 */
+		int getResolvedCount();
+
+		/**
+		 * @return the number of resolvents produced for the query so far
+		 */
+		int getResolventCount();
+
+	}
+
+	/**
+	 * @param conclusionId
+	 *                         the id of the conclusion of the inference
+	 * @param premiseIds
+	 *                         the sorted ids of the premises of the inference;
+	 *                         must not be modified
+	 * @param context
+	 *                         the information about the computation
+	 * @return the id of the premise on which the inference should be resolved
+	 *         or {@link #CONCLUSION} if it should be resolved on the
+	 *         conclusion
+	 */
+	public abstract int select(int conclusionId, int[] premiseIds,
+			Context context);
+
+	/**
+	 * @param premiseIds
+	 * @param context
+	 * @return the premise with the smallest
+	 *         {@link Context#getInferenceCount(int)} or {@link #CONCLUSION} if
+	 *         there are no premises
+	 */
+	static int getLeastDerivedPremise(int[] premiseIds, Context context) {
+		int result = CONCLUSION;
+		int minInferenceCount = Integer.MAX_VALUE;
+		for (int premiseId : premiseIds) {
+			int inferenceCount = context.getInferenceCount(premiseId);
+			if (inferenceCount < minInferenceCount) {
+				result = premiseId;
+				minInferenceCount = inferenceCount;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the {@link ResolutionSelection} that selects the premise
+	 *         derived by the fewest inferences; if there are no premises, the
+	 *         conclusion is selected
+	 */
+	public static ResolutionSelection bottomUp() {
+		return BottomUp.INSTANCE_;
+	}
+
+	/**
+	 * @return the {@link ResolutionSelection} that selects the conclusion,
+	 *         unless it is the query and there are premises, in which case the
+	 *         premise derived by the fewest inferences is selected
+	 */
+	public static ResolutionSelection topDown() {
+		return TopDown.INSTANCE_;
+	}
+
+	/**
+	 * @param threshold
+	 * @return the {@link ResolutionSelection} that selects the premise derived
+	 *         by the fewest inferences unless this number of inferences is
+	 *         larger than the given threshold and the conclusion is not the
+	 *         query, in which case the conclusion is selected
+	 */
+	public static ResolutionSelection threshold(int threshold) {
+		return new Threshold(threshold);
+	}
+
+	/**
+	 * @param initial
+	 *                        the {@link ResolutionSelection} used at the
+	 *                        beginning of the computation
+	 * @param fallback
+	 *                        the {@link ResolutionSelection} used when too
+	 *                        many resolvents are produced
+	 * @param warmUp
+	 *                        the number of inferences resolved before the
+	 *                        selection can be switched
+	 * @param maxBlowUp
+	 *                        the maximal average number of resolvents per
+	 *                        resolved inference for which {@code initial} is
+	 *                        used
+	 * @return the {@link ResolutionSelection} that uses the {@code initial}
+	 *         selection until after the first {@code warmUp} resolved
+	 *         inferences the average number of resolvents per resolved
+	 *         inference exceeds {@code maxBlowUp}, after which the
+	 *         {@code fallback} selection is used
+	 */
+	public static ResolutionSelection adaptive(ResolutionSelection initial,
+			ResolutionSelection fallback, int warmUp, double maxBlowUp) {
+		return new Adaptive(initial, fallback, warmUp, maxBlowUp);
+	}
+
+	/**
+	 * @return the {@link ResolutionSelection} that uses
+	 *         {@link #threshold(int)} at the beginning and switches to
+	 *         {@link #bottomUp()} if too many resolvents are produced
+	 */
+	public static ResolutionSelection adaptive() {
+		return adaptive(threshold(Threshold.DEFAULT_THRESHOLD_), bottomUp(),
+				256, 4);
+	}
+
+	static class BottomUp extends ResolutionSelection {
+
+		static final BottomUp INSTANCE_ = new BottomUp();
+
+		@Override
+		public int select(int conclusionId, int[] premiseIds,
+				Context context) {
+			return getLeastDerivedPremise(premiseIds, context);
+		}
+
+		@Override
+		public String toString() {
+			return "BOTTOM_UP";
+		}
+
+	}
+
+	static class TopDown extends ResolutionSelection {
+
+		static final TopDown INSTANCE_ = new TopDown();
+
+		@Override
+		public int select(int conclusionId, int[] premiseIds,
+				Context context) {
+			if (context.getQueryId() == conclusionId) {
+				return getLeastDerivedPremise(premiseIds, context);
+			}
+			// else
+			return CONCLUSION;
+		}
+
+		@Override
+		public String toString() {
+			return "TOP_DOWN";
+		}
+
+	}
+
+	static class Threshold extends ResolutionSelection {
+
+		static final int DEFAULT_THRESHOLD_ = 2;
+
+		private final int threshold_;
+
+		Threshold(int threshold) {
+			Preconditions.checkArgument(threshold >= 0);
+			this.threshold_ = threshold;
+		}
+
+		@Override
+		public int select(int conclusionId, int[] premiseIds,
+				Context context) {
+			int result = getLeastDerivedPremise(premiseIds, context);
+			if (context.getQueryId() != conclusionId
+					&& (result == CONCLUSION || context
+							.getInferenceCount(result) > threshold_)) {
+				// resolve on the conclusion
+				return CONCLUSION;
+			}
+			// else
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return threshold_ == DEFAULT_THRESHOLD_ ? "THRESHOLD"
+					: "THRESHOLD(" + threshold_ + ")";
+		}
+
+	}
+
+	static class Adaptive extends ResolutionSelection {
+
+		private final ResolutionSelection initial_, fallback_;
+
+		private final int warmUp_;
+
+		private final double maxBlowUp_;
+
+		Adaptive(ResolutionSelection initial, ResolutionSelection fallback,
+				int warmUp, double maxBlowUp) {
+			this.initial_ = Preconditions.checkNotNull(initial);
+			this.fallback_ = Preconditions.checkNotNull(fallback);
+			this.warmUp_ = warmUp;
+			this.maxBlowUp_ = maxBlowUp;
+		}
+
+		@Override
+		public int select(int conclusionId, int[] premiseIds,
+				Context context) {
+			int resolved = context.getResolvedCount();
+			if (resolved >= warmUp_
+					&& context.getResolventCount() > maxBlowUp_ * resolved) {
+				return fallback_.select(conclusionId, premiseIds, context);
+			}
+			// else
+			return initial_.select(conclusionId, premiseIds, context);
+		}
+
+		@Override
+		public String toString() {
+			return "ADAPTIVE(" + initial_ + ", " + fallback_ + ", " + warmUp_
+					+ ", " + maxBlowUp_ + ")";
+		}
+
+	}
+
+}
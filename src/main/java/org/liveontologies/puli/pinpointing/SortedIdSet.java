@@ -138,53 +138,156 @@ public class SortedIdSet<E> extends AbstractSet<E>
 		return true;
 	}
 
-	static int[] union(int[] first, int[] second) {
-		int[] tmp = new int[first.length + second.length];
-		int i = 0;
-		int j = 0;
+	/**
+	 * @param ids
+	 *                a sorted array of ids
+	 * @param id
+	 * @return the sorted array containing the given ids and the given id; if
+	 *         the id is already in the array, this array is returned
+	 */
+	static int[] add(int[] ids, int id) {
+		int pos = Arrays.binarySearch(ids, id);
+		if (pos >= 0) {
+			return ids;
+		}
+		// else
+		pos = -pos - 1;
+		int[] result = new int[ids.length + 1];
+		System.arraycopy(ids, 0, result, 0, pos);
+		result[pos] = id;
+		System.arraycopy(ids, pos, result, pos + 1, ids.length - pos);
+		return result;
+	}
+
+	/**
+	 * Sorts the first elements of the given array and removes duplicates
+	 * 
+	 * @param ids
+	 * @param size
+	 *                 the number of elements of the array to use
+	 * @return the sorted array of the distinct ids among the first
+	 *         {@code size} elements of the given array, which may be modified
+	 */
+	static int[] sortDistinct(int[] ids, int size) {
+		Arrays.sort(ids, 0, size);
 		int pos = 0;
-		for (;;) {
-			if (i == first.length) {
-				int copied = second.length - j;
-				System.arraycopy(second, j, tmp, pos, copied);
-				pos += copied;
-				break;
-			}
-			// else
-			if (j == second.length) {
-				int copied = first.length - i;
-				System.arraycopy(first, i, tmp, pos, copied);
-				pos += copied;
-				break;
-			}
-			// else
-			int x = first[i];
-			int y = second[j];
-			if (x < y) {
-				tmp[pos] = x;
-				i++;
-			} else {
-				tmp[pos] = y;
-				j++;
-				if (x == y) {
-					i++;
-				}
+		for (int i = 0; i < size; i++) {
+			if (pos == 0 || ids[i] != ids[pos - 1]) {
+				ids[pos++] = ids[i];
 			}
-			pos++;
 		}
-		if (pos == first.length) {
+		return pos == ids.length ? ids : Arrays.copyOf(ids, pos);
+	}
+
+	/**
+	 * @param first
+	 *                     a sorted array of ids
+	 * @param second
+	 *                     a sorted array of ids
+	 * @return the sorted array containing the ids of both arrays; if the
+	 *         result has the same ids as one of the arrays, this array is
+	 *         returned
+	 */
+	static int[] union(int[] first, int[] second) {
+		int size = merge(first, second, -1, null);
+		if (size == first.length) {
 			return first;
 		}
 		// else
-		if (pos == second.length) {
+		if (size == second.length) {
 			return second;
 		}
 		// else
-		if (pos == tmp.length) {
-			return tmp;
+		int[] result = new int[size];
+		merge(first, second, -1, result);
+		return result;
+	}
+
+	/**
+	 * @param first
+	 *                     a sorted array of ids
+	 * @param second
+	 *                     a sorted array of ids
+	 * @param excluded
+	 *                     the id that should not be counted or {@code -1}
+	 * @return the number of ids in the union of the arrays except for the
+	 *         excluded id; no objects are created
+	 */
+	static int unionSize(int[] first, int[] second, int excluded) {
+		return merge(first, second, excluded, null);
+	}
+
+	/**
+	 * @param first
+	 *                     a sorted array of ids that does not contain the
+	 *                     excluded id
+	 * @param second
+	 *                     a sorted array of ids
+	 * @param excluded
+	 *                     the id that should not be in the result or
+	 *                     {@code -1}
+	 * @param size
+	 *                     the value of
+	 *                     {@link #unionSize(int[], int[], int)} for these
+	 *                     arguments
+	 * @return the sorted array containing the ids of both arrays except for
+	 *         the excluded id; if this array has the same ids as the first
+	 *         array, the first array is returned
+	 */
+	static int[] unionWithout(int[] first, int[] second, int excluded,
+			int size) {
+		if (size == first.length) {
+			return first;
 		}
 		// else
-		return Arrays.copyOf(tmp, pos);
+		int[] result = new int[size];
+		merge(first, second, excluded, result);
+		return result;
+	}
+
+	/**
+	 * Merges two sorted arrays of ids skipping the excluded id
+	 * 
+	 * @param first
+	 * @param second
+	 * @param excluded
+	 * @param result
+	 *                     the array to which the merged ids are written or
+	 *                     {@code null} if they should be only counted
+	 * @return the number of merged ids
+	 */
+	private static int merge(int[] first, int[] second, int excluded,
+			int[] result) {
+		int i = 0;
+		int j = 0;
+		int pos = 0;
+		for (;;) {
+			int next;
+			if (i < first.length) {
+				int x = first[i];
+				if (j < second.length && second[j] <= x) {
+					next = second[j++];
+					if (next == x) {
+						i++;
+					}
+				} else {
+					next = x;
+					i++;
+				}
+			} else if (j < second.length) {
+				next = second[j++];
+			} else {
+				return pos;
+			}
+			if (next == excluded) {
+				continue;
+			}
+			// else
+			if (result != null) {
+				result[pos] = next;
+			}
+			pos++;
+		}
 	}
 
 }
@@ -27,9 +27,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 
+import org.liveontologies.puli.collections.IdCollection;
+
 import com.google.common.primitives.Ints;
 
-public class SortedIntSet extends AbstractSet<Integer> {
+public class SortedIntSet extends AbstractSet<Integer>
+		implements IdCollection {
 
 	private final int[] elements_; // sorted!
 
@@ -59,6 +62,34 @@ public class SortedIntSet extends AbstractSet<Integer> {
 		return super.containsAll(c);
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof SortedIntSet) {
+			return Arrays.equals(elements_, ((SortedIntSet) o).elements_);
+		}
+		// else
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 0;
+		for (int i = 0; i < elements_.length; i++) {
+			result += elements_[i];
+		}
+		return result;
+	}
+
+	@Override
+	public int getIdCount() {
+		return elements_.length;
+	}
+
+	@Override
+	public int getId(int index) {
+		return elements_[index];
+	}
+
 	@Override
 	public Iterator<Integer> iterator() {
 		return Ints.asList(elements_).iterator();
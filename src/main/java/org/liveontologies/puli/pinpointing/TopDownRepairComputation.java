@@ -22,24 +22,29 @@
 package org.liveontologies.puli.pinpointing;
 
 import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.liveontologies.puli.AxiomPinpointingInference;
 import org.liveontologies.puli.Delegator;
-import org.liveontologies.puli.Inference;
 import org.liveontologies.puli.Prover;
 import org.liveontologies.puli.collections.BloomTrieCollection2;
 import org.liveontologies.puli.collections.Collection2;
 
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterators;
+import com.google.common.primitives.Ints;
 
 /**
  * 
@@ -93,19 +98,148 @@ public class TopDownRepairComputation<Q, A, I extends AxiomPinpointingInference<
 	public static <Q, A> ProverAxiomPinpointingEnumerationFactory<Q, A> getFactory(
 			final PriorityComparator<? super Set<A>, ?> priorityComparator,
 			final StatusListener statusListener) {
+		return getFactory(priorityComparator, Integer.MAX_VALUE, null,
+				statusListener);
+	}
+
+	/**
+	 * Returns a {@link ProverAxiomPinpointingEnumerationFactory} for
+	 * enumerating only the first repairs in the order of the given
+	 * {@link PriorityComparator}. The computation stops as soon as the given
+	 * number of repairs is reported, or when all repairs whose priority is not
+	 * greater than the given bound are reported; the partial repairs whose
+	 * priority exceeds the bound are discarded.
+	 * 
+	 * @param <Q>
+	 *                               the type of the query
+	 * @param <A>
+	 *                               the type of axioms in repairs
+	 * @param <P>
+	 *                               the type of priorities of repairs
+	 * 
+	 * @param priorityComparator
+	 *                               The comparator that defines the order in
+	 *                               which repairs are reported to the listener.
+	 * @param limit
+	 *                               the maximal number of repairs reported for
+	 *                               a query
+	 * @param priorityBound
+	 *                               the maximal priority of the reported
+	 *                               repairs or {@code null} if the priorities
+	 *                               are not bounded
+	 * @param statusListener
+	 *                               a listener to notify about the different
+	 *                               stages of the computation
+	 * 
+	 * @return a {@link AbstractProofAxiomPinpointingEnumerator} that can
+	 *         perform computations of repairs from proofs according to the
+	 *         specified parameters
+	 * 
+	 * @see #getFactory(PriorityComparator, StatusListener)
+	 */
+	public static <Q, A, P> ProverAxiomPinpointingEnumerationFactory<Q, A> getFactory(
+			final PriorityComparator<? super Set<A>, P> priorityComparator,
+			final int limit, final P priorityBound,
+			final StatusListener statusListener) {
+		return getFactory(priorityComparator, limit, priorityBound,
+				statusListener, null);
+	}
+
+	/**
+	 * Returns a {@link ProverAxiomPinpointingEnumerationFactory} for
+	 * enumerating repairs in parallel. The jobs are processed in batches of
+	 * jobs with the same priority: the jobs of a batch are checked for
+	 * minimality and the repairs are reported sequentially, after which the
+	 * new jobs are computed in parallel using the given {@link ForkJoinPool}.
+	 * The repairs are reported exactly once in the order of their
+	 * priorities, as in the sequential mode, but the repairs with the same
+	 * priority may be reported in a different order. The
+	 * {@link PriorityComparator} must be thread-safe.
+	 * 
+	 * @param <Q>
+	 *                               the type of the query
+	 * @param <A>
+	 *                               the type of axioms in repairs
+	 * @param <P>
+	 *                               the type of priorities of repairs
+	 * 
+	 * @param priorityComparator
+	 *                               The comparator that defines the order in
+	 *                               which repairs are reported to the listener.
+	 * @param limit
+	 *                               the maximal number of repairs reported for
+	 *                               a query
+	 * @param priorityBound
+	 *                               the maximal priority of the reported
+	 *                               repairs or {@code null} if the priorities
+	 *                               are not bounded
+	 * @param statusListener
+	 *                               a listener to notify about the different
+	 *                               stages of the computation
+	 * @param pool
+	 *                               the {@link ForkJoinPool} used for
+	 *                               computing new jobs or {@code null} if they
+	 *                               should be computed sequentially
+	 * 
+	 * @return a {@link AbstractProofAxiomPinpointingEnumerator} that can
+	 *         perform computations of repairs from proofs according to the
+	 *         specified parameters
+	 * 
+	 * @see #getFactory(PriorityComparator, int, Object, StatusListener)
+	 */
+	public static <Q, A, P> ProverAxiomPinpointingEnumerationFactory<Q, A> getFactory(
+			final PriorityComparator<? super Set<A>, P> priorityComparator,
+			final int limit, final P priorityBound,
+			final StatusListener statusListener, final ForkJoinPool pool) {
+		Preconditions.checkArgument(limit >= 0);
 		return new ProverAxiomPinpointingEnumerationFactory<Q, A>() {
 
+			@Override
+			public String toString() {
+				return TopDownRepairComputation.class.getSimpleName() + "("
+						+ priorityComparator.toString()
+						+ (limit == Integer.MAX_VALUE ? ""
+								: ", limit: " + limit)
+						+ (priorityBound == null ? ""
+								: ", bound: " + priorityBound)
+						+ (pool == null ? ""
+								: ", parallelism: " + pool.getParallelism())
+						+ ")";
+			}
+
 			@Override
 			public <I extends AxiomPinpointingInference<?, ? extends A>> AxiomPinpointingEnumerator<Q, A> create(
 					Prover<? super Q, ? extends I> prover,
 					AxiomPinpointingInterruptMonitor monitor) {
 				return new TopDownRepairComputation<Q, A, I>(prover, monitor,
-						priorityComparator, statusListener);
+						priorityComparator, limit, priorityBound,
+						statusListener, pool);
 			}
 
 		};
 	}
 
+	/**
+	 * Returns a {@link ProverAxiomPinpointingEnumerationFactory} for
+	 * enumerating at most the given number of repairs with the smallest
+	 * cardinality.
+	 * 
+	 * @param <Q>
+	 *                  the type of the query
+	 * @param <A>
+	 *                  the type of axioms in repairs
+	 * @param limit
+	 *                  the maximal number of repairs reported for a query
+	 * @return a {@link AbstractProofAxiomPinpointingEnumerator} that can
+	 *         perform computations of repairs from proofs according to the
+	 *         specified parameters
+	 */
+	public static <Q, A> ProverAxiomPinpointingEnumerationFactory<Q, A> getFactory(
+			final int limit) {
+		return getFactory(PriorityComparators.<A> cardinality(), limit, null,
+				new DummyStatusListener());
+	}
+
 	/**
 	 * Returns a factory for creating
 	 * {@link AbstractProofAxiomPinpointingEnumerator} computations for
@@ -129,14 +263,41 @@ public class TopDownRepairComputation<Q, A, I extends AxiomPinpointingInference<
 
 	private final PriorityComparator<? super Set<A>, ?> priorityComparator_;
 
+	/**
+	 * the maximal number of repairs reported for a query
+	 */
+	private final int limit_;
+
+	/**
+	 * the maximal priority of reported repairs according to
+	 * {@link #priorityComparator_} or {@code null} if not bounded
+	 */
+	private final Object priorityBound_;
+
 	private final StatusListener statusListener_;
 
+	/**
+	 * the minimal number of jobs computed in a batch for which they are
+	 * computed in parallel
+	 */
+	private static final int PARALLEL_THRESHOLD_ = 64;
+
+	/**
+	 * used to compute new jobs in parallel; {@code null} if they are computed
+	 * sequentially
+	 */
+	private final ForkJoinPool pool_;
+
 	private TopDownRepairComputation(Prover<? super Q, ? extends I> prover,
 			final AxiomPinpointingInterruptMonitor monitor,
 			final PriorityComparator<? super Set<A>, ?> priorityComparator,
-			StatusListener statusListener) {
+			int limit, Object priorityBound, StatusListener statusListener,
+			ForkJoinPool pool) {
 		super(prover, monitor, statusListener);
+		this.pool_ = pool;
 		this.priorityComparator_ = priorityComparator;
+		this.limit_ = limit;
+		this.priorityBound_ = priorityBound;
 		this.statusListener_ = statusListener;
 	}
 
@@ -166,160 +327,429 @@ public class TopDownRepairComputation<Q, A, I extends AxiomPinpointingInference<
 		 */
 		final Collection2<Job> minimalJobs_ = new BloomTrieCollection2<Job>();
 
+		/**
+		 * {@code true} if the computation has been initialized
+		 */
+		boolean started_ = false;
+
+		/**
+		 * the maximal priority of reported repairs or {@code null} if not
+		 * bounded
+		 */
+		final P priorityBound_;
+
+		/**
+		 * the number of repairs reported for the query
+		 */
+		int reportedCount_ = 0;
+
+		final IdMap<A> axiomIds_ = HashIdMap.create();
+
+		final IdMap<Object> conclusionIds_ = HashIdMap.create();
+
+		final IdMap<I> inferenceIds_ = HashIdMap.create();
+
+		/**
+		 * the sorted ids of premises and axioms of inferences, indexed by the
+		 * inference ids
+		 */
+		final List<int[]> inferencePremiseIds_ = new ArrayList<int[]>(),
+				inferenceAxiomIds_ = new ArrayList<int[]>();
+
+		/**
+		 * the sorted ids of inferences deriving conclusions, indexed by the
+		 * conclusion ids; {@code null} if not yet computed
+		 */
+		final List<int[]> conclusionInferenceIds_ = new ArrayList<int[]>();
+
+		@SuppressWarnings("unchecked")
 		JobProcessor(Q query,
 				final PriorityComparator<? super Set<A>, P> priorityComparator) {
 			super(query);
 			this.priorityComparator_ = priorityComparator;
+			// the type is guaranteed by the factory
+			this.priorityBound_ = (P) TopDownRepairComputation.this.priorityBound_;
 		}
 
 		@Override
 		public void enumerate(AxiomPinpointingListener<A> listener) {
 			listener.computesRepairs();
-			initialize();
+			if (!started_) {
+				started_ = true;
+				initialize();
+			}
 			process(listener);
 			listener.computationComplete();
 		}
 
 		void initialize() {
-			produce(newJob(getQuery()));
+			produce(newJob(conclusionIds_.getId(getQuery())));
 		}
 
 		void process(AxiomPinpointingListener<A> listener) {
-			for (;;) {
-				if (getInterruptMonitor().isInterrupted()) {
-					break;
-				}
+			if (pool_ != null) {
+				processInBatches(listener);
+				return;
+			}
+			// else
+			while (reportedCount_ < limit_) {
+				checkInterrupt();
 				final Job job = toDoJobs_.poll();
 				if (job == null) {
 					break;
 				}
 				// else
-				if (!minimalRepairs_.isMinimal(job.repair_)) {
+				Expansion expansion = check(job, listener);
+				if (expansion == null) {
 					continue;
 				}
 				// else
-				if (!minimalJobs_.isMinimal(job)) {
-					continue;
+				expansion.expand();
+				for (Job child : expansion.children_) {
+					produce(child);
+				}
+			}
+		}
+
+		/**
+		 * Processes the jobs with the same priority together: first the jobs
+		 * are checked for minimality in the order of the queue, then the new
+		 * jobs for all of them are computed in parallel, and finally they are
+		 * added to the queue in the order of the jobs from which they were
+		 * computed; the new jobs with the same priority are processed in the
+		 * next batch
+		 * 
+		 * @param listener
+		 */
+		void processInBatches(AxiomPinpointingListener<A> listener) {
+			List<Expansion> batch = new ArrayList<Expansion>();
+			while (reportedCount_ < limit_) {
+				checkInterrupt();
+				Job job = toDoJobs_.poll();
+				if (job == null) {
+					break;
 				}
 				// else
-				minimalJobs_.add(job);
-				final I nextToBreak = chooseToBreak(job.toBreak_);
-				if (nextToBreak == null) {
-					minimalRepairs_.add(job.repair_);
-					if (listener != null) {
-						listener.newRepairFound();
-						for (A axiom : job.repair_) {
-							listener.usefulAxiom(axiom);
-						}
-						listener.newRepairComplete();
+				P priority = job.priority_;
+				int work = 0;
+				for (;;) {
+					Expansion expansion = check(job, listener);
+					if (expansion != null) {
+						batch.add(expansion);
+						work += expansion.size();
 					}
-					continue;
+					if (reportedCount_ >= limit_) {
+						break;
+					}
+					// else
+					job = toDoJobs_.peek();
+					if (job == null || priorityComparator_
+							.compare(job.priority_, priority) != 0) {
+						break;
+					}
+					// else
+					toDoJobs_.poll();
 				}
-				for (Object premise : nextToBreak.getPremises()) {
-					produce(doBreak(job.repair_, job.toBreak_, job.broken_,
-							premise));
+				if (work < PARALLEL_THRESHOLD_) {
+					for (Expansion expansion : batch) {
+						expansion.expand();
+					}
+				} else {
+					pool_.invoke(
+							new ExpansionTask(batch, 0, batch.size(), work));
 				}
-				for (A axiom : nextToBreak.getJustification()) {
-					produce(repair(job.repair_, job.toBreak_, job.broken_,
-							axiom));
+				for (Expansion expansion : batch) {
+					for (Job child : expansion.children_) {
+						produce(child);
+					}
 				}
+				batch.clear();
 			}
 		}
 
-		I chooseToBreak(final Collection<I> inferences) {
-			// select the smallest conclusion according to the comparator
-			I result = null;
-			for (I inf : inferences) {
-				if (result == null
-						|| inferenceComparator.compare(inf, result) < 0) {
-					result = inf;
+		/**
+		 * Checks the given job for minimality and reports the repair if the
+		 * job is complete
+		 * 
+		 * @param job
+		 * @param listener
+		 * @return the {@link Expansion} for computing the new jobs from the
+		 *         given job or {@code null} if no new jobs should be computed
+		 */
+		Expansion check(Job job, AxiomPinpointingListener<A> listener) {
+			Set<A> repair = getRepair(job.repair_);
+			if (!minimalRepairs_.isMinimal(repair)) {
+				return null;
+			}
+			// else
+			if (!minimalJobs_.addIfMinimalAndRemoveSupersets(job)) {
+				return null;
+			}
+			// else
+			final int nextToBreak = chooseToBreak(job.toBreak_);
+			if (nextToBreak < 0) {
+				minimalRepairs_.addIfMinimalAndRemoveSupersets(repair);
+				reportedCount_++;
+				if (listener != null) {
+					listener.newRepairFound();
+					for (A axiom : repair) {
+						listener.usefulAxiom(axiom);
+					}
+					listener.newRepairComplete();
+				}
+				return null;
+			}
+			// else
+			for (int premiseId : inferencePremiseIds_.get(nextToBreak)) {
+				// the inferences are computed before the expansion, which can
+				// be done in parallel
+				getInferenceIds(premiseId);
+			}
+			return new Expansion(job, nextToBreak);
+		}
+
+		/**
+		 * Computation of new jobs by breaking an inference of a job; can be
+		 * performed in parallel with other {@link Expansion}s
+		 */
+		class Expansion {
+
+			final Job job_;
+
+			final int toBreak_;
+
+			/**
+			 * the result of {@link #expand()}
+			 */
+			List<Job> children_ = Collections.emptyList();
+
+			Expansion(Job job, int toBreak) {
+				this.job_ = job;
+				this.toBreak_ = toBreak;
+			}
+
+			/**
+			 * @return the number of jobs computed by {@link #expand()}
+			 */
+			int size() {
+				return inferencePremiseIds_.get(toBreak_).length
+						+ inferenceAxiomIds_.get(toBreak_).length;
+			}
+
+			void expand() {
+				children_ = new ArrayList<Job>(size());
+				for (int premiseId : inferencePremiseIds_.get(toBreak_)) {
+					children_.add(doBreak(job_.repair_, job_.toBreak_,
+							job_.broken_, premiseId));
+				}
+				for (int axiomId : inferenceAxiomIds_.get(toBreak_)) {
+					children_.add(repair(job_.repair_, job_.toBreak_,
+							job_.broken_, axiomId));
+				}
+			}
+
+		}
+
+		/**
+		 * Performs the given range of {@link Expansion}s, splitting it if
+		 * there is too much work
+		 */
+		class ExpansionTask extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final List<Expansion> expansions_;
+
+			private final int from_, to_, work_;
+
+			ExpansionTask(List<Expansion> expansions, int from, int to,
+					int work) {
+				this.expansions_ = expansions;
+				this.from_ = from;
+				this.to_ = to;
+				this.work_ = work;
+			}
+
+			@Override
+			protected void compute() {
+				if (work_ < PARALLEL_THRESHOLD_ || to_ - from_ == 1) {
+					for (int i = from_; i < to_; i++) {
+						expansions_.get(i).expand();
+					}
+					return;
+				}
+				// else split into two halves of similar work
+				int mid = from_;
+				int work = 0;
+				while (mid < to_ - 1 && work < work_ / 2) {
+					work += expansions_.get(mid++).size();
+				}
+				if (mid == from_) {
+					mid++;
+					work = expansions_.get(from_).size();
 				}
+				invokeAll(new ExpansionTask(expansions_, from_, mid, work),
+						new ExpansionTask(expansions_, mid, to_, work_ - work));
+			}
+
+		}
+
+		Set<A> getRepair(int[] axiomIds) {
+			return new SortedIdSet<A>(axiomIds, axiomIds_);
+		}
+
+		/**
+		 * @param inferenceIds
+		 * @return the id of the inference with the smallest number of premises
+		 *         and axioms or {@code -1} if there are no inferences
+		 */
+		int chooseToBreak(final int[] inferenceIds) {
+			int result = -1;
+			int minSize = Integer.MAX_VALUE;
+			for (int inferenceId : inferenceIds) {
+				int size = inferencePremiseIds_.get(inferenceId).length
+						+ inferenceAxiomIds_.get(inferenceId).length;
+				if (size < minSize) {
+					result = inferenceId;
+					minSize = size;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * @param conclusionId
+		 * @return the sorted ids of the inferences deriving the conclusion
+		 *         with the given id
+		 */
+		int[] getInferenceIds(int conclusionId) {
+			while (conclusionInferenceIds_.size() <= conclusionId) {
+				conclusionInferenceIds_.add(null);
+			}
+			int[] result = conclusionInferenceIds_.get(conclusionId);
+			if (result != null) {
+				return result;
+			}
+			// else
+			Collection<? extends I> inferences = getProof()
+					.getInferences(conclusionIds_.getElement(conclusionId));
+			result = new int[inferences.size()];
+			int pos = 0;
+			for (I inf : inferences) {
+				result[pos++] = getInferenceId(inf);
+			}
+			Arrays.sort(result);
+			conclusionInferenceIds_.set(conclusionId, result);
+			return result;
+		}
+
+		int getInferenceId(I inference) {
+			int result = inferenceIds_.getId(inference);
+			if (result == inferencePremiseIds_.size()) {
+				// new inference
+				inferencePremiseIds_.add(SortedIdSet
+						.getIds(inference.getPremises(), conclusionIds_));
+				inferenceAxiomIds_.add(SortedIdSet
+						.getIds(inference.getJustification(), axiomIds_));
 			}
 			return result;
 		}
 
 		void produce(final Job job) {
+			if (priorityBound_ != null && priorityComparator_
+					.compare(job.priority_, priorityBound_) > 0) {
+				// all repairs obtained from the job exceed the bound
+				return;
+			}
+			// else
 			toDoJobs_.add(job);
 			statusListener_.newPartialRepair();
 		}
 
-		Job newJob(final Object conclusion) {
-			return doBreak(Collections.<A> emptySet(),
-					Collections.<I> emptySet(), Collections.<Object> emptySet(),
-					conclusion);
+		Job newJob(final int conclusionId) {
+			return doBreak(EMPTY_IDS_, EMPTY_IDS_, EMPTY_IDS_, conclusionId);
 		}
 
-		Job doBreak(final Set<A> repair, final Collection<I> toBreak,
-				final Set<Object> broken, final Object conclusion) {
-
-			final Set<A> newRepair = repair.isEmpty() ? new HashSet<A>(1)
-					: new HashSet<A>(repair);
-			final Set<I> newToBreak = toBreak.isEmpty() ? new HashSet<I>(3)
-					: new HashSet<I>(toBreak.size());
-			final Set<Object> newBroken = broken.isEmpty()
-					? new HashSet<Object>(1)
-					: new HashSet<Object>(broken);
-
-			newBroken.add(conclusion);
-			for (final I inf : toBreak) {
-				if (!inf.getPremises().contains(conclusion)) {
-					newToBreak.add(inf);
+		Job doBreak(final int[] repair, final int[] toBreak,
+				final int[] broken, final int conclusionId) {
+			final int[] newBroken = SortedIdSet.add(broken, conclusionId);
+			int[] inferenceIds = getInferenceIds(conclusionId);
+			int[] newToBreak = new int[toBreak.length + inferenceIds.length];
+			int size = 0;
+			for (int inferenceId : toBreak) {
+				if (Arrays.binarySearch(inferencePremiseIds_.get(inferenceId),
+						conclusionId) < 0) {
+					newToBreak[size++] = inferenceId;
 				}
 			}
-			infLoop: for (final I inf : getProof().getInferences(conclusion)) {
-				for (final Object premise : inf.getPremises()) {
-					if (broken.contains(premise)) {
+			infLoop: for (int inferenceId : inferenceIds) {
+				for (int premiseId : inferencePremiseIds_.get(inferenceId)) {
+					if (Arrays.binarySearch(broken, premiseId) >= 0) {
 						continue infLoop;
 					}
 				}
-				for (final A axiom : inf.getJustification()) {
-					if (repair.contains(axiom)) {
+				for (int axiomId : inferenceAxiomIds_.get(inferenceId)) {
+					if (Arrays.binarySearch(repair, axiomId) >= 0) {
 						continue infLoop;
 					}
 				}
-				newToBreak.add(inf);
+				newToBreak[size++] = inferenceId;
+			}
+			newToBreak = SortedIdSet.sortDistinct(newToBreak, size);
+			if (Arrays.equals(newToBreak, toBreak)) {
+				newToBreak = toBreak;
 			}
-			return new Job(newRepair, newToBreak, newBroken,
-					priorityComparator_.getPriority(newRepair));
+			// the repair does not change
+			return new Job(repair, newToBreak, newBroken,
+					priorityComparator_.getPriority(getRepair(repair)));
 		}
 
-		Job repair(final Set<A> repair, final Collection<I> toBreak,
-				final Set<Object> broken, final A axiom) {
-
-			final Set<A> newRepair = new HashSet<A>(repair);
-			final Set<I> newToBreak = new HashSet<I>(toBreak.size());
-			final Set<Object> newBroken = new HashSet<Object>(broken);
-
-			newRepair.add(axiom);
-			for (final I inf : toBreak) {
-				if (!inf.getJustification().contains(axiom)) {
-					newToBreak.add(inf);
+		Job repair(final int[] repair, final int[] toBreak,
+				final int[] broken, final int axiomId) {
+			final int[] newRepair = SortedIdSet.add(repair, axiomId);
+			int[] newToBreak = new int[toBreak.length];
+			int size = 0;
+			for (int inferenceId : toBreak) {
+				if (Arrays.binarySearch(inferenceAxiomIds_.get(inferenceId),
+						axiomId) < 0) {
+					newToBreak[size++] = inferenceId;
 				}
 			}
-			return new Job(newRepair, newToBreak, newBroken,
-					priorityComparator_.getPriority(newRepair));
+			newToBreak = size == toBreak.length ? toBreak
+					: Arrays.copyOf(newToBreak, size);
+			// the broken conclusions do not change
+			return new Job(newRepair, newToBreak, broken,
+					priorityComparator_.getPriority(getRepair(newRepair)));
 		}
 
 		/**
-		 * A simple state for computing a repair;
+		 * A simple state for computing a repair; the sets are represented by
+		 * sorted arrays of ids that are shared between jobs when they do not
+		 * change
 		 * 
 		 * @author Peter Skocovsky
 		 * @author Yevgeny Kazakov
 		 */
-		private class Job extends AbstractSet<JobMember<I, A>>
+		private class Job extends AbstractSet<JobMember>
 				implements Comparable<Job> {
 
-			final Set<A> repair_;
-			final Set<I> toBreak_;
 			/**
-			 * the cached set of conclusions not derivable without using
+			 * the ids of axioms in the repair
+			 */
+			final int[] repair_;
+			/**
+			 * the ids of inferences to break
+			 */
+			final int[] toBreak_;
+			/**
+			 * the cached ids of conclusions not derivable without using
 			 * {@link #repair_} and {@link #toBreak_}
 			 */
-			final Set<Object> broken_;
+			final int[] broken_;
 			final P priority_;
 
-			Job(final Set<A> repair, final Set<I> toBreak,
-					final Set<Object> broken, final P priority) {
+			Job(final int[] repair, final int[] toBreak, final int[] broken,
+					final P priority) {
 				this.repair_ = repair;
 				this.toBreak_ = toBreak;
 				this.broken_ = broken;
@@ -330,8 +760,9 @@ public class TopDownRepairComputation<Q, A, I extends AxiomPinpointingInference<
 			public boolean containsAll(final Collection<?> c) {
 				if (c instanceof TopDownRepairComputation<?, ?, ?>.JobProcessor<?>.Job) {
 					final TopDownRepairComputation<?, ?, ?>.JobProcessor<?>.Job other = (TopDownRepairComputation<?, ?, ?>.JobProcessor<?>.Job) c;
-					return repair_.containsAll(other.repair_)
-							&& toBreak_.containsAll(other.toBreak_);
+					return SortedIdSet.containsAll(repair_, other.repair_)
+							&& SortedIdSet.containsAll(toBreak_,
+									other.toBreak_);
 				}
 				// else
 				return super.containsAll(c);
@@ -339,26 +770,29 @@ public class TopDownRepairComputation<Q, A, I extends AxiomPinpointingInference<
 
 			@Override
 			public String toString() {
-				return repair_.toString() + "; " + broken_.toString() + "; "
-						+ toBreak_.toString();
+				return getRepair(repair_).toString() + "; "
+						+ new SortedIdSet<Object>(broken_, conclusionIds_)
+						+ "; " + new SortedIdSet<I>(toBreak_, inferenceIds_);
 			}
 
 			@Override
-			public Iterator<JobMember<I, A>> iterator() {
-				return Iterators.<JobMember<I, A>> concat(Iterators.transform(
-						repair_.iterator(), new Function<A, Axiom<I, A>>() {
+			public Iterator<JobMember> iterator() {
+				return Iterators.<JobMember> concat(
+						Iterators.transform(Ints.asList(repair_).iterator(),
+								new Function<Integer, Axiom>() {
 
-							@Override
-							public Axiom<I, A> apply(final A axiom) {
-								return new Axiom<I, A>(axiom);
-							}
+									@Override
+									public Axiom apply(final Integer id) {
+										return new Axiom(id);
+									}
 
-						}), Iterators.transform(toBreak_.iterator(),
-								new Function<I, Inf<I, A>>() {
+								}),
+						Iterators.transform(Ints.asList(toBreak_).iterator(),
+								new Function<Integer, Inf>() {
 
 									@Override
-									public Inf<I, A> apply(I inf) {
-										return new Inf<I, A>(inf);
+									public Inf apply(Integer id) {
+										return new Inf(id);
 									}
 
 								}));
@@ -366,7 +800,7 @@ public class TopDownRepairComputation<Q, A, I extends AxiomPinpointingInference<
 
 			@Override
 			public int size() {
-				return repair_.size() + toBreak_.size();
+				return repair_.length + toBreak_.length;
 			}
 
 			@Override
@@ -377,43 +811,33 @@ public class TopDownRepairComputation<Q, A, I extends AxiomPinpointingInference<
 					return result;
 				}
 				// else
-				return toBreak_.size() - other.toBreak_.size();
+				return toBreak_.length - other.toBreak_.length;
 			}
 
 		}
 
 	}
 
-	private final Comparator<AxiomPinpointingInference<?, ?>> inferenceComparator = new Comparator<AxiomPinpointingInference<?, ?>>() {
-
-		@Override
-		public int compare(final AxiomPinpointingInference<?, ?> inf1,
-				final AxiomPinpointingInference<?, ?> inf2) {
-			return inf1.getPremises().size() + inf1.getJustification().size()
-					- inf2.getPremises().size()
-					- inf2.getJustification().size();
-		}
-
-	};
+	private static final int[] EMPTY_IDS_ = new int[0];
 
-	private interface JobMember<C, A> {
+	private interface JobMember {
 
 	}
 
-	private final static class Inf<I extends Inference<?>, A>
-			extends Delegator<I> implements JobMember<I, A> {
+	private final static class Inf extends Delegator<Integer>
+			implements JobMember {
 
-		public Inf(I delegate) {
-			super(delegate);
+		public Inf(Integer id) {
+			super(id);
 		}
 
 	}
 
-	private final static class Axiom<C, A> extends Delegator<A>
-			implements JobMember<C, A> {
+	private final static class Axiom extends Delegator<Integer>
+			implements JobMember {
 
-		public Axiom(A delegate) {
-			super(delegate);
+		public Axiom(Integer id) {
+			super(id);
 		}
 
 	}
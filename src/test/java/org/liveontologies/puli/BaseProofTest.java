@@ -25,8 +25,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.liveontologies.puli.statistics.Stats;
 
 public class BaseProofTest {
 
@@ -96,6 +103,226 @@ public class BaseProofTest {
 		// After one notification no more notifications are guaranteed.
 	}
 
+	@Test
+	public void dynamicDerivabilityCheckerRandomTest() {
+		Random random = new Random();
+		for (int round = 0; round < 100; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 1 + random.nextInt(20);
+			ProofBuilder<Integer, Integer, ?> builder = new BaseProofBuilder<Integer, Integer>();
+			BaseProof<AxiomPinpointingInference<Integer, Integer>> proof = builder
+					.getProof();
+			DynamicInferenceDerivabilityChecker<Integer, AxiomPinpointingInference<Integer, Integer>> checker = new DynamicInferenceDerivabilityChecker<>(
+					proof);
+			List<AxiomPinpointingInference<Integer, Integer>> added = new ArrayList<>();
+			boolean inBatch = false;
+			for (int step = 0; step < 200; step++) {
+				int conclusion = random.nextInt(conclusionCount);
+				switch (random.nextInt(7)) {
+				case 0:
+				case 1:
+					ProofBuilder<Integer, Integer, ?>.ProofInferenceBuilder ib = builder
+							.conclusion(conclusion);
+					int premiseCount = random.nextInt(3);
+					for (int i = 0; i < premiseCount; i++) {
+						ib.premise(random.nextInt(conclusionCount));
+					}
+					AxiomPinpointingInference<Integer, Integer> inference = ib
+							.build();
+					added.add(inference);
+					proof.produce(inference);
+					break;
+				case 2:
+					if (added.isEmpty()) {
+						break;
+					}
+					// else
+					assertTrue(proof.remove(
+							added.remove(random.nextInt(added.size()))));
+					break;
+				case 3:
+					if (!checker.block(conclusion)) {
+						checker.unblock(conclusion);
+					}
+					break;
+				case 4:
+					if (!inBatch) {
+						proof.startBatch();
+						inBatch = true;
+					}
+					break;
+				default:
+					if (inBatch) {
+						proof.endBatch();
+						inBatch = false;
+					}
+					if (random.nextInt(50) == 0) {
+						proof.clear();
+						added.clear();
+					}
+					DerivabilityCheckerWithBlocking<Integer, AxiomPinpointingInference<Integer, Integer>> expected = new InferenceDerivabilityChecker<>(
+							proof);
+					for (Integer blocked : checker.getBlockedConclusions()) {
+						expected.block(blocked);
+					}
+					assertEquals("seed: " + seed,
+							expected.isDerivable(conclusion),
+							checker.isDerivable(conclusion));
+				}
+			}
+			checker.dispose();
+		}
+	}
+
+	@Test
+	public void dynamicDerivabilityCheckerRepeatedChangesTest() {
+		Random random = new Random();
+		long seed = random.nextLong();
+		random.setSeed(seed);
+		int conclusionCount = 10;
+		ProofBuilder<Integer, Integer, ?> builder = new BaseProofBuilder<Integer, Integer>();
+		BaseProof<AxiomPinpointingInference<Integer, Integer>> proof = builder
+				.getProof();
+		List<AxiomPinpointingInference<Integer, Integer>> added = new ArrayList<>();
+		for (int i = 0; i < 2 * conclusionCount; i++) {
+			ProofBuilder<Integer, Integer, ?>.ProofInferenceBuilder ib = builder
+					.conclusion(random.nextInt(conclusionCount));
+			int premiseCount = random.nextInt(3);
+			for (int j = 0; j < premiseCount; j++) {
+				ib.premise(random.nextInt(conclusionCount));
+			}
+			AxiomPinpointingInference<Integer, Integer> inference = ib.build();
+			added.add(inference);
+			proof.produce(inference);
+		}
+		DynamicInferenceDerivabilityChecker<Integer, AxiomPinpointingInference<Integer, Integer>> checker = new DynamicInferenceDerivabilityChecker<>(
+				proof);
+		// the same inferences are removed and added many times so that the
+		// space of the removed inferences must be reclaimed
+		for (int step = 0; step < 2000; step++) {
+			AxiomPinpointingInference<Integer, Integer> inference = added
+					.get(random.nextInt(added.size()));
+			proof.startBatch();
+			if (proof.remove(inference)) {
+				if (random.nextBoolean()) {
+					proof.endBatch();
+					proof.startBatch();
+				}
+				proof.produce(inference);
+			}
+			proof.endBatch();
+			if (random.nextInt(5) == 0) {
+				checker.block(random.nextInt(conclusionCount));
+			} else {
+				checker.unblock(random.nextInt(conclusionCount));
+			}
+			DerivabilityCheckerWithBlocking<Integer, AxiomPinpointingInference<Integer, Integer>> expected = new InferenceDerivabilityChecker<>(
+					proof);
+			for (Integer blocked : checker.getBlockedConclusions()) {
+				expected.block(blocked);
+			}
+			for (int conclusion = 0; conclusion < conclusionCount; conclusion++) {
+				assertEquals("seed: " + seed,
+						expected.isDerivable(conclusion),
+						checker.isDerivable(conclusion));
+			}
+		}
+		checker.dispose();
+	}
+
+	@Test
+	public void testBatchNotifications() {
+		InferenceListener listener = new InferenceListener();
+		p.addListener(listener);
+		p.startBatch();
+		b.conclusion(1).premise(2).add();
+		b.conclusion(1).premise(3).add();
+		b.conclusion(2).add();
+		p.startBatch();
+		b.conclusion(1).add();
+		p.endBatch();
+		// nothing is reported until the outermost batch is finished
+		assertEquals(0, listener.added_);
+		assertEquals(0, listener.invalidated_.size());
+		p.endBatch();
+		assertEquals(0, listener.added_);
+		assertEquals(Arrays.asList(1, 2), listener.invalidated_);
+		b.conclusion(3).add();
+		assertEquals(1, listener.added_);
+	}
+
+	@Test
+	public void testCachingProofEvictsChangedConclusions() {
+		b.conclusion(1).premise(2).add();
+		b.conclusion(2).add();
+		DynamicProof<? extends Inference<Integer>> cached = Proofs.cache(p);
+		assertEquals(1, cached.getInferences(1).size());
+		assertEquals(1, cached.getInferences(2).size());
+		b.conclusion(1).premise(3).add();
+		assertEquals(2, cached.getInferences(1).size());
+		p.startBatch();
+		b.conclusion(2).premise(3).add();
+		b.conclusion(2).premise(4).add();
+		p.endBatch();
+		assertEquals(3, cached.getInferences(2).size());
+		p.clear();
+		assertEquals(0, cached.getInferences(1).size());
+		cached.dispose();
+	}
+
+	@Test
+	public void testBoundedCacheStats() {
+		b.conclusion(1).premise(2).add();
+		b.conclusion(2).add();
+		b.conclusion(2).premise(1).add();
+		CachingProof<? extends Inference<Integer>> cached = new CachingProof<>(
+				p, "maximumWeight=2,concurrencyLevel=1");
+		assertEquals(1, cached.getInferences(1).size());
+		assertEquals(1, cached.getInferences(1).size());
+		// does not fit together with the inferences for 1
+		assertEquals(2, cached.getInferences(2).size());
+		Map<String, Object> stats = Stats.copyIntoMap(cached);
+		assertEquals(1L, stats.get("cacheHits"));
+		assertEquals(2L, stats.get("cacheMisses"));
+		assertEquals(1L, stats.get("cacheEvictions"));
+		Stats.resetStats(cached);
+		assertEquals(2, cached.getInferences(2).size());
+		stats = Stats.copyIntoMap(cached);
+		assertEquals(1L, stats.get("cacheHits"));
+		assertEquals(0L, stats.get("cacheMisses"));
+		assertEquals(0L, stats.get("cacheEvictions"));
+	}
+
+	private static class InferenceListener
+			implements DynamicProof.InferenceChangeListener {
+
+		int added_ = 0;
+
+		final List<Object> invalidated_ = new ArrayList<Object>();
+
+		@Override
+		public void inferencesChanged() {
+			// no bulk changes in the test
+		}
+
+		@Override
+		public void inferenceAdded(Inference<?> inference) {
+			added_++;
+		}
+
+		@Override
+		public void inferenceRemoved(Inference<?> inference) {
+			// no removals in the test
+		}
+
+		@Override
+		public void conclusionInvalidated(Object conclusion) {
+			invalidated_.add(conclusion);
+		}
+
+	}
+
 	private static class ProofListener implements DynamicProof.ChangeListener {
 
 		private boolean notificationReceived_ = false;
@@ -0,0 +1,256 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+/**
+ * Modifies and reads {@link ConcurrentProof} from several threads at the same
+ * time and checks that the results are consistent
+ */
+public class ConcurrentProofTest {
+
+	private static final int CONCLUSION_COUNT_ = 20;
+
+	private static final int WRITER_COUNT_ = 4;
+
+	private static final int READER_COUNT_ = 4;
+
+	private static final int STEP_COUNT_ = 20000;
+
+	@Test
+	public void coalescedNotificationsTest() {
+		ConcurrentProof<Inference<Integer>> proof = new ConcurrentProof<Inference<Integer>>();
+		final AtomicInteger notifications = new AtomicInteger();
+		proof.addListener(new DynamicProof.ChangeListener() {
+
+			@Override
+			public void inferencesChanged() {
+				notifications.incrementAndGet();
+			}
+		});
+		proof.produce(
+				Inferences.create("a", 1, Collections.<Integer> emptyList()));
+		assertEquals(0, notifications.get());
+		assertEquals(1, proof.getInferences(1).size());
+		proof.produce(Inferences.create("b", 2, Collections.singletonList(1)));
+		assertEquals(0, notifications.get());
+		proof.produce(Inferences.create("c", 1, Collections.singletonList(2)));
+		assertEquals(1, notifications.get());
+		// not queried since the last notification
+		assertTrue(proof.remove(
+				Inferences.create("c", 1, Collections.singletonList(2))));
+		assertEquals(1, notifications.get());
+		assertEquals(1, proof.getInferences(1).size());
+		proof.clear();
+		assertEquals(2, notifications.get());
+		assertEquals(0, proof.getInferences(1).size());
+	}
+
+	@Test
+	public void concurrentStressTest() throws Throwable {
+		final ConcurrentProof<Inference<Integer>> proof = new ConcurrentProof<Inference<Integer>>();
+		final AtomicInteger notifications = new AtomicInteger();
+		proof.addListener(new DynamicProof.ChangeListener() {
+
+			@Override
+			public void inferencesChanged() {
+				notifications.incrementAndGet();
+			}
+		});
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch writersDone = new CountDownLatch(WRITER_COUNT_);
+		// the number of started and finished changes of every conclusion
+		final AtomicIntegerArray started = new AtomicIntegerArray(
+				CONCLUSION_COUNT_),
+				finished = new AtomicIntegerArray(CONCLUSION_COUNT_);
+		List<Thread> threads = new ArrayList<Thread>();
+		final List<Multiset<Inference<Integer>>> produced = new ArrayList<Multiset<Inference<Integer>>>();
+		for (int w = 0; w < WRITER_COUNT_; w++) {
+			final int writer = w;
+			final Multiset<Inference<Integer>> inferences = HashMultiset
+					.create();
+			produced.add(inferences);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						Random random = new Random(writer);
+						List<Inference<Integer>> added = new ArrayList<Inference<Integer>>();
+						for (int step = 0; step < STEP_COUNT_; step++) {
+							if (!added.isEmpty() && random.nextInt(3) == 0) {
+								Inference<Integer> inference = added.remove(
+										random.nextInt(added.size()));
+								int conclusion = inference.getConclusion();
+								started.incrementAndGet(conclusion);
+								assertTrue(proof.remove(inference));
+								finished.incrementAndGet(conclusion);
+								inferences.remove(inference);
+							} else {
+								// the names of inferences are unique for
+								// each writer
+								Inference<Integer> inference = Inferences
+										.create("w" + writer,
+												random.nextInt(
+														CONCLUSION_COUNT_),
+												Collections.singletonList(
+														random.nextInt(
+																CONCLUSION_COUNT_)));
+								int conclusion = inference.getConclusion();
+								started.incrementAndGet(conclusion);
+								proof.produce(inference);
+								finished.incrementAndGet(conclusion);
+								added.add(inference);
+								inferences.add(inference);
+							}
+						}
+					} catch (Throwable e) {
+						error.compareAndSet(null, e);
+					} finally {
+						writersDone.countDown();
+					}
+				}
+			});
+		}
+		final List<List<Collection<? extends Inference<Integer>>>> lastRead = new ArrayList<List<Collection<? extends Inference<Integer>>>>();
+		final List<int[]> lastNotifications = new ArrayList<int[]>();
+		final List<int[]> lastChanges = new ArrayList<int[]>();
+		for (int r = 0; r < READER_COUNT_; r++) {
+			final List<Collection<? extends Inference<Integer>>> read = new ArrayList<Collection<? extends Inference<Integer>>>(
+					Collections.<Collection<? extends Inference<Integer>>> nCopies(
+							CONCLUSION_COUNT_, null));
+			final int[] readNotifications = new int[CONCLUSION_COUNT_];
+			final int[] readChanges = new int[CONCLUSION_COUNT_];
+			lastRead.add(read);
+			lastNotifications.add(readNotifications);
+			lastChanges.add(readChanges);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						Random random = new Random();
+						while (writersDone.getCount() > 0) {
+							int conclusion = random.nextInt(CONCLUSION_COUNT_);
+							int changes = finished.get(conclusion);
+							Collection<? extends Inference<Integer>> inferences = proof
+									.getInferences(conclusion);
+							int notified = notifications.get();
+							int size = inferences.size();
+							int count = 0;
+							for (Inference<Integer> inference : inferences) {
+								assertEquals(conclusion,
+										(int) inference.getConclusion());
+								count++;
+							}
+							// snapshots do not change
+							assertEquals(size, count);
+							assertEquals(size, inferences.size());
+							if (started.get(conclusion) == changes) {
+								// the conclusion did not change since
+								// before the query until after the
+								// notifications were counted, so all later
+								// changes must be notified
+								read.set(conclusion, inferences);
+								readNotifications[conclusion] = notified;
+								readChanges[conclusion] = changes;
+							}
+						}
+					} catch (Throwable e) {
+						error.compareAndSet(null, e);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (error.get() != null) {
+			throw error.get();
+		}
+		Multiset<Inference<Integer>> expected = HashMultiset.create();
+		for (Multiset<Inference<Integer>> inferences : produced) {
+			expected.addAll(inferences);
+		}
+		Multiset<Inference<Integer>> actual = HashMultiset.create();
+		for (int conclusion = 0; conclusion < CONCLUSION_COUNT_; conclusion++) {
+			actual.addAll(proof.getInferences(conclusion));
+		}
+		assertEquals(expected, actual);
+		// the readers must be notified about the changes after their queries
+		boolean[] unchanged = new boolean[CONCLUSION_COUNT_];
+		for (int r = 0; r < READER_COUNT_; r++) {
+			for (int conclusion = 0; conclusion < CONCLUSION_COUNT_; conclusion++) {
+				Collection<? extends Inference<Integer>> read = lastRead.get(r)
+						.get(conclusion);
+				if (read == null) {
+					continue;
+				}
+				// else
+				if (lastChanges.get(r)[conclusion] == finished
+						.get(conclusion)) {
+					unchanged[conclusion] = true;
+				} else {
+					assertTrue(notifications.get() > lastNotifications
+							.get(r)[conclusion]);
+				}
+			}
+		}
+		// the conclusions that did not change after they were read must be
+		// still registered; this would not be the case if the registrations
+		// were lost because of concurrent changes of other conclusions
+		for (int conclusion = 0; conclusion < CONCLUSION_COUNT_; conclusion++) {
+			if (!unchanged[conclusion]) {
+				continue;
+			}
+			// else
+			int notified = notifications.get();
+			proof.produce(Inferences.create("check", conclusion,
+					Collections.<Integer> emptyList()));
+			assertTrue("conclusion: " + conclusion,
+					notifications.get() > notified);
+		}
+	}
+
+}
@@ -25,6 +25,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 import org.junit.Test;
 
 /**
@@ -194,6 +201,188 @@ public class ProofTest {
 		assertTrue(checker.isDerivable(0));		
 	}
 
+	@Test
+	public void indexedDerivabilityCheckerRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 100; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 1 + random.nextInt(30);
+			Proof<? extends Inference<Integer>> p = RandomProof.generate(
+					random, conclusionCount, 3,
+					random.nextInt(3 * conclusionCount));
+			DerivabilityCheckerWithBlocking<Integer, Inference<Integer>> expected = new InferenceDerivabilityChecker<>(
+					p);
+			DerivabilityCheckerWithBlocking<Integer, Inference<Integer>> tested = new IndexedInferenceDerivabilityChecker<>(
+					p);
+			for (int step = 0; step < 100; step++) {
+				int conclusion = random.nextInt(conclusionCount);
+				switch (random.nextInt(3)) {
+				case 0:
+					assertEquals("seed: " + seed, expected.block(conclusion),
+							tested.block(conclusion));
+					break;
+				case 1:
+					assertEquals("seed: " + seed,
+							expected.unblock(conclusion),
+							tested.unblock(conclusion));
+					break;
+				default:
+					assertEquals("seed: " + seed,
+							expected.isDerivable(conclusion),
+							tested.isDerivable(conclusion));
+				}
+				assertEquals("seed: " + seed,
+						expected.getBlockedConclusions(),
+						tested.getBlockedConclusions());
+			}
+		}
+	}
+
+	@Test
+	public void batchDerivabilityRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 100; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 1 + random.nextInt(30);
+			Proof<? extends Inference<Integer>> p = RandomProof.generate(
+					random, conclusionCount, 3,
+					random.nextInt(3 * conclusionCount));
+			List<Integer> goals = new ArrayList<Integer>();
+			Set<Integer> expected = new HashSet<Integer>();
+			for (int i = 0; i < conclusionCount; i++) {
+				if (random.nextBoolean()) {
+					goals.add(i);
+					if (Proofs.isDerivable(p, i)) {
+						expected.add(i);
+					}
+				}
+			}
+			final List<Integer> reported = new ArrayList<Integer>();
+			final Set<Integer> derivable = new HashSet<Integer>();
+			Proofs.checkDerivability(p, goals,
+					new DerivabilityListener<Integer>() {
+
+						@Override
+						public void derivable(Integer conclusion) {
+							reported.add(conclusion);
+							derivable.add(conclusion);
+						}
+
+						@Override
+						public void notDerivable(Integer conclusion) {
+							reported.add(conclusion);
+						}
+
+					});
+			assertEquals("seed: " + seed, goals.size(), reported.size());
+			assertEquals("seed: " + seed, new HashSet<Integer>(goals),
+					new HashSet<Integer>(reported));
+			assertEquals("seed: " + seed, expected, derivable);
+			assertEquals("seed: " + seed, expected,
+					Proofs.getDerivable(p, goals));
+			// the goals can be iterated only once
+			final Iterator<Integer> goalIterator = goals.iterator();
+			assertEquals("seed: " + seed, expected,
+					Proofs.getDerivable(p, new Iterable<Integer>() {
+
+						@Override
+						public Iterator<Integer> iterator() {
+							return goalIterator;
+						}
+
+					}));
+		}
+	}
+
+	@Test
+	public void essentialConclusionsRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 200; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 1 + random.nextInt(30);
+			Proof<? extends Inference<Integer>> p = RandomProof.generate(
+					random, conclusionCount, 3,
+					random.nextInt(3 * conclusionCount));
+			for (int goal = 0; goal < conclusionCount; goal++) {
+				assertEquals("seed: " + seed,
+						getEssentialConclusionsByBlocking(p, goal),
+						Proofs.getEssentialConclusions(p, goal));
+			}
+		}
+	}
+
+	@Test
+	public void compactProofRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 100; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 1 + random.nextInt(30);
+			BaseProofBuilder<Integer, Integer> b = new BaseProofBuilder<>();
+			for (int i = random.nextInt(3 * conclusionCount); i > 0; i--) {
+				ProofBuilder<Integer, Integer, ?>.ProofInferenceBuilder ib = b
+						.conclusion(random.nextInt(conclusionCount));
+				for (int j = random.nextInt(4); j > 0; j--) {
+					ib.premise(random.nextInt(conclusionCount));
+				}
+				for (int j = random.nextInt(3); j > 0; j--) {
+					ib.axiom(random.nextInt(10));
+				}
+				ib.add();
+			}
+			Proof<AxiomPinpointingInference<Integer, Integer>> p = b
+					.getProof();
+			CompactProof<Integer, Integer> compact = new CompactProof<>();
+			for (int conclusion = 0; conclusion < conclusionCount; conclusion++) {
+				for (AxiomPinpointingInference<Integer, Integer> inf : p
+						.getInferences(conclusion)) {
+					compact.produce(inf);
+				}
+			}
+			for (int conclusion = 0; conclusion < conclusionCount; conclusion++) {
+				List<AxiomPinpointingInference<Integer, Integer>> expected = new ArrayList<>(
+						p.getInferences(conclusion));
+				List<AxiomPinpointingInference<Integer, Integer>> actual = new ArrayList<>(
+						compact.getInferences(conclusion));
+				assertEquals("seed: " + seed, expected, actual);
+				assertEquals("seed: " + seed, actual, expected);
+				for (int i = 0; i < expected.size(); i++) {
+					assertEquals("seed: " + seed, expected.get(i).hashCode(),
+							actual.get(i).hashCode());
+					assertEquals("seed: " + seed,
+							expected.get(i).getJustification(),
+							actual.get(i).getJustification());
+				}
+				assertEquals("seed: " + seed,
+						Proofs.isDerivable(p, conclusion),
+						Proofs.isDerivable(compact, conclusion));
+			}
+		}
+	}
+
+	/**
+	 * The reference implementation which blocks each candidate conclusion in
+	 * turn and checks if the goal is still derivable
+	 */
+	static <C, I extends Inference<? extends C>> Set<C> getEssentialConclusionsByBlocking(
+			Proof<I> proof, C goal) {
+		Set<C> result = new HashSet<C>();
+		DerivabilityCheckerWithBlocking<C, I> checker = new InferenceDerivabilityChecker<C, I>(
+				proof);
+		for (C candidate : Proofs.unfoldRecursively(proof, goal,
+				Producer.Dummy.<I> get())) {
+			checker.block(candidate);
+			if (!checker.isDerivable(goal)) {
+				result.add(candidate);
+			}
+			checker.unblock(candidate);
+		}
+		return result;
+	}
+
 	@Test
 	public void blockCyclicProof2() throws Exception {
 		BaseProofBuilder<Integer, ?> b = new BaseProofBuilder<>();
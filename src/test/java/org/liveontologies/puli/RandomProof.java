@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.liveontologies.puli.pinpointing.AxiomPinpointingCollector;
+import org.liveontologies.puli.pinpointing.AxiomPinpointingInterruptMonitor;
+import org.liveontologies.puli.pinpointing.ProverAxiomPinpointingEnumerationFactory;
+
+public class RandomProof {
+
+	/**
+	 * @param random
+	 * @param maxConclusions
+	 * @param maxPremises
+	 * @param maxInferences
+	 * @return a proof over conclusions {@code 0 .. maxConclusions - 1} in
+	 *         which premises of inferences are chosen among all conclusions,
+	 *         so some conclusions may be not derivable
+	 */
+	public static Proof<? extends Inference<Integer>> generate(Random random,
+			int maxConclusions, int maxPremises, int maxInferences) {
+		BaseProofBuilder<Integer, ?> b = new BaseProofBuilder<>();
+		for (int i = 0; i < maxInferences; i++) {
+			ProofBuilder<Integer, ?, ?>.ProofInferenceBuilder ib = b
+					.conclusion(random.nextInt(maxConclusions));
+			int noPremises = random.nextInt(maxPremises + 1);
+			for (int j = 0; j < noPremises; j++) {
+				ib.premise(random.nextInt(maxConclusions));
+			}
+			ib.add();
+		}
+		return b.getProof();
+	}
+
+	/**
+	 * @param random
+	 * @param maxConclusions
+	 * @param maxPremises
+	 * @param maxAxioms
+	 * @param maxInferenceAxioms
+	 * @param maxInferences
+	 * @return a proof generated like in
+	 *         {@link #generate(Random, int, int, int)}, in which every
+	 *         inference has from {@code 1} to {@code maxInferenceAxioms}
+	 *         axioms chosen among {@code 0 .. maxAxioms - 1}
+	 */
+	public static Proof<AxiomPinpointingInference<Integer, Integer>> generateWithAxioms(
+			Random random, int maxConclusions, int maxPremises, int maxAxioms,
+			int maxInferenceAxioms, int maxInferences) {
+		BaseProofBuilder<Integer, Integer> b = new BaseProofBuilder<>();
+		for (int i = 0; i < maxInferences; i++) {
+			ProofBuilder<Integer, Integer, ?>.ProofInferenceBuilder ib = b
+					.conclusion(random.nextInt(maxConclusions));
+			int noPremises = random.nextInt(maxPremises + 1);
+			for (int j = 0; j < noPremises; j++) {
+				ib.premise(random.nextInt(maxConclusions));
+			}
+			int noAxioms = 1 + random.nextInt(maxInferenceAxioms);
+			for (int j = 0; j < noAxioms; j++) {
+				ib.axiom(random.nextInt(maxAxioms));
+			}
+			ib.add();
+		}
+		return b.getProof();
+	}
+
+	/**
+	 * @param factory
+	 * @param proof
+	 * @param goal
+	 * @return the justifications or the repairs, depending on what the
+	 *         enumerators of the given factory compute, for the given goal
+	 *         in the order in which they are reported
+	 */
+	public static List<Set<? extends Integer>> collect(
+			ProverAxiomPinpointingEnumerationFactory<Integer, Integer> factory,
+			final Proof<AxiomPinpointingInference<Integer, Integer>> proof,
+			Integer goal) {
+		AxiomPinpointingCollector<Integer> collector = new AxiomPinpointingCollector<>();
+		factory.create(query -> proof, AxiomPinpointingInterruptMonitor.DUMMY)
+				.enumerate(goal, collector);
+		Collection<Set<? extends Integer>> result = collector
+				.getJustifications() == null ? collector.getRepairs()
+						: collector.getJustifications();
+		return new ArrayList<>(result);
+	}
+
+}
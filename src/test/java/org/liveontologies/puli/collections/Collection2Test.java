@@ -26,8 +26,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
@@ -41,6 +43,11 @@ public class Collection2Test {
 			.getLogger(Collection2Test.class);
 
 	private final static Random SEED_PROVIDER_ = new Random();
+
+	/**
+	 * if {@code true}, some of the random sets are {@link IdCollection}s
+	 */
+	private boolean useIdSets_ = false;
 	
 	public void testCollection2(Random rnd, Collection2<Set<Integer>> tested,
 			int rounds, int noElements, int minSetSize, int maxSetSize) {
@@ -132,13 +139,245 @@ public class Collection2Test {
 		runTestSuit(new BloomTrieCollection2<Set<Integer>>());
 	}
 
+	@Test
+	public void testConfiguredBloomTrieCollection2() {
+		runTestSuit(new BloomTrieCollection2<Set<Integer>>(256, 2, 16));
+		runTestSuit(new BloomTrieCollection2<Set<Integer>>(512, 3, 1));
+	}
+
+	@Test
+	public void testSelfTuningBloomTrieCollection2() {
+		runTestSuit(new BloomTrieCollection2<Set<Integer>>(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFilterBits() {
+		new BloomTrieCollection2<Set<Integer>>(96, 1, 64);
+	}
+
+	@Test
+	public void testSelfTuningParameters() {
+		BloomTrieCollection2<Set<Integer>> tested = new BloomTrieCollection2<Set<Integer>>(
+				true);
+		Random rnd = new Random();
+		for (int i = 0; i < 256; i++) {
+			tested.add(getRandomSet(rnd, 100, 1000));
+		}
+		// large sets need wider filters
+		assertEquals(BloomTrieCollection2.MAX_FILTER_BITS,
+				tested.getFilterBits());
+		assertEquals(256, tested.size());
+		tested.resetStats();
+		for (int i = 0; i < 100; i++) {
+			tested.isMinimal(getRandomSet(rnd, 100, 1000));
+		}
+		assertTrue(tested.countFilterTests() > 0);
+		assertTrue(tested.filterPruningRate() > 0.5);
+	}
+
+	@Test
+	public void testIterablesAcrossRetuning() {
+		BloomTrieCollection2<Set<Integer>> tested = new BloomTrieCollection2<Set<Integer>>(
+				true);
+		Random rnd = new Random();
+		Set<Integer> small = getRandomSet(rnd, 2, 1000);
+		Set<Integer> large = getRandomSet(rnd, 500, 1000);
+		// created before the parameters change
+		Iterable<Set<Integer>> supersets = tested.superCollectionsOf(small);
+		Iterable<Set<Integer>> subsets = tested.subCollectionsOf(large);
+		int expectedSupersets = 0, expectedSubsets = 0;
+		for (int i = 0; i < 200; i++) {
+			Set<Integer> next = getRandomSet(rnd, 100, 1000);
+			if (rnd.nextBoolean()) {
+				next.addAll(small);
+			}
+			if (rnd.nextBoolean()) {
+				next.retainAll(large);
+			}
+			if (tested.add(next)) {
+				if (next.containsAll(small)) {
+					expectedSupersets++;
+				}
+				if (large.containsAll(next)) {
+					expectedSubsets++;
+				}
+			}
+		}
+		assertTrue(tested
+				.getFilterBits() > BloomTrieCollection2.DEFAULT_FILTER_BITS);
+		int count = 0;
+		for (Set<Integer> s : supersets) {
+			assertTrue(s.containsAll(small));
+			count++;
+		}
+		assertEquals(expectedSupersets, count);
+		count = 0;
+		for (Set<Integer> s : subsets) {
+			assertTrue(large.containsAll(s));
+			count++;
+		}
+		assertEquals(expectedSubsets, count);
+	}
+
+	@Test
+	public void testConcurrentBloomTrieCollection2() {
+		runTestSuit(new ConcurrentBloomTrieCollection2<Set<Integer>>());
+		runTestSuit(
+				new ConcurrentBloomTrieCollection2<Set<Integer>>(128, 2, 8));
+	}
+
+	void testRemoval(Random rnd, BloomTrieCollection2<Set<Integer>> tested) {
+		List<Set<Integer>> expected = new ArrayList<Set<Integer>>();
+		for (int round = 0; round < 2000; round++) {
+			Set<Integer> next = getRandomSet(rnd, 1 + rnd.nextInt(6), 20);
+			switch (rnd.nextInt(6)) {
+			case 0:
+				assertEquals(expected.remove(next), tested.remove(next));
+				break;
+			case 1:
+				int removed = 0;
+				for (Iterator<Set<Integer>> i = expected.iterator(); i
+						.hasNext();) {
+					if (i.next().containsAll(next)) {
+						i.remove();
+						removed++;
+					}
+				}
+				assertEquals(removed, tested.removeAllSupersetsOf(next));
+				assertTrue(tested.isMaximal(next));
+				break;
+			case 2:
+				removed = 0;
+				for (Iterator<Set<Integer>> i = expected.iterator(); i
+						.hasNext();) {
+					if (next.containsAll(i.next())) {
+						i.remove();
+						removed++;
+					}
+				}
+				assertEquals(removed, tested.removeAllSubsetsOf(next));
+				assertTrue(tested.isMinimal(next));
+				break;
+			case 3:
+				if (rnd.nextInt(50) == 0) {
+					tested.compact();
+				}
+				break;
+			default:
+				expected.add(next);
+				tested.add(next);
+			}
+			assertEquals(expected.size(), tested.size());
+		}
+		List<Set<Integer>> actual = new ArrayList<Set<Integer>>();
+		for (Set<Integer> s : tested) {
+			actual.add(s);
+			assertTrue(tested.contains(s));
+		}
+		assertEquals(expected.size(), actual.size());
+		for (Set<Integer> s : expected) {
+			assertTrue(actual.remove(s));
+		}
+	}
+
+	void testAntichains(Random rnd, Collection2<Set<Integer>> tested) {
+		for (boolean minimal : new boolean[] { true, false }) {
+			Collection2<Set<Integer>> expected = new MockListCollection2<Set<Integer>>();
+			tested.clear();
+			for (int round = 0; round < 1000; round++) {
+				Set<Integer> next = getRandomSet(rnd, 1 + rnd.nextInt(8), 30);
+				if (minimal) {
+					assertEquals(expected.addIfMinimalAndRemoveSupersets(next),
+							tested.addIfMinimalAndRemoveSupersets(next));
+				} else {
+					assertEquals(expected.addIfMaximalAndRemoveSubsets(next),
+							tested.addIfMaximalAndRemoveSubsets(next));
+				}
+				assertEquals(expected.size(), tested.size());
+			}
+			for (Set<Integer> s : expected) {
+				assertTrue(tested.contains(s));
+			}
+		}
+	}
+
+	@Test
+	public void testAntichains() {
+		long seed = SEED_PROVIDER_.nextLong();
+		Random rnd = new Random(seed);
+		try {
+			testAntichains(rnd, new BloomTrieCollection2<Set<Integer>>());
+			testAntichains(rnd,
+					new BloomTrieCollection2<Set<Integer>>(128, 2, 2));
+			testAntichains(rnd, new BloomTrieCollection2<Set<Integer>>(true));
+			testAntichains(rnd,
+					new ConcurrentBloomTrieCollection2<Set<Integer>>());
+			testAntichains(rnd,
+					new ConcurrentBloomTrieCollection2<Set<Integer>>(64, 1,
+							2));
+		} catch (Throwable e) {
+			throw new RuntimeException("seed: " + seed, e);
+		}
+	}
+
+	@Test
+	public void testBloomTrieCollection2Removal() {
+		long seed = SEED_PROVIDER_.nextLong();
+		Random rnd = new Random(seed);
+		try {
+			testRemoval(rnd, new BloomTrieCollection2<Set<Integer>>());
+			testRemoval(rnd, new BloomTrieCollection2<Set<Integer>>(128, 2, 2));
+			testRemoval(rnd, new BloomTrieCollection2<Set<Integer>>(true));
+		} catch (Throwable e) {
+			throw new RuntimeException("seed: " + seed, e);
+		}
+	}
+
+	@Test
+	public void testIdBloomTrieCollection2() {
+		useIdSets_ = true;
+		runTestSuit(new IdBloomTrieCollection2<Set<Integer>>());
+		runTestSuit(new IdBloomTrieCollection2<Set<Integer>>(true));
+	}
+
 	Set<Integer> getRandomSet(Random rnd, int size, int maxValue) {
 		Set<Integer> result = new HashSet<Integer>();
 		for (int i = 0; i < size; i++) {
 			int next = rnd.nextInt(maxValue);
 			result.add(next);
 		}
+		if (useIdSets_ && rnd.nextBoolean()) {
+			return new IdHashSet(result);
+		}
+		// else
 		return result;
 	}
 
+	static class IdHashSet extends HashSet<Integer> implements IdCollection {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] ids_;
+
+		IdHashSet(Set<Integer> elements) {
+			super(elements);
+			this.ids_ = new int[elements.size()];
+			int i = 0;
+			for (Integer e : elements) {
+				ids_[i++] = e;
+			}
+		}
+
+		@Override
+		public int getIdCount() {
+			return ids_.length;
+		}
+
+		@Override
+		public int getId(int index) {
+			return ids_[index];
+		}
+
+	}
+
 }
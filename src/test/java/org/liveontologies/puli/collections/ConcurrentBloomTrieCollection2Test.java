@@ -0,0 +1,217 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Tests for concurrent modifications of
+ * {@link ConcurrentBloomTrieCollection2}
+ */
+public class ConcurrentBloomTrieCollection2Test {
+
+	private final static int THREADS_ = 4;
+
+	static List<Set<Integer>> getRandomSets(Random rnd, int count) {
+		List<Set<Integer>> result = new ArrayList<Set<Integer>>();
+		for (int i = 0; i < count; i++) {
+			Set<Integer> set = new HashSet<Integer>();
+			for (int j = 1 + rnd.nextInt(6); j > 0; j--) {
+				set.add(rnd.nextInt(12));
+			}
+			result.add(set);
+		}
+		return result;
+	}
+
+	/**
+	 * Runs the given tasks in parallel threads, starting them at the same time
+	 */
+	static void runConcurrently(List<Runnable> tasks)
+			throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (final Runnable task : tasks) {
+			Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					task.run();
+				}
+
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+	@Test
+	public void concurrentAddIfMinimalTest() throws InterruptedException {
+		Random rnd = new Random();
+		long seed = rnd.nextLong();
+		rnd.setSeed(seed);
+		final List<Set<Integer>> sets = getRandomSets(rnd, 500);
+		final ConcurrentBloomTrieCollection2<Set<Integer>> tested = new ConcurrentBloomTrieCollection2<Set<Integer>>(
+				128, 2, 4);
+		final Set<Set<Integer>> added = Collections
+				.synchronizedSet(new HashSet<Set<Integer>>());
+		final int[] addedCount = { 0 };
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		for (int t = 0; t < THREADS_; t++) {
+			final List<Set<Integer>> shuffled = new ArrayList<Set<Integer>>(
+					sets);
+			Collections.shuffle(shuffled, rnd);
+			tasks.add(new Runnable() {
+
+				@Override
+				public void run() {
+					for (Set<Integer> set : shuffled) {
+						if (tested.addIfMinimal(set)) {
+							added.add(set);
+							synchronized (addedCount) {
+								addedCount[0]++;
+							}
+						}
+					}
+				}
+
+			});
+		}
+		runConcurrently(tasks);
+		// equal sets are added once
+		assertEquals("seed: " + seed, added.size(), addedCount[0]);
+		assertEquals("seed: " + seed, added.size(), tested.size());
+		// every set has a subset in the collection
+		for (Set<Integer> set : sets) {
+			assertTrue("seed: " + seed, !tested.isMinimal(set));
+		}
+		// a set is added only if no subset was added before it, so the
+		// sets without proper subsets among all sets are added
+		for (Set<Integer> set : sets) {
+			boolean hasProperSubset = false;
+			for (Set<Integer> other : sets) {
+				if (set.size() > other.size() && set.containsAll(other)) {
+					hasProperSubset = true;
+					break;
+				}
+			}
+			if (!hasProperSubset) {
+				assertTrue("seed: " + seed, tested.contains(set));
+			}
+		}
+	}
+
+	@Test
+	public void concurrentAntichainTest() throws InterruptedException {
+		Random rnd = new Random();
+		long seed = rnd.nextLong();
+		rnd.setSeed(seed);
+		final List<Set<Integer>> sets = getRandomSets(rnd, 500);
+		final ConcurrentBloomTrieCollection2<Set<Integer>> tested = new ConcurrentBloomTrieCollection2<Set<Integer>>(
+				128, 2, 4);
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		for (int t = 0; t < THREADS_; t++) {
+			final List<Set<Integer>> shuffled = new ArrayList<Set<Integer>>(
+					sets);
+			Collections.shuffle(shuffled, rnd);
+			tasks.add(new Runnable() {
+
+				@Override
+				public void run() {
+					for (Set<Integer> set : shuffled) {
+						tested.addIfMinimalAndRemoveSupersets(set);
+					}
+				}
+
+			});
+		}
+		runConcurrently(tasks);
+		// the result does not depend on the order of additions
+		Set<Set<Integer>> expected = new HashSet<Set<Integer>>();
+		for (Set<Integer> set : sets) {
+			boolean minimal = true;
+			for (Set<Integer> other : sets) {
+				if (set.size() > other.size() && set.containsAll(other)) {
+					minimal = false;
+					break;
+				}
+			}
+			if (minimal) {
+				expected.add(set);
+			}
+		}
+		assertEquals("seed: " + seed, expected.size(), tested.size());
+		for (Set<Integer> set : tested) {
+			assertTrue("seed: " + seed, expected.contains(set));
+		}
+	}
+
+	@Test
+	public void concurrentAddAndRemoveTest() throws InterruptedException {
+		Random rnd = new Random();
+		long seed = rnd.nextLong();
+		rnd.setSeed(seed);
+		final ConcurrentBloomTrieCollection2<Set<Integer>> tested = new ConcurrentBloomTrieCollection2<Set<Integer>>(
+				64, 1, 4);
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		for (int t = 0; t < THREADS_; t++) {
+			final List<Set<Integer>> sets = getRandomSets(rnd, 300);
+			tasks.add(new Runnable() {
+
+				@Override
+				public void run() {
+					for (Set<Integer> set : sets) {
+						tested.add(set);
+					}
+					for (Set<Integer> set : sets) {
+						assertTrue(tested.remove(set));
+					}
+				}
+
+			});
+		}
+		runConcurrently(tasks);
+		assertEquals("seed: " + seed, 0, tested.size());
+		assertTrue("seed: " + seed, !tested.iterator().hasNext());
+	}
+
+}
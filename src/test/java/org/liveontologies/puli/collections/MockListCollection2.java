@@ -75,4 +75,32 @@ public class MockListCollection2<C extends Collection<?>> extends ArrayList<C>
 		return !superCollectionsOf(s).iterator().hasNext();
 	}
 
+	@Override
+	public boolean addIfMinimalAndRemoveSupersets(C s) {
+		if (!isMinimal(s)) {
+			return false;
+		}
+		// else
+		for (Iterator<C> i = iterator(); i.hasNext();) {
+			if (i.next().containsAll(s)) {
+				i.remove();
+			}
+		}
+		return add(s);
+	}
+
+	@Override
+	public boolean addIfMaximalAndRemoveSubsets(C s) {
+		if (!isMaximal(s)) {
+			return false;
+		}
+		// else
+		for (Iterator<C> i = iterator(); i.hasNext();) {
+			if (s.containsAll(i.next())) {
+				i.remove();
+			}
+		}
+		return add(s);
+	}
+
 }
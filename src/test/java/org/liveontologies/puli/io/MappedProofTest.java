@@ -0,0 +1,82 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Proof;
+import org.liveontologies.puli.Proofs;
+
+public class MappedProofTest {
+
+	@Test
+	public void mappedProofRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 100; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			// mapped files may not be overwritten on some platforms
+			File file = File.createTempFile("proof", ".idx");
+			file.deleteOnExit();
+			int conclusionCount = 1 + random.nextInt(30);
+			Proof<AxiomPinpointingInference<Integer, String>> proof = ProofIoTest
+					.generate(random, conclusionCount);
+			// converting from the streaming format
+			byte[] bytes = ProofIoTest.write(proof, conclusionCount);
+			ProofReader<Integer, String> reader = new ProofReader<>(
+					new ByteArrayInputStream(bytes), ObjectCodecs.integer(),
+					ObjectCodecs.string());
+			ProofIndexer<Integer, String> indexer = new ProofIndexer<>(file,
+					ObjectCodecs.integer(), ObjectCodecs.string());
+			reader.readAll(indexer);
+			reader.close();
+			indexer.close();
+			// small segments to test values crossing their boundaries
+			MappedProof<Integer, String> mapped = new MappedProof<>(file,
+					Integer.class, ObjectCodecs.integer(), ObjectCodecs.string(),
+					3 + random.nextInt(10));
+			for (int conclusion = 0; conclusion < conclusionCount; conclusion++) {
+				List<AxiomPinpointingInference<Integer, String>> expected = new ArrayList<>(
+						proof.getInferences(conclusion));
+				List<AxiomPinpointingInference<Integer, String>> actual = new ArrayList<>(
+						mapped.getInferences(conclusion));
+				assertEquals("seed: " + seed, expected, actual);
+				assertEquals("seed: " + seed, actual, expected);
+				assertEquals("seed: " + seed,
+						Proofs.isDerivable(proof, conclusion),
+						Proofs.isDerivable(mapped, conclusion));
+			}
+			assertEquals(0, mapped.getInferences(conclusionCount).size());
+			assertEquals(0, mapped.getInferences("0").size());
+			mapped.close();
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.BaseProof;
+import org.liveontologies.puli.BaseProofBuilder;
+import org.liveontologies.puli.CompactProof;
+import org.liveontologies.puli.Proof;
+import org.liveontologies.puli.ProofBuilder;
+import org.liveontologies.puli.Proofs;
+
+public class ProofIoTest {
+
+	static Proof<AxiomPinpointingInference<Integer, String>> generate(
+			Random random, int conclusionCount) {
+		BaseProofBuilder<Integer, String> b = new BaseProofBuilder<>();
+		for (int i = random.nextInt(3 * conclusionCount); i > 0; i--) {
+			ProofBuilder<Integer, String, ?>.ProofInferenceBuilder ib = b
+					.conclusion(random.nextInt(conclusionCount));
+			for (int j = random.nextInt(4); j > 0; j--) {
+				ib.premise(random.nextInt(conclusionCount));
+			}
+			for (int j = random.nextInt(3); j > 0; j--) {
+				ib.axiom("axiom" + random.nextInt(10));
+			}
+			ib.add();
+		}
+		return b.getProof();
+	}
+
+	static byte[] write(Proof<AxiomPinpointingInference<Integer, String>> proof,
+			int conclusionCount) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ProofWriter<Integer, String> writer = new ProofWriter<>(out,
+				ObjectCodecs.integer(), ObjectCodecs.string());
+		for (int goal = 0; goal < conclusionCount; goal++) {
+			for (AxiomPinpointingInference<Integer, String> inf : proof
+					.getInferences(goal)) {
+				writer.write(inf);
+			}
+		}
+		writer.close();
+		return out.toByteArray();
+	}
+
+	@Test
+	public void roundTripRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 100; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 1 + random.nextInt(30);
+			Proof<AxiomPinpointingInference<Integer, String>> proof = generate(
+					random, conclusionCount);
+			byte[] bytes = write(proof, conclusionCount);
+			BaseProof<AxiomPinpointingInference<Integer, String>> base = new BaseProof<>();
+			CompactProof<Integer, String> compact = new CompactProof<>();
+			ProofReader<Integer, String> reader = new ProofReader<>(
+					new ByteArrayInputStream(bytes), ObjectCodecs.integer(),
+					ObjectCodecs.string());
+			reader.readAll(base);
+			reader.close();
+			reader = new ProofReader<>(new ByteArrayInputStream(bytes),
+					ObjectCodecs.integer(), ObjectCodecs.string());
+			reader.readAll(compact);
+			reader.close();
+			for (int conclusion = 0; conclusion < conclusionCount; conclusion++) {
+				List<AxiomPinpointingInference<Integer, String>> expected = new ArrayList<>(
+						proof.getInferences(conclusion));
+				assertEquals("seed: " + seed, expected,
+						new ArrayList<>(base.getInferences(conclusion)));
+				assertEquals("seed: " + seed, expected,
+						new ArrayList<>(compact.getInferences(conclusion)));
+			}
+		}
+	}
+
+	@Test
+	public void unfoldTest() throws Exception {
+		BaseProofBuilder<Integer, String> b = new BaseProofBuilder<>();
+		b.conclusion(1).premise(2).premise(3).axiom("a").add();
+		b.conclusion(2).axiom("b").add();
+		b.conclusion(3).premise(2).axiom("a").axiom("c").add();
+		b.conclusion(4).premise(1).add();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ProofWriter<Integer, String> writer = new ProofWriter<>(out,
+				ObjectCodecs.integer(), ObjectCodecs.string());
+		Proofs.unfoldRecursively(b.getProof(), 1, writer);
+		writer.close();
+		BaseProof<AxiomPinpointingInference<Integer, String>> read = new BaseProof<>();
+		ProofReader<Integer, String> reader = new ProofReader<>(
+				new ByteArrayInputStream(out.toByteArray()),
+				ObjectCodecs.integer(), ObjectCodecs.string());
+		reader.readAll(read);
+		reader.close();
+		for (int conclusion = 1; conclusion <= 3; conclusion++) {
+			assertEquals(b.getProof().getInferences(conclusion),
+					read.getInferences(conclusion));
+		}
+		// not reachable from 1
+		assertEquals(0, read.getInferences(4).size());
+	}
+
+	@Test
+	public void corruptedInputTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 100; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 1 + random.nextInt(30);
+			byte[] bytes = write(generate(random, conclusionCount),
+					conclusionCount);
+			int pos = random.nextInt(bytes.length);
+			bytes[pos] ^= 1 << random.nextInt(8);
+			try {
+				ProofReader<Integer, String> reader = new ProofReader<>(
+						new ByteArrayInputStream(bytes), ObjectCodecs.integer(),
+						ObjectCodecs.string());
+				reader.readAll(new BaseProof<AxiomPinpointingInference<Integer, String>>());
+				reader.close();
+				fail("seed: " + seed + ": corruption not detected");
+			} catch (IOException e) {
+				// expected
+			}
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Proof;
+
+/**
+ * Tests that {@link IncrementalRepairComputation} computes the same repairs
+ * from a stream of justifications as {@link TopDownRepairComputation} from the
+ * proof
+ */
+public class IncrementalRepairComputationTest {
+
+	static Set<Set<? extends Integer>> repairs(
+			AxiomPinpointingCollector<Integer> collector) {
+		return new HashSet<Set<? extends Integer>>(collector.getRepairs());
+	}
+
+	@Test
+	public void randomProofTest() {
+		Random random = new Random();
+		for (int round = 0; round < 100; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			final Proof<AxiomPinpointingInference<Integer, Integer>> proof = ResumableEnumerationTest
+					.generate(random, 1 + random.nextInt(6));
+			AxiomPinpointingCollector<Integer> expected = new AxiomPinpointingCollector<Integer>();
+			TopDownRepairComputation.<Integer, Integer> getFactory()
+					.create(query -> proof,
+							AxiomPinpointingInterruptMonitor.DUMMY)
+					.enumerate(0, expected);
+			AxiomPinpointingCollector<Integer> actual = new AxiomPinpointingCollector<Integer>();
+			IncrementalRepairComputation<Integer> computation = new IncrementalRepairComputation<Integer>(
+					actual);
+			ResolutionJustificationEnumerator
+					.<Integer, Integer> getFactory()
+					.create(query -> proof,
+							AxiomPinpointingInterruptMonitor.DUMMY)
+					.enumerate(0, new JustificationListenerAdapter<Integer>(
+							computation));
+			assertEquals("seed: " + seed, repairs(expected), repairs(actual));
+		}
+	}
+
+	@Test
+	public void currentRepairsTest() {
+		AxiomPinpointingCollector<String> collector = new AxiomPinpointingCollector<String>();
+		IncrementalRepairComputation<String> computation = new IncrementalRepairComputation<String>(
+				collector);
+		computation.computesJustifications();
+		List<Set<String>> justifications = new ArrayList<Set<String>>();
+		justifications.add(MinimalHittingSetEnumeratorTest.set("a", "b"));
+		justifications.add(MinimalHittingSetEnumeratorTest.set("b", "c"));
+		justifications.add(MinimalHittingSetEnumeratorTest.set("c", "d"));
+		for (int i = 0; i < justifications.size(); i++) {
+			computation.newJustificationFound();
+			for (String axiom : justifications.get(i)) {
+				computation.usefulAxiom(axiom);
+			}
+			computation.newJustificationComplete();
+			assertEquals(
+					new HashSet<Set<? extends String>>(
+							MinimalHittingSetEnumerator.compute(
+									justifications.subList(0, i + 1))),
+					new HashSet<Set<? extends String>>(
+							computation.getCurrentRepairs()));
+		}
+		// nothing is reported before completion
+		assertEquals(0, collector.getRepairs().size());
+		computation.computationComplete();
+		assertEquals(
+				new HashSet<Set<? extends String>>(
+						MinimalHittingSetEnumerator.compute(justifications)),
+				new HashSet<Set<? extends String>>(collector.getRepairs()));
+	}
+
+}
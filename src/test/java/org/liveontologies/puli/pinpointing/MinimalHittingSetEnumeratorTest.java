@@ -0,0 +1,144 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for the dedicated search in {@link MinimalHittingSetEnumerator}
+ */
+public class MinimalHittingSetEnumeratorTest {
+
+	static <E> Set<Set<? extends E>> compute(
+			MinimalHittingSetEnumerator<E> enumerator,
+			Collection<? extends Set<? extends E>> sets) {
+		AxiomPinpointingCollector<E> collector = new AxiomPinpointingCollector<E>();
+		enumerator.enumerate(sets, collector);
+		Set<Set<? extends E>> result = new HashSet<Set<? extends E>>(
+				collector.getRepairs());
+		// every hitting set should be reported once
+		assertEquals(collector.getRepairs().size(), result.size());
+		return result;
+	}
+
+	static Set<Set<? extends String>> compute(
+			Collection<? extends Set<? extends String>> sets) {
+		return compute(new MinimalHittingSetEnumerator<String>(
+				AxiomPinpointingInterruptMonitor.DUMMY), sets);
+	}
+
+	static Set<String> set(String... elements) {
+		return new HashSet<String>(Arrays.asList(elements));
+	}
+
+	@Test
+	public void exampleTest() {
+		assertEquals(new HashSet<Set<String>>(Arrays.asList(set("a", "c"),
+				set("b"))), compute(Arrays.asList(set("a", "b"), set("b", "c"))));
+	}
+
+	@Test
+	public void emptyFamilyTest() {
+		assertEquals(Collections.singleton(set()),
+				compute(Collections.<Set<String>> emptyList()));
+	}
+
+	@Test
+	public void emptySetTest() {
+		assertEquals(Collections.emptySet(),
+				compute(Arrays.asList(set("a", "b"), set())));
+	}
+
+	@Test
+	public void largeFamilyTest() {
+		// every set contains "x" and "y", so the minimal hitting sets are
+		// {x}, {y} and the set of all remaining elements
+		List<Set<String>> sets = new ArrayList<Set<String>>();
+		Set<String> rest = new HashSet<String>();
+		for (int i = 0; i < 5000; i++) {
+			String element = "z" + i;
+			sets.add(set("x", "y", element));
+			rest.add(element);
+		}
+		assertEquals(
+				new HashSet<Set<String>>(
+						Arrays.asList(set("x"), set("y"), rest)),
+				compute(sets));
+	}
+
+	@Test
+	public void randomTest() {
+		Random random = new Random();
+		MinimalHittingSetEnumerator<Integer> repairBased = new MinimalHittingSetEnumerator<Integer>(
+				TopDownRepairComputation.<Object, Integer> getFactory(),
+				AxiomPinpointingInterruptMonitor.DUMMY);
+		MinimalHittingSetEnumerator<Integer> dedicated = new MinimalHittingSetEnumerator<Integer>(
+				AxiomPinpointingInterruptMonitor.DUMMY);
+		for (int round = 0; round < 200; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			List<Set<Integer>> sets = new ArrayList<Set<Integer>>();
+			for (int i = random.nextInt(12); i > 0; i--) {
+				Set<Integer> set = new HashSet<Integer>();
+				for (int j = random.nextInt(5); j > 0; j--) {
+					set.add(random.nextInt(10));
+				}
+				sets.add(set);
+			}
+			assertEquals("seed: " + seed, compute(repairBased, sets),
+					compute(dedicated, sets));
+		}
+	}
+
+	@Test
+	public void interruptTest() {
+		List<Set<String>> sets = new ArrayList<Set<String>>();
+		for (int i = 0; i < 20; i++) {
+			sets.add(set("a" + i, "b" + i));
+		}
+		final int[] checks = { 0 };
+		AxiomPinpointingCollector<String> collector = new AxiomPinpointingCollector<String>();
+		new MinimalHittingSetEnumerator<String>(
+				new AxiomPinpointingInterruptMonitor() {
+
+					@Override
+					public boolean isInterrupted() {
+						return ++checks[0] > 100;
+					}
+
+				}).enumerate(sets, collector);
+		// 2^20 hitting sets cannot be found after 100 steps
+		assertEquals(true, collector.getRepairs().size() < 100);
+	}
+
+}
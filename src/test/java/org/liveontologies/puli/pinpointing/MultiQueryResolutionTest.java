@@ -0,0 +1,88 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Proof;
+import org.liveontologies.puli.RandomProof;
+
+/**
+ * Checks that {@link ResolutionJustificationEnumerator} used for several
+ * queries computes the same justifications as a new enumerator for every
+ * query
+ */
+public class MultiQueryResolutionTest {
+
+	@Test
+	public void multiQueryRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 30; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 2 + random.nextInt(6);
+			final Proof<AxiomPinpointingInference<Integer, Integer>> proof = RandomProof
+					.generateWithAxioms(random, conclusionCount, 2, 20, 1,
+							random.nextInt(10 * conclusionCount));
+			for (ResolutionJustificationEnumerator.SelectionType selection : ResolutionJustificationEnumerator.SelectionType
+					.values()) {
+				final List<Object> finished = new ArrayList<>();
+				ProverAxiomPinpointingEnumerationFactory<Integer, Integer> factory = ResolutionJustificationEnumerator
+						.getFactory(selection,
+								PriorityComparators.<Integer> cardinality(),
+								new ResolutionJustificationEnumerator.DummyStatusListener() {
+									@Override
+									public void queryFinished(Object query,
+											long elapsedNanos) {
+										finished.add(query);
+									}
+								});
+				AxiomPinpointingEnumerator<Integer, Integer> shared = factory
+						.create(query -> proof,
+								AxiomPinpointingInterruptMonitor.DUMMY);
+				List<Integer> queries = new ArrayList<>();
+				for (int k = 2 * conclusionCount; k > 0; k--) {
+					queries.add(random.nextInt(conclusionCount));
+				}
+				for (Integer goal : queries) {
+					AxiomPinpointingCollector<Integer> collector = new AxiomPinpointingCollector<>();
+					shared.enumerate(goal, collector);
+					Set<Set<? extends Integer>> expected = new HashSet<>(
+							RandomProof.collect(factory, proof, goal));
+					assertEquals("seed: " + seed, expected,
+							new HashSet<>(collector.getJustifications()));
+				}
+				assertEquals("seed: " + seed, 2 * queries.size(),
+						finished.size());
+			}
+		}
+	}
+
+}
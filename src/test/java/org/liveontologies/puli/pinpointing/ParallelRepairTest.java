@@ -0,0 +1,66 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Proof;
+import org.liveontologies.puli.RandomProof;
+
+/**
+ * Compares the repairs computed by {@link TopDownRepairComputation} in the
+ * sequential and the parallel modes on random proofs
+ */
+public class ParallelRepairTest {
+
+	@Test
+	public void parallelRepairRandomTest() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Random random = new Random();
+		ProverAxiomPinpointingEnumerationFactory<Integer, Integer> sequential = TopDownRepairComputation
+				.getFactory();
+		ProverAxiomPinpointingEnumerationFactory<Integer, Integer> parallel = TopDownRepairComputation
+				.getFactory(PriorityComparators.<Integer> cardinality(),
+						Integer.MAX_VALUE, null,
+						new TopDownRepairComputation.DummyStatusListener(),
+						pool);
+		for (int round = 0; round < 30; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 2 + random.nextInt(4);
+			Proof<AxiomPinpointingInference<Integer, Integer>> proof = RandomProof
+					.generateWithAxioms(random, conclusionCount, 2, 30, 3,
+							random.nextInt(10 * conclusionCount));
+			for (int goal = 0; goal < conclusionCount; goal++) {
+				ParallelResolutionTest.assertSameInCardinalityOrder(
+						"seed: " + seed,
+						RandomProof.collect(sequential, proof, goal),
+						RandomProof.collect(parallel, proof, goal));
+			}
+		}
+		pool.shutdown();
+	}
+
+}
@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Proof;
+import org.liveontologies.puli.RandomProof;
+
+/**
+ * Compares the justifications computed by
+ * {@link ResolutionJustificationEnumerator} in the sequential and the
+ * parallel modes on random proofs
+ */
+public class ParallelResolutionTest {
+
+	@Test
+	public void parallelResolutionRandomTest() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Random random = new Random();
+		for (int round = 0; round < 30; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 2 + random.nextInt(4);
+			Proof<AxiomPinpointingInference<Integer, Integer>> proof = RandomProof
+					.generateWithAxioms(random, conclusionCount, 2, 40, 1,
+							random.nextInt(20 * conclusionCount));
+			for (ResolutionJustificationEnumerator.SelectionType selection : ResolutionJustificationEnumerator.SelectionType
+					.values()) {
+				ProverAxiomPinpointingEnumerationFactory<Integer, Integer> sequential = ResolutionJustificationEnumerator
+						.getFactory(selection);
+				ProverAxiomPinpointingEnumerationFactory<Integer, Integer> parallel = ResolutionJustificationEnumerator
+						.getFactory(selection,
+								PriorityComparators.<Integer> cardinality(),
+								new ResolutionJustificationEnumerator.DummyStatusListener(),
+								pool);
+				for (int goal = 0; goal < conclusionCount; goal++) {
+					assertSameInCardinalityOrder("seed: " + seed,
+							RandomProof.collect(sequential, proof, goal),
+							RandomProof.collect(parallel, proof, goal));
+				}
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Checks that the actual results are the expected ones, each reported
+	 * exactly once and in the order of increasing cardinality
+	 */
+	static void assertSameInCardinalityOrder(String message,
+			List<Set<? extends Integer>> expected,
+			List<Set<? extends Integer>> actual) {
+		assertEquals(message, actual.size(), new HashSet<>(actual).size());
+		assertEquals(message, new HashSet<>(expected), new HashSet<>(actual));
+		for (int i = 1; i < actual.size(); i++) {
+			assertTrue(message,
+					actual.get(i - 1).size() <= actual.get(i).size());
+		}
+	}
+
+}
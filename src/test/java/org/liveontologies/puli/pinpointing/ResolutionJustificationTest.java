@@ -21,6 +21,7 @@
  */
 package org.liveontologies.puli.pinpointing;
 
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 import org.junit.runner.RunWith;
@@ -34,10 +35,18 @@ public class ResolutionJustificationTest<C, A, I extends AxiomPinpointingInferen
 
 	@Parameters(name = "{index}: {0}: {1}")
 	public static Iterable<Object[]> data() throws Exception {
-		return data(Stream
-				.of(ResolutionJustificationEnumerator.SelectionType.values())
-				.map(selection -> ResolutionJustificationEnumerator
-						.getFactory(selection)));
+		return data(Stream.concat(
+				Stream.of(ResolutionJustificationEnumerator.SelectionType
+						.values())
+						.map(selection -> ResolutionJustificationEnumerator
+								.getFactory(selection)),
+				Stream.of(ResolutionJustificationEnumerator.SelectionType
+						.values())
+						.map(selection -> ResolutionJustificationEnumerator
+								.getFactory(selection,
+										PriorityComparators.cardinality(),
+										new ResolutionJustificationEnumerator.DummyStatusListener(),
+										ForkJoinPool.commonPool()))));
 	}
 
 }
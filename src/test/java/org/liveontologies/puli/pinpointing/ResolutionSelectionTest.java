@@ -0,0 +1,88 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Proof;
+import org.liveontologies.puli.RandomProof;
+
+/**
+ * Checks that justifications computed using different
+ * {@link ResolutionSelection}s are the same
+ */
+public class ResolutionSelectionTest {
+
+	static final List<ResolutionSelection> SELECTIONS_ = Arrays.asList(
+			ResolutionSelection.threshold(0), ResolutionSelection.threshold(1),
+			ResolutionSelection.threshold(5), ResolutionSelection.topDown(),
+			// switches to the fallback almost immediately
+			ResolutionSelection.adaptive(ResolutionSelection.topDown(),
+					ResolutionSelection.bottomUp(), 2, 0.5),
+			ResolutionSelection.adaptive(ResolutionSelection.bottomUp(),
+					ResolutionSelection.threshold(1), 2, 0.5));
+
+	@Test
+	public void selectionRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 30; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 2 + random.nextInt(5);
+			final Proof<AxiomPinpointingInference<Integer, Integer>> proof = ResumableEnumerationTest
+					.generate(random, conclusionCount);
+			ProverAxiomPinpointingEnumerationFactory<Integer, Integer> expectedFactory = ResolutionJustificationEnumerator
+					.getFactory(ResolutionSelection.bottomUp(),
+							PriorityComparators.<Integer> cardinality(),
+							Integer.MAX_VALUE, null,
+							new ResolutionJustificationEnumerator.DummyStatusListener(),
+							null);
+			for (ResolutionSelection selection : SELECTIONS_) {
+				ProverAxiomPinpointingEnumerationFactory<Integer, Integer> factory = ResolutionJustificationEnumerator
+						.getFactory(selection,
+								PriorityComparators.<Integer> cardinality(),
+								Integer.MAX_VALUE, null,
+								new ResolutionJustificationEnumerator.DummyStatusListener(),
+								null);
+				AxiomPinpointingEnumerator<Integer, Integer> enumerator = factory
+						.create(query -> proof,
+								AxiomPinpointingInterruptMonitor.DUMMY);
+				for (int goal = 0; goal < conclusionCount; goal++) {
+					Set<Set<? extends Integer>> expected = new HashSet<>(
+							RandomProof.collect(expectedFactory, proof, goal));
+					assertEquals("seed: " + seed + ", " + selection, expected,
+							new HashSet<>(TopKEnumerationTest
+									.enumerate(enumerator, goal)));
+				}
+			}
+		}
+	}
+
+}
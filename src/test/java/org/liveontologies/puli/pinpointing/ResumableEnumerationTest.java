@@ -0,0 +1,213 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Proof;
+import org.liveontologies.puli.RandomProof;
+import org.liveontologies.puli.io.ObjectCodecs;
+
+/**
+ * Checks that the interrupted computations of justifications and repairs can
+ * be resumed and that the results are the same as for the uninterrupted
+ * computations
+ */
+public class ResumableEnumerationTest {
+
+	/**
+	 * interrupts the computation after the given number of checks
+	 */
+	static class CountingInterruptMonitor
+			implements AxiomPinpointingInterruptMonitor {
+
+		int remaining_;
+
+		@Override
+		public boolean isInterrupted() {
+			return remaining_-- == 0;
+		}
+
+	}
+
+	static Proof<AxiomPinpointingInference<Integer, Integer>> generate(
+			Random random, int conclusionCount) {
+		return RandomProof.generateWithAxioms(random, conclusionCount, 2, 10,
+				1, random.nextInt(5 * conclusionCount));
+	}
+
+	static List<ProverAxiomPinpointingEnumerationFactory<Integer, Integer>> getFactories() {
+		List<ProverAxiomPinpointingEnumerationFactory<Integer, Integer>> result = new ArrayList<>();
+		for (ResolutionJustificationEnumerator.SelectionType selection : ResolutionJustificationEnumerator.SelectionType
+				.values()) {
+			result.add(ResolutionJustificationEnumerator.getFactory(selection));
+		}
+		result.add(TopDownRepairComputation.getFactory());
+		return result;
+	}
+
+	static Collection<Set<? extends Integer>> getResults(
+			AxiomPinpointingCollector<Integer> collector) {
+		return collector.getJustifications() == null ? collector.getRepairs()
+				: collector.getJustifications();
+	}
+
+	@Test
+	public void resumeRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 30; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 2 + random.nextInt(5);
+			final Proof<AxiomPinpointingInference<Integer, Integer>> proof = generate(
+					random, conclusionCount);
+			for (ProverAxiomPinpointingEnumerationFactory<Integer, Integer> factory : getFactories()) {
+				CountingInterruptMonitor monitor = new CountingInterruptMonitor();
+				AxiomPinpointingEnumerator<Integer, Integer> interrupted = factory
+						.create(query -> proof, monitor);
+				for (int goal = 0; goal < conclusionCount; goal++) {
+					AxiomPinpointingCollector<Integer> expected = new AxiomPinpointingCollector<>();
+					factory.create(query -> proof,
+							AxiomPinpointingInterruptMonitor.DUMMY)
+							.enumerate(goal, expected);
+					List<Set<? extends Integer>> actual = new ArrayList<>();
+					AbstractProofAxiomPinpointingEnumerator<Integer, Integer, ?> enumerator = (AbstractProofAxiomPinpointingEnumerator<Integer, Integer, ?>) interrupted;
+					do {
+						monitor.remaining_ = random.nextInt(5);
+						AxiomPinpointingCollector<Integer> collector = new AxiomPinpointingCollector<>();
+						enumerator.enumerate(goal, collector);
+						actual.addAll(getResults(collector));
+					} while (enumerator.isSuspended(goal));
+					// reported exactly once
+					assertEquals("seed: " + seed, actual.size(),
+							new HashSet<>(actual).size());
+					assertEquals("seed: " + seed,
+							new HashSet<>(getResults(expected)),
+							new HashSet<>(actual));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void checkpointRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 30; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 2 + random.nextInt(5);
+			final Proof<AxiomPinpointingInference<Integer, Integer>> proof = generate(
+					random, conclusionCount);
+			for (ResolutionJustificationEnumerator.SelectionType selection : ResolutionJustificationEnumerator.SelectionType
+					.values()) {
+				ProverAxiomPinpointingEnumerationFactory<Integer, Integer> factory = ResolutionJustificationEnumerator
+						.getFactory(selection);
+				CountingInterruptMonitor monitor = new CountingInterruptMonitor();
+				ResolutionJustificationEnumerator<Integer, Integer, ?> enumerator = (ResolutionJustificationEnumerator<Integer, Integer, ?>) factory
+						.create(query -> proof, monitor);
+				for (int goal = 0; goal < conclusionCount; goal++) {
+					AxiomPinpointingCollector<Integer> expected = new AxiomPinpointingCollector<>();
+					factory.create(query -> proof,
+							AxiomPinpointingInterruptMonitor.DUMMY)
+							.enumerate(goal, expected);
+					List<Set<? extends Integer>> actual = new ArrayList<>();
+					do {
+						monitor.remaining_ = random.nextInt(5);
+						AxiomPinpointingCollector<Integer> collector = new AxiomPinpointingCollector<>();
+						enumerator.enumerate(goal, collector);
+						actual.addAll(collector.getJustifications());
+						// continue with a copy of the enumerator
+						ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+						enumerator.writeCheckpoint(
+								new DataOutputStream(bytes),
+								ObjectCodecs.integer(), ObjectCodecs.integer());
+						enumerator = (ResolutionJustificationEnumerator<Integer, Integer, ?>) factory
+								.create(query -> proof, monitor);
+						assertFalse(enumerator.isSuspended(goal));
+						enumerator.readCheckpoint(
+								new DataInputStream(new ByteArrayInputStream(
+										bytes.toByteArray())),
+								ObjectCodecs.integer(), ObjectCodecs.integer());
+					} while (enumerator.isSuspended(goal));
+					assertEquals("seed: " + seed, actual.size(),
+							new HashSet<>(actual).size());
+					assertEquals("seed: " + seed,
+							new HashSet<>(expected.getJustifications()),
+							new HashSet<>(actual));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void discardSuspendedTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 30; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 2 + random.nextInt(5);
+			final Proof<AxiomPinpointingInference<Integer, Integer>> proof = generate(
+					random, conclusionCount);
+			for (ProverAxiomPinpointingEnumerationFactory<Integer, Integer> factory : getFactories()) {
+				CountingInterruptMonitor monitor = new CountingInterruptMonitor();
+				AbstractProofAxiomPinpointingEnumerator<Integer, Integer, ?> enumerator = (AbstractProofAxiomPinpointingEnumerator<Integer, Integer, ?>) factory
+						.create(query -> proof, monitor);
+				for (int goal = 0; goal < conclusionCount; goal++) {
+					// interrupt another query first
+					monitor.remaining_ = random.nextInt(5);
+					enumerator.enumerate(random.nextInt(conclusionCount),
+							new AxiomPinpointingCollector<Integer>());
+					AxiomPinpointingCollector<Integer> expected = new AxiomPinpointingCollector<>();
+					factory.create(query -> proof,
+							AxiomPinpointingInterruptMonitor.DUMMY)
+							.enumerate(goal, expected);
+					if (enumerator.isSuspended(goal)) {
+						enumerator.discardSuspended();
+					}
+					monitor.remaining_ = -1;
+					AxiomPinpointingCollector<Integer> actual = new AxiomPinpointingCollector<>();
+					enumerator.enumerate(goal, actual);
+					assertTrue(!enumerator.isSuspended(goal));
+					assertEquals("seed: " + seed,
+							new HashSet<>(getResults(expected)),
+							new HashSet<>(getResults(actual)));
+				}
+			}
+		}
+	}
+
+}
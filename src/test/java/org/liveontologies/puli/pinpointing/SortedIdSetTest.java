@@ -0,0 +1,109 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.google.common.primitives.Ints;
+
+/**
+ * Tests for the operations on sorted arrays of ids in {@link SortedIdSet}
+ */
+public class SortedIdSetTest {
+
+	static int[] randomIds(Random random) {
+		SortedSet<Integer> ids = new TreeSet<>();
+		for (int i = random.nextInt(8); i > 0; i--) {
+			ids.add(random.nextInt(12));
+		}
+		return Ints.toArray(ids);
+	}
+
+	@Test
+	public void unionRandomTest() {
+		Random random = new Random();
+		for (int round = 0; round < 1000; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int[] first = randomIds(random);
+			int[] second = randomIds(random);
+			SortedSet<Integer> expected = new TreeSet<>(Ints.asList(first));
+			expected.addAll(Ints.asList(second));
+			int[] union = SortedIdSet.union(first, second);
+			assertEquals("seed: " + seed, Ints.asList(Ints.toArray(expected)),
+					Ints.asList(union));
+			if (expected.size() == first.length) {
+				assertTrue("seed: " + seed, first == union);
+			}
+			int excluded = random.nextInt(12);
+			if (Ints.contains(first, excluded)) {
+				continue;
+			}
+			// else
+			expected.remove(excluded);
+			int size = SortedIdSet.unionSize(first, second, excluded);
+			assertEquals("seed: " + seed, expected.size(), size);
+			assertEquals("seed: " + seed, Ints.asList(Ints.toArray(expected)),
+					Ints.asList(SortedIdSet.unionWithout(first, second,
+							excluded, size)));
+		}
+	}
+
+	@Test
+	public void addRandomTest() {
+		Random random = new Random();
+		for (int round = 0; round < 1000; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int[] ids = randomIds(random);
+			int id = random.nextInt(12);
+			SortedSet<Integer> expected = new TreeSet<>(Ints.asList(ids));
+			expected.add(id);
+			int[] result = SortedIdSet.add(ids, id);
+			assertEquals("seed: " + seed, Ints.asList(Ints.toArray(expected)),
+					Ints.asList(result));
+			if (Ints.contains(ids, id)) {
+				assertTrue("seed: " + seed, ids == result);
+			}
+			// with duplicates in random order
+			int[] unsorted = new int[random.nextInt(10)];
+			for (int i = 0; i < unsorted.length; i++) {
+				unsorted[i] = random.nextInt(6);
+			}
+			int size = unsorted.length == 0 ? 0
+					: random.nextInt(unsorted.length + 1);
+			expected = new TreeSet<>(
+					Ints.asList(Arrays.copyOf(unsorted, size)));
+			assertEquals("seed: " + seed, Ints.asList(Ints.toArray(expected)),
+					Ints.asList(SortedIdSet.sortDistinct(unsorted, size)));
+		}
+	}
+
+}
@@ -21,6 +21,7 @@
  */
 package org.liveontologies.puli.pinpointing;
 
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 import org.junit.runner.RunWith;
@@ -34,7 +35,11 @@ public class TopDownRepairTest<C, A, I extends AxiomPinpointingInference<? exten
 
 	@Parameters(name = "{index}: {0}: {1}")
 	public static Iterable<Object[]> data() throws Exception {
-		return data(Stream.of(TopDownRepairComputation.getFactory()));
+		return data(Stream.of(TopDownRepairComputation.getFactory(),
+				TopDownRepairComputation.getFactory(
+						PriorityComparators.cardinality(), Integer.MAX_VALUE,
+						null, new TopDownRepairComputation.DummyStatusListener(),
+						ForkJoinPool.commonPool())));
 	}
 
 }
@@ -0,0 +1,148 @@
+/*-
+ * #%L
+ * Proof Utility Library
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2014 - 2017 Live Ontologies Project
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.liveontologies.puli.pinpointing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.liveontologies.puli.AxiomPinpointingInference;
+import org.liveontologies.puli.Proof;
+
+/**
+ * Checks that the enumerations with a limit on the number of results or with
+ * a bound on their priorities report the first results of the unrestricted
+ * enumerations
+ */
+public class TopKEnumerationTest {
+
+	static List<ProverAxiomPinpointingEnumerationFactory<Integer, Integer>> getFactories(
+			int limit, Integer bound) {
+		List<ProverAxiomPinpointingEnumerationFactory<Integer, Integer>> result = new ArrayList<>();
+		for (ResolutionJustificationEnumerator.SelectionType selection : ResolutionJustificationEnumerator.SelectionType
+				.values()) {
+			result.add(ResolutionJustificationEnumerator.getFactory(selection,
+					PriorityComparators.<Integer> cardinality(), limit, bound,
+					new ResolutionJustificationEnumerator.DummyStatusListener(),
+					null));
+			result.add(ResolutionJustificationEnumerator.getFactory(selection,
+					PriorityComparators.<Integer> cardinality(), limit, bound,
+					new ResolutionJustificationEnumerator.DummyStatusListener(),
+					ForkJoinPool.commonPool()));
+		}
+		result.add(TopDownRepairComputation.getFactory(
+				PriorityComparators.<Integer> cardinality(), limit, bound,
+				new TopDownRepairComputation.DummyStatusListener()));
+		return result;
+	}
+
+	static Collection<Set<? extends Integer>> enumerate(
+			AxiomPinpointingEnumerator<Integer, Integer> enumerator,
+			Integer goal) {
+		AxiomPinpointingCollector<Integer> collector = new AxiomPinpointingCollector<>();
+		enumerator.enumerate(goal, collector);
+		return ResumableEnumerationTest.getResults(collector);
+	}
+
+	@Test
+	public void topKRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 30; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 2 + random.nextInt(5);
+			final Proof<AxiomPinpointingInference<Integer, Integer>> proof = ResumableEnumerationTest
+					.generate(random, conclusionCount);
+			int limit = random.nextInt(4);
+			List<ProverAxiomPinpointingEnumerationFactory<Integer, Integer>> all = getFactories(
+					Integer.MAX_VALUE, null);
+			List<ProverAxiomPinpointingEnumerationFactory<Integer, Integer>> limited = getFactories(
+					limit, null);
+			for (int i = 0; i < all.size(); i++) {
+				AxiomPinpointingEnumerator<Integer, Integer> enumerator = limited
+						.get(i).create(query -> proof,
+								AxiomPinpointingInterruptMonitor.DUMMY);
+				for (int goal = 0; goal < conclusionCount; goal++) {
+					List<Set<? extends Integer>> expected = new ArrayList<>(
+							enumerate(all.get(i).create(query -> proof,
+									AxiomPinpointingInterruptMonitor.DUMMY),
+									goal));
+					List<Set<? extends Integer>> actual = new ArrayList<>(
+							enumerate(enumerator, goal));
+					assertEquals("seed: " + seed,
+							Math.min(limit, expected.size()), actual.size());
+					assertTrue("seed: " + seed,
+							expected.containsAll(actual));
+					// the first results in the order of the priority
+					for (int j = 0; j < actual.size(); j++) {
+						assertEquals("seed: " + seed, expected.get(j).size(),
+								actual.get(j).size());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void priorityBoundRandomTest() throws Exception {
+		Random random = new Random();
+		for (int round = 0; round < 30; round++) {
+			long seed = random.nextLong();
+			random.setSeed(seed);
+			int conclusionCount = 2 + random.nextInt(5);
+			final Proof<AxiomPinpointingInference<Integer, Integer>> proof = ResumableEnumerationTest
+					.generate(random, conclusionCount);
+			int bound = random.nextInt(4);
+			List<ProverAxiomPinpointingEnumerationFactory<Integer, Integer>> all = getFactories(
+					Integer.MAX_VALUE, null);
+			List<ProverAxiomPinpointingEnumerationFactory<Integer, Integer>> bounded = getFactories(
+					Integer.MAX_VALUE, bound);
+			for (int i = 0; i < all.size(); i++) {
+				AxiomPinpointingEnumerator<Integer, Integer> enumerator = bounded
+						.get(i).create(query -> proof,
+								AxiomPinpointingInterruptMonitor.DUMMY);
+				for (int goal = 0; goal < conclusionCount; goal++) {
+					Set<Set<? extends Integer>> expected = new HashSet<>();
+					for (Set<? extends Integer> result : enumerate(
+							all.get(i).create(query -> proof,
+									AxiomPinpointingInterruptMonitor.DUMMY),
+							goal)) {
+						if (result.size() <= bound) {
+							expected.add(result);
+						}
+					}
+					assertEquals("seed: " + seed, expected,
+							new HashSet<>(enumerate(enumerator, goal)));
+				}
+			}
+		}
+	}
+
+}